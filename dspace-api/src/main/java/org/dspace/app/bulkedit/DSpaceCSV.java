@@ -119,131 +119,154 @@ public class DSpaceCSV implements Serializable
             input = new BufferedReader(new InputStreamReader(new FileInputStream(f),"UTF-8"));
 
             // Read the heading line
-            String head = input.readLine();
-            String[] headingElements = head.split(escapedFieldSeparator);
-            int columnCounter = 0;
-            for (String element : headingElements)
+            readHeadings(input.readLine(), c);
+
+            // Read each subsequent line
+            String record;
+            while ((record = readRecord(input)) != null)
+            {
+                addItem(record);
+            }
+        }
+        finally
+        {
+            if (input != null)
             {
-                columnCounter++;
+                input.close();
+            }
+        }
+    }
 
-                // Remove surrounding quotes if there are any
-                if ((element.startsWith("\"")) && (element.endsWith("\"")))
-                {
-                    element = element.substring(1, element.length() - 1);
-                }
+    /**
+     * Read and validate the heading line of a CSV file
+     *
+     * @param head The heading line
+     * @param c The DSpace Context
+     *
+     * @throws Exception thrown if a heading is not a valid metadata field
+     */
+    protected void readHeadings(String head, Context c) throws Exception
+    {
+        String[] headingElements = head.split(escapedFieldSeparator);
+        int columnCounter = 0;
+        for (String element : headingElements)
+        {
+            columnCounter++;
 
+            // Remove surrounding quotes if there are any
+            if ((element.startsWith("\"")) && (element.endsWith("\"")))
+            {
+                element = element.substring(1, element.length() - 1);
+            }
+
+            // Store the heading
+            if ("collection".equals(element))
+            {
                 // Store the heading
-                if ("collection".equals(element))
-                {
-                    // Store the heading
-                    headings.add(element);
-                }
-                // Store the action
-                else if ("action".equals(element))
-                {
-                    // Store the heading
-                    headings.add(element);
+                headings.add(element);
+            }
+            // Store the action
+            else if ("action".equals(element))
+            {
+                // Store the heading
+                headings.add(element);
+            }
+            else if (!"id".equals(element))
+            {
+                String authorityPrefix = "";
+                AuthorityValue authorityValueType = authorityValueService.getAuthorityValueType(element);
+                if (authorityValueType != null) {
+                    String authorityType = authorityValueType.getAuthorityType();
+                    authorityPrefix = element.substring(0, authorityType.length() + 1);
+                    element = element.substring(authorityPrefix.length());
                 }
-                else if (!"id".equals(element))
-                {
-                    String authorityPrefix = "";
-                    AuthorityValue authorityValueType = authorityValueService.getAuthorityValueType(element);
-                    if (authorityValueType != null) {
-                        String authorityType = authorityValueType.getAuthorityType();
-                        authorityPrefix = element.substring(0, authorityType.length() + 1);
-                        element = element.substring(authorityPrefix.length());
-                    }
 
-                    // Verify that the heading is valid in the metadata registry
-                    String[] clean = element.split("\\[");
-                    String[] parts = clean[0].split("\\.");
+                // Verify that the heading is valid in the metadata registry
+                String[] clean = element.split("\\[");
+                String[] parts = clean[0].split("\\.");
 
-                    if (parts.length < 2) {
-                        throw new MetadataImportInvalidHeadingException(element,
-                                                                        MetadataImportInvalidHeadingException.ENTRY,
-                                                                        columnCounter);
-                    }
-
-                    String metadataSchema = parts[0];
-                    String metadataElement = parts[1];
-                    String metadataQualifier = null;
-                    if (parts.length > 2) {
-                        metadataQualifier = parts[2];
-                    }
+                if (parts.length < 2) {
+                    throw new MetadataImportInvalidHeadingException(element,
+                                                                    MetadataImportInvalidHeadingException.ENTRY,
+                                                                    columnCounter);
+                }
 
-                    // Check that the scheme exists
-                    MetadataSchema foundSchema = metadataSchemaService.find(c, metadataSchema);
-                    if (foundSchema == null) {
-                        throw new MetadataImportInvalidHeadingException(clean[0],
-                                                                        MetadataImportInvalidHeadingException.SCHEMA,
-                                                                        columnCounter);
-                    }
+                String metadataSchema = parts[0];
+                String metadataElement = parts[1];
+                String metadataQualifier = null;
+                if (parts.length > 2) {
+                    metadataQualifier = parts[2];
+                }
 
-                    // Check that the metadata element exists in the schema
-                    MetadataField foundField = metadataFieldService.findByElement(c, foundSchema, metadataElement, metadataQualifier);
-                    if (foundField == null) {
-                        throw new MetadataImportInvalidHeadingException(clean[0],
-                                                                        MetadataImportInvalidHeadingException.ELEMENT,
-                                                                        columnCounter);
-                    }
+                // Check that the scheme exists
+                MetadataSchema foundSchema = metadataSchemaService.find(c, metadataSchema);
+                if (foundSchema == null) {
+                    throw new MetadataImportInvalidHeadingException(clean[0],
+                                                                    MetadataImportInvalidHeadingException.SCHEMA,
+                                                                    columnCounter);
+                }
 
-                    // Store the heading
-                    headings.add(authorityPrefix + element);
+                // Check that the metadata element exists in the schema
+                MetadataField foundField = metadataFieldService.findByElement(c, foundSchema, metadataElement, metadataQualifier);
+                if (foundField == null) {
+                    throw new MetadataImportInvalidHeadingException(clean[0],
+                                                                    MetadataImportInvalidHeadingException.ELEMENT,
+                                                                    columnCounter);
                 }
-            }
 
-            // Read each subsequent line
-            StringBuilder lineBuilder = new StringBuilder();
-            String lineRead;
+                // Store the heading
+                headings.add(authorityPrefix + element);
+            }
+        }
+    }
 
-            while (StringUtils.isNotBlank(lineRead = input.readLine()))
-            {
-                if (lineBuilder.length() > 0) {
-                    // Already have a previously read value - add this line
-                    lineBuilder.append("\n").append(lineRead);
-
-                    // Count the number of quotes in the buffer
-                    int quoteCount = 0;
-                    for (int pos = 0; pos < lineBuilder.length(); pos++) {
-                        if (lineBuilder.charAt(pos) == '"') {
-                            quoteCount++;
-                        }
-                    }
+    /**
+     * Read the next CSV record, which may span several lines if a quoted
+     * value contains line breaks
+     *
+     * @param input The reader positioned after the previous record
+     * @return The record, or null at the end of the file or at a blank line
+     *
+     * @throws IOException thrown if there is an error reading the file
+     */
+    protected String readRecord(BufferedReader input) throws IOException
+    {
+        StringBuilder lineBuilder = new StringBuilder();
+        String lineRead;
 
-                    if (quoteCount % 2 == 0) {
-                        // Number of quotes is a multiple of 2, add the item
-                        addItem(lineBuilder.toString());
-                        lineBuilder = new StringBuilder();
-                    }
-                } else if (lineRead.indexOf('"') > -1) {
-                    // Get the number of quotes in the line
-                    int quoteCount = 0;
-                    for (int pos = 0; pos < lineRead.length(); pos++) {
-                        if (lineRead.charAt(pos) == '"') {
-                            quoteCount++;
-                        }
-                    }
+        while (StringUtils.isNotBlank(lineRead = input.readLine()))
+        {
+            if (lineBuilder.length() > 0) {
+                // Already have a previously read value - add this line
+                lineBuilder.append("\n").append(lineRead);
 
-                    if (quoteCount % 2 == 0) {
-                        // Number of quotes is a multiple of 2, add the item
-                        addItem(lineRead);
-                    } else {
-                        // Uneven quotes - add to the buffer and leave for later
-                        lineBuilder.append(lineRead);
-                    }
-                } else {
-                    // No previously read line, and no quotes in the line - add item
-                    addItem(lineRead);
+                if (countQuotes(lineBuilder) % 2 == 0) {
+                    // Number of quotes is a multiple of 2, the record is complete
+                    return lineBuilder.toString();
                 }
+            } else if ((lineRead.indexOf('"') > -1) && (countQuotes(lineRead) % 2 != 0)) {
+                // Uneven quotes - add to the buffer and leave for later
+                lineBuilder.append(lineRead);
+            } else {
+                // No previously read line, and no open quotes in the line
+                return lineRead;
             }
         }
-        finally
-        {
-            if (input != null)
-            {
-                input.close();
+        return null;
+    }
+
+    /**
+     * Count the double quotes in a CSV fragment
+     */
+    private static int countQuotes(CharSequence s)
+    {
+        int quoteCount = 0;
+        for (int pos = 0; pos < s.length(); pos++) {
+            if (s.charAt(pos) == '"') {
+                quoteCount++;
             }
         }
+        return quoteCount;
     }
 
     /**
@@ -479,6 +502,19 @@ public class DSpaceCSV implements Serializable
      * @throws Exception Thrown if an error occurs when adding the item
      */
     public final void addItem(String line) throws Exception
+    {
+        lines.add(parseLine(line));
+        counter++;
+    }
+
+    /**
+     * Parse a CSV line of elements
+     *
+     * @param line The line of elements
+     * @return The parsed line
+     * @throws Exception Thrown if the line cannot be parsed
+     */
+    protected DSpaceCSVLine parseLine(String line) throws Exception
     {
         // Check to see if the last character is a field separator, which hides the last empty column
         boolean last = false;
@@ -595,8 +631,7 @@ public class DSpaceCSV implements Serializable
             }
             i++;
         }
-        lines.add(csvLine);
-        counter++;
+        return csvLine;
     }
 
     /**
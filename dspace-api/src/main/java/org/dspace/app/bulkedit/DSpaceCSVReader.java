@@ -0,0 +1,123 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.bulkedit;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import org.dspace.core.Context;
+
+/**
+ * Reads a CSV file one line at a time, instead of holding all its lines in
+ * memory like {@link DSpaceCSV}. The headings are read and validated when
+ * the reader is created; {@link #getCSVLines()} is always empty.
+ */
+public class DSpaceCSVReader extends DSpaceCSV implements Closeable
+{
+    /** The open CSV file */
+    protected transient BufferedReader input;
+
+    /** The number of lines read or skipped so far */
+    protected int rowNumber;
+
+    /** Whether the end of the lines has been reached */
+    protected boolean finished;
+
+    /**
+     * Open a CSV file and read its headings
+     *
+     * @param f The file to read from
+     * @param c The DSpace Context
+     *
+     * @throws Exception thrown if there is an error reading the file or a heading is invalid
+     */
+    public DSpaceCSVReader(File f, Context c) throws Exception
+    {
+        super(false);
+        input = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8"));
+        try
+        {
+            readHeadings(input.readLine(), c);
+        }
+        catch (Exception e)
+        {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the next line of the file
+     *
+     * @return The line, or null if there are no more lines
+     * @throws Exception thrown if there is an error reading or parsing the line
+     */
+    public DSpaceCSVLine readLine() throws Exception
+    {
+        String record = nextRecord();
+        if (record == null)
+        {
+            return null;
+        }
+        return parseLine(record);
+    }
+
+    /**
+     * Skip lines without parsing them, e.g. to resume an interrupted import
+     *
+     * @param count The number of lines to skip
+     * @return The number of lines actually skipped
+     * @throws IOException thrown if there is an error reading the file
+     */
+    public int skip(int count) throws IOException
+    {
+        int skipped = 0;
+        while ((skipped < count) && (nextRecord() != null))
+        {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    /**
+     * Get the number of lines read or skipped so far. This is the number of
+     * the last line returned, counting from 1 after the headings.
+     *
+     * @return The line number
+     */
+    public int getRowNumber()
+    {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        input.close();
+    }
+
+    private String nextRecord() throws IOException
+    {
+        if (finished)
+        {
+            return null;
+        }
+        String record = readRecord(input);
+        if (record == null)
+        {
+            finished = true;
+            return null;
+        }
+        rowNumber++;
+        return record;
+    }
+}
@@ -9,6 +9,7 @@ package org.dspace.app.bulkedit;
 
 import org.dspace.authority.AuthorityValue;
 import org.apache.commons.cli.*;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 
 import org.apache.log4j.Logger;
@@ -36,9 +37,11 @@ import org.dspace.workflow.factory.WorkflowServiceFactory;
 
 import java.util.*;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.sql.SQLException;
 
 /**
@@ -57,6 +60,9 @@ public class MetadataImport
     /** The lines to import */
     List<DSpaceCSVLine> toImport;
 
+    /** The throughput of the last streaming import */
+    protected String streamingStatistics;
+
     /** The authority controlled fields */
     protected static Set<String> authorityControlled;
     static
@@ -125,291 +131,466 @@ public class MetadataImport
             // Process each change
             for (DSpaceCSVLine line : toImport)
             {
-                // Get the DSpace item to compare with
-                UUID id = line.getID();
+                BulkEditChange lineChange = importLine(line, change, useWorkflow, workflowNotify, useTemplate);
+                if (lineChange != null)
+                {
+                    changes.add(lineChange);
+                }
+            }
+        }
+        catch (MetadataImportException mie)
+        {
+            throw mie;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
+        // Return the changes
+        return changes;
+    }
 
-                // Is there an action column?
-                if (csv.hasActions() && (!"".equals(line.getAction())) && (id == null))
+    /**
+     * Run an import while reading the CSV file, instead of holding all of its
+     * lines and changes in memory. The lines are processed in chunks: after
+     * each chunk the changes are written to the change log and, if they are
+     * applied, committed, and the Hibernate session is cleared. After every
+     * commit the number of the last committed line is written to the progress
+     * file, so that an interrupted import can be resumed by skipping that many
+     * lines (see {@link DSpaceCSVReader#skip(int)}). Note that lines adding
+     * new items are not idempotent: if the import stops between a commit and
+     * the update of the progress file, resuming adds those items again.
+     *
+     * @param reader The CSV file, positioned before the first line to import
+     * @param change Whether or not to write the changes to the database
+     * @param useWorkflow Whether the workflows should be used when creating new items
+     * @param workflowNotify If the workflows should be used, whether to send notifications or not
+     * @param useTemplate Use collection template if create new item
+     * @param chunkSize The number of lines per transaction
+     * @param changeLog The stream to write the changes to
+     * @param progress The file to record the last committed line in, or null
+     * @return The number of items that have changed
+     *
+     * @throws MetadataImportException if something goes wrong; changes made
+     *         since the last commit are not committed
+     */
+    public int runStreamingImport(DSpaceCSVReader reader,
+                                  boolean change,
+                                  boolean useWorkflow,
+                                  boolean workflowNotify,
+                                  boolean useTemplate,
+                                  int chunkSize,
+                                  PrintStream changeLog,
+                                  File progress) throws MetadataImportException
+    {
+        int changeCounter = 0;
+        int firstRow = reader.getRowNumber();
+        long parseTime = 0;
+        long applyTime = 0;
+        long commitTime = 0;
+        List<BulkEditChange> chunk = new ArrayList<BulkEditChange>();
+        int chunkLines = 0;
+        boolean batchMode = c.isBatchModeEnabled();
+        try
+        {
+            c.enableBatchMode(true);
+            while (true)
+            {
+                long start = System.nanoTime();
+                DSpaceCSVLine line = reader.readLine();
+                parseTime += System.nanoTime() - start;
+                if (line == null)
                 {
-                    throw new MetadataImportException("'action' not allowed for new items!");
+                    break;
                 }
 
-                // Is this a new item?
-                if (id != null)
+                start = System.nanoTime();
+                BulkEditChange lineChange = importLine(line, change, useWorkflow, workflowNotify, useTemplate);
+                if (lineChange != null)
                 {
-                    // Get the item
-                    Item item = itemService.find(c, id);
-                    if (item == null)
-                    {
-                        throw new MetadataImportException("Unknown item ID " + id);
-                    }
+                    chunk.add(lineChange);
+                }
+                chunkLines++;
+                applyTime += System.nanoTime() - start;
 
-                    // Record changes
-                    BulkEditChange whatHasChanged = new BulkEditChange(item);
+                if (chunkLines >= chunkSize)
+                {
+                    start = System.nanoTime();
+                    changeCounter += endChunk(chunk, change, changeLog, progress, reader.getRowNumber());
+                    chunkLines = 0;
+                    commitTime += System.nanoTime() - start;
+                }
+            }
 
-                    // Has it moved collection?
-                    List<String> collections = line.get("collection");
-                    if (collections != null)
-                    {
-                        // Sanity check we're not orphaning it
-                        if (collections.size() == 0)
-                        {
-                            throw new MetadataImportException("Missing collection from item " + item.getHandle());
-                        }
-                        List<Collection> actualCollections = item.getCollections();
-                        compare(item, collections, actualCollections, whatHasChanged, change);
-                    }
+            long start = System.nanoTime();
+            changeCounter += endChunk(chunk, change, changeLog, progress, reader.getRowNumber());
+            commitTime += System.nanoTime() - start;
+        }
+        catch (MetadataImportException mie)
+        {
+            throw new MetadataImportException("Line " + reader.getRowNumber() + ": " + mie.getMessage(), mie);
+        }
+        catch (Exception e)
+        {
+            throw new MetadataImportException("Error importing line " + reader.getRowNumber() + ": " + e.getMessage(), e);
+        }
+        finally
+        {
+            try
+            {
+                c.enableBatchMode(batchMode);
+            }
+            catch (SQLException e)
+            {
+                log.warn("Unable to restore the batch mode of the context", e);
+            }
+        }
 
-                    // Iterate through each metadata element in the csv line
-                    for (String md : line.keys())
-                    {
-                        // Get the values we already have
-                        if (!"id".equals(md))
-                        {
-                            // Get the values from the CSV
-                            String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
-                            // Remove authority unless the md is not authority controlled
-                            if (!isAuthorityControlledField(md))
-                            { 
-                                for (int i=0; i<fromCSV.length; i++)
-                                {
-                                    int pos = fromCSV[i].indexOf(csv.getAuthoritySeparator());
-                                    if (pos > -1)
-                                    {
-                                        fromCSV[i] = fromCSV[i].substring(0, pos);
-                                    }
-                                }
-                            }
+        int rows = reader.getRowNumber() - firstRow;
+        streamingStatistics = rows + " lines, " + changeCounter + " changed items: "
+                + "parsing " + throughput(rows, parseTime) + ", "
+                + (change ? "applying " : "comparing ") + throughput(rows, applyTime) + ", "
+                + (change ? "committing " : "logging ") + throughput(rows, commitTime);
+        log.info(LogManager.getHeader(c, "metadata_import", streamingStatistics));
+        return changeCounter;
+    }
 
-                            // Compare
-                            compare(item, fromCSV, change, md, whatHasChanged, line);
-                        }
-                    }
+    /**
+     * Get the throughput of the phases of the last streaming import
+     *
+     * @return A summary of the time spent parsing, applying and committing, or null
+     */
+    public String getStreamingStatistics()
+    {
+        return streamingStatistics;
+    }
 
-                    if (csv.hasActions())
-                    {
-                        // Perform the action
-                        String action = line.getAction();
-                        if ("".equals(action))
-                        {
-                            // Do nothing
-                        }
-                        else if ("expunge".equals(action))
-                        {
-                            // Does the configuration allow deletes?
-                            if (!ConfigurationManager.getBooleanProperty("bulkedit", "allowexpunge", false))
-                            {
-                                throw new MetadataImportException("'expunge' action denied by configuration");
-                            }
+    /**
+     * Finish a chunk of a streaming import: log its changes, commit them or
+     * clear the session, and record the progress.
+     */
+    protected int endChunk(List<BulkEditChange> chunk, boolean change, PrintStream changeLog,
+                           File progress, int row) throws SQLException, IOException
+    {
+        // Log the changes while the items are still attached to the session
+        int changeCounter = displayChanges(chunk, change, changeLog);
+        changeLog.flush();
+        chunk.clear();
 
-                            // Remove the item
-                            List<Collection> owners = item.getCollections();
-                            for (Collection owner : owners)
-                            {
-                                if (change)
-                                {
-                                    collectionService.removeItem(c, owner, item);
-                                }
-                            }
-                            whatHasChanged.setDeleted();
-                        }
-                        else if ("withdraw".equals(action))
-                        {
-                            // Withdraw the item
-                            if (!item.isWithdrawn())
-                            {
-                                if (change)
-                                {
-                                    itemService.withdraw(c, item);
-                                }
-                                whatHasChanged.setWithdrawn();
-                            }
-                        }
-                        else if ("reinstate".equals(action))
+        if (change)
+        {
+            c.commit();
+            if (progress != null)
+            {
+                FileUtils.writeStringToFile(progress, String.valueOf(row), "UTF-8");
+            }
+        }
+        else
+        {
+            c.clearCache();
+        }
+        return changeCounter;
+    }
+
+    private static String throughput(int rows, long nanos)
+    {
+        long millis = nanos / 1000000L;
+        return millis + " ms (" + ((millis > 0) ? (rows * 1000L / millis) : rows) + " lines/s)";
+    }
+
+    /**
+     * Compare one line of the CSV file with the item it describes, and
+     * optionally apply the changes.
+     *
+     * @param line The CSV line
+     * @param change Whether or not to write the changes to the database
+     * @param useWorkflow Whether the workflows should be used when creating new items
+     * @param workflowNotify If the workflows should be used, whether to send notifications or not
+     * @param useTemplate Use collection template if create new item
+     * @return The changes of the item, or null if it has not changed
+     *
+     * @throws Exception if something goes wrong
+     */
+    protected BulkEditChange importLine(DSpaceCSVLine line,
+                                        boolean change,
+                                        boolean useWorkflow,
+                                        boolean workflowNotify,
+                                        boolean useTemplate) throws Exception
+    {
+        // Get the DSpace item to compare with
+        UUID id = line.getID();
+
+        // Is there an action column?
+        if (csv.hasActions() && (!"".equals(line.getAction())) && (id == null))
+        {
+            throw new MetadataImportException("'action' not allowed for new items!");
+        }
+
+        // Is this a new item?
+        if (id != null)
+        {
+            // Get the item
+            Item item = itemService.find(c, id);
+            if (item == null)
+            {
+                throw new MetadataImportException("Unknown item ID " + id);
+            }
+
+            // Record changes
+            BulkEditChange whatHasChanged = new BulkEditChange(item);
+
+            // Has it moved collection?
+            List<String> collections = line.get("collection");
+            if (collections != null)
+            {
+                // Sanity check we're not orphaning it
+                if (collections.size() == 0)
+                {
+                    throw new MetadataImportException("Missing collection from item " + item.getHandle());
+                }
+                List<Collection> actualCollections = item.getCollections();
+                compare(item, collections, actualCollections, whatHasChanged, change);
+            }
+
+            // Iterate through each metadata element in the csv line
+            for (String md : line.keys())
+            {
+                // Get the values we already have
+                if (!"id".equals(md))
+                {
+                    // Get the values from the CSV
+                    String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
+                    // Remove authority unless the md is not authority controlled
+                    if (!isAuthorityControlledField(md))
+                    { 
+                        for (int i=0; i<fromCSV.length; i++)
                         {
-                            // Reinstate the item
-                            if (item.isWithdrawn())
+                            int pos = fromCSV[i].indexOf(csv.getAuthoritySeparator());
+                            if (pos > -1)
                             {
-                                if (change)
-                                {
-                                    itemService.reinstate(c, item);
-                                }
-                                whatHasChanged.setReinstated();
+                                fromCSV[i] = fromCSV[i].substring(0, pos);
                             }
                         }
-                        else {
-                            // Unknown action!
-                            throw new MetadataImportException("Unknown action: " + action);
-                        }
                     }
 
-                    // Only record if changes have been made
-                    if (whatHasChanged.hasChanges())
-                    {
-                        changes.add(whatHasChanged);
-                    }
+                    // Compare
+                    compare(item, fromCSV, change, md, whatHasChanged, line);
                 }
-                else
-                {
-                    // This is marked as a new item, so no need to compare
+            }
 
-                    // First check a user is set, otherwise this can't happen
-                    if (c.getCurrentUser() == null)
+            if (csv.hasActions())
+            {
+                // Perform the action
+                String action = line.getAction();
+                if ("".equals(action))
+                {
+                    // Do nothing
+                }
+                else if ("expunge".equals(action))
+                {
+                    // Does the configuration allow deletes?
+                    if (!ConfigurationManager.getBooleanProperty("bulkedit", "allowexpunge", false))
                     {
-                        throw new MetadataImportException("When adding new items, a user must be specified with the -e option");
+                        throw new MetadataImportException("'expunge' action denied by configuration");
                     }
 
-                    // Iterate through each metadata element in the csv line
-                    BulkEditChange whatHasChanged = new BulkEditChange();
-                    for (String md : line.keys())
+                    // Remove the item
+                    List<Collection> owners = item.getCollections();
+                    for (Collection owner : owners)
                     {
-                        // Get the values we already have
-                        if (!"id".equals(md))
+                        if (change)
                         {
-                            // Get the values from the CSV
-                            String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
-
-                            // Remove authority unless the md is not authority controlled
-                            if (!isAuthorityControlledField(md))
-                            { 
-                                for (int i=0; i<fromCSV.length; i++)
-                                {
-                                    int pos = fromCSV[i].indexOf(csv.getAuthoritySeparator());
-                                    if (pos > -1)
-                                    {
-                                        fromCSV[i] = fromCSV[i].substring(0, pos);
-                                    }
-                                }
-                            }
-
-                            // Add all the values from the CSV line
-                            add(fromCSV, md, whatHasChanged);
+                            collectionService.removeItem(c, owner, item);
                         }
                     }
-
-                    // Check it has an owning collection
-                    List<String> collections = line.get("collection");
-                    if (collections == null)
+                    whatHasChanged.setDeleted();
+                }
+                else if ("withdraw".equals(action))
+                {
+                    // Withdraw the item
+                    if (!item.isWithdrawn())
                     {
-                        throw new MetadataImportException("New items must have a 'collection' assigned in the form of a handle");
+                        if (change)
+                        {
+                            itemService.withdraw(c, item);
+                        }
+                        whatHasChanged.setWithdrawn();
                     }
-
-                    // Check collections are really collections
-                    ArrayList<Collection> check = new ArrayList<Collection>();
-                    Collection collection;
-                    for (String handle : collections)
+                }
+                else if ("reinstate".equals(action))
+                {
+                    // Reinstate the item
+                    if (item.isWithdrawn())
                     {
-                        try
+                        if (change)
                         {
-                            // Resolve the handle to the collection
-                            collection = (Collection) handleService.resolveToObject(c, handle);
+                            itemService.reinstate(c, item);
+                        }
+                        whatHasChanged.setReinstated();
+                    }
+                }
+                else {
+                    // Unknown action!
+                    throw new MetadataImportException("Unknown action: " + action);
+                }
+            }
 
-                            // Check it resolved OK
-                            if (collection == null)
-                            {
-                                throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items");
-                            }
+            // Only record if changes have been made
+            if (whatHasChanged.hasChanges())
+            {
+                return whatHasChanged;
+            }
+        }
+        else
+        {
+            // This is marked as a new item, so no need to compare
 
-                            // Check for duplicate
-                            if (check.contains(collection))
-                            {
-                                throw new MetadataImportException("Duplicate collection assignment detected in new item! " + handle);
-                            }
-                            else
+            // First check a user is set, otherwise this can't happen
+            if (c.getCurrentUser() == null)
+            {
+                throw new MetadataImportException("When adding new items, a user must be specified with the -e option");
+            }
+
+            // Iterate through each metadata element in the csv line
+            BulkEditChange whatHasChanged = new BulkEditChange();
+            for (String md : line.keys())
+            {
+                // Get the values we already have
+                if (!"id".equals(md))
+                {
+                    // Get the values from the CSV
+                    String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
+
+                    // Remove authority unless the md is not authority controlled
+                    if (!isAuthorityControlledField(md))
+                    { 
+                        for (int i=0; i<fromCSV.length; i++)
+                        {
+                            int pos = fromCSV[i].indexOf(csv.getAuthoritySeparator());
+                            if (pos > -1)
                             {
-                                check.add(collection);
+                                fromCSV[i] = fromCSV[i].substring(0, pos);
                             }
                         }
-                        catch (Exception ex)
-                        {
-                            throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items", ex);
-                        }
                     }
 
-                    // Record the addition to collections
-                    boolean first = true;
-                    for (String handle : collections)
+                    // Add all the values from the CSV line
+                    add(fromCSV, md, whatHasChanged);
+                }
+            }
+
+            // Check it has an owning collection
+            List<String> collections = line.get("collection");
+            if (collections == null)
+            {
+                throw new MetadataImportException("New items must have a 'collection' assigned in the form of a handle");
+            }
+
+            // Check collections are really collections
+            ArrayList<Collection> check = new ArrayList<Collection>();
+            Collection collection;
+            for (String handle : collections)
+            {
+                try
+                {
+                    // Resolve the handle to the collection
+                    collection = (Collection) handleService.resolveToObject(c, handle);
+
+                    // Check it resolved OK
+                    if (collection == null)
                     {
-                        Collection extra = (Collection) handleService.resolveToObject(c, handle);
-                        if (first)
-                        {
-                            whatHasChanged.setOwningCollection(extra);
-                        }
-                        else
-                        {
-                            whatHasChanged.registerNewMappedCollection(extra);
-                        }
-                        first = false;
+                        throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items");
                     }
 
-                    // Create the new item?
-                    if (change)
+                    // Check for duplicate
+                    if (check.contains(collection))
                     {
-                        // Create the item
-                        String collectionHandle = line.get("collection").get(0);
-                        collection = (Collection) handleService.resolveToObject(c, collectionHandle);
-                        WorkspaceItem wsItem = workspaceItemService.create(c, collection, useTemplate);
-                        Item item = wsItem.getItem();
-
-                        // Add the metadata to the item
-                        for (BulkEditMetadataValue dcv : whatHasChanged.getAdds())
-                        {
-                            itemService.addMetadata(c, item, dcv.getSchema(),
-                                             dcv.getElement(),
-                                             dcv.getQualifier(),
-                                             dcv.getLanguage(),
-                                             dcv.getValue(),
-                                             dcv.getAuthority(),
-                                             dcv.getConfidence());
-                        }
+                        throw new MetadataImportException("Duplicate collection assignment detected in new item! " + handle);
+                    }
+                    else
+                    {
+                        check.add(collection);
+                    }
+                }
+                catch (Exception ex)
+                {
+                    throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items", ex);
+                }
+            }
 
-                        // Should the workflow be used?
-                        if(useWorkflow){
-                            WorkflowService workflowService = WorkflowServiceFactory.getInstance().getWorkflowService();
-                            if (workflowNotify) {
-                                workflowService.start(c, wsItem);
-                            } else {
-                                workflowService.startWithoutNotify(c, wsItem);
-                            }
-                        }
-                        else
-                        {
-                            // Install the item
-                            installItemService.installItem(c, wsItem);
-                        }
+            // Record the addition to collections
+            boolean first = true;
+            for (String handle : collections)
+            {
+                Collection extra = (Collection) handleService.resolveToObject(c, handle);
+                if (first)
+                {
+                    whatHasChanged.setOwningCollection(extra);
+                }
+                else
+                {
+                    whatHasChanged.registerNewMappedCollection(extra);
+                }
+                first = false;
+            }
 
-                        // Add to extra collections
-                        if (line.get("collection").size() > 0)
-                        {
-                            for (int i = 1; i < collections.size(); i++)
-                            {
-                                String handle = collections.get(i);
-                                Collection extra = (Collection) handleService.resolveToObject(c, handle);
-                                collectionService.addItem(c, extra, item);
-                            }
-                        }
+            // Create the new item?
+            if (change)
+            {
+                // Create the item
+                String collectionHandle = line.get("collection").get(0);
+                collection = (Collection) handleService.resolveToObject(c, collectionHandle);
+                WorkspaceItem wsItem = workspaceItemService.create(c, collection, useTemplate);
+                Item item = wsItem.getItem();
+
+                // Add the metadata to the item
+                for (BulkEditMetadataValue dcv : whatHasChanged.getAdds())
+                {
+                    itemService.addMetadata(c, item, dcv.getSchema(),
+                                     dcv.getElement(),
+                                     dcv.getQualifier(),
+                                     dcv.getLanguage(),
+                                     dcv.getValue(),
+                                     dcv.getAuthority(),
+                                     dcv.getConfidence());
+                }
 
-                        // Commit changes to the object
-//                        c.commit();
-                        whatHasChanged.setItem(item);
+                // Should the workflow be used?
+                if(useWorkflow){
+                    WorkflowService workflowService = WorkflowServiceFactory.getInstance().getWorkflowService();
+                    if (workflowNotify) {
+                        workflowService.start(c, wsItem);
+                    } else {
+                        workflowService.startWithoutNotify(c, wsItem);
                     }
+                }
+                else
+                {
+                    // Install the item
+                    installItemService.installItem(c, wsItem);
+                }
 
-                    // Record the changes
-                    changes.add(whatHasChanged);
+                // Add to extra collections
+                if (line.get("collection").size() > 0)
+                {
+                    for (int i = 1; i < collections.size(); i++)
+                    {
+                        String handle = collections.get(i);
+                        Collection extra = (Collection) handleService.resolveToObject(c, handle);
+                        collectionService.addItem(c, extra, item);
+                    }
                 }
+
+                // Commit changes to the object
+//                c.commit();
+                whatHasChanged.setItem(item);
             }
-        }
-        catch (MetadataImportException mie)
-        {
-            throw mie;
-        }
-        catch (Exception e)
-        {
-            e.printStackTrace();
-        }
 
-        // Return the changes
-        return changes;
+            // Record the changes
+            return whatHasChanged;
+        }
+        return null;
     }
 
     /**
@@ -948,6 +1129,19 @@ public class MetadataImport
      * @return The number of items that have changed
      */
     private static int displayChanges(List<BulkEditChange> changes, boolean changed)
+    {
+        return displayChanges(changes, changed, System.out);
+    }
+
+    /**
+     * Write the changes that have been detected, or that have been made
+     *
+     * @param changes The changes detected
+     * @param changed Whether or not the changes have been made
+     * @param out The stream to write to
+     * @return The number of items that have changed
+     */
+    private static int displayChanges(List<BulkEditChange> changes, boolean changed, PrintStream out)
     {
         // Display the changes
         int changeCounter = 0;
@@ -966,26 +1160,26 @@ public class MetadataImport
                 // Show the item
                 Item i = change.getItem();
 
-                System.out.println("-----------------------------------------------------------");
+                out.println("-----------------------------------------------------------");
                 if (!change.isNewItem())
                 {
-                    System.out.println("Changes for item: " + i.getID() + " (" + i.getHandle() + ")");
+                    out.println("Changes for item: " + i.getID() + " (" + i.getHandle() + ")");
                 }
                 else
                 {
-                    System.out.print("New item: ");
+                    out.print("New item: ");
                     if (i != null)
                     {
                         if (i.getHandle() != null)
                         {
-                            System.out.print(i.getID() + " (" + i.getHandle() + ")");
+                            out.print(i.getID() + " (" + i.getHandle() + ")");
                         }
                         else
                         {
-                            System.out.print(i.getID() + " (in workflow)");
+                            out.print(i.getID() + " (in workflow)");
                         }
                     }
-                    System.out.println();
+                    out.println();
                 }
                 changeCounter++;
             }
@@ -995,33 +1189,33 @@ public class MetadataImport
             {
                 if (changed)
                 {
-                    System.out.println(" - EXPUNGED!");
+                    out.println(" - EXPUNGED!");
                 }
                 else
                 {
-                    System.out.println(" - EXPUNGE!");
+                    out.println(" - EXPUNGE!");
                 }
             }
             if (change.isWithdrawn())
             {
                 if (changed)
                 {
-                    System.out.println(" - WITHDRAWN!");
+                    out.println(" - WITHDRAWN!");
                 }
                 else
                 {
-                    System.out.println(" - WITHDRAW!");
+                    out.println(" - WITHDRAW!");
                 }
             }
             if (change.isReinstated())
             {
                 if (changed)
                 {
-                    System.out.println(" - REINSTATED!");
+                    out.println(" - REINSTATED!");
                 }
                 else
                 {
-                    System.out.println(" - REINSTATE!");
+                    out.println(" - REINSTATE!");
                 }
             }
 
@@ -1034,13 +1228,13 @@ public class MetadataImport
                     String cName = c.getName();
                     if (!changed)
                     {
-                        System.out.print(" + New owning collection (" + cHandle + "): ");
+                        out.print(" + New owning collection (" + cHandle + "): ");
                     }
                     else
                     {
-                        System.out.print(" + New owning collection  (" + cHandle + "): ");
+                        out.print(" + New owning collection  (" + cHandle + "): ");
                     }
-                    System.out.println(cName);
+                    out.println(cName);
                 }
 
                 c = change.getOldOwningCollection();
@@ -1050,13 +1244,13 @@ public class MetadataImport
                     String cName = c.getName();
                     if (!changed)
                     {
-                        System.out.print(" + Old owning collection (" + cHandle + "): ");
+                        out.print(" + Old owning collection (" + cHandle + "): ");
                     }
                     else
                     {
-                        System.out.print(" + Old owning collection  (" + cHandle + "): ");
+                        out.print(" + Old owning collection  (" + cHandle + "): ");
                     }
-                    System.out.println(cName);
+                    out.println(cName);
                 }
             }
 
@@ -1067,13 +1261,13 @@ public class MetadataImport
                 String cName = c.getName();
                 if (!changed)
                 {
-                    System.out.print(" + Map to collection (" + cHandle + "): ");
+                    out.print(" + Map to collection (" + cHandle + "): ");
                 }
                 else
                 {
-                    System.out.print(" + Mapped to collection  (" + cHandle + "): ");
+                    out.print(" + Mapped to collection  (" + cHandle + "): ");
                 }
-                System.out.println(cName);
+                out.println(cName);
             }
 
             // Show old mapped collections
@@ -1083,13 +1277,13 @@ public class MetadataImport
                 String cName = c.getName();
                 if (!changed)
                 {
-                    System.out.print(" + Un-map from collection (" + cHandle + "): ");
+                    out.print(" + Un-map from collection (" + cHandle + "): ");
                 }
                 else
                 {
-                    System.out.print(" + Un-mapped from collection  (" + cHandle + "): ");
+                    out.print(" + Un-mapped from collection  (" + cHandle + "): ");
                 }
-                System.out.println(cName);
+                out.println(cName);
             }
 
             // Show additions
@@ -1106,19 +1300,19 @@ public class MetadataImport
                 }
                 if (!changed)
                 {
-                    System.out.print(" + Add    (" + md + "): ");
+                    out.print(" + Add    (" + md + "): ");
                 }
                 else
                 {
-                    System.out.print(" + Added   (" + md + "): ");
+                    out.print(" + Added   (" + md + "): ");
                 }
-                System.out.print(metadataValue.getValue());
+                out.print(metadataValue.getValue());
                 if (isAuthorityControlledField(md))
                 {
-                    System.out.print(", authority = " + metadataValue.getAuthority());
-                    System.out.print(", confidence = " + metadataValue.getConfidence());
+                    out.print(", authority = " + metadataValue.getAuthority());
+                    out.print(", confidence = " + metadataValue.getConfidence());
                 }
-                System.out.println("");
+                out.println("");
             }
 
             // Show removals
@@ -1135,24 +1329,132 @@ public class MetadataImport
                 }
                 if (!changed)
                 {
-                    System.out.print(" - Remove (" + md + "): ");
+                    out.print(" - Remove (" + md + "): ");
                 }
                 else
                 {
-                    System.out.print(" - Removed (" + md + "): ");
+                    out.print(" - Removed (" + md + "): ");
                 }
-                System.out.print(metadataValue.getValue());
+                out.print(metadataValue.getValue());
                 if (isAuthorityControlledField(md))
                 {
-                    System.out.print(", authority = " + metadataValue.getAuthority());
-                    System.out.print(", confidence = " + metadataValue.getConfidence());
+                    out.print(", authority = " + metadataValue.getAuthority());
+                    out.print(", confidence = " + metadataValue.getConfidence());
                 }
-                System.out.println("");
+                out.println("");
             }
         }
         return changeCounter;
     }
 
+    /**
+     * Run a streaming import from the command line: optionally preview the
+     * changes and ask for confirmation, then apply them in chunks.
+     *
+     * @return The exit code
+     */
+    private static int streamingImport(Context c, File csvFile, boolean silent, boolean useWorkflow,
+                                       boolean workflowNotify, boolean useTemplate, int chunkSize,
+                                       boolean resume, File changeLog, File progress)
+    {
+        try
+        {
+            // Skip the lines committed by an earlier run?
+            int resumeAfter = 0;
+            if (resume && progress.exists())
+            {
+                resumeAfter = readProgress(progress);
+                System.out.println("Resuming after line " + resumeAfter);
+            }
+
+            if (!silent)
+            {
+                // See what will change
+                File preview = new File(changeLog.getPath() + ".preview");
+                int changeCounter = streamingPass(c, csvFile, false, useWorkflow, workflowNotify, useTemplate,
+                                                  chunkSize, resumeAfter, preview, false, null);
+                if (changeCounter == 0)
+                {
+                    System.out.println("There were no changes detected");
+                    c.complete();
+                    return 0;
+                }
+
+                // Ask the user if they want to make the changes
+                System.out.println("\n" + changeCounter + " item(s) will be changed, see " + preview + "\n");
+                System.out.print("Do you want to make these changes? [y/n] ");
+                String yn = (new BufferedReader(new InputStreamReader(System.in))).readLine();
+                if (!"y".equalsIgnoreCase(yn))
+                {
+                    System.out.println("No data has been changed.");
+                    c.complete();
+                    return 0;
+                }
+            }
+
+            // Make the changes
+            int changeCounter = streamingPass(c, csvFile, true, useWorkflow, workflowNotify, useTemplate,
+                                              chunkSize, resumeAfter, changeLog, resumeAfter > 0, progress);
+            c.restoreAuthSystemState();
+            c.complete();
+            progress.delete();
+            System.out.println(changeCounter + " item(s) changed, see " + changeLog);
+            return 0;
+        }
+        catch (MetadataImportInvalidHeadingException miihe)
+        {
+            c.abort();
+            System.err.println(miihe.getMessage());
+            return 1;
+        }
+        catch (Exception e)
+        {
+            c.abort();
+            System.err.println("Error: " + e.getMessage());
+            System.err.println("Aborting most recent changes.");
+            if (progress.exists())
+            {
+                try
+                {
+                    System.err.println("Lines up to " + readProgress(progress) + " have been committed. "
+                                       + "Run again with -r to resume after them.");
+                }
+                catch (IOException ioe)
+                {
+                    System.err.println("Unable to read " + progress + ": " + ioe.getMessage());
+                }
+            }
+            return 1;
+        }
+    }
+
+    /**
+     * Read the CSV file and import its lines, starting after the given line
+     *
+     * @return The number of items that have changed
+     */
+    private static int streamingPass(Context c, File csvFile, boolean change, boolean useWorkflow,
+                                     boolean workflowNotify, boolean useTemplate, int chunkSize,
+                                     int resumeAfter, File changeLog, boolean append, File progress)
+            throws Exception
+    {
+        try (DSpaceCSVReader reader = new DSpaceCSVReader(csvFile, c);
+             PrintStream out = new PrintStream(new FileOutputStream(changeLog, append), false, "UTF-8"))
+        {
+            reader.skip(resumeAfter);
+            MetadataImport importer = new MetadataImport(c, reader);
+            int changeCounter = importer.runStreamingImport(reader, change, useWorkflow, workflowNotify,
+                                                            useTemplate, chunkSize, out, progress);
+            System.out.println(importer.getStreamingStatistics());
+            return changeCounter;
+        }
+    }
+
+    private static int readProgress(File progress) throws IOException
+    {
+        return Integer.parseInt(FileUtils.readFileToString(progress, "UTF-8").trim());
+    }
+
     /**
      * is the field is defined as authority controlled
      *
@@ -1201,6 +1503,9 @@ public class MetadataImport
         options.addOption("w", "workflow", false, "workflow - when adding new items, use collection workflow");
         options.addOption("n", "notify", false, "notify - when adding new items using a workflow, send notification emails");
         options.addOption("t", "template", false, "template - when adding new items, use the collection template (if it exists)");        
+        options.addOption("c", "commit-every", true, "stream the file and commit every given number of lines, for very large files");
+        options.addOption("r", "resume", false, "resume - with -c, skip the lines committed by an interrupted import");
+        options.addOption("l", "change-log", true, "with -c, file to write the changes to (default: the source file with '.changes' appended)");
         options.addOption("h", "help", false, "help");
 
         // Parse the command line arguments
@@ -1296,6 +1601,29 @@ public class MetadataImport
             return;
         }
 
+        // Stream the file in chunks?
+        if (line.hasOption('c'))
+        {
+            int chunkSize = 0;
+            try
+            {
+                chunkSize = Integer.parseInt(line.getOptionValue('c'));
+            }
+            catch (NumberFormatException nfe)
+            {
+                // reported below
+            }
+            if (chunkSize < 1)
+            {
+                System.err.println("Invalid option 'c': the number of lines per commit must be a positive number.");
+                System.exit(1);
+            }
+            File changeLog = new File(line.hasOption('l') ? line.getOptionValue('l') : filename + ".changes");
+            File progress = new File(filename + ".progress");
+            System.exit(streamingImport(c, new File(filename), line.hasOption('s'), useWorkflow, workflowNotify,
+                                        useTemplate, chunkSize, line.hasOption('r'), changeLog, progress));
+        }
+
         // Is this a silent run?
         boolean change = false;
 
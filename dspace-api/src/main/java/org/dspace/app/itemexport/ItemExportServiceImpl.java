@@ -8,6 +8,7 @@
 package org.dspace.app.itemexport;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -15,6 +16,7 @@ import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
@@ -85,6 +87,11 @@ public class ItemExportServiceImpl implements ItemExportService
     /** log4j logger */
     private Logger log = Logger.getLogger(ItemExportServiceImpl.class);
 
+    /** Extensions of already compressed files, which are not compressed again in zip exports */
+    protected static final String DEFAULT_STORED_EXTENSIONS = "zip, gz, tgz, bz2, xz, 7z, rar, jar, "
+            + "docx, xlsx, pptx, odt, ods, odp, epub, jpg, jpeg, jp2, png, gif, webp, "
+            + "mp3, m4a, aac, ogg, oga, flac, mp4, m4v, mov, avi, mkv, webm, ogv";
+
     protected ItemExportServiceImpl()
     {
 
@@ -215,17 +222,7 @@ public class ItemExportServiceImpl implements ItemExportService
     protected void writeMetadata(Context c, String schema, Item i,
             File destDir, boolean migrate) throws Exception
     {
-        String filename;
-        if (schema.equals(MetadataSchema.DC_SCHEMA))
-        {
-            filename = "dublin_core.xml";
-        }
-        else
-        {
-            filename = "metadata_" + schema + ".xml";
-        }
-
-        File outFile = new File(destDir, filename);
+        File outFile = new File(destDir, getMetadataFileName(schema));
 
         System.out.println("Attempting to create file " + outFile);
 
@@ -233,98 +230,134 @@ public class ItemExportServiceImpl implements ItemExportService
         {
             BufferedOutputStream out = new BufferedOutputStream(
                     new FileOutputStream(outFile));
+            try
+            {
+                writeMetadata(c, schema, i, out, migrate);
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        else
+        {
+            throw new Exception("Cannot create dublin_core.xml in " + destDir);
+        }
+    }
 
-            List<MetadataValue> dcorevalues = itemService.getMetadata(i, schema, Item.ANY, Item.ANY,
-                    Item.ANY);
-
-            // XML preamble
-            byte[] utf8 = "<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>\n"
-                    .getBytes("UTF-8");
-            out.write(utf8, 0, utf8.length);
+    /**
+     * Get the name of the file holding the item's metadata of a schema
+     * @param schema schema
+     * @return file name
+     */
+    protected String getMetadataFileName(String schema)
+    {
+        if (schema.equals(MetadataSchema.DC_SCHEMA))
+        {
+            return "dublin_core.xml";
+        }
+        else
+        {
+            return "metadata_" + schema + ".xml";
+        }
+    }
 
-            String dcTag = "<dublin_core schema=\"" + schema + "\">\n";
-            utf8 = dcTag.getBytes("UTF-8");
-            out.write(utf8, 0, utf8.length);
+    /**
+     * write the item's metadata of a schema to a stream
+     * @param c DSpace context
+     * @param schema schema
+     * @param i DSpace Item
+     * @param out the stream to write to, which is not closed
+     * @param migrate Whether to use the migrate option or not
+     * @throws Exception if error
+     */
+    protected void writeMetadata(Context c, String schema, Item i,
+            OutputStream out, boolean migrate) throws Exception
+    {
+        List<MetadataValue> dcorevalues = itemService.getMetadata(i, schema, Item.ANY, Item.ANY,
+                Item.ANY);
 
-            String dateIssued = null;
-            String dateAccessioned = null;
+        // XML preamble
+        byte[] utf8 = "<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>\n"
+                .getBytes("UTF-8");
+        out.write(utf8, 0, utf8.length);
 
-            for (MetadataValue dcv : dcorevalues)
-            {
-                MetadataField metadataField = dcv.getMetadataField();
-                String qualifier = metadataField.getQualifier();
+        String dcTag = "<dublin_core schema=\"" + schema + "\">\n";
+        utf8 = dcTag.getBytes("UTF-8");
+        out.write(utf8, 0, utf8.length);
 
-                if (qualifier == null)
-                {
-                    qualifier = "none";
-                }
+        String dateIssued = null;
+        String dateAccessioned = null;
 
-                String language = dcv.getLanguage();
+        for (MetadataValue dcv : dcorevalues)
+        {
+            MetadataField metadataField = dcv.getMetadataField();
+            String qualifier = metadataField.getQualifier();
 
-                if (language != null)
-                {
-                    language = " language=\"" + language + "\"";
-                }
-                else
-                {
-                    language = "";
-                }
+            if (qualifier == null)
+            {
+                qualifier = "none";
+            }
 
-                utf8 = ("  <dcvalue element=\"" + metadataField.getElement() + "\" "
-                        + "qualifier=\"" + qualifier + "\""
-                        + language + ">"
-                        + Utils.addEntities(dcv.getValue()) + "</dcvalue>\n")
-                        .getBytes("UTF-8");
-
-                if ((!migrate) ||
-                    (migrate && !(
-                     ("date".equals(metadataField.getElement()) && "issued".equals(qualifier)) ||
-                     ("date".equals(metadataField.getElement()) && "accessioned".equals(qualifier)) ||
-                     ("date".equals(metadataField.getElement()) && "available".equals(qualifier)) ||
-                     ("identifier".equals(metadataField.getElement()) && "uri".equals(qualifier) &&
-                      (dcv.getValue() != null && dcv.getValue().startsWith("http://hdl.handle.net/" +
-                          handleService.getPrefix() + "/"))) ||
-                     ("description".equals(metadataField.getElement()) && "provenance".equals(qualifier)) ||
-                     ("format".equals(metadataField.getElement()) && "extent".equals(qualifier)) ||
-                     ("format".equals(metadataField.getElement()) && "mimetype".equals(qualifier)))))
-                {
-                    out.write(utf8, 0, utf8.length);
-                }
+            String language = dcv.getLanguage();
 
-                // Store the date issued and accession to see if they are different
-                // because we need to keep date.issued if they are, when migrating
-                if (("date".equals(metadataField.getElement()) && "issued".equals(qualifier)))
-                {
-                    dateIssued = dcv.getValue();
-                }
-                if (("date".equals(metadataField.getElement()) && "accessioned".equals(qualifier)))
-                {
-                    dateAccessioned = dcv.getValue();
-                }
+            if (language != null)
+            {
+                language = " language=\"" + language + "\"";
             }
+            else
+            {
+                language = "";
+            }
+
+            utf8 = ("  <dcvalue element=\"" + metadataField.getElement() + "\" "
+                    + "qualifier=\"" + qualifier + "\""
+                    + language + ">"
+                    + Utils.addEntities(dcv.getValue()) + "</dcvalue>\n")
+                    .getBytes("UTF-8");
 
-            // When migrating, only keep date.issued if it is different to date.accessioned
-            if ((migrate) &&
-                (dateIssued != null) &&
-                (dateAccessioned != null) &&
-                (!dateIssued.equals(dateAccessioned)))
+            if ((!migrate) ||
+                (migrate && !(
+                 ("date".equals(metadataField.getElement()) && "issued".equals(qualifier)) ||
+                 ("date".equals(metadataField.getElement()) && "accessioned".equals(qualifier)) ||
+                 ("date".equals(metadataField.getElement()) && "available".equals(qualifier)) ||
+                 ("identifier".equals(metadataField.getElement()) && "uri".equals(qualifier) &&
+                  (dcv.getValue() != null && dcv.getValue().startsWith("http://hdl.handle.net/" +
+                      handleService.getPrefix() + "/"))) ||
+                 ("description".equals(metadataField.getElement()) && "provenance".equals(qualifier)) ||
+                 ("format".equals(metadataField.getElement()) && "extent".equals(qualifier)) ||
+                 ("format".equals(metadataField.getElement()) && "mimetype".equals(qualifier)))))
             {
-                utf8 = ("  <dcvalue element=\"date\" "
-                        + "qualifier=\"issued\">"
-                        + Utils.addEntities(dateIssued) + "</dcvalue>\n")
-                        .getBytes("UTF-8");
                 out.write(utf8, 0, utf8.length);
             }
 
-            utf8 = "</dublin_core>\n".getBytes("UTF-8");
-            out.write(utf8, 0, utf8.length);
-
-            out.close();
+            // Store the date issued and accession to see if they are different
+            // because we need to keep date.issued if they are, when migrating
+            if (("date".equals(metadataField.getElement()) && "issued".equals(qualifier)))
+            {
+                dateIssued = dcv.getValue();
+            }
+            if (("date".equals(metadataField.getElement()) && "accessioned".equals(qualifier)))
+            {
+                dateAccessioned = dcv.getValue();
+            }
         }
-        else
+
+        // When migrating, only keep date.issued if it is different to date.accessioned
+        if ((migrate) &&
+            (dateIssued != null) &&
+            (dateAccessioned != null) &&
+            (!dateIssued.equals(dateAccessioned)))
         {
-            throw new Exception("Cannot create dublin_core.xml in " + destDir);
+            utf8 = ("  <dcvalue element=\"date\" "
+                    + "qualifier=\"issued\">"
+                    + Utils.addEntities(dateIssued) + "</dcvalue>\n")
+                    .getBytes("UTF-8");
+            out.write(utf8, 0, utf8.length);
         }
+
+        utf8 = "</dublin_core>\n".getBytes("UTF-8");
+        out.write(utf8, 0, utf8.length);
     }
 
     /**
@@ -393,24 +426,10 @@ public class ItemExportServiceImpl implements ItemExportService
                 // bundles can have multiple bitstreams now...
                 List<Bitstream> bitstreams = bundle.getBitstreams();
 
-                String bundleName = bundle.getName();
-
                 for (Bitstream bitstream : bitstreams) {
                     String myName = bitstream.getName();
                     String oldName = myName;
 
-                    String description = bitstream.getDescription();
-                    if (!StringUtils.isEmpty(description)) {
-                        description = "\tdescription:" + description;
-                    } else {
-                        description = "";
-                    }
-
-                    String primary = "";
-                    if (bitstream.equals(bundle.getPrimaryBitstream())) {
-                        primary = "\tprimary:true ";
-                    }
-
                     int myPrefix = 1; // only used with name conflict
 
                     boolean isDone = false; // done when bitstream is finally
@@ -449,15 +468,7 @@ public class ItemExportServiceImpl implements ItemExportService
                     }
                     
                     // write the manifest file entry
-                    if (bitstreamService.isRegisteredBitstream(bitstream)) {
-                        out.println("-r -s " + bitstream.getStoreNumber()
-                                + " -f " + myName +
-                                "\tbundle:" + bundleName +
-                                primary + description);
-                    } else {
-                        out.println(myName + "\tbundle:" + bundleName +
-                                primary + description);
-                    }
+                    out.println(getContentsLine(bitstream, bundle, myName));
                     
                 }
             }
@@ -471,6 +482,131 @@ public class ItemExportServiceImpl implements ItemExportService
         }
     }
 
+    /**
+     * Get the line of the contents file describing a bitstream
+     * @param bitstream the bitstream
+     * @param bundle the bundle of the bitstream
+     * @param fileName the name of the exported file
+     * @return the contents line
+     */
+    protected String getContentsLine(Bitstream bitstream, Bundle bundle, String fileName)
+    {
+        String description = bitstream.getDescription();
+        if (!StringUtils.isEmpty(description)) {
+            description = "\tdescription:" + description;
+        } else {
+            description = "";
+        }
+
+        String primary = "";
+        if (bitstream.equals(bundle.getPrimaryBitstream())) {
+            primary = "\tprimary:true ";
+        }
+
+        if (bitstreamService.isRegisteredBitstream(bitstream)) {
+            return "-r -s " + bitstream.getStoreNumber()
+                    + " -f " + fileName +
+                    "\tbundle:" + bundle.getName() +
+                    primary + description;
+        } else {
+            return fileName + "\tbundle:" + bundle.getName() +
+                    primary + description;
+        }
+    }
+
+    /**
+     * Export an item straight into a zip file, with the same layout as
+     * {@link #exportItem(Context, Item, String, int, boolean, boolean)}
+     * creates on disk. Bitstreams are copied from the assetstore into the
+     * zip file without intermediate files.
+     *
+     * @param c DSpace context
+     * @param myItem the item to export
+     * @param itemDir the directory of the item in the zip file, e.g. "collection_x/1"
+     * @param migrate Whether to use the migrate option or not
+     * @param excludeBitstreams whether to exclude bitstreams
+     * @param zip the zip file to write to
+     * @throws Exception if error
+     */
+    protected void exportItem(Context c, Item myItem, String itemDir, boolean migrate,
+            boolean excludeBitstreams, ZipExportWriter zip) throws Exception
+    {
+        System.out.println("Exporting Item " + myItem.getID() +
+                (myItem.getHandle() != null ? ", handle " + myItem.getHandle() : "") +
+                " to " + itemDir);
+
+        // metadata, one file per schema
+        Set<String> schemas = new HashSet<String>();
+        for (MetadataValue metadataValue : itemService.getMetadata(myItem, Item.ANY, Item.ANY, Item.ANY, Item.ANY))
+        {
+            schemas.add(metadataValue.getMetadataField().getMetadataSchema().getName());
+        }
+        for (String schema : schemas)
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeMetadata(c, schema, myItem, out, migrate);
+            zip.putEntry(itemDir + "/" + getMetadataFileName(schema), out.toByteArray());
+        }
+
+        // bitstreams and the contents file
+        StringBuilder contents = new StringBuilder();
+        Set<String> names = new HashSet<String>();
+        for (Bundle bundle : myItem.getBundles())
+        {
+            for (Bitstream bitstream : bundle.getBitstreams())
+            {
+                String myName = bitstream.getName();
+                if (!excludeBitstreams)
+                {
+                    // prefix numbers to the file name until it is unique
+                    String oldName = myName;
+                    int myPrefix = 1;
+                    while (!names.add(myName))
+                    {
+                        myName = myPrefix + "_" + oldName;
+                        myPrefix++;
+                    }
+                    InputStream is = bitstreamService.retrieve(c, bitstream);
+                    try
+                    {
+                        zip.putEntry(itemDir + "/" + myName, is);
+                    }
+                    finally
+                    {
+                        is.close();
+                    }
+                }
+                contents.append(getContentsLine(bitstream, bundle, myName)).append(System.lineSeparator());
+            }
+        }
+        zip.putEntry(itemDir + "/contents", contents.toString().getBytes());
+
+        if (!migrate && myItem.getHandle() != null)
+        {
+            zip.putEntry(itemDir + "/handle", (myItem.getHandle() + System.lineSeparator()).getBytes());
+        }
+    }
+
+    /**
+     * Create a writer for zip files in a directory, split into parts as
+     * configured.
+     * @param dir the directory to write to
+     * @param prefix the start of the zip file names
+     * @param suffix the end of the zip file names
+     * @return the writer
+     */
+    protected ZipExportWriter createZipWriter(File dir, String prefix, String suffix)
+    {
+        long partSize = ConfigurationManager.getLongProperty("org.dspace.app.itemexport.zip.part.size", 0);
+        String extensions = ConfigurationManager.getProperty("org.dspace.app.itemexport.zip.stored.extensions");
+        if (extensions == null)
+        {
+            extensions = DEFAULT_STORED_EXTENSIONS;
+        }
+        return new ZipExportWriter(dir, prefix, suffix, partSize * 1048576L,
+                Arrays.asList(extensions.split(",")));
+    }
+
     @Override
     public void exportAsZip(Context context, Iterator<Item> items,
                                    String destDirName, String zipFileName,
@@ -478,27 +614,45 @@ public class ItemExportServiceImpl implements ItemExportService
                                    boolean excludeBitstreams) throws Exception
                                    
     {
-        String workDir = getExportWorkDirectory() +
-                         System.getProperty("file.separator") +
-                         zipFileName;
-
-        File wkDir = new File(workDir);
-        if (!wkDir.exists() && !wkDir.mkdirs())
-        {
-            log.error("Unable to create working direcory");
-        }
-
         File dnDir = new File(destDirName);
         if (!dnDir.exists() && !dnDir.mkdirs())
         {
             log.error("Unable to create destination directory");
         }
 
-        // export the items using normal export method
-        exportItem(context, items, workDir, seqStart, migrate, excludeBitstreams);
-
-        // now zip up the export directory created above
-        zip(workDir, destDirName + System.getProperty("file.separator") + zipFileName);
+        // write the items straight into the zip file(s)
+        String prefix = zipFileName;
+        String suffix = "";
+        if (zipFileName.toLowerCase().endsWith(".zip"))
+        {
+            prefix = zipFileName.substring(0, zipFileName.length() - 4);
+            suffix = zipFileName.substring(zipFileName.length() - 4);
+        }
+        ZipExportWriter zip = createZipWriter(dnDir, prefix, suffix);
+        try
+        {
+            System.out.println("Beginning export");
+            int mySequenceNumber = seqStart;
+            while (items.hasNext())
+            {
+                exportItem(context, items.next(), String.valueOf(mySequenceNumber), migrate, excludeBitstreams, zip);
+                mySequenceNumber++;
+                String done = zip.endItem();
+                if (done != null)
+                {
+                    System.out.println("Completed " + done);
+                }
+            }
+            String done = zip.finish();
+            if (done != null)
+            {
+                System.out.println("Completed " + done);
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
     }
 
     @Override
@@ -700,7 +854,7 @@ public class ItemExportServiceImpl implements ItemExportService
                 public void run()
                 {
                     Context context = null;
-                    Iterator<Item> iitems = null;
+                    ZipExportWriter zip = null;
                     try
                     {
                         // create a new dspace context
@@ -710,9 +864,6 @@ public class ItemExportServiceImpl implements ItemExportService
 
                         String fileName = assembleFileName("item", eperson,
                                 new Date());
-                        String workParentDir = getExportWorkDirectory()
-                                + System.getProperty("file.separator")
-                                + fileName;
                         String downloadDir = getExportDownloadDirectory(eperson);
                         File dnDir = new File(downloadDir);
                         if (!dnDir.exists() && !dnDir.mkdirs())
@@ -720,39 +871,38 @@ public class ItemExportServiceImpl implements ItemExportService
                             log.error("Unable to create download directory");
                         }
 
+                        // write the items straight into the zip file(s); the
+                        // user id has to stay at the end of the file names
+                        int idStart = fileName.lastIndexOf('_');
+                        zip = createZipWriter(dnDir, fileName.substring(0, idStart),
+                                fileName.substring(idStart) + ".zip");
+
                         Iterator<String> iter = itemsMap.keySet().iterator();
                         while(iter.hasNext())
                         {
                             String keyName = iter.next();
-                            List<UUID> uuids = itemsMap.get(keyName);
-                            List<Item> items = new ArrayList<Item>();
-                            for (UUID uuid : uuids) {
-                                items.add(itemService.find(context, uuid));
-                            }
-                            iitems = items.iterator();
-
-                            String workDir = workParentDir 
-                                    + System.getProperty("file.separator")
-                                    + keyName;
-
-                            File wkDir = new File(workDir);
-                            if (!wkDir.exists() && !wkDir.mkdirs())
-                            {
-                                log.error("Unable to create working directory");
+                            int seq = 1;
+                            for (UUID uuid : itemsMap.get(keyName)) {
+                                Item item = itemService.find(context, uuid);
+                                exportItem(context, item, keyName + "/" + seq, migrate, false, zip);
+                                seq++;
+
+                                // let the user download each complete part
+                                String done = zip.endItem();
+                                if (done != null)
+                                {
+                                    emailSuccessMessage(context, eperson, done);
+                                }
                             }
-
-
-                            // export the items using normal export method
-                            exportItem(context, iitems, workDir, 1, migrate, false);
                         }
 
-                        // now zip up the export directory created above
-                        zip(workParentDir, downloadDir
-                                + System.getProperty("file.separator")
-                                + fileName + ".zip");
                         // email message letting user know the file is ready for
                         // download
-                        emailSuccessMessage(context, eperson, fileName + ".zip");
+                        String done = zip.finish();
+                        if (done != null)
+                        {
+                            emailSuccessMessage(context, eperson, done);
+                        }
                         // return to enforcing auths
                         context.restoreAuthSystemState();
                     }
@@ -770,6 +920,18 @@ public class ItemExportServiceImpl implements ItemExportService
                     }
                     finally
                     {
+                        // Remove an incomplete part
+                        if (zip != null)
+                        {
+                            try
+                            {
+                                zip.close();
+                            }
+                            catch (IOException e)
+                            {
+                                log.warn("Unable to close export", e);
+                            }
+                        }
                         // Make sure the database connection gets closed in all conditions.
                     	try {
 							context.complete();
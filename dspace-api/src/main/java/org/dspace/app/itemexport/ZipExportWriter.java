@@ -0,0 +1,218 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.itemexport;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.log4j.Logger;
+
+/**
+ * Writes an export directly into one or more zip files, without copying the
+ * exported files to a work directory first.
+ * <P>
+ * If a maximum part size is given, a new zip file is started once the current
+ * one has reached that size at the end of an item, so items are never split
+ * across parts. Each part is written under a temporary name and renamed when
+ * it is complete, so finished parts can be downloaded while the export goes
+ * on. The first part is named {@code prefix + suffix}, the following ones
+ * {@code prefix + "-part" + n + suffix}.
+ * <P>
+ * Files with one of the given extensions are already compressed; they are
+ * written without compression to save the CPU time.
+ */
+public class ZipExportWriter implements Closeable
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(ZipExportWriter.class);
+
+    protected static final int DATA_BLOCK_SIZE = 65536;
+
+    protected final File dir;
+    protected final String prefix;
+    protected final String suffix;
+    protected final long maxPartSize;
+    protected final Set<String> storedExtensions = new HashSet<String>();
+
+    protected int part = 0;
+    protected File partFile;
+    protected CountingOutputStream counter;
+    protected ZipOutputStream zip;
+    protected final List<String> fileNames = new ArrayList<String>();
+
+    /**
+     * @param dir the directory to write the zip files to
+     * @param prefix the start of the zip file names
+     * @param suffix the end of the zip file names, including ".zip"
+     * @param maxPartSize the size in bytes after which a new zip file is started, 0 for no limit
+     * @param storedExtensions extensions of files which are written without compression
+     */
+    public ZipExportWriter(File dir, String prefix, String suffix, long maxPartSize,
+            Collection<String> storedExtensions)
+    {
+        this.dir = dir;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.maxPartSize = maxPartSize;
+        for (String extension : storedExtensions)
+        {
+            this.storedExtensions.add(extension.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Add a file to the current zip file.
+     *
+     * @param name the path of the file in the zip file, separated by '/'
+     * @param in the content, which is read to the end but not closed
+     * @throws IOException if the content cannot be read or written
+     */
+    public void putEntry(String name, InputStream in) throws IOException
+    {
+        ZipOutputStream out = open();
+        out.setLevel(isCompressed(name) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+        out.putNextEntry(new ZipEntry(name));
+        byte[] buffer = new byte[DATA_BLOCK_SIZE];
+        int count;
+        while ((count = in.read(buffer)) != -1)
+        {
+            out.write(buffer, 0, count);
+        }
+        out.closeEntry();
+    }
+
+    /**
+     * Add a small generated file to the current zip file.
+     *
+     * @param name the path of the file in the zip file, separated by '/'
+     * @param content the content
+     * @throws IOException if the content cannot be written
+     */
+    public void putEntry(String name, byte[] content) throws IOException
+    {
+        ZipOutputStream out = open();
+        out.setLevel(Deflater.DEFAULT_COMPRESSION);
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.closeEntry();
+    }
+
+    /**
+     * Mark the end of an item. If the current zip file has reached the
+     * maximum part size, it is completed.
+     *
+     * @return the name of the completed zip file, or null
+     * @throws IOException if the zip file cannot be completed
+     */
+    public String endItem() throws IOException
+    {
+        if (zip != null && maxPartSize > 0 && counter.getByteCount() >= maxPartSize)
+        {
+            return finishPart();
+        }
+        return null;
+    }
+
+    /**
+     * Complete the current zip file.
+     *
+     * @return the name of the completed zip file, or null if nothing was written since the last one
+     * @throws IOException if the zip file cannot be completed
+     */
+    public String finish() throws IOException
+    {
+        if (zip == null)
+        {
+            return null;
+        }
+        return finishPart();
+    }
+
+    /**
+     * @return the names of all completed zip files
+     */
+    public List<String> getFileNames()
+    {
+        return fileNames;
+    }
+
+    /**
+     * Abandon the current zip file, if any.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (zip != null)
+        {
+            try
+            {
+                zip.close();
+            }
+            finally
+            {
+                zip = null;
+                if (!partFile.delete())
+                {
+                    log.warn("Unable to delete incomplete export " + partFile);
+                }
+            }
+        }
+    }
+
+    protected boolean isCompressed(String name)
+    {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && storedExtensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    protected String getFileName(int number)
+    {
+        return number == 1 ? prefix + suffix : prefix + "-part" + number + suffix;
+    }
+
+    protected ZipOutputStream open() throws IOException
+    {
+        if (zip == null)
+        {
+            part++;
+            partFile = new File(dir, getFileName(part) + "_tmp");
+            counter = new CountingOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(partFile), DATA_BLOCK_SIZE));
+            zip = new ZipOutputStream(counter);
+        }
+        return zip;
+    }
+
+    protected String finishPart() throws IOException
+    {
+        zip.finish();
+        zip.close();
+        zip = null;
+        String fileName = getFileName(part);
+        if (!partFile.renameTo(new File(dir, fileName)))
+        {
+            throw new IOException("Unable to rename " + partFile + " to " + fileName);
+        }
+        fileNames.add(fileName);
+        return fileName;
+    }
+}
@@ -85,6 +85,10 @@ public class ItemImportCLITool {
             options.addOption("R", "resume", false,
                     "resume a failed import (add only)");
             options.addOption("q", "quiet", false, "don't display metadata");
+            options.addOption("W", "workers", true,
+                    "add items with the given number of parallel workers, each committing its own items (add only)");
+            options.addOption("C", "commit-every", true,
+                    "with --workers, number of items each worker commits at once (default 100)");
 
             options.addOption("h", "help", false, "help");
 
@@ -101,6 +105,8 @@ public class ItemImportCLITool {
             boolean useWorkflow = false;
             boolean useWorkflowSendEmail = false;
             boolean isQuiet = false;
+            int workers = 0;
+            int batchSize = 100;
 
             if (line.hasOption('h')) {
                 HelpFormatter myhelp = new HelpFormatter();
@@ -113,6 +119,8 @@ public class ItemImportCLITool {
                         .println("replacing items: ItemImport -r -e eperson -c collection -s sourcedir -m mapfile");
                 System.out
                         .println("deleting items:  ItemImport -d -e eperson -m mapfile");
+                System.out
+                        .println("adding items in parallel:    ItemImport -a -e eperson -c collection -s sourcedir -m mapfile -W 4 -C 100");
                 System.out
                         .println("If multiple collections are specified, the first collection will be the one that owns the item.");
 
@@ -185,6 +193,21 @@ public class ItemImportCLITool {
                 isQuiet = true;
             }
 
+            try {
+                if (line.hasOption('W')) {
+                    workers = Integer.parseInt(line.getOptionValue('W'));
+                }
+                if (line.hasOption('C')) {
+                    batchSize = Integer.parseInt(line.getOptionValue('C'));
+                }
+            } catch (NumberFormatException e) {
+                workers = -1;
+            }
+            if (workers < 0 || batchSize < 1) {
+                System.out.println("Error - the number of workers and items per commit must be positive numbers");
+                System.exit(1);
+            }
+
             boolean zip = false;
             String zipfilename = "";
             if (line.hasOption('z')) {
@@ -274,6 +297,13 @@ public class ItemImportCLITool {
                 System.exit(1);
             }
 
+            // parallel workers only add items
+            if (workers > 0 && !"add".equals(command)) {
+                System.out
+                        .println("Error - the workers option only works with the --add command");
+                System.exit(1);
+            }
+
             // do checks around mapfile - if mapfile exists and 'add' is selected,
             // resume must be chosen
             File myFile = new File(mapfile);
@@ -292,6 +322,8 @@ public class ItemImportCLITool {
             myloader.setUseWorkflow(useWorkflow);
             myloader.setUseWorkflowSendEmail(useWorkflowSendEmail);
             myloader.setQuiet(isQuiet);
+            myloader.setWorkers(workers);
+            myloader.setBatchSize(batchSize);
 
             // create a context
             Context c = new Context();
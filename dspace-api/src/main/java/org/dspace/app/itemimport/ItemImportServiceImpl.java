@@ -20,6 +20,8 @@ import java.net.URL;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipEntry;
 
@@ -125,6 +127,8 @@ public class ItemImportServiceImpl implements ItemImportService, InitializingBea
     protected boolean useWorkflow = false;
     protected boolean useWorkflowSendEmail = false;
     protected boolean isQuiet = false;
+    protected int workers = 0;
+    protected int batchSize = 100;
 
     @Override
     public void afterPropertiesSet() throws Exception {
@@ -318,6 +322,17 @@ public class ItemImportServiceImpl implements ItemImportService, InitializingBea
 
             Arrays.sort(dircontents, ComparatorUtils.naturalComparator());
 
+            if (workers > 0)
+            {
+                new ParallelImport(directoryFileCollections ? null : mycollections, sourceDir,
+                        dircontents, skipItems, mapOut, template).run(c);
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+            long imported = 0;
+            long bytes = 0;
+
         for (int i = 0; i < dircontents.length; i++)
         {
             if (skipItems.containsKey(dircontents[i]))
@@ -349,9 +364,12 @@ public class ItemImportServiceImpl implements ItemImportService, InitializingBea
                 }
                 addItem(c, clist, sourceDir, dircontents[i], mapOut, template);
                 System.out.println(i + " " + dircontents[i]);
+                imported++;
+                bytes += FileUtils.sizeOfDirectory(new File(sourceDir, dircontents[i]));
             }
         }
 
+            printSummary(imported, bytes, start);
         } finally {
             if(mapOut!=null) {
                 mapOut.flush();
@@ -360,6 +378,248 @@ public class ItemImportServiceImpl implements ItemImportService, InitializingBea
         }
     }
 
+    /**
+     * Print the number of imported items and bytes, and the throughput.
+     */
+    protected void printSummary(long items, long bytes, long start)
+    {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        String summary = "Imported " + items + " items (" + bytes + " bytes) in " + elapsed + " ms: "
+                + String.format("%.2f", items * 1000.0 / elapsed) + " items/s, "
+                + String.format("%.0f", bytes * 1000.0 / elapsed) + " bytes/s";
+        System.out.println(summary);
+        log.info(summary);
+    }
+
+    /**
+     * Adds the items of a source directory with several worker threads.
+     * Each worker takes the next item directory, adds the item in a batch
+     * mode Context of its own, acting as the current user of the caller's
+     * Context, and commits every {@link #batchSize} items. The map file
+     * entries of a worker are written only after its items have been
+     * committed, so a failed import can always be resumed with the map file.
+     * When a worker fails, the other workers commit the items they have
+     * added and stop.
+     */
+    protected class ParallelImport
+    {
+        protected final List<Collection> mycollections;
+        protected final String sourceDir;
+        protected final String[] dircontents;
+        protected final Map<String, String> skipItems;
+        protected final PrintWriter mapOut;
+        protected final boolean template;
+
+        protected final AtomicInteger next = new AtomicInteger();
+        protected final AtomicLong items = new AtomicLong();
+        protected final AtomicLong bytes = new AtomicLong();
+        protected volatile boolean stop = false;
+        protected volatile Exception failure = null;
+
+        /**
+         * @param mycollections collections to add all items to, or null to
+         *        read them from the "collections" file of each item
+         */
+        protected ParallelImport(List<Collection> mycollections, String sourceDir, String[] dircontents,
+                Map<String, String> skipItems, PrintWriter mapOut, boolean template)
+        {
+            this.mycollections = mycollections;
+            this.sourceDir = sourceDir;
+            this.dircontents = dircontents;
+            this.skipItems = skipItems;
+            this.mapOut = mapOut;
+            this.template = template;
+        }
+
+        /**
+         * Run the workers and wait for them to finish.
+         * @param c the caller's Context
+         * @throws Exception the first error of any worker
+         */
+        protected void run(Context c) throws Exception
+        {
+            long start = System.currentTimeMillis();
+            final UUID userId = c.getCurrentUser() == null ? null : c.getCurrentUser().getID();
+            final boolean ignoreAuth = c.ignoreAuthorization();
+            final List<UUID> specialGroups = new ArrayList<>();
+            for (Group group : c.getSpecialGroups())
+            {
+                specialGroups.add(group.getID());
+            }
+            final List<UUID> collectionIds;
+            if (mycollections == null)
+            {
+                collectionIds = null;
+            }
+            else
+            {
+                collectionIds = new ArrayList<>();
+                for (Collection collection : mycollections)
+                {
+                    collectionIds.add(collection.getID());
+                }
+            }
+
+            System.out.println("Importing with " + workers + " workers, committing every " + batchSize + " items");
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < workers; i++)
+            {
+                Thread thread = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        work(userId, ignoreAuth, specialGroups, collectionIds);
+                    }
+                }, "itemimport-" + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads)
+            {
+                thread.join();
+            }
+
+            printSummary(items.get(), bytes.get(), start);
+            if (failure != null)
+            {
+                throw failure;
+            }
+        }
+
+        /**
+         * Worker loop: add items until all directories are taken or another
+         * worker failed.
+         */
+        protected void work(UUID userId, boolean ignoreAuth, List<UUID> specialGroups, List<UUID> collectionIds)
+        {
+            Context wctx = null;
+            StringWriter pending = new StringWriter();
+            PrintWriter pendingOut = new PrintWriter(pending);
+            int uncommitted = 0;
+            long uncommittedBytes = 0;
+            try
+            {
+                wctx = new Context();
+                if (userId != null)
+                {
+                    wctx.setCurrentUser(ePersonService.find(wctx, userId));
+                }
+                if (ignoreAuth)
+                {
+                    wctx.turnOffAuthorisationSystem();
+                }
+                for (UUID groupId : specialGroups)
+                {
+                    wctx.setSpecialGroup(groupId);
+                }
+                wctx.enableBatchMode(true);
+                List<Collection> clist = findCollections(wctx, collectionIds);
+
+                int i;
+                while (!stop && (i = next.getAndIncrement()) < dircontents.length)
+                {
+                    String itemname = dircontents[i];
+                    if (skipItems.containsKey(itemname))
+                    {
+                        System.out.println("Skipping import of " + itemname);
+                        continue;
+                    }
+
+                    List<Collection> itemCollections = clist;
+                    if (itemCollections == null)
+                    {
+                        String path = sourceDir + File.separatorChar + itemname;
+                        try
+                        {
+                            itemCollections = processCollectionFile(wctx, path, "collections");
+                            if (itemCollections == null)
+                            {
+                                System.out.println("No collections specified for item " + itemname + ". Skipping.");
+                                continue;
+                            }
+                        }
+                        catch (IllegalArgumentException e)
+                        {
+                            System.out.println(e.getMessage() + " Skipping.");
+                            continue;
+                        }
+                    }
+
+                    addItem(wctx, itemCollections, sourceDir, itemname, pendingOut, template);
+                    System.out.println(i + " " + itemname);
+                    uncommitted++;
+                    uncommittedBytes += FileUtils.sizeOfDirectory(new File(sourceDir, itemname));
+
+                    if (uncommitted >= batchSize)
+                    {
+                        commit(wctx, pending, uncommitted, uncommittedBytes);
+                        uncommitted = 0;
+                        uncommittedBytes = 0;
+                        // the committed session is gone, reload the collections
+                        clist = findCollections(wctx, collectionIds);
+                    }
+                }
+
+                commit(wctx, pending, uncommitted, uncommittedBytes);
+                wctx.complete();
+            }
+            catch (Exception e)
+            {
+                log.error("Item import worker " + Thread.currentThread().getName() + " failed: " + e.getMessage(), e);
+                synchronized (this)
+                {
+                    if (failure == null)
+                    {
+                        failure = e;
+                    }
+                }
+                stop = true;
+            }
+            finally
+            {
+                if (wctx != null && wctx.isValid())
+                {
+                    wctx.abort();
+                }
+            }
+        }
+
+        /**
+         * Commit the worker's items, then write their map file entries.
+         */
+        protected void commit(Context wctx, StringWriter pending, int count, long size) throws SQLException
+        {
+            wctx.commit();
+            if (mapOut != null)
+            {
+                synchronized (mapOut)
+                {
+                    mapOut.print(pending.toString());
+                    mapOut.flush();
+                }
+            }
+            pending.getBuffer().setLength(0);
+            items.addAndGet(count);
+            bytes.addAndGet(size);
+        }
+
+        protected List<Collection> findCollections(Context wctx, List<UUID> collectionIds) throws SQLException
+        {
+            if (collectionIds == null)
+            {
+                return null;
+            }
+            List<Collection> collections = new ArrayList<>();
+            for (UUID id : collectionIds)
+            {
+                collections.add(collectionService.find(wctx, id));
+            }
+            return collections;
+        }
+    }
+
     @Override
     public void replaceItems(Context c, List<Collection> mycollections,
             String sourceDir, String mapFile, boolean template) throws Exception
@@ -2077,4 +2337,14 @@ public class ItemImportServiceImpl implements ItemImportService, InitializingBea
     public void setQuiet(boolean isQuiet) {
         this.isQuiet = isQuiet;
     }
+
+    @Override
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    @Override
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
 }
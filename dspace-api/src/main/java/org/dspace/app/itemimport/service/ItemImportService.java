@@ -235,4 +235,20 @@ public interface ItemImportService {
      * @param isQuiet true or false
      */
     public void setQuiet(boolean isQuiet);
+
+    /**
+     * Set the number of parallel workers used by {@link #addItems}. With 0
+     * (the default), all items are added in the given Context and committed
+     * by the caller. With 1 or more, each worker adds items in a Context of
+     * its own and commits every {@link #setBatchSize batch size} items; map
+     * file entries are only written once their items are committed.
+     * @param workers number of workers
+     */
+    public void setWorkers(int workers);
+
+    /**
+     * Set the number of items each worker adds per transaction
+     * @param batchSize number of items per commit
+     */
+    public void setBatchSize(int batchSize);
 }
@@ -27,6 +27,7 @@ import org.dspace.content.packager.PackageDisseminator;
 import org.dspace.content.packager.PackageException;
 import org.dspace.content.packager.PackageParameters;
 import org.dspace.content.packager.PackageIngester;
+import org.dspace.content.packager.ParallelPackager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.core.factory.CoreServiceFactory;
@@ -119,6 +120,9 @@ public class Packager
     protected String packageType = null;
     protected boolean submit = true;
     protected boolean userInteractionEnabled = true;
+    /* Number of worker threads for recursive (-a) runs; 0 for a sequential run */
+    protected int workers = 0;
+    protected boolean resume = false;
 
     // die from illegal command line
     protected static void usageError(String msg)
@@ -154,6 +158,8 @@ public class Packager
                 "Submission package (Input); this is the default. ");
         options.addOption("i", "identifier", true, "Handle of object to disseminate.");
         options.addOption("a", "all", false, "also recursively ingest/disseminate any child packages, e.g. all Items within a Collection (not all packagers may support this option!)");
+        options.addOption("P", "parallel", true, "with '-a', process packages on the given number of worker threads: Items are disseminated or ingested concurrently, and a list of completed packages is kept in '[package-file].progress'. In this mode every package is committed as soon as it is ingested.  Not supported with '-f'.");
+        options.addOption("R", "resume", false, "with '-P', skip the packages listed in '[package-file].progress' by a previous, interrupted run.");
         options.addOption("h", "help", false, "help (you may also specify '-h -t [type]' for additional help with a specific type of packager)");
         options.addOption("u", "no-user-interaction", false, "Skips over all user interaction (i.e. [y/n] question prompts) within this script. This flag can be used if you want to save (pipe) a report of all changes to a file, and therefore need to bypass all user interaction.");
 
@@ -275,6 +281,18 @@ public class Packager
             //enable 'recursiveMode' param to packager implementations, in case it helps with packaging or ingestion process
             pkgParams.setRecursiveModeEnabled(true);
         }
+        if (line.hasOption('P'))
+        {
+            try
+            {
+                myPackager.workers = Integer.parseInt(line.getOptionValue('P'));
+            }
+            catch (NumberFormatException e)
+            {
+                usageError("Error, the number of workers must be a number: " + line.getOptionValue('P'));
+            }
+            myPackager.resume = line.hasOption('R');
+        }
         String files[] = line.getArgs();
         if (files.length > 0)
         {
@@ -517,7 +535,18 @@ public class Packager
                 System.out.println("This may take a while, please check your logs for ongoing status while we process each package.");
 
                 //ingest first package & recursively ingest anything else that package references (child packages, etc)
-                List<String> hdlResults = sip.ingestAll(context, parent, pkgFile, pkgParams, null);
+                List<String> hdlResults;
+                if (workers > 0)
+                {
+                    ParallelPackager parallel = new ParallelPackager(workers, new File(sourceFile + ".progress"), resume);
+                    System.out.println("Ingesting Items on " + workers + " worker threads, see " + sourceFile + ".progress for completed packages.");
+                    hdlResults = parallel.ingestAll(context, sip, parent, pkgFile, pkgParams);
+                    printSkipped(parallel);
+                }
+                else
+                {
+                    hdlResults = sip.ingestAll(context, parent, pkgFile, pkgParams, null);
+                }
 
                 if (hdlResults != null)
                 {
@@ -642,7 +671,18 @@ public class Packager
             System.out.println("This may take a while, please check your logs for ongoing status while we process each package.");
 
             //disseminate initial object & recursively disseminate all child objects as well
-            List<File> fileResults = dip.disseminateAll(context, dso, pkgParams, pkgFile);
+            List<File> fileResults;
+            if (workers > 0)
+            {
+                ParallelPackager parallel = new ParallelPackager(workers, new File(outputFile + ".progress"), resume);
+                System.out.println("Disseminating Items on " + workers + " worker threads, see " + outputFile + ".progress for completed packages.");
+                fileResults = parallel.disseminateAll(context, dip, dso, pkgParams, pkgFile);
+                printSkipped(parallel);
+            }
+            else
+            {
+                fileResults = dip.disseminateAll(context, dso, pkgParams, pkgFile);
+            }
 
             if(fileResults!=null)
             {
@@ -689,6 +729,19 @@ public class Packager
 
 
 
+    /**
+     * Report the packages a resumed parallel run did not process again.
+     *
+     * @param parallel the parallel packager which ran
+     */
+    protected void printSkipped(ParallelPackager parallel)
+    {
+        if (parallel.getSkippedCount() > 0)
+        {
+            System.out.println("\nSKIPPED " + parallel.getSkippedCount() + " packages completed by a previous run.");
+        }
+    }
+
     /**
      * Replace an one or more existing DSpace objects with the contents of
      * specified package(s) based on the options passed to the 'packager' script.
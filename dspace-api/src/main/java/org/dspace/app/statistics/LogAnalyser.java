@@ -24,12 +24,24 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
 
 /**
  * This class performs all the actual analysis of a given set of DSpace log
@@ -209,6 +221,12 @@ public class LogAnalyser
    /** the end date of the report as obtained from the log files */
    private static Date logEndDate = null;
 
+   /** the number of threads analysing the log files */
+   private static int threads = Runtime.getRuntime().availableProcessors();
+
+   /** the size of the parts large log files are split into, to be analysed in parallel */
+   private static final long CHUNK_SIZE = 16 * 1024 * 1024;
+
     /**
      * main method to be run from command line.  See usage information for
      * details as to how to use the command line flags (-help)
@@ -278,6 +296,11 @@ public class LogAnalyser
             {
                 myLookUp = true;
             }
+
+            if (argv[i].equals("-threads"))
+            {
+                threads = Math.max(1, Integer.parseInt(argv[i+1]));
+            }
         }
         
         // now call the method which actually processes the logs
@@ -329,10 +352,6 @@ public class LogAnalyser
         // set the parameters for this analysis
         setParameters(myLogDir, myFileTemplate, myConfigFile, myOutFile, myStartDate, myEndDate, myLookUp);
         
-        // pre prepare our standard file readers and buffered readers
-        FileReader fr = null;
-        BufferedReader br = null;
-        
         // read in the config information, throwing an error if we fail to open
         // the given config file
         readConfig(configFile);
@@ -344,163 +363,28 @@ public class LogAnalyser
         // get the log files
         File[] logFiles = getLogFiles(logDir);
         
-        // standard loop counter
-        int i = 0;
-        
-        // for every log file do analysis
-        // FIXME: it is easy to implement not processing log files after the
-        // dates exceed the end boundary, but is there an easy way to do it
-        // for the start of the file?  Note that we can assume that the contents
-        // of the log file are sequential, but can we assume the files are
-        // provided in a data sequence?
-        for (i = 0; i < logFiles.length; i++)
+        // analyse the log files in parallel, and add up the results in the
+        // order of the files so that the output is the same as if they were
+        // read one after the other
+        Aggregation aggregation = analyseLogs(logFiles, threads, CHUNK_SIZE);
+        lineCount += aggregation.lines;
+        warnCount += aggregation.warnings;
+        excCount += aggregation.exceptions;
+        if (aggregation.first != null && (logStartDate == null || !logStartDate.before(aggregation.first)))
         {
-            // check to see if this file is a log file agains the global regex
-            Matcher matchRegex = logRegex.matcher(logFiles[i].getName());
-            if (matchRegex.matches())
-            {
-                // if it is a log file, open it up and lets have a look at the
-                // contents.
-                try 
-                {  
-                    fr = new FileReader(logFiles[i].toString());  
-                    br = new BufferedReader(fr);
-                } 
-                catch (IOException e) 
-                {  
-                    System.out.println("Failed to read log file " + logFiles[i].toString());
-                    System.exit(0);
-                } 
-
-                // for each line in the file do the analysis
-                // FIXME: perhaps each section needs to be dolled out to an
-                // analysing class to allow pluggability of other methods of
-                // analysis, and ease of code reading too - Pending further thought
-                String line = null;
-                while ((line = br.readLine()) != null)
-                {
-                    // get the log line object
-                    LogLine logLine = getLogLine(line);
-
-                    // if there are line segments get on with the analysis
-                    if (logLine != null)
-                    {
-                        // first find out if we are constraining by date and 
-                        // if so apply the restrictions
-                        if ((startDate != null) && (!logLine.afterDate(startDate)))
-                        {
-                            continue;
-                        }
-                        
-                        if ((endDate !=null) && (!logLine.beforeDate(endDate)))
-                        {
-                            break;
-                        }
-                        
-                        // count the number of lines parsed
-                        lineCount++;
-                        
-                        // if we are not constrained by date, register the date
-                        // as the start/end date if it is the earliest/latest so far
-                        // FIXME: this should probably have a method of its own
-                        if (startDate == null)
-                        {
-                            if (logStartDate != null)
-                            {
-                                if (logLine.beforeDate(logStartDate))
-                                {
-                                    logStartDate = logLine.getDate();
-                                }
-                            }
-                            else
-                            {
-                                logStartDate = logLine.getDate();
-                            }
-                        }
-                        
-                        if (endDate == null)
-                        {
-                            if (logEndDate != null)
-                            {
-                                if (logLine.afterDate(logEndDate))
-                                {
-                                    logEndDate = logLine.getDate();
-                                }
-                            }
-                            else
-                            {
-                                logEndDate = logLine.getDate();
-                            }
-                        }
-
-                        // count the warnings
-                        if (logLine.isLevel("WARN"))
-                        {
-                            // FIXME: really, this ought to be some kind of level
-                            // aggregator
-                            warnCount++;
-                        }
-                        // count the exceptions
-                        if (logLine.isLevel("ERROR"))
-                        {
-                            excCount++;
-                        }
-
-                        if ( null == logLine.getAction() ) {
-                            continue;
-                        }
-
-                        // is the action a search?
-                        if (logLine.isAction("search"))
-                        {
-                            // get back all the valid search words from the query
-                            String[] words = analyseQuery(logLine.getParams());
-                            
-                            // for each search word add to the aggregator or
-                            // increment the aggregator's counter
-                            for (int j = 0; j < words.length; j++)
-                            {
-                                // FIXME: perhaps aggregators ought to be objects
-                                // themselves
-                                searchAggregator.put(words[j], increment(searchAggregator, words[j]));
-                            }
-                        }
-
-                        // is the action a login, and are we counting user logins?
-                        if (logLine.isAction("login") && !userEmail.equals("off"))
-                        {
-                            userAggregator.put(logLine.getUser(), increment(userAggregator, logLine.getUser()));
-                        }
-
-                        // is the action an item view?
-                        if (logLine.isAction("view_item"))
-                        {
-                            String handle = logLine.getParams();
-
-                            // strip the handle string
-                            Matcher matchHandle = handleRX.matcher(handle);
-                            handle = matchHandle.replaceAll("");
-                            
-                            // strip the item id string
-                            Matcher matchItem = itemRX.matcher(handle);
-                            handle = matchItem.replaceAll("").trim();
-
-                            // either add the handle to the aggregator or
-                            // increment its counter
-                            itemAggregator.put(handle, increment(itemAggregator, handle));
-                        }
-
-                        // log all the activity
-                        actionAggregator.put(logLine.getAction(), increment(actionAggregator, logLine.getAction()));
-                    }
-                }
-
-                // close the file reading buffers
-                br.close();
-                fr.close();
-
-            }
+            logStartDate = aggregation.first;
+        }
+        if (aggregation.last != null && (logEndDate == null || !logEndDate.after(aggregation.last)))
+        {
+            logEndDate = aggregation.last;
         }
+        add(actionAggregator, aggregation.actions);
+        add(searchAggregator, aggregation.searches);
+        add(userAggregator, aggregation.users);
+        add(itemAggregator, aggregation.items);
+        
+        // standard loop counter
+        int i = 0;
         
         // do we want to do a database lookup?  Do so only if the start and
         // end dates are null or lookUp is true
@@ -538,6 +422,181 @@ public class LogAnalyser
     }
    
     
+    /**
+     * Analyse the log files whose names match the file name template, on the
+     * given number of threads. Each file is split into parts of about the
+     * given size, analysed separately; the results are added up in the
+     * order of the files and of their parts.
+     *
+     * @param   logFiles    the files in the log directory
+     * @param   threads     the number of threads analysing the files
+     * @param   chunkSize   the size of the parts of the files
+     * @return  the aggregated results
+     * @throws IOException if IO error
+     */
+    static Aggregation analyseLogs(File[] logFiles, int threads, long chunkSize)
+            throws IOException
+    {
+        // FIXME: it is easy to implement not processing log files after the
+        // dates exceed the end boundary, but is there an easy way to do it
+        // for the start of the file?  Note that we can assume that the contents
+        // of the log file are sequential, but can we assume the files are
+        // provided in a data sequence?
+        List<LogChunk> chunks = new ArrayList<LogChunk>();
+        for (int i = 0; i < logFiles.length; i++)
+        {
+            // check to see if this file is a log file agains the global regex
+            Matcher matchRegex = logRegex.matcher(logFiles[i].getName());
+            if (matchRegex.matches())
+            {
+                try
+                {
+                    chunks.addAll(split(logFiles[i], chunkSize));
+                }
+                catch (IOException e)
+                {
+                    System.out.println("Failed to read log file " + logFiles[i].toString());
+                    System.exit(0);
+                }
+            }
+        }
+
+        Aggregation aggregation = new Aggregation();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try
+        {
+            List<Future<LogChunk>> results = new ArrayList<Future<LogChunk>>();
+            for (LogChunk chunk : chunks)
+            {
+                results.add(pool.submit(chunk));
+            }
+
+            // the analysis of a file ends at the first line after the end
+            // date, so skip the parts of the file after the one containing it
+            File file = null;
+            boolean ended = false;
+            for (int i = 0; i < results.size(); i++)
+            {
+                LogChunk chunk = get(results.get(i));
+                results.set(i, null);
+                if (chunk.file != file)
+                {
+                    file = chunk.file;
+                    ended = false;
+                }
+                if (!ended)
+                {
+                    aggregation.add(chunk);
+                    ended = chunk.ended;
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+        return aggregation;
+    }
+
+    /**
+     * Split a log file into parts of about the given size, ending with a line.
+     */
+    private static List<LogChunk> split(File file, long chunkSize) throws IOException
+    {
+        List<LogChunk> chunks = new ArrayList<LogChunk>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            long start = 0;
+            do
+            {
+                long end = size;
+                if (size - start > chunkSize)
+                {
+                    end = nextLine(channel, start + chunkSize, size);
+                }
+                chunks.add(new LogChunk(file, start, end - start));
+                start = end;
+            }
+            while (start < size);
+        }
+        return chunks;
+    }
+
+    /**
+     * @return the position following the first line feed from the given position
+     */
+    private static long nextLine(FileChannel channel, long position, long size) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size)
+        {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0)
+            {
+                break;
+            }
+            for (int i = 0; i < read; i++)
+            {
+                if (buffer.get(i) == '\n')
+                {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static LogChunk get(Future<LogChunk> result) throws IOException
+    {
+        try
+        {
+            return result.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while analysing the log files");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * add the counts of one aggregator to another, adding the keys in the
+     * order of the given aggregator.
+     *
+     * @param   map     the aggregator to add to
+     * @param   counts  the counts to add
+     */
+    private static void add(Map<String, Integer> map, Map<String, Integer> counts)
+    {
+        for (Map.Entry<String, Integer> count : counts.entrySet())
+        {
+            Integer value = map.get(count.getKey());
+            map.put(count.getKey(), value == null ? count.getValue()
+                    : Integer.valueOf(value.intValue() + count.getValue().intValue()));
+        }
+    }
+    
+    
     /**
      * set the passed parameters up as global class variables.  This has to
      * be done in a separate method because the API permits for running from
@@ -1123,6 +1182,19 @@ public class LogAnalyser
      * @return          a Log Line object for the given line
      */
     public static LogLine getLogLine(String line)
+    {
+        return getLogLine(line, null);
+    }
+
+    /**
+     * split the given line into it's relevant segments if applicable, parsing
+     * the date with the cache of the given part of a log file.
+     *
+     * @param   line    the line to be segmented
+     * @param   chunk   the part of a log file the line is in, or null
+     * @return          a Log Line object for the given line
+     */
+    private static LogLine getLogLine(String line, LogChunk chunk)
     {
         // FIXME: consider moving this code into the LogLine class.  To do this
         // we need to much more carefully define the structure and behaviour
@@ -1141,7 +1213,8 @@ public class LogAnalyser
         if (match.matches())
         {
             // set up a new log line object
-            LogLine logLine = new LogLine(parseDate(match.group(1).trim()),
+            String date = match.group(1).trim();
+            LogLine logLine = new LogLine(chunk == null ? parseDate(date) : chunk.parseDate(date),
                                           LogManager.unescapeLogField(match.group(2)).trim(),
                                           LogManager.unescapeLogField(match.group(3)).trim(),
                                           LogManager.unescapeLogField(match.group(4)).trim(),
@@ -1153,7 +1226,8 @@ public class LogAnalyser
         {
             match = validBase.matcher(line);
             if ( match.matches() ) {
-                LogLine logLine = new LogLine(parseDate(match.group(1).trim()),
+                String date = match.group(1).trim();
+                LogLine logLine = new LogLine(chunk == null ? parseDate(date) : chunk.parseDate(date),
                     LogManager.unescapeLogField(match.group(2)).trim(),
                     null,
                     null,
@@ -1278,9 +1352,259 @@ public class LogAnalyser
                             "\tOptional\n" +
                             "\tForce a lookup of the current database statistics\n" +
                             "\tOnly needs to be used if date constraints are also in place\n" +
+                        "-threads [number of threads]\n" +
+                            "\tOptional\n" +
+                            "\tSpecify the number of threads analysing the log files\n" +
+                            "\tDefault is the number of processors\n" +
                         "-help\n" +
                             "\tdisplay this usage information\n";
         
         System.out.println(usage);
     }
+
+    
+    /**
+     * The results of the analysis of log lines.  The aggregators keep their
+     * keys in the order they were first found, so that adding up results in
+     * the order of the lines gives the same aggregators as adding up every
+     * line one after the other.
+     */
+    static class Aggregation
+    {
+        /** aggregator for all actions performed in the system */
+        final Map<String, Integer> actions = new LinkedHashMap<String, Integer>();
+
+        /** aggregator for all searches performed */
+        final Map<String, Integer> searches = new LinkedHashMap<String, Integer>();
+
+        /** aggregator for user logins */
+        final Map<String, Integer> users = new LinkedHashMap<String, Integer>();
+
+        /** aggregator for item views */
+        final Map<String, Integer> items = new LinkedHashMap<String, Integer>();
+
+        /** log line, warning and exception counters */
+        int lines = 0;
+        int warnings = 0;
+        int exceptions = 0;
+
+        /** the earliest and latest dates of the lines, if not constrained by date */
+        Date first = null;
+        Date last = null;
+
+        /**
+         * add the results of the analysis of following lines to these.
+         *
+         * @param   other   the results to add
+         */
+        void add(Aggregation other)
+        {
+            lines += other.lines;
+            warnings += other.warnings;
+            exceptions += other.exceptions;
+            if (other.first != null && (first == null || !first.before(other.first)))
+            {
+                first = other.first;
+            }
+            if (other.last != null && (last == null || !last.after(other.last)))
+            {
+                last = other.last;
+            }
+            LogAnalyser.add(actions, other.actions);
+            LogAnalyser.add(searches, other.searches);
+            LogAnalyser.add(users, other.users);
+            LogAnalyser.add(items, other.items);
+        }
+    }
+
+    /**
+     * The analysis of a part of a log file, mapped into memory.  Lines which
+     * cannot be log lines are skipped before trying the regular expressions.
+     */
+    private static class LogChunk extends Aggregation implements Callable<LogChunk>
+    {
+        private final File file;
+        private final long start;
+        private final long length;
+
+        /** whether a line after the end date was found, ending the analysis of the file */
+        private boolean ended = false;
+
+        /** the last date parsed, as most lines have the date of the line before */
+        private String lastDate = null;
+        private Date lastParsedDate = null;
+
+        private LogChunk(File file, long start, long length)
+        {
+            this.file = file;
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public LogChunk call() throws IOException
+        {
+            CharBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+            {
+                // decode as the FileReader of the line by line analysis did
+                buffer = Charset.defaultCharset().newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                        .decode(channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+            }
+
+            // split the lines as BufferedReader.readLine does
+            char[] chars = buffer.array();
+            int end = buffer.arrayOffset() + buffer.limit();
+            int lineStart = buffer.arrayOffset() + buffer.position();
+            for (int i = lineStart; i < end; i++)
+            {
+                char c = chars[i];
+                if (c == '\n' || c == '\r')
+                {
+                    if (!analyse(chars, lineStart, i))
+                    {
+                        ended = true;
+                        return this;
+                    }
+                    if (c == '\r' && i + 1 < end && chars[i + 1] == '\n')
+                    {
+                        i++;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart < end && !analyse(chars, lineStart, end))
+            {
+                ended = true;
+            }
+            return this;
+        }
+
+        /**
+         * analyse a line.
+         *
+         * @return  false if the line is after the end date, ending the analysis of the file
+         */
+        private boolean analyse(char[] chars, int from, int to)
+        {
+            // skip lines which do not start with a time stamp, such as stack
+            // traces, without building a string and matching it
+            if (to - from < 30
+                    || chars[from + 4] != '-' || chars[from + 7] != '-'
+                    || chars[from + 10] != ' ' || chars[from + 13] != ':'
+                    || chars[from + 16] != ':' || chars[from + 19] != ','
+                    || chars[from + 23] != ' ')
+            {
+                return true;
+            }
+
+            // get the log line object
+            LogLine logLine = getLogLine(new String(chars, from, to - from), this);
+            if (logLine == null)
+            {
+                return true;
+            }
+
+            // first find out if we are constraining by date and 
+            // if so apply the restrictions
+            if ((startDate != null) && (!logLine.afterDate(startDate)))
+            {
+                return true;
+            }
+
+            if ((endDate != null) && (!logLine.beforeDate(endDate)))
+            {
+                return false;
+            }
+
+            // count the number of lines parsed
+            lines++;
+
+            // if we are not constrained by date, register the date
+            // as the start/end date if it is the earliest/latest so far
+            if (startDate == null && (first == null || logLine.beforeDate(first)))
+            {
+                first = logLine.getDate();
+            }
+
+            if (endDate == null && (last == null || logLine.afterDate(last)))
+            {
+                last = logLine.getDate();
+            }
+
+            // count the warnings
+            if (logLine.isLevel("WARN"))
+            {
+                warnings++;
+            }
+            // count the exceptions
+            if (logLine.isLevel("ERROR"))
+            {
+                exceptions++;
+            }
+
+            if (null == logLine.getAction())
+            {
+                return true;
+            }
+
+            // is the action a search?
+            if (logLine.isAction("search"))
+            {
+                // get back all the valid search words from the query
+                String[] words = analyseQuery(logLine.getParams());
+
+                // for each search word add to the aggregator or
+                // increment the aggregator's counter
+                for (int j = 0; j < words.length; j++)
+                {
+                    searches.put(words[j], increment(searches, words[j]));
+                }
+            }
+
+            // is the action a login, and are we counting user logins?
+            if (logLine.isAction("login") && !userEmail.equals("off"))
+            {
+                users.put(logLine.getUser(), increment(users, logLine.getUser()));
+            }
+
+            // is the action an item view?
+            if (logLine.isAction("view_item"))
+            {
+                String handle = logLine.getParams();
+
+                // strip the handle string
+                Matcher matchHandle = handleRX.matcher(handle);
+                handle = matchHandle.replaceAll("");
+
+                // strip the item id string
+                Matcher matchItem = itemRX.matcher(handle);
+                handle = matchItem.replaceAll("").trim();
+
+                // either add the handle to the aggregator or
+                // increment its counter
+                items.put(handle, increment(items, handle));
+            }
+
+            // log all the activity
+            actions.put(logLine.getAction(), increment(actions, logLine.getAction()));
+            return true;
+        }
+
+        /**
+         * parse the date of a line, reusing the date of the line before if
+         * it is the same.
+         */
+        private Date parseDate(String date)
+        {
+            if (!date.equals(lastDate))
+            {
+                lastParsedDate = LogAnalyser.parseDate(date);
+                lastDate = date;
+            }
+            return lastParsedDate;
+        }
+    }
 }
@@ -8,6 +8,7 @@
 package org.dspace.app.util;
 
 import org.apache.log4j.Logger;
+import org.dspace.event.EventQueueProcessor;
 
 import javax.servlet.ServletContextListener;
 import javax.servlet.ServletContextEvent;
@@ -67,6 +68,16 @@ public class DSpaceContextListener implements ServletContextListener
     @Override
     public void contextDestroyed(ServletContextEvent event)
     {
+        // Stop the asynchronous event consumers while the database is still available
+        try
+        {
+            EventQueueProcessor.getInstance().shutdown();
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Failed to stop the event queue workers", e);
+        }
+
         try
         {
             // Clean out the introspector
@@ -10,9 +10,12 @@ package org.dspace.authorize;
 import org.apache.commons.lang.ObjectUtils;
 import org.dspace.content.DSpaceObject;
 import org.dspace.core.Context;
+import org.dspace.core.HibernateCache;
 import org.dspace.core.ReloadableEntity;
 import org.dspace.eperson.EPerson;
 import org.dspace.eperson.Group;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Type;
 import org.hibernate.proxy.HibernateProxyHelper;
 
@@ -25,6 +28,8 @@ import java.util.Date;
  * @author kevinvandevelde at atmire.com
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = HibernateCache.AUTHORIZE)
 @Table(name="resourcepolicy")
 public class ResourcePolicy implements ReloadableEntity<Integer> {
     public static String TYPE_SUBMISSION = "TYPE_SUBMISSION";
@@ -10,8 +10,10 @@ package org.dspace.authorize.dao.impl;
 import org.dspace.authorize.ResourcePolicy;
 import org.dspace.authorize.dao.ResourcePolicyDAO;
 import org.dspace.content.DSpaceObject;
+import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.core.AbstractHibernateDAO;
+import org.dspace.core.HibernateCache;
 import org.dspace.eperson.EPerson;
 import org.dspace.eperson.Group;
 import org.hibernate.Criteria;
@@ -42,6 +44,7 @@ public class ResourcePolicyDAOImpl extends AbstractHibernateDAO<ResourcePolicy>
         criteria.add(Restrictions.and(
                 Restrictions.eq("dSpaceObject", dso)
         ));
+        cacheContainerPolicies(criteria, dso);
         return list(criteria);
     }
 
@@ -53,6 +56,7 @@ public class ResourcePolicyDAOImpl extends AbstractHibernateDAO<ResourcePolicy>
                 Restrictions.eq("dSpaceObject", dso),
                 Restrictions.eq("rptype", type)
         ));
+        cacheContainerPolicies(criteria, dso);
         return list(criteria);
     }
 
@@ -71,9 +75,24 @@ public class ResourcePolicyDAOImpl extends AbstractHibernateDAO<ResourcePolicy>
                 Restrictions.eq("dSpaceObject", dso),
                 Restrictions.eq("actionId", actionId)
         ));
+        cacheContainerPolicies(criteria, dso);
         return list(criteria);
     }
 
+    /**
+     * Cache the results of a query for the policies of a community or
+     * collection, which are read by most requests; those of other objects
+     * are too many to be worth caching.
+     */
+    protected void cacheContainerPolicies(Criteria criteria, DSpaceObject dso)
+    {
+        if (dso != null && (dso.getType() == Constants.COMMUNITY || dso.getType() == Constants.COLLECTION))
+        {
+            criteria.setCacheable(true);
+            criteria.setCacheRegion(HibernateCache.AUTHORIZE_QUERIES);
+        }
+    }
+
     @Override
     public List<ResourcePolicy> findByTypeIdGroupAction(Context context, DSpaceObject dso, Group group, int action, int notPolicyID) throws SQLException {
         Criteria criteria = createCriteria(context, ResourcePolicy.class);
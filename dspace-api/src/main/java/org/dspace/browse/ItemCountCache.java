@@ -0,0 +1,297 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.browse;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.discovery.DiscoverFacetField;
+import org.dspace.discovery.DiscoverQuery;
+import org.dspace.discovery.SearchService;
+import org.dspace.discovery.SearchServiceException;
+import org.dspace.discovery.configuration.DiscoveryConfigurationParameters;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * JVM-wide cache of the item counts of all communities and collections.
+ * <p>
+ * Requests read the current {@link ItemCountSnapshot} without locking.  A
+ * new snapshot is computed by one Discovery facet query on a background
+ * thread, a short while after the search index changed (further changes
+ * within that delay postpone the refresh, so a batch of changes causes a
+ * single query), or when the snapshot is older than a maximum age, which
+ * covers changes indexed by other servers.  A refresh is not postponed
+ * beyond that age either, so steady indexing does not keep old counts.  Until the first snapshot
+ * exists, the first request waits for it.
+ * <p>
+ * The counts are shared by all users, so every snapshot is computed for an
+ * anonymous user, in a Context of its own on the background thread: the
+ * Context of a request would apply the read restrictions (or the admin
+ * rights) of its user, and share its database session.
+ * <p>
+ * Configuration (in dspace.cfg):
+ * <pre>
+ *   ItemCountDAO.cache.refresh-delay = 5    # seconds between a change and the refresh
+ *   ItemCountDAO.cache.max-age = 600        # seconds a snapshot is used at most
+ * </pre>
+ *
+ * @see org.dspace.discovery.IndexEventConsumer
+ */
+public class ItemCountCache
+{
+    /** Log4j logger */
+    private static final Logger log = Logger.getLogger(ItemCountCache.class);
+
+    private static final ItemCountCache instance = new ItemCountCache();
+
+    private volatile ItemCountSnapshot snapshot = null;
+
+    /** time of the latest change to the index */
+    private volatile long lastChange = 0;
+
+    /** true while a refresh is scheduled or running */
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+    {
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread thread = new Thread(r, "item-count-cache");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    protected ItemCountCache()
+    {
+    }
+
+    public static ItemCountCache getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Get the current counts.
+     *
+     * @param context DSpace context of the request, not used to compute the
+     *                counts, which are the same for all users
+     * @return the counts
+     * @throws ItemCountException if the first snapshot cannot be computed
+     */
+    public ItemCountSnapshot getSnapshot(Context context) throws ItemCountException
+    {
+        ItemCountSnapshot current = snapshot;
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                current = snapshot;
+                if (current == null)
+                {
+                    current = loadFirst();
+                    snapshot = current;
+                }
+            }
+        }
+        else if (System.currentTimeMillis() - current.getCreated() > getMaxAge())
+        {
+            // serve the old counts while the new ones are computed
+            scheduleRefresh(0);
+        }
+        return current;
+    }
+
+    /**
+     * Note that the search index changed.  The counts are recomputed once
+     * no further changes arrived for the refresh delay.
+     */
+    public void invalidate()
+    {
+        lastChange = System.currentTimeMillis();
+        scheduleRefresh(getRefreshDelay());
+    }
+
+    /**
+     * Drop the current snapshot, so the next request computes a new one.
+     */
+    public void clear()
+    {
+        snapshot = null;
+    }
+
+    protected void scheduleRefresh(long delay)
+    {
+        if (refreshPending.compareAndSet(false, true))
+        {
+            executor.schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    refresh();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    protected void refresh()
+    {
+        long now = System.currentTimeMillis();
+        long quietFor = now - lastChange;
+        long delay = getRefreshDelay();
+        ItemCountSnapshot current = snapshot;
+        if (quietFor < delay && current != null && now - current.getCreated() < getMaxAge())
+        {
+            // changes are still arriving: wait until they stop, or the counts get too old
+            executor.schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    refresh();
+                }
+            }, delay - quietFor, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        // changes arriving from now on schedule another refresh
+        refreshPending.set(false);
+        try
+        {
+            long start = System.currentTimeMillis();
+            snapshot = loadAnonymous();
+            if (log.isDebugEnabled())
+            {
+                log.debug("Refreshed item counts of " + snapshot.size() + " containers in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+        }
+        catch (Exception e)
+        {
+            log.error("Unable to refresh item counts: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compute the first snapshot on the background thread, and wait for it.
+     */
+    protected ItemCountSnapshot loadFirst() throws ItemCountException
+    {
+        try
+        {
+            return executor.submit(new Callable<ItemCountSnapshot>()
+            {
+                @Override
+                public ItemCountSnapshot call() throws Exception
+                {
+                    return loadAnonymous();
+                }
+            }).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ItemCountException(e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof ItemCountException)
+            {
+                throw (ItemCountException) e.getCause();
+            }
+            throw new ItemCountException(e.getCause());
+        }
+    }
+
+    /**
+     * Compute a snapshot for an anonymous user, in a new Context.  Must not
+     * be called on a thread which has a Context of its own, whose database
+     * session it would share.
+     */
+    protected ItemCountSnapshot loadAnonymous() throws Exception
+    {
+        Context context = null;
+        try
+        {
+            context = new Context(Context.READ_ONLY);
+            return load(context);
+        }
+        finally
+        {
+            if (context != null && context.isValid())
+            {
+                context.abort();
+            }
+        }
+    }
+
+    /**
+     * Count the discoverable items of all communities and collections with
+     * one facet query.
+     */
+    protected ItemCountSnapshot load(Context context) throws ItemCountException
+    {
+        DiscoverQuery query = new DiscoverQuery();
+        query.setFacetMinCount(1);
+        query.addFacetField(new DiscoverFacetField("location.comm",
+                            DiscoveryConfigurationParameters.TYPE_STANDARD, -1,
+                            DiscoveryConfigurationParameters.SORT.COUNT));
+        query.addFacetField(new DiscoverFacetField("location.coll",
+                            DiscoveryConfigurationParameters.TYPE_STANDARD, -1,
+                            DiscoveryConfigurationParameters.SORT.COUNT));
+        query.addFilterQueries("search.resourcetype:2");    // count only items
+        query.addFilterQueries("NOT(discoverable:false)");  // only discoverable
+        query.setMaxResults(0);
+
+        try
+        {
+            SearchService searcher = DSpaceServicesFactory.getInstance().getServiceManager()
+                    .getServiceByName(SearchService.class.getName(), SearchService.class);
+            Map<String, Map<String, Long>> counts = searcher.searchFacetCounts(context, query);
+            return new ItemCountSnapshot(get(counts, "location.comm"), get(counts, "location.coll"));
+        }
+        catch (SearchServiceException e)
+        {
+            log.error("caught exception: ", e);
+            throw new ItemCountException(e);
+        }
+    }
+
+    private static Map<String, Long> get(Map<String, Map<String, Long>> counts, String field)
+    {
+        Map<String, Long> values = counts.get(field);
+        return (values != null) ? values : Collections.<String, Long>emptyMap();
+    }
+
+    protected long getRefreshDelay()
+    {
+        return getConfigurationService().getLongProperty("ItemCountDAO.cache.refresh-delay", 5) * 1000L;
+    }
+
+    protected long getMaxAge()
+    {
+        return getConfigurationService().getLongProperty("ItemCountDAO.cache.max-age", 600) * 1000L;
+    }
+
+    private ConfigurationService getConfigurationService()
+    {
+        return DSpaceServicesFactory.getInstance().getConfigurationService();
+    }
+}
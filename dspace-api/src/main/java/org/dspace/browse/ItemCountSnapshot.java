@@ -0,0 +1,150 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.browse;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Immutable item counts of all communities and collections at one point in
+ * time.  The counts are kept in sorted primitive arrays keyed by the two
+ * halves of the container UUIDs, so a snapshot is compact and can be read
+ * by any number of threads without locking.
+ */
+public final class ItemCountSnapshot
+{
+    private final long[] communityKeys;
+    private final int[] communityCounts;
+    private final long[] collectionKeys;
+    private final int[] collectionCounts;
+    private final long created;
+
+    /**
+     * Build a snapshot from counts keyed by container UUID strings, as
+     * indexed in the location.comm and location.coll fields.  Values which
+     * are not UUIDs are ignored.
+     *
+     * @param communities item counts of communities
+     * @param collections item counts of collections
+     */
+    public ItemCountSnapshot(Map<String, Long> communities, Map<String, Long> collections)
+    {
+        Object[] comm = toArrays(communities);
+        Object[] coll = toArrays(collections);
+        communityKeys = (long[]) comm[0];
+        communityCounts = (int[]) comm[1];
+        collectionKeys = (long[]) coll[0];
+        collectionCounts = (int[]) coll[1];
+        created = System.currentTimeMillis();
+    }
+
+    /**
+     * @param id community UUID
+     * @return number of discoverable items in the community, 0 if unknown
+     */
+    public int getCommunityCount(UUID id)
+    {
+        return find(communityKeys, communityCounts, id);
+    }
+
+    /**
+     * @param id collection UUID
+     * @return number of discoverable items in the collection, 0 if unknown
+     */
+    public int getCollectionCount(UUID id)
+    {
+        return find(collectionKeys, collectionCounts, id);
+    }
+
+    /**
+     * @return time this snapshot was built, in milliseconds since the epoch
+     */
+    public long getCreated()
+    {
+        return created;
+    }
+
+    /**
+     * @return number of communities and collections with items
+     */
+    public int size()
+    {
+        return communityCounts.length + collectionCounts.length;
+    }
+
+    /**
+     * Binary search over key pairs (most significant bits, least significant
+     * bits) stored next to each other.
+     */
+    private static int find(long[] keys, int[] counts, UUID id)
+    {
+        if (id == null)
+        {
+            return 0;
+        }
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        int low = 0;
+        int high = counts.length - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(keys[2 * mid], keys[2 * mid + 1], msb, lsb);
+            if (cmp < 0)
+            {
+                low = mid + 1;
+            }
+            else if (cmp > 0)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return counts[mid];
+            }
+        }
+        return 0;
+    }
+
+    private static int compare(long msb1, long lsb1, long msb2, long lsb2)
+    {
+        int cmp = Long.compare(msb1, msb2);
+        return (cmp != 0) ? cmp : Long.compare(lsb1, lsb2);
+    }
+
+    private static Object[] toArrays(Map<String, Long> counts)
+    {
+        // UUID.compareTo orders by signed halves, as compare() does
+        SortedMap<UUID, Long> sorted = new TreeMap<UUID, Long>();
+        for (Map.Entry<String, Long> entry : counts.entrySet())
+        {
+            try
+            {
+                sorted.put(UUID.fromString(entry.getKey()), entry.getValue());
+            }
+            catch (IllegalArgumentException e)
+            {
+                // not a container id
+            }
+        }
+
+        long[] keys = new long[2 * sorted.size()];
+        int[] values = new int[sorted.size()];
+        int i = 0;
+        for (Map.Entry<UUID, Long> entry : sorted.entrySet())
+        {
+            keys[2 * i] = entry.getKey().getMostSignificantBits();
+            keys[2 * i + 1] = entry.getKey().getLeastSignificantBits();
+            values[i] = entry.getValue().intValue();
+            i++;
+        }
+        return new Object[] { keys, values };
+    }
+}
@@ -15,7 +15,10 @@ import java.util.List;
 import org.dspace.content.factory.ContentServiceFactory;
 import org.dspace.content.service.BitstreamFormatService;
 import org.dspace.core.Context;
+import org.dspace.core.HibernateCache;
 import org.dspace.core.ReloadableEntity;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Cascade;
 import org.hibernate.annotations.CollectionId;
 import org.hibernate.annotations.Type;
@@ -36,6 +39,8 @@ import java.util.List;
  * @version $Revision$
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = HibernateCache.REGISTRY)
 @Table(name="bitstreamformatregistry")
 public class BitstreamFormat implements Serializable, ReloadableEntity<Integer>
 {
@@ -74,6 +79,7 @@ public class BitstreamFormat implements Serializable, ReloadableEntity<Integer>
     @SequenceGenerator(name="fileextension_seq", sequenceName="fileextension_seq", allocationSize = 1)
     @Column(name="extension")
     @Cascade( { org.hibernate.annotations.CascadeType.ALL, org.hibernate.annotations.CascadeType.DELETE_ORPHAN })
+    @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = HibernateCache.REGISTRY)
     private List<String> fileExtensions;
 
     @Transient
@@ -0,0 +1,109 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Consumer giving the objects changed by an event new
+ * {@link DSpaceObjectStamps}: the subject of the event, the object added to
+ * or removed from it, and the Item, Collection or Community owning a changed
+ * Bundle or Bitstream. The stamps are renewed once the transaction is
+ * committed.
+ * <P>
+ * The stamps are read by the user interface of this application, so this
+ * consumer must be called synchronously.
+ */
+public class DSpaceObjectStampConsumer implements Consumer
+{
+    /** The objects changed in the current transaction */
+    private Set<UUID> changed = new LinkedHashSet<UUID>();
+
+    @Override
+    public void initialize() throws Exception
+    {
+
+    }
+
+    @Override
+    public void consume(Context ctx, Event event) throws Exception
+    {
+        touch(event.getSubjectID());
+        touch(event.getObjectID());
+        if (event.getEventType() == Event.DELETE)
+        {
+            // A deleted object cannot be loaded, its owner gets a REMOVE event of its own
+            return;
+        }
+        if (event.getSubjectType() == Constants.BUNDLE || event.getSubjectType() == Constants.BITSTREAM)
+        {
+            touchOwner(ctx, event.getSubject(ctx));
+        }
+    }
+
+    /**
+     * Touch the owners of a Bundle or Bitstream, up to the first Item,
+     * Collection or Community.
+     */
+    private void touchOwner(Context ctx, DSpaceObject dso) throws Exception
+    {
+        while (dso != null && (dso.getType() == Constants.BUNDLE || dso.getType() == Constants.BITSTREAM))
+        {
+            dso = ContentServiceFactory.getInstance().getDSpaceObjectService(dso).getParentObject(ctx, dso);
+            if (dso != null)
+            {
+                touch(dso.getID());
+            }
+        }
+    }
+
+    private void touch(UUID id)
+    {
+        if (id != null)
+        {
+            changed.add(id);
+        }
+    }
+
+    @Override
+    public void end(Context ctx) throws Exception
+    {
+        if (changed.isEmpty())
+        {
+            return;
+        }
+        final Set<UUID> ids = changed;
+        changed = new LinkedHashSet<UUID>();
+        // events are dispatched before the commit: renew the stamps after it
+        ctx.afterCommit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (UUID id : ids)
+                {
+                    DSpaceObjectStamps.touch(id);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void finish(Context ctx) throws Exception
+    {
+
+    }
+}
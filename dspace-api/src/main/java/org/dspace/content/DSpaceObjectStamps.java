@@ -0,0 +1,126 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * JVM-wide version stamps of DSpace objects, by UUID, for caches which must
+ * notice when an object changes without loading it, such as the XMLUI
+ * (Cocoon) page cache.
+ * <P>
+ * An object gets a stamp the first time it is asked for, and a new one each
+ * time the {@link DSpaceObjectStampConsumer} sees it change. A change to a
+ * Bundle or Bitstream is a change to the Item, Collection or Community owning
+ * it, as their pages show its bundles, bitstreams or logo.
+ * <P>
+ * The consumer renews the stamps once the transaction of the change is
+ * committed, so what was cached before, including pages read while the
+ * change was being committed, is not reused.
+ * <P>
+ * Changes made by other applications, such as command line tools, are not
+ * seen by the consumer of this one, so stamps are replaced after
+ * <code>cache.stamps.ttl</code> seconds (default 3600). The least recently
+ * used stamps are dropped once <code>cache.stamps.size</code> objects have
+ * one (default 100000); an object whose stamp was dropped gets a new one.
+ */
+public class DSpaceObjectStamps
+{
+    private static final int DEFAULT_SIZE = 100000;
+
+    private static final int DEFAULT_TTL = 3600;
+
+    private static Map<UUID, Stamp> stamps;
+
+    /** The last stamp given, starting from the time so stamps differ from those of previous runs */
+    private static long last = System.currentTimeMillis() * 1000;
+
+    private static long ttl;
+
+    /** Static methods only */
+    private DSpaceObjectStamps()
+    {
+    }
+
+    private static Map<UUID, Stamp> getStamps()
+    {
+        if (stamps == null)
+        {
+            final int maxSize = DSpaceServicesFactory.getInstance().getConfigurationService()
+                    .getIntProperty("cache.stamps.size", DEFAULT_SIZE);
+            ttl = DSpaceServicesFactory.getInstance().getConfigurationService()
+                    .getIntProperty("cache.stamps.ttl", DEFAULT_TTL) * 1000L;
+            stamps = new LinkedHashMap<UUID, Stamp>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, Stamp> eldest)
+                {
+                    return size() > maxSize;
+                }
+            };
+        }
+        return stamps;
+    }
+
+    /**
+     * @param id UUID of an object
+     * @return the version stamp of the object, which changes whenever the object does
+     */
+    public static synchronized long get(UUID id)
+    {
+        long now = System.currentTimeMillis();
+        Stamp stamp = getStamps().get(id);
+        if (stamp == null || stamp.created + ttl < now)
+        {
+            stamp = new Stamp(++last, now);
+            getStamps().put(id, stamp);
+        }
+        return stamp.value;
+    }
+
+    /**
+     * Give an object a new version stamp, as it changed.
+     *
+     * @param id UUID of the object
+     */
+    public static synchronized void touch(UUID id)
+    {
+        if (id == null)
+        {
+            return;
+        }
+        getStamps().put(id, new Stamp(++last, System.currentTimeMillis()));
+    }
+
+    /**
+     * Forget all stamps, so that all objects get new ones, and read the
+     * configuration again.
+     */
+    public static synchronized void clear()
+    {
+        stamps = null;
+    }
+
+    private static class Stamp
+    {
+        private final long value;
+
+        /** When the stamp was given, to replace it after the TTL */
+        private final long created;
+
+        private Stamp(long value, long created)
+        {
+            this.value = value;
+            this.created = created;
+        }
+    }
+}
@@ -8,6 +8,7 @@
 package org.dspace.content;
 
 import org.dspace.core.Context;
+import org.dspace.core.HibernateCache;
 import org.dspace.core.ReloadableEntity;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
@@ -28,7 +29,7 @@ import javax.persistence.*;
  */
 @Entity
 @Cacheable
-@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = HibernateCache.REGISTRY)
 @Table(name="metadatafieldregistry")
 public class MetadataField implements ReloadableEntity<Integer> {
 
@@ -8,6 +8,7 @@
 package org.dspace.content;
 
 import org.dspace.core.Context;
+import org.dspace.core.HibernateCache;
 import org.dspace.core.ReloadableEntity;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.proxy.HibernateProxyHelper;
@@ -29,7 +30,7 @@ import javax.persistence.*;
  */
 @Entity
 @Cacheable
-@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = HibernateCache.REGISTRY)
 @Table(name="metadataschemaregistry")
 public class MetadataSchema implements ReloadableEntity<Integer>
 {
@@ -0,0 +1,354 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.authority;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.log4j.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Immutable, in-memory index over a controlled vocabulary XML file, as used
+ * by {@link DSpaceControlledVocabulary}.
+ * <p>
+ * The vocabulary is parsed once and every {@code <node>} element is flattened
+ * into parallel arrays (in document order) holding its id, label, lower-cased
+ * label and precomputed hierarchical label. Substring lookups go through a
+ * trigram index over the lower-cased labels, so that only candidate nodes are
+ * verified; lookups by id use a hash map.
+ * <p>
+ * Compiled indexes are shared JVM-wide, keyed by file and hierarchy
+ * delimiter, and are recompiled transparently when the file on disk changes.
+ */
+public final class ControlledVocabularyIndex
+{
+    private static final Logger log = Logger.getLogger(ControlledVocabularyIndex.class);
+
+    /** Length of the n-grams used by the substring index. */
+    private static final int GRAM = 3;
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    /** Compiled indexes, keyed by absolute path and delimiter. */
+    private static final ConcurrentMap<String, ControlledVocabularyIndex> indexes =
+            new ConcurrentHashMap<String, ControlledVocabularyIndex>();
+
+    private final File file;
+    private final long lastModified;
+    private final long length;
+
+    private final String[] ids;
+    private final String[] labels;
+    private final String[] lowerLabels;
+    private final String[] hierarchies;
+    private final Map<String, Integer> byId;
+    private final Map<String, int[]> grams;
+
+    private ControlledVocabularyIndex(File file, long lastModified, long length,
+            List<String[]> nodes)
+    {
+        this.file = file;
+        this.lastModified = lastModified;
+        this.length = length;
+
+        int size = nodes.size();
+        ids = new String[size];
+        labels = new String[size];
+        lowerLabels = new String[size];
+        hierarchies = new String[size];
+        byId = new HashMap<String, Integer>();
+
+        Map<String, IntList> postings = new HashMap<String, IntList>();
+        for (int i = 0; i < size; i++)
+        {
+            String[] node = nodes.get(i);
+            ids[i] = node[0];
+            labels[i] = node[1];
+            hierarchies[i] = node[2];
+            lowerLabels[i] = lowerCase(node[1]);
+            // first node wins, as with an XPath lookup by id
+            if (ids[i] != null && !byId.containsKey(ids[i]))
+            {
+                byId.put(ids[i], i);
+            }
+            String lower = lowerLabels[i];
+            for (int g = 0; g + GRAM <= lower.length(); g++)
+            {
+                String gram = lower.substring(g, g + GRAM);
+                IntList list = postings.get(gram);
+                if (list == null)
+                {
+                    list = new IntList();
+                    postings.put(gram, list);
+                }
+                list.addOnce(i);
+            }
+        }
+
+        grams = new HashMap<String, int[]>(postings.size() * 4 / 3 + 1);
+        for (Map.Entry<String, IntList> entry : postings.entrySet())
+        {
+            grams.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    /**
+     * Get the compiled index for a vocabulary file, compiling it on first use
+     * or when the file has changed since it was last compiled.
+     *
+     * @param file the vocabulary XML file.
+     * @param delimiter delimiter used to join hierarchical labels.
+     * @return the compiled index.
+     * @throws IllegalStateException if the file cannot be read or parsed.
+     */
+    public static ControlledVocabularyIndex getIndex(File file, String delimiter)
+    {
+        String key = file.getAbsolutePath() + '\u0000' + delimiter;
+        ControlledVocabularyIndex index = indexes.get(key);
+        if (index != null && index.isCurrent())
+        {
+            return index;
+        }
+        synchronized (ControlledVocabularyIndex.class)
+        {
+            index = indexes.get(key);
+            if (index == null || !index.isCurrent())
+            {
+                index = compile(file, delimiter);
+                indexes.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Drop all compiled indexes, forcing vocabularies to be recompiled on
+     * next use.
+     */
+    public static void clear()
+    {
+        indexes.clear();
+    }
+
+    /**
+     * Compile a vocabulary file into a new index.
+     *
+     * @param file the vocabulary XML file.
+     * @param delimiter delimiter used to join hierarchical labels.
+     * @return the compiled index.
+     * @throws IllegalStateException if the file cannot be read or parsed.
+     */
+    static ControlledVocabularyIndex compile(File file, String delimiter)
+    {
+        long start = System.currentTimeMillis();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        List<String[]> nodes = new ArrayList<String[]>();
+        try
+        {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(false);
+            factory.setValidating(false);
+            factory.setIgnoringComments(true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            Document document = builder.parse(file);
+            collect(document.getDocumentElement(), "", delimiter, nodes);
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException("Unable to compile controlled vocabulary "
+                    + file.getAbsolutePath(), e);
+        }
+        ControlledVocabularyIndex index = new ControlledVocabularyIndex(file,
+                lastModified, length, nodes);
+        log.info("Compiled controlled vocabulary " + file.getAbsolutePath() + " ("
+                + nodes.size() + " nodes, " + index.grams.size() + " n-grams) in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return index;
+    }
+
+    /**
+     * Walk the DOM in document order, recording every {@code node} element
+     * together with its hierarchical label. Elements without a label do not
+     * contribute to the hierarchy.
+     */
+    private static void collect(Element element, String parentHierarchy,
+            String delimiter, List<String[]> nodes)
+    {
+        String hierarchy = parentHierarchy;
+        String label = element.hasAttribute("label") ? element.getAttribute("label") : null;
+        if (label != null)
+        {
+            hierarchy = parentHierarchy.isEmpty() ? label : parentHierarchy + delimiter + label;
+        }
+        if ("node".equals(element.getNodeName()))
+        {
+            String id = element.hasAttribute("id") ? element.getAttribute("id") : null;
+            nodes.add(new String[] { id, label == null ? "" : label, hierarchy });
+        }
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
+        {
+            if (child.getNodeType() == Node.ELEMENT_NODE)
+            {
+                collect((Element) child, hierarchy, delimiter, nodes);
+            }
+        }
+    }
+
+    private static String lowerCase(String value)
+    {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return true if the vocabulary file has not changed since compilation.
+     */
+    boolean isCurrent()
+    {
+        return file.lastModified() == lastModified && file.length() == length;
+    }
+
+    /**
+     * @return number of nodes in the vocabulary.
+     */
+    public int size()
+    {
+        return ids.length;
+    }
+
+    /**
+     * Find all nodes whose label contains the given text, ignoring case.
+     *
+     * @param text text to search for.
+     * @return positions of matching nodes, in document order.
+     */
+    public int[] search(String text)
+    {
+        String query = lowerCase(text == null ? "" : text);
+        if (query.length() < GRAM)
+        {
+            return scan(query, null);
+        }
+
+        // verify only the candidates of the rarest n-gram of the query
+        int[] candidates = null;
+        for (int g = 0; g + GRAM <= query.length(); g++)
+        {
+            int[] postings = grams.get(query.substring(g, g + GRAM));
+            if (postings == null)
+            {
+                return NO_POSTINGS;
+            }
+            if (candidates == null || postings.length < candidates.length)
+            {
+                candidates = postings;
+            }
+        }
+        if (query.length() == GRAM)
+        {
+            return candidates.clone();
+        }
+        return scan(query, candidates);
+    }
+
+    private int[] scan(String query, int[] candidates)
+    {
+        int count = candidates == null ? lowerLabels.length : candidates.length;
+        int[] matches = new int[count];
+        int found = 0;
+        for (int c = 0; c < count; c++)
+        {
+            int i = candidates == null ? c : candidates[c];
+            if (lowerLabels[i].contains(query))
+            {
+                matches[found++] = i;
+            }
+        }
+        return found == matches.length ? matches : Arrays.copyOf(matches, found);
+    }
+
+    /**
+     * Find the first node with the given id.
+     *
+     * @param id node id.
+     * @return position of the node, or -1 if there is none.
+     */
+    public int findById(String id)
+    {
+        Integer position = id == null ? null : byId.get(id);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * @param position node position.
+     * @return the node's id, which may be null.
+     */
+    public String getId(int position)
+    {
+        return ids[position];
+    }
+
+    /**
+     * @param position node position.
+     * @return the node's own label.
+     */
+    public String getLabel(int position)
+    {
+        return labels[position];
+    }
+
+    /**
+     * @param position node position.
+     * @return the labels of the node and its ancestors, joined with the
+     *  delimiter the index was compiled for.
+     */
+    public String getHierarchy(int position)
+    {
+        return hierarchies[position];
+    }
+
+    /**
+     * Minimal growable list of ascending int positions.
+     */
+    private static final class IntList
+    {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void addOnce(int value)
+        {
+            if (size > 0 && values[size - 1] == value)
+            {
+                return;
+            }
+            if (size == values.length)
+            {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray()
+        {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -15,14 +15,6 @@ import java.io.File;
 import org.apache.commons.lang.ArrayUtils;
 import org.dspace.content.Collection;
 import org.dspace.services.factory.DSpaceServicesFactory;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
-import org.xml.sax.InputSource;
 
 import org.apache.log4j.Logger;
 
@@ -53,6 +45,10 @@ import org.dspace.services.ConfigurationService;
  *   vocabulary.plugin._plugin_.delimiter = "<string>"              # Delimiter to use when building hierarchy strings. Default: "::"
  *  }
  *
+ * Vocabularies are compiled once into a shared {@link ControlledVocabularyIndex}
+ * and recompiled automatically when the XML file changes, so lookups never
+ * touch the DOM.
+ *
  * @author Michael B. Klein
  *
  */
@@ -61,12 +57,10 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
 {
 
     private static Logger log = Logger.getLogger(DSpaceControlledVocabulary.class);
-    protected static String xpathTemplate = "//node[contains(translate(@label,'ABCDEFGHIJKLMNOPQRSTUVWXYZ','abcdefghijklmnopqrstuvwxyz'),'%s')]";
-    protected static String idTemplate = "//node[@id = '%s']";
     protected static String pluginNames[] = null;
 
     protected String vocabularyName = null;
-    protected InputSource vocabulary = null;
+    protected File vocabularyFile = null;
     protected Boolean suggestHierarchy = true;
     protected Boolean storeHierarchy = true;
     protected String hierarchyDelimiter = "::";
@@ -113,7 +107,7 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
 
     protected void init()
     {
-    	if (vocabulary == null)
+    	if (vocabularyFile == null)
         {
             ConfigurationService config = DSpaceServicesFactory.getInstance().getConfigurationService();
 
@@ -130,37 +124,17 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
             }
         	String filename = vocabulariesPath + vocabularyName + ".xml";
         	log.info("Loading " + filename);
-            vocabulary = new InputSource(filename);
+            vocabularyFile = new File(filename);
     	}
     }
 
-    protected String buildString(Node node)
+    /**
+     * @return the compiled index of this vocabulary, recompiled if the file
+     *  has changed since it was last used.
+     */
+    protected ControlledVocabularyIndex getIndex()
     {
-    	if (node.getNodeType() == Node.DOCUMENT_NODE)
-        {
-    		return("");
-    	}
-        else
-        {
-    		String parentValue = buildString(node.getParentNode());
-    		Node currentLabel = node.getAttributes().getNamedItem("label");
-    		if (currentLabel != null)
-            {
-    			String currentValue = currentLabel.getNodeValue();
-    			if (parentValue.equals(""))
-                {
-    				return currentValue;
-    			}
-                else
-                {
-    				return(parentValue + this.hierarchyDelimiter + currentValue);
-    			}
-    		}
-            else
-            {
-    			return(parentValue);
-    		}
-    	}
+        return ControlledVocabularyIndex.getIndex(vocabularyFile, hierarchyDelimiter);
     }
 
     @Override
@@ -168,54 +142,30 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
     {
     	init();
     	log.debug("Getting matches for '" + text + "'");
-    	String xpathExpression = String.format(xpathTemplate, text.replaceAll("'", "&apos;").toLowerCase());
-    	XPath xpath = XPathFactory.newInstance().newXPath();
-    	Choice[] choices;
-    	try {
-            NodeList results = (NodeList) xpath.evaluate(xpathExpression,
-                    vocabulary, XPathConstants.NODESET);
-            String[] authorities = new String[results.getLength()];
-            String[] values = new String[results.getLength()];
-            String[] labels = new String[results.getLength()];
-            for (int i = 0; i < results.getLength(); i++)
-            {
-                Node node = results.item(i);
-                String hierarchy = this.buildString(node);
-                if (this.suggestHierarchy)
-                {
-                    labels[i] = hierarchy;
-                }
-                else
-                {
-                    labels[i] = node.getAttributes().getNamedItem("label").getNodeValue();
-                }
-                if (this.storeHierarchy)
-                {
-                    values[i] = hierarchy;
-                }
-                else
-                {
-                    values[i] = node.getAttributes().getNamedItem("label").getNodeValue();
-                }
-                Node idAttr = node.getAttributes().getNamedItem("id");
-                if (null != idAttr) // 'id' is optional
-                    authorities[i] = idAttr.getNodeValue();
-            }
-            int resultCount = labels.length - start;
+        Choice[] choices;
+        try
+        {
+            ControlledVocabularyIndex index = getIndex();
+            int[] results = index.search(text);
+            int resultCount = Math.max(0, results.length - start);
             if ((limit > 0) && (resultCount > limit)) // limit = 0 means no limit
                 resultCount = limit;
             choices = new Choice[resultCount];
-            if (resultCount > 0)
+            for (int i = 0; i < resultCount; i++)
             {
-                for (int i = 0; i < resultCount; i++)
-                {
-                    choices[i] = new Choice(authorities[start + i], values[start
-                            + i], labels[start + i]);
-                }
+                int node = results[start + i];
+                String hierarchy = index.getHierarchy(node);
+                String label = index.getLabel(node);
+                choices[i] = new Choice(index.getId(node),
+                        this.storeHierarchy ? hierarchy : label,
+                        this.suggestHierarchy ? hierarchy : label);
             }
-    	} catch(XPathExpressionException e) {
-    		choices = new Choice[0];
-    	}
+        }
+        catch (IllegalStateException e)
+        {
+            log.error(e.getMessage(), e);
+            choices = new Choice[0];
+        }
     	return new Choices(choices, 0, choices.length, Choices.CF_AMBIGUOUS, false);
     }
 
@@ -231,13 +181,16 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
     public String getLabel(String field, String key, String locale)
     {
     	init();
-    	String xpathExpression = String.format(idTemplate, key);
-    	XPath xpath = XPathFactory.newInstance().newXPath();
-    	try {
-    		Node node = (Node)xpath.evaluate(xpathExpression, vocabulary, XPathConstants.NODE);
-    		return node.getAttributes().getNamedItem("label").getNodeValue();
-    	} catch(XPathExpressionException e) {
-    		return("");
-    	}
+        try
+        {
+            ControlledVocabularyIndex index = getIndex();
+            int node = index.findById(key);
+            return node < 0 ? "" : index.getLabel(node);
+        }
+        catch (IllegalStateException e)
+        {
+            log.error(e.getMessage(), e);
+            return("");
+        }
     }
 }
@@ -0,0 +1,194 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.crosswalk;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JVM-wide cache of compiled XSL stylesheets.
+ * <p>
+ * A {@link Transformer} is not thread-safe, but the {@link Templates} it is
+ * created from is. This cache compiles each stylesheet file once into a
+ * {@code Templates} object, keyed by its path and last modification time,
+ * and hands out a new (cheap) {@code Transformer} for every use. A stylesheet
+ * that is modified on disk is recompiled the next time it is requested.
+ * <p>
+ * Simple counters of stylesheet compilations and transformations are kept,
+ * and can be read with {@link #getStatistics()}.
+ *
+ * @see XSLTCrosswalk
+ */
+public final class StylesheetCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(StylesheetCache.class);
+
+    /** We need to force this, because some dependency elsewhere interferes. */
+    private static final String TRANSFORMER_FACTORY_CLASS
+            = "com.sun.org.apache.xalan.internal.xsltc.trax.TransformerFactoryImpl";
+
+    /** Log the statistics every this many transformations. */
+    private static final long STATISTICS_INTERVAL = 10000;
+
+    private static final ConcurrentMap<String, CompiledStylesheet> stylesheets
+            = new ConcurrentHashMap<>();
+
+    private static final AtomicLong compileCount = new AtomicLong();
+    private static final AtomicLong compileNanos = new AtomicLong();
+    private static final AtomicLong transformCount = new AtomicLong();
+    private static final AtomicLong transformNanos = new AtomicLong();
+
+    /** Default constructor */
+    private StylesheetCache() { }
+
+    /**
+     * Get a new transformer for a stylesheet file, compiling the stylesheet
+     * if it is not cached yet or has changed since it was compiled.
+     *
+     * @param stylesheet the XSL stylesheet file.
+     * @return a transformer for exclusive use by the caller.
+     * @throws TransformerConfigurationException if the stylesheet cannot
+     *  be read or compiled.
+     */
+    public static Transformer newTransformer(File stylesheet)
+            throws TransformerConfigurationException
+    {
+        return getTemplates(stylesheet).newTransformer();
+    }
+
+    /**
+     * Get the compiled form of a stylesheet file, compiling it if it is not
+     * cached yet or has changed since it was compiled.
+     *
+     * @param stylesheet the XSL stylesheet file.
+     * @return the compiled stylesheet, safe to share between threads.
+     * @throws TransformerConfigurationException if the stylesheet cannot
+     *  be read or compiled.
+     */
+    public static Templates getTemplates(File stylesheet)
+            throws TransformerConfigurationException
+    {
+        String key = stylesheet.getAbsolutePath();
+        long lastModified = stylesheet.lastModified();
+        CompiledStylesheet compiled = stylesheets.get(key);
+        if (compiled != null && compiled.lastModified == lastModified)
+        {
+            return compiled.templates;
+        }
+
+        // Compile outside of any lock; if two threads race, both results are
+        // equivalent and the last one wins.
+        if (!stylesheet.canRead())
+        {
+            throw new TransformerConfigurationException("Cannot read XSL stylesheet "
+                    + key);
+        }
+        LOG.debug((compiled == null ? "Loading XSLT stylesheet from {}" : "Reloading XSLT stylesheet from {}"), key);
+        long start = System.nanoTime();
+        TransformerFactory transformerFactory
+                = TransformerFactory.newInstance(TRANSFORMER_FACTORY_CLASS, null);
+        Templates templates = transformerFactory.newTemplates(new StreamSource(stylesheet));
+        long elapsed = System.nanoTime() - start;
+        compileCount.incrementAndGet();
+        compileNanos.addAndGet(elapsed);
+        LOG.info("Compiled XSLT stylesheet {} in {} ms", key,
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+
+        stylesheets.put(key, new CompiledStylesheet(templates, lastModified));
+        return templates;
+    }
+
+    /**
+     * Record the duration of a transformation performed with a transformer
+     * obtained from this cache.
+     *
+     * @param nanos elapsed time in nanoseconds.
+     */
+    public static void recordTransform(long nanos)
+    {
+        long count = transformCount.incrementAndGet();
+        transformNanos.addAndGet(nanos);
+        if (count % STATISTICS_INTERVAL == 0)
+        {
+            LOG.info("XSLT statistics: {}", getStatistics());
+        }
+    }
+
+    /**
+     * Forget all compiled stylesheets.  They will be recompiled on next use.
+     */
+    public static void clear()
+    {
+        stylesheets.clear();
+    }
+
+    /** @return number of stylesheets currently cached. */
+    public static int size()
+    {
+        return stylesheets.size();
+    }
+
+    /** @return number of stylesheet compilations since startup. */
+    public static long getCompileCount()
+    {
+        return compileCount.get();
+    }
+
+    /** @return number of recorded transformations since startup. */
+    public static long getTransformCount()
+    {
+        return transformCount.get();
+    }
+
+    /** @return mean duration of recorded transformations, in milliseconds. */
+    public static double getMeanTransformMillis()
+    {
+        long count = transformCount.get();
+        return count == 0 ? 0 : transformNanos.get() / (count * 1000000.0);
+    }
+
+    /**
+     * @return a one-line human readable summary of the cache counters.
+     */
+    public static String getStatistics()
+    {
+        long compiles = compileCount.get();
+        return "stylesheets=" + stylesheets.size()
+                + ", compiles=" + compiles
+                + ", meanCompileMs=" + (compiles == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(compileNanos.get() / compiles))
+                + ", transforms=" + transformCount.get()
+                + ", meanTransformMs=" + String.format("%.3f", getMeanTransformMillis());
+    }
+
+    /**
+     * A compiled stylesheet and the modification time of the file it
+     * was compiled from.
+     */
+    private static final class CompiledStylesheet
+    {
+        final Templates templates;
+        final long lastModified;
+
+        CompiledStylesheet(Templates templates, long lastModified)
+        {
+            this.templates = templates;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -8,16 +8,14 @@
 package org.dspace.content.crosswalk;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
+import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.stream.StreamSource;
+import javax.xml.transform.TransformerException;
 
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.SelfNamedPlugin;
@@ -69,7 +67,9 @@ import org.slf4j.LoggerFactory;
  * <p>
  * NOTE: This plugin will automatically reload any XSL stylesheet that
  * was modified since it was last loaded.  This lets you edit and test
- * stylesheets without restarting DSpace.
+ * stylesheets without restarting DSpace.  Compiled stylesheets are shared
+ * by all instances through the {@link StylesheetCache}, and every use gets
+ * its own <code>Transformer</code>, so crosswalks may be used concurrently.
  * <p>
  * You must use the <code>PluginService</code> to instantiate an
  * XSLT crosswalk plugin, e.g.
@@ -130,16 +130,13 @@ public abstract class XSLTCrosswalk extends SelfNamedPlugin
         return aliasList.toArray(new String[aliasList.size()]);
     }
 
-    /** We need to force this, because some dependency elsewhere interferes. */
-    private static final String TRANSFORMER_FACTORY_CLASS
-            = "com.sun.org.apache.xalan.internal.xsltc.trax.TransformerFactoryImpl";
-
-    private Transformer transformer = null;
     private File transformFile = null;
-    private long transformLastModified = 0;
 
     /**
-     * Initialize the Transformation stylesheet from configured stylesheet file.
+     * Get a transformer for the configured stylesheet file.  The stylesheet
+     * is compiled once and shared through the {@link StylesheetCache}, so
+     * the returned transformer is cheap to create and belongs to the caller
+     * alone; it must not be shared between threads.
      * @param direction the direction of xwalk, either "submission" or
      *    "dissemination"
      * @return transformer or null if there was error initializing.
@@ -170,29 +167,37 @@ public abstract class XSLTCrosswalk extends SelfNamedPlugin
             }
         }
 
-        // load if first time, or reload if stylesheet changed:
-        if (transformer == null ||
-            transformFile.lastModified() > transformLastModified)
+        try
         {
-            try
-            {
-                LOG.debug((transformer == null ? "Loading {} XSLT stylesheet from {}" : "Reloading {} XSLT stylesheet from {}"),
-                        getPluginInstanceName(), transformFile.toString());
+            return StylesheetCache.newTransformer(transformFile);
+        }
+        catch (TransformerConfigurationException e)
+        {
+            LOG.error("Failed to initialize XSLTCrosswalk({}):  {}",
+                    getPluginInstanceName(), e.toString());
+            return null;
+        }
+    }
 
-                Source transformSource
-                        = new StreamSource(new FileInputStream(transformFile));
-                TransformerFactory transformerFactory
-                        = TransformerFactory.newInstance(
-                                TRANSFORMER_FACTORY_CLASS, null);
-                transformer = transformerFactory.newTransformer(transformSource);
-                transformLastModified = transformFile.lastModified();
-            }
-            catch (TransformerConfigurationException | FileNotFoundException e)
-            {
-                LOG.error("Failed to initialize XSLTCrosswalk({}):  {}",
-                        getPluginInstanceName(), e.toString());
-            }
+    /**
+     * Run a transformation, recording its duration in the
+     * {@link StylesheetCache} statistics.
+     * @param xform transformer obtained from {@link #getTransformer(String)}
+     * @param source transformation input
+     * @param result transformation output
+     * @throws TransformerException if the transformation fails
+     */
+    protected void transform(Transformer xform, Source source, Result result)
+            throws TransformerException
+    {
+        long start = System.nanoTime();
+        try
+        {
+            xform.transform(source, result);
+        }
+        finally
+        {
+            StylesheetCache.recordTransform(System.nanoTime() - start);
         }
-        return transformer;
     }
 }
@@ -235,7 +235,7 @@ public class XSLTDisseminationCrosswalk
         {
             Document ddim = new Document(createDIM(dso));
             JDOMResult result = new JDOMResult();
-            xform.transform(new JDOMSource(ddim), result);
+            transform(xform, new JDOMSource(ddim), result);
             Element root = result.getDocument().getRootElement();
             root.detach();
             return root;
@@ -281,7 +281,7 @@ public class XSLTDisseminationCrosswalk
         try
         {
             JDOMResult result = new JDOMResult();
-            xform.transform(new JDOMSource(createDIM(dso).getChildren()), result);
+            transform(xform, new JDOMSource(createDIM(dso).getChildren()), result);
             return result.getResult();
         }
         catch (TransformerException e)
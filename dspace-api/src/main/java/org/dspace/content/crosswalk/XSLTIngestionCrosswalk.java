@@ -148,7 +148,7 @@ public class XSLTIngestionCrosswalk
         try
         {
             JDOMResult result = new JDOMResult();
-            xform.transform(new JDOMSource(metadata), result);
+            transform(xform, new JDOMSource(metadata), result);
             ingestDIM(context, dso, result.getResult(), createMissingMetadataFields);
         }
         catch (TransformerException e)
@@ -181,7 +181,7 @@ public class XSLTIngestionCrosswalk
         {
             JDOMSource source = new JDOMSource(new Document((Element)root.cloneContent()));
             JDOMResult result = new JDOMResult();
-            xform.transform(source, result);
+            transform(xform, source, result);
             Document dimDoc = result.getDocument();
             ingestDIM(context, dso, dimDoc.getRootElement().getChildren(), createMissingMetadataFields);
         }
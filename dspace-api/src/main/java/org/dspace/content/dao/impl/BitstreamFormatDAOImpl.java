@@ -11,6 +11,7 @@ import org.dspace.content.BitstreamFormat;
 import org.dspace.content.dao.BitstreamFormatDAO;
 import org.dspace.core.Context;
 import org.dspace.core.AbstractHibernateDAO;
+import org.dspace.core.HibernateCache;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.criterion.Order;
@@ -59,6 +60,8 @@ public class BitstreamFormatDAOImpl extends AbstractHibernateDAO<BitstreamFormat
                 Restrictions.eq("internal", includeInternal),
                 Restrictions.like("mimetype", mimeType)
         ));
+        criteria.setCacheable(true);
+        criteria.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
 
         return singleResult(criteria);
     }
@@ -83,6 +86,8 @@ public class BitstreamFormatDAOImpl extends AbstractHibernateDAO<BitstreamFormat
         criteria.add(Restrictions.and(
                 Restrictions.eq("shortDescription", desc)
         ));
+        criteria.setCacheable(true);
+        criteria.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
 
         return uniqueResult(criteria);
     }
@@ -105,6 +110,8 @@ public class BitstreamFormatDAOImpl extends AbstractHibernateDAO<BitstreamFormat
                 Restrictions.not(Restrictions.like("shortDescription", "Unknown"))
         ));
         criteria.addOrder(Order.desc("supportLevel")).addOrder(Order.asc("shortDescription"));
+        criteria.setCacheable(true);
+        criteria.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
 
         return list(criteria);
 
@@ -115,6 +122,8 @@ public class BitstreamFormatDAOImpl extends AbstractHibernateDAO<BitstreamFormat
 
         Query query = createQuery(context, "from BitstreamFormat bf where :extension in elements(bf.fileExtensions)");
         query.setParameter("extension", extension);
+        query.setCacheable(true);
+        query.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
 
 //        Criteria criteria = createCriteria(context, BitstreamFormat.class, "bitstreamFormat");
 //        criteria.createAlias("bitstreamFormat.fileExtensions", "extension");
@@ -126,6 +135,8 @@ public class BitstreamFormatDAOImpl extends AbstractHibernateDAO<BitstreamFormat
     public List<BitstreamFormat> findAll(Context context, Class clazz) throws SQLException {
         Criteria criteria = createCriteria(context, BitstreamFormat.class);
         criteria.addOrder(Order.asc("id"));
+        criteria.setCacheable(true);
+        criteria.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
         return list(criteria);
     }
 
@@ -12,6 +12,7 @@ import org.dspace.content.MetadataSchema;
 import org.dspace.content.dao.MetadataFieldDAO;
 import org.dspace.core.AbstractHibernateDAO;
 import org.dspace.core.Context;
+import org.dspace.core.HibernateCache;
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
 import org.hibernate.Query;
@@ -64,6 +65,7 @@ public class MetadataFieldDAOImpl extends AbstractHibernateDAO<MetadataField> im
         }
 
         query.setCacheable(true);
+        query.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
         return singleResult(query);
     }
 
@@ -100,6 +102,7 @@ public class MetadataFieldDAOImpl extends AbstractHibernateDAO<MetadataField> im
         }
 
         query.setCacheable(true);
+        query.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
         return singleResult(query);
     }
 
@@ -109,6 +112,7 @@ public class MetadataFieldDAOImpl extends AbstractHibernateDAO<MetadataField> im
         criteria.createAlias("metadataSchema", "s").addOrder(Order.asc("s.name")).addOrder(Order.asc("element")).addOrder(Order.asc("qualifier"));
         criteria.setFetchMode("metadataSchema", FetchMode.JOIN);
         criteria.setCacheable(true);
+        criteria.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
         return list(criteria);
     }
 
@@ -125,6 +129,7 @@ public class MetadataFieldDAOImpl extends AbstractHibernateDAO<MetadataField> im
         query.setParameter("element", element);
 
         query.setCacheable(true);
+        query.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
         return list(query);
     }
 
@@ -141,6 +146,7 @@ public class MetadataFieldDAOImpl extends AbstractHibernateDAO<MetadataField> im
         query.setParameter("name", metadataSchema.getName());
 
         query.setCacheable(true);
+        query.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
         return list(query);
     }
 }
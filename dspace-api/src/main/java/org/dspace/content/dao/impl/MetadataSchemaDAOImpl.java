@@ -11,6 +11,7 @@ import org.dspace.content.MetadataSchema;
 import org.dspace.content.dao.MetadataSchemaDAO;
 import org.dspace.core.AbstractHibernateDAO;
 import org.dspace.core.Context;
+import org.dspace.core.HibernateCache;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.criterion.Order;
@@ -51,6 +52,7 @@ public class MetadataSchemaDAOImpl extends AbstractHibernateDAO<MetadataSchema>
         query.setParameter("namespace", namespace);
 
         query.setCacheable(true);
+        query.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
         return singleResult(query);
     }
 
@@ -60,6 +62,7 @@ public class MetadataSchemaDAOImpl extends AbstractHibernateDAO<MetadataSchema>
         Criteria criteria = createCriteria(context, MetadataSchema.class);
         criteria.addOrder(Order.asc("id"));
         criteria.setCacheable(true);
+        criteria.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
 
         return list(criteria);
     }
@@ -85,6 +88,7 @@ public class MetadataSchemaDAOImpl extends AbstractHibernateDAO<MetadataSchema>
         query.setParameter("id", metadataSchemaId);
 
         query.setCacheable(true);
+        query.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
         return singleResult(query) == null;
     }
 
@@ -108,6 +112,7 @@ public class MetadataSchemaDAOImpl extends AbstractHibernateDAO<MetadataSchema>
         query.setParameter("id", metadataSchemaId);
 
         query.setCacheable(true);
+        query.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
         return singleResult(query) == null;
     }
 
@@ -131,6 +136,7 @@ public class MetadataSchemaDAOImpl extends AbstractHibernateDAO<MetadataSchema>
         query.setParameter("name", shortName);
 
         query.setCacheable(true);
+        query.setCacheRegion(HibernateCache.REGISTRY_QUERIES);
         return singleResult(query);
     }
 }
@@ -157,6 +157,9 @@ public class METSManifest
     protected List<Element> contentFiles = null;
     protected List<Element> bundleFiles = null;
 
+    /** ID-keyed index of the document, built on first use */
+    protected METSManifestIndex index = null;
+
     /** builder to use for mdRef streams, inherited from create() */
     protected SAXBuilder parser = null;
 
@@ -387,18 +390,7 @@ public class METSManifest
     {
         if (mdFiles == null)
         {
-            try
-            {
-                // Use a special namespace with known prefix
-                // so we get the right prefix.
-                XPath xpath = XPath.newInstance("descendant::mets:mdRef");
-                xpath.addNamespace(metsNS);
-                mdFiles = xpath.selectNodes(mets);
-            }
-            catch (JDOMException je)
-            {
-                throw new MetadataValidationException("Failed while searching for mdRef elements in manifest: ", je);
-            }
+            mdFiles = getIndex().getMdRefs();
         }
         return mdFiles;
     }
@@ -423,31 +415,20 @@ public class METSManifest
             return null;
         }
 
-        try
+        Element original = getIndex().getContentFileByGroupId(groupID);
+        if (original != null)
         {
-            XPath xpath = XPath.newInstance(
-"mets:fileSec/mets:fileGrp[@USE=\"CONTENT\"]/mets:file[@GROUPID=\""+groupID+"\"]");
-            xpath.addNamespace(metsNS);
-            List oFiles = xpath.selectNodes(mets);
-            if (oFiles.size() > 0)
+            if (log.isDebugEnabled())
             {
-                if (log.isDebugEnabled())
-                {
-                    log.debug("Got ORIGINAL file for derived=" + file.toString());
-                }
-                Element flocat = ((Element)oFiles.get(0)).getChild("FLocat", metsNS);
-                if (flocat != null)
-                {
-                    return flocat.getAttributeValue("href", xlinkNS);
-                }
+                log.debug("Got ORIGINAL file for derived=" + file.toString());
+            }
+            Element flocat = original.getChild("FLocat", metsNS);
+            if (flocat != null)
+            {
+                return flocat.getAttributeValue("href", xlinkNS);
             }
-                return null;
-        }
-        catch (JDOMException je)
-        {
-            log.warn("Got exception on XPATH looking for Original file, "+je.toString());
-            return null;
         }
+        return null;
     }
 
     // translate bundle name from METS to DSpace; METS may be "CONTENT"
@@ -577,7 +558,7 @@ public class METSManifest
         {
             throw new MetadataValidationException("fptr for Primary Bitstream is missing the required FILEID attribute.");
         }
-        Element result = getElementByXPath("descendant::mets:file[@ID=\""+id+"\"]", false);
+        Element result = getIndex().getFile(id);
         if (result == null)
         {
             throw new MetadataValidationException("Cannot find file element for Primary Bitstream: looking for ID=" + id);
@@ -962,6 +943,36 @@ public class METSManifest
     }
 
 
+    /**
+     * Get the ID-keyed index of this manifest, building it on first use.
+     * @return the index
+     */
+    protected METSManifestIndex getIndex()
+    {
+        if (index == null)
+        {
+            index = new METSManifestIndex(mets);
+        }
+        return index;
+    }
+
+    /**
+     * Get the amdSec with the given ID.
+     * @param amdID value of the ID attribute
+     * @return the amdSec element
+     * @throws MetadataValidationException if there is no such amdSec
+     */
+    protected Element getAmdSec(String amdID)
+        throws MetadataValidationException
+    {
+        Element amdSec = getIndex().getAmdSec(amdID);
+        if (amdSec == null)
+        {
+            throw new MetadataValidationException("Invalid METS: Missing amdSec with ID=" + amdID);
+        }
+        return amdSec;
+    }
+
     // return a single Element node found by one-off path.
     // use only when path varies each time you call it.
     protected Element getElementByXPath(String path, boolean nullOk)
@@ -1057,7 +1068,11 @@ public class METSManifest
 
             for (int i = 0; i < dmdID.length; ++i)
             {
-                result[i] = getElementByXPath("mets:dmdSec[@ID=\""+dmdID[i]+"\"]", false);
+                result[i] = getIndex().getDmdSec(dmdID[i]);
+                if (result[i] == null)
+                {
+                    throw new MetadataValidationException("Invalid METS: Missing dmdSec with ID=" + dmdID[i]);
+                }
             }
             return result;
         }
@@ -1091,8 +1106,7 @@ public class METSManifest
         List<Element> resultList = new ArrayList<Element>();
         for (int i = 0; i < amdID.length; ++i)
         {
-            List rmds = getElementByXPath("mets:amdSec[@ID=\""+amdID[i]+"\"]", false).
-                            getChildren("rightsMD", metsNS);
+            List rmds = getAmdSec(amdID[i]).getChildren("rightsMD", metsNS);
             if (rmds.size() > 0)
             {
                 resultList.addAll(rmds);
@@ -1144,7 +1158,7 @@ public class METSManifest
     {
         for (String amdID : getAmdIDs())
         {
-            Element amdSec = getElementByXPath("mets:amdSec[@ID=\""+amdID+"\"]", false);
+            Element amdSec = getAmdSec(amdID);
             for (Iterator ti = amdSec.getChildren("techMD", metsNS).iterator(); ti.hasNext();)
             {
                 crosswalkXmd(context, params, dso, (Element)ti.next(), callback, false);
@@ -1183,7 +1197,7 @@ public class METSManifest
 
         for (String amdID : getAmdIDs())
         {
-            Element amdSec = getElementByXPath("mets:amdSec[@ID=\""+amdID+"\"]", false);
+            Element amdSec = getAmdSec(amdID);
             for (Iterator ti = amdSec.getChildren("sourceMD", metsNS).iterator(); ti.hasNext();)
             {
                 crosswalkXmd(context, params, dso, (Element)ti.next(), callback, false);
@@ -1347,7 +1361,7 @@ public class METSManifest
         throws MetadataValidationException, PackageValidationException,
                CrosswalkException, IOException, SQLException, AuthorizeException
     {
-        Element file = getElementByXPath("descendant::mets:file[@ID=\""+fileId+"\"]", false);
+        Element file = getIndex().getFile(fileId);
         if (file == null)
         {
             throw new MetadataValidationException("Failed in Bitstream crosswalk, Could not find file element with ID=" + fileId);
@@ -1364,7 +1378,7 @@ public class METSManifest
         String amdID[] = amds.split("\\s+");
         for (int i = 0; i < amdID.length; ++i)
         {
-            Element amdSec = getElementByXPath("mets:amdSec[@ID=\""+amdID[i]+"\"]", false);
+            Element amdSec = getAmdSec(amdID[i]);
             for (Iterator ti = amdSec.getChildren("techMD", metsNS).iterator(); ti.hasNext();)
             {
                 crosswalkXmd(context, params, bitstream, (Element)ti.next(), callback, false);
@@ -1387,7 +1401,7 @@ public class METSManifest
         throws MetadataValidationException, PackageValidationException,
                CrosswalkException, IOException, SQLException, AuthorizeException
     {
-        Element file = getElementByXPath("descendant::mets:fileGrp[@ADMID=\""+fileId+"\"]", false);
+        Element file = getIndex().getFileGrpByAdmId(fileId);
         if (file == null)
         {
             throw new MetadataValidationException("Failed in Bitstream crosswalk, Could not find file element with ID=" + fileId);
@@ -1404,7 +1418,7 @@ public class METSManifest
         String amdID[] = amds.split("\\s+");
         for (int i = 0; i < amdID.length; ++i)
         {
-            Element amdSec = getElementByXPath("mets:amdSec[@ID=\""+amdID[i]+"\"]", false);
+            Element amdSec = getAmdSec(amdID[i]);
             for (Iterator ti = amdSec.getChildren("techMD", metsNS).iterator(); ti.hasNext();)
             {
                 crosswalkXmd(context, params, bundle, (Element)ti.next(), callback, false);
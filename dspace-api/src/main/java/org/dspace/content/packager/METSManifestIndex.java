@@ -0,0 +1,206 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.packager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+/**
+ * ID-keyed index of the sections of a METS document, built in one pass over
+ * the document.
+ * <P>
+ * {@link METSManifest} used to find files, file groups and metadata sections
+ * with a new XPath query for every lookup, each one a scan of the whole
+ * document. Ingesting an AIP with many files did one such scan per file and
+ * per referenced amdSec. With the index, each lookup is a map access.
+ * <P>
+ * Where several elements match a key, the first one in document order is
+ * kept, as XPath selectSingleNode did.
+ */
+public class METSManifestIndex
+{
+    private static final Namespace metsNS = Namespace.getNamespace("mets", "http://www.loc.gov/METS/");
+
+    /** mets:file elements anywhere in the document, by ID */
+    private final Map<String, Element> files = new HashMap<String, Element>();
+
+    /** mets:fileGrp elements anywhere in the document, by ADMID */
+    private final Map<String, Element> fileGrpsByAdmId = new HashMap<String, Element>();
+
+    /** mets:file elements of fileSec/fileGrp[@USE='CONTENT'], by GROUPID */
+    private final Map<String, Element> contentFilesByGroupId = new HashMap<String, Element>();
+
+    /** mets:dmdSec children of the root, by ID */
+    private final Map<String, Element> dmdSecs = new HashMap<String, Element>();
+
+    /** mets:amdSec children of the root, by ID */
+    private final Map<String, Element> amdSecs = new HashMap<String, Element>();
+
+    /** mets:structMap children of the root, in document order */
+    private final List<Element> structMaps = new ArrayList<Element>();
+
+    /** mets:mdRef elements anywhere in the document, in document order */
+    private final List<Element> mdRefs = new ArrayList<Element>();
+
+    /**
+     * Index a METS document.
+     *
+     * @param mets the root element of the document
+     */
+    public METSManifestIndex(Element mets)
+    {
+        for (Object child : mets.getChildren())
+        {
+            Element element = (Element) child;
+            if (isMets(element))
+            {
+                String name = element.getName();
+                if (name.equals("dmdSec"))
+                {
+                    putFirst(dmdSecs, element.getAttributeValue("ID"), element);
+                }
+                else if (name.equals("amdSec"))
+                {
+                    putFirst(amdSecs, element.getAttributeValue("ID"), element);
+                }
+                else if (name.equals("structMap"))
+                {
+                    structMaps.add(element);
+                }
+                else if (name.equals("fileSec"))
+                {
+                    indexContentFiles(element);
+                }
+            }
+            indexDescendants(element);
+        }
+    }
+
+    private void indexContentFiles(Element fileSec)
+    {
+        for (Object fg : fileSec.getChildren("fileGrp", metsNS))
+        {
+            Element fileGrp = (Element) fg;
+            if ("CONTENT".equals(fileGrp.getAttributeValue("USE")))
+            {
+                for (Object f : fileGrp.getChildren("file", metsNS))
+                {
+                    Element file = (Element) f;
+                    putFirst(contentFilesByGroupId, file.getAttributeValue("GROUPID"), file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Index an element and everything below it, in document order.
+     */
+    private void indexDescendants(Element element)
+    {
+        if (isMets(element))
+        {
+            String name = element.getName();
+            if (name.equals("file"))
+            {
+                putFirst(files, element.getAttributeValue("ID"), element);
+            }
+            else if (name.equals("fileGrp"))
+            {
+                putFirst(fileGrpsByAdmId, element.getAttributeValue("ADMID"), element);
+            }
+            else if (name.equals("mdRef"))
+            {
+                mdRefs.add(element);
+            }
+        }
+        for (Object child : element.getChildren())
+        {
+            indexDescendants((Element) child);
+        }
+    }
+
+    private static boolean isMets(Element element)
+    {
+        return metsNS.getURI().equals(element.getNamespaceURI());
+    }
+
+    private static void putFirst(Map<String, Element> map, String key, Element element)
+    {
+        if (key != null && !map.containsKey(key))
+        {
+            map.put(key, element);
+        }
+    }
+
+    /**
+     * @param id value of the ID attribute
+     * @return the file element with that ID, or null
+     */
+    public Element getFile(String id)
+    {
+        return files.get(id);
+    }
+
+    /**
+     * @param admId value of the ADMID attribute
+     * @return the fileGrp element with exactly that ADMID, or null
+     */
+    public Element getFileGrpByAdmId(String admId)
+    {
+        return fileGrpsByAdmId.get(admId);
+    }
+
+    /**
+     * @param groupId value of the GROUPID attribute
+     * @return the first file in a CONTENT file group with that GROUPID, or null
+     */
+    public Element getContentFileByGroupId(String groupId)
+    {
+        return contentFilesByGroupId.get(groupId);
+    }
+
+    /**
+     * @param id value of the ID attribute
+     * @return the dmdSec with that ID, or null
+     */
+    public Element getDmdSec(String id)
+    {
+        return dmdSecs.get(id);
+    }
+
+    /**
+     * @param id value of the ID attribute
+     * @return the amdSec with that ID, or null
+     */
+    public Element getAmdSec(String id)
+    {
+        return amdSecs.get(id);
+    }
+
+    /**
+     * @return the structMap elements, in document order
+     */
+    public List<Element> getStructMaps()
+    {
+        return Collections.unmodifiableList(structMaps);
+    }
+
+    /**
+     * @return all mdRef elements, in document order
+     */
+    public List<Element> getMdRefs()
+    {
+        return Collections.unmodifiableList(mdRefs);
+    }
+}
@@ -0,0 +1,926 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.packager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.crosswalk.CrosswalkException;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.ItemService;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.core.LogManager;
+import org.dspace.eperson.Group;
+import org.dspace.eperson.factory.EPersonServiceFactory;
+import org.dspace.eperson.service.EPersonService;
+import org.dspace.handle.factory.HandleServiceFactory;
+import org.dspace.handle.service.HandleService;
+import org.dspace.workflow.WorkflowException;
+
+/**
+ * Recursive dissemination and ingestion of packages (e.g. a full AIP backup
+ * or restore) on a bounded number of worker threads.
+ * <P>
+ * This does the same work as {@link AbstractPackageDisseminator#disseminateAll}
+ * and {@link AbstractPackageIngester#ingestAll}, with the following ordering:
+ * <ul>
+ * <li>Dissemination: Items are disseminated concurrently. The package of a
+ * Collection, Community or Site is written only after the packages of all of
+ * its children have been written.</li>
+ * <li>Ingestion: the Site, Community and Collection packages are ingested
+ * first, on the calling thread. The Item packages they reference are then
+ * ingested concurrently, and each Item is mapped into every Collection which
+ * referenced it.</li>
+ * </ul>
+ * Every worker has its own Context, with the user, authorization state and
+ * special groups of the caller, and its own instance of the packager plugin,
+ * as packagers keep state while they work.
+ * <P>
+ * Every completed package is appended to a manifest file. When a run is
+ * resumed with the same manifest, packages listed in it are skipped: in
+ * dissemination, a completed Collection or Community package also skips
+ * everything below it. As a consequence, ingestion commits after every
+ * package rather than once at the end.
+ *
+ * @see org.dspace.app.packager.Packager
+ */
+public class ParallelPackager
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(ParallelPackager.class);
+
+    /** Separator of the fields of a manifest line */
+    private static final String TAB = "\t";
+
+    protected final ContentServiceFactory contentServiceFactory = ContentServiceFactory.getInstance();
+    protected final CommunityService communityService = contentServiceFactory.getCommunityService();
+    protected final CollectionService collectionService = contentServiceFactory.getCollectionService();
+    protected final ItemService itemService = contentServiceFactory.getItemService();
+    protected final HandleService handleService = HandleServiceFactory.getInstance().getHandleService();
+    protected final EPersonService ePersonService = EPersonServiceFactory.getInstance().getEPersonService();
+
+    private final int workers;
+    private final File manifestFile;
+    private final boolean resume;
+
+    /** Packages completed by a previous run, by path */
+    private final Map<String, ManifestEntry> completed = new HashMap<String, ManifestEntry>();
+    private PrintWriter manifestOut;
+
+    private final List<File> packageFiles = Collections.synchronizedList(new ArrayList<File>());
+    private final List<String> handles = Collections.synchronizedList(new ArrayList<String>());
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    /**
+     * @param workers number of worker threads
+     * @param manifestFile file listing the completed packages, or null to keep no manifest
+     * @param resume if true, skip the packages listed in an existing manifest;
+     *        otherwise an existing manifest is overwritten
+     */
+    public ParallelPackager(int workers, File manifestFile, boolean resume)
+    {
+        this.workers = Math.max(1, workers);
+        this.manifestFile = manifestFile;
+        this.resume = resume;
+    }
+
+    /**
+     * @return number of packages skipped because a previous run completed them
+     */
+    public int getSkippedCount()
+    {
+        return skipped.get();
+    }
+
+    /**
+     * Disseminate an object and everything below it, as
+     * {@link PackageDisseminator#disseminateAll} does.
+     *
+     * @param context DSpace context, used to walk the object hierarchy
+     * @param dip disseminator; every worker uses a new instance of its class
+     * @param dso the initial object
+     * @param params packager parameters
+     * @param pkgFile file of the initial package; all other packages are
+     *        written to the same directory
+     * @return the package files written by this run
+     * @throws PackageException if packaging error
+     * @throws CrosswalkException if crosswalk error
+     * @throws AuthorizeException if authorization error
+     * @throws SQLException if database error
+     * @throws IOException if IO error
+     */
+    public List<File> disseminateAll(Context context, PackageDisseminator dip, DSpaceObject dso,
+                                     PackageParameters params, File pkgFile)
+        throws PackageException, CrosswalkException, AuthorizeException, SQLException, IOException
+    {
+        if (!params.recursiveModeEnabled())
+        {
+            params.setRecursiveModeEnabled(true);
+        }
+        openManifest();
+        try
+        {
+            Dissemination dissemination = new Dissemination(dip, params);
+            dissemination.run(context, dso, pkgFile.getCanonicalFile());
+        }
+        catch (WorkflowException e)
+        {
+            throw new PackageException(e);
+        }
+        finally
+        {
+            closeManifest();
+        }
+        return new ArrayList<File>(packageFiles);
+    }
+
+    /**
+     * Ingest a package and every package it references, as
+     * {@link PackageIngester#ingestAll} does.
+     * <P>
+     * Only ingesters extending {@link AbstractPackageIngester} report the
+     * packages they reference; any other ingester is run sequentially by its
+     * own <code>ingestAll</code>.
+     *
+     * @param context DSpace context, used for the Site, Community and Collection packages
+     * @param sip ingester; every worker uses a new instance of its class
+     * @param parent parent of the initial object, or null to read it from the package
+     * @param pkgFile the initial package
+     * @param params packager parameters
+     * @return handles of the objects ingested by this run
+     * @throws PackageException if packaging error
+     * @throws CrosswalkException if crosswalk error
+     * @throws AuthorizeException if authorization error
+     * @throws SQLException if database error
+     * @throws IOException if IO error
+     * @throws WorkflowException if workflow error
+     */
+    public List<String> ingestAll(Context context, PackageIngester sip, DSpaceObject parent,
+                                  File pkgFile, PackageParameters params)
+        throws PackageException, CrosswalkException, AuthorizeException, SQLException, IOException,
+               WorkflowException
+    {
+        if (!(sip instanceof AbstractPackageIngester))
+        {
+            log.warn("Package ingester " + sip.getClass().getName()
+                    + " does not report package references, ingesting sequentially");
+            return sip.ingestAll(context, parent, pkgFile, params, null);
+        }
+        if (!params.recursiveModeEnabled())
+        {
+            params.setRecursiveModeEnabled(true);
+        }
+        openManifest();
+        try
+        {
+            Ingestion ingestion = new Ingestion((AbstractPackageIngester) sip, params);
+            ingestion.run(context, parent, pkgFile.getCanonicalFile());
+        }
+        finally
+        {
+            closeManifest();
+        }
+        return new ArrayList<String>(handles);
+    }
+
+    /**
+     * Read the manifest of a previous run if resuming, and open it for appending.
+     */
+    protected void openManifest() throws IOException
+    {
+        if (manifestFile == null)
+        {
+            return;
+        }
+        if (resume && manifestFile.exists())
+        {
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(manifestFile), "UTF-8")))
+            {
+                String line;
+                while ((line = in.readLine()) != null)
+                {
+                    String[] fields = line.split(TAB);
+                    if (fields.length >= 3)
+                    {
+                        ManifestEntry entry = new ManifestEntry(fields[1], Integer.parseInt(fields[2]),
+                                Arrays.asList(fields).subList(3, fields.length));
+                        completed.put(fields[0], entry);
+                    }
+                }
+            }
+            log.info("Resuming from " + manifestFile + ", " + completed.size() + " packages completed");
+        }
+        manifestOut = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(manifestFile, resume), "UTF-8"));
+    }
+
+    protected void closeManifest()
+    {
+        if (manifestOut != null)
+        {
+            manifestOut.close();
+            manifestOut = null;
+        }
+    }
+
+    /**
+     * Append a completed package to the manifest.
+     */
+    protected synchronized void record(File pkgFile, String handle, int type, List<String> refs)
+    {
+        if (manifestOut == null)
+        {
+            return;
+        }
+        StringBuilder line = new StringBuilder(pkgFile.getPath());
+        line.append(TAB).append(handle == null ? "" : handle).append(TAB).append(type);
+        if (refs != null)
+        {
+            for (String ref : refs)
+            {
+                line.append(TAB).append(ref);
+            }
+        }
+        manifestOut.println(line);
+        manifestOut.flush();
+    }
+
+    /**
+     * Rethrow a worker's failure as one of the exceptions the packager
+     * methods declare.
+     */
+    private static void rethrow(Exception e)
+        throws PackageException, CrosswalkException, AuthorizeException, SQLException, IOException,
+               WorkflowException
+    {
+        if (e instanceof PackageException)
+        {
+            throw (PackageException) e;
+        }
+        if (e instanceof CrosswalkException)
+        {
+            throw (CrosswalkException) e;
+        }
+        if (e instanceof AuthorizeException)
+        {
+            throw (AuthorizeException) e;
+        }
+        if (e instanceof SQLException)
+        {
+            throw (SQLException) e;
+        }
+        if (e instanceof IOException)
+        {
+            throw (IOException) e;
+        }
+        if (e instanceof WorkflowException)
+        {
+            throw (WorkflowException) e;
+        }
+        if (e instanceof RuntimeException)
+        {
+            throw (RuntimeException) e;
+        }
+        throw new PackageException(e);
+    }
+
+    /**
+     * A package completed by a previous run, as read from the manifest.
+     */
+    protected static class ManifestEntry
+    {
+        final String handle;
+        final int type;
+        final List<String> refs;
+
+        ManifestEntry(String handle, int type, List<String> refs)
+        {
+            this.handle = handle;
+            this.type = type;
+            this.refs = refs;
+        }
+    }
+
+    /**
+     * A worker thread's Context, packager instance and parameters.
+     */
+    protected static class Worker<P>
+    {
+        Context context;
+        P plugin;
+        PackageParameters params;
+    }
+
+    /**
+     * Worker threads taking tasks from a shared queue. The first failure
+     * stops all workers.
+     */
+    protected abstract class Pool<T, P>
+    {
+        private final Object end = new Object();
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+        private final List<Thread> threads = new ArrayList<Thread>();
+        private final PackageParameters params;
+
+        private UUID userId;
+        private boolean ignoreAuth;
+        private final List<UUID> specialGroups = new ArrayList<UUID>();
+
+        protected volatile boolean stop = false;
+        private Exception failure;
+
+        protected Pool(PackageParameters params)
+        {
+            this.params = params;
+        }
+
+        /**
+         * @return a new packager instance for a worker
+         * @throws Exception if the packager cannot be created
+         */
+        protected abstract P newPlugin() throws Exception;
+
+        /**
+         * Process one task.
+         * @param worker the worker's Context and packager
+         * @param task the task
+         * @throws Exception if the task failed; this stops the run
+         */
+        protected abstract void process(Worker<P> worker, T task) throws Exception;
+
+        /**
+         * Called once, after the first failure.
+         */
+        protected void failed()
+        {
+        }
+
+        /**
+         * Start the worker threads.
+         * @param context the caller's Context, whose user and authorization state the workers copy
+         * @param name prefix of the thread names
+         * @throws SQLException if database error
+         */
+        protected void start(Context context, String name) throws SQLException
+        {
+            userId = context.getCurrentUser() == null ? null : context.getCurrentUser().getID();
+            ignoreAuth = context.ignoreAuthorization();
+            for (Group group : context.getSpecialGroups())
+            {
+                specialGroups.add(group.getID());
+            }
+            for (int i = 0; i < workers; i++)
+            {
+                Thread thread = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        work();
+                    }
+                }, name + "-" + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        protected void add(T task)
+        {
+            queue.add(task);
+        }
+
+        /**
+         * Let the workers finish the queued tasks and wait for them to exit.
+         * @throws Exception the first failure of any worker
+         */
+        protected void finish() throws Exception
+        {
+            for (int i = 0; i < threads.size(); i++)
+            {
+                queue.add(end);
+            }
+            for (Thread thread : threads)
+            {
+                thread.join();
+            }
+            if (failure != null)
+            {
+                throw failure;
+            }
+        }
+
+        protected Context openContext() throws SQLException
+        {
+            Context wctx = new Context();
+            if (userId != null)
+            {
+                wctx.setCurrentUser(ePersonService.find(wctx, userId));
+            }
+            if (ignoreAuth)
+            {
+                wctx.turnOffAuthorisationSystem();
+            }
+            for (UUID groupId : specialGroups)
+            {
+                wctx.setSpecialGroup(groupId);
+            }
+            wctx.enableBatchMode(true);
+            return wctx;
+        }
+
+        /**
+         * Discard the worker's uncommitted changes and give it a new Context.
+         */
+        protected void reopen(Worker<P> worker) throws SQLException
+        {
+            worker.context.abort();
+            worker.context = openContext();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void work()
+        {
+            Worker<P> worker = new Worker<P>();
+            try
+            {
+                worker.context = openContext();
+                worker.plugin = newPlugin();
+                worker.params = (PackageParameters) params.clone();
+
+                Object task;
+                while ((task = queue.take()) != end)
+                {
+                    if (!stop)
+                    {
+                        process(worker, (T) task);
+                    }
+                }
+                worker.context.complete();
+            }
+            catch (Exception e)
+            {
+                log.error("Packager worker " + Thread.currentThread().getName() + " failed: " + e.getMessage(), e);
+                boolean first;
+                synchronized (this)
+                {
+                    first = failure == null;
+                    if (first)
+                    {
+                        failure = e;
+                    }
+                }
+                stop = true;
+                if (first)
+                {
+                    failed();
+                }
+                // keep draining the queue so that finish() returns
+                try
+                {
+                    while (queue.take() != end)
+                    {
+                        // skip
+                    }
+                }
+                catch (InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            finally
+            {
+                if (worker.context != null && worker.context.isValid())
+                {
+                    worker.context.abort();
+                }
+            }
+        }
+    }
+
+    /**
+     * An object to disseminate, which waits for its children.
+     */
+    protected static class Node
+    {
+        final Node parent;
+        final int type;
+        final UUID id;
+        final File file;
+        /** Children not yet written, plus one while the children are being listed */
+        final AtomicInteger pending = new AtomicInteger(1);
+
+        Node(Node parent, DSpaceObject dso, File file)
+        {
+            this.parent = parent;
+            this.type = dso.getType();
+            this.id = dso.getID();
+            this.file = file;
+        }
+    }
+
+    /**
+     * Dissemination: the calling thread walks the hierarchy and queues the
+     * Items, at most a few per worker at a time. The last child of an object
+     * to be written queues the object itself.
+     */
+    protected class Dissemination extends Pool<Node, PackageDisseminator>
+    {
+        private final PackageDisseminator dip;
+        private final int maxQueued = workers * 4;
+        private final Semaphore queued = new Semaphore(maxQueued);
+        private final CountDownLatch rootDone = new CountDownLatch(1);
+        private final Set<String> visited = new HashSet<String>();
+
+        protected Dissemination(PackageDisseminator dip, PackageParameters params)
+        {
+            super(params);
+            this.dip = dip;
+        }
+
+        protected void run(Context context, DSpaceObject dso, File pkgFile)
+            throws PackageException, CrosswalkException, AuthorizeException, SQLException, IOException,
+                   WorkflowException
+        {
+            start(context, "packager-disseminate");
+            try
+            {
+                Node root = visit(context, null, dso, pkgFile);
+                while (root != null && !stop && !rootDone.await(1, TimeUnit.SECONDS))
+                {
+                    log.debug(packageFiles.size() + " packages written");
+                }
+                finish();
+            }
+            catch (Exception e)
+            {
+                rethrow(e);
+            }
+        }
+
+        /**
+         * Queue an object, after its children.
+         * @return the object's node, or null if it was already visited or completed
+         */
+        private Node visit(Context context, Node parent, DSpaceObject dso, File pkgFile)
+            throws SQLException, InterruptedException
+        {
+            // NOTE: an Item mapped into several Collections is disseminated once
+            if (stop || !visited.add(pkgFile.getPath()))
+            {
+                return null;
+            }
+            if (completed.containsKey(pkgFile.getPath()) && pkgFile.exists())
+            {
+                skipped.incrementAndGet();
+                return null;
+            }
+
+            Node node = new Node(parent, dso, pkgFile);
+            if (parent != null)
+            {
+                parent.pending.incrementAndGet();
+            }
+            if (node.type == Constants.ITEM)
+            {
+                while (!queued.tryAcquire(1, TimeUnit.SECONDS))
+                {
+                    if (stop)
+                    {
+                        return null;
+                    }
+                }
+                add(node);
+                return node;
+            }
+
+            String pkgDirectory = pkgFile.getParent();
+            String fileExtension = PackageUtils.getFileExtension(pkgFile.getName());
+            switch (node.type)
+            {
+                case Constants.COLLECTION :
+                    Iterator<Item> iterator = itemService.findByCollection(context, (Collection) dso);
+                    while (iterator.hasNext())
+                    {
+                        Item item = iterator.next();
+                        visit(context, node, item, new File(pkgDirectory, PackageUtils.getPackageName(item, fileExtension)));
+                    }
+                    break;
+                case Constants.COMMUNITY :
+                    Community community = (Community) dso;
+                    for (Community subcommunity : community.getSubcommunities())
+                    {
+                        visit(context, node, subcommunity,
+                                new File(pkgDirectory, PackageUtils.getPackageName(subcommunity, fileExtension)));
+                    }
+                    for (Collection collection : community.getCollections())
+                    {
+                        visit(context, node, collection,
+                                new File(pkgDirectory, PackageUtils.getPackageName(collection, fileExtension)));
+                    }
+                    break;
+                case Constants.SITE :
+                    for (Community topCommunity : communityService.findAllTop(context))
+                    {
+                        visit(context, node, topCommunity,
+                                new File(pkgDirectory, PackageUtils.getPackageName(topCommunity, fileExtension)));
+                    }
+                    break;
+                default :
+                    break;
+            }
+            childDone(node);
+            return node;
+        }
+
+        private void childDone(Node node)
+        {
+            if (node.pending.decrementAndGet() == 0)
+            {
+                add(node);
+            }
+        }
+
+        @Override
+        protected PackageDisseminator newPlugin() throws Exception
+        {
+            return dip.getClass().newInstance();
+        }
+
+        @Override
+        protected void process(Worker<PackageDisseminator> worker, Node node) throws Exception
+        {
+            DSpaceObject dso = contentServiceFactory.getDSpaceObjectService(node.type).find(worker.context, node.id);
+            if (dso == null)
+            {
+                log.warn(LogManager.getHeader(worker.context, "skip_package_disseminate",
+                        "Object no longer exists, package-skipped=" + node.file.getName()));
+            }
+            else
+            {
+                worker.plugin.disseminate(worker.context, dso, worker.params, node.file);
+                if (node.file.exists())
+                {
+                    packageFiles.add(node.file);
+                    record(node.file, dso.getHandle(), node.type, null);
+                }
+            }
+            // NOTE: committing ends the Hibernate session, so a worker does
+            // not keep every object it disseminated in memory
+            worker.context.commit();
+
+            if (node.type == Constants.ITEM)
+            {
+                queued.release();
+            }
+            if (node.parent == null)
+            {
+                rootDone.countDown();
+            }
+            else
+            {
+                childDone(node.parent);
+            }
+        }
+
+        @Override
+        protected void failed()
+        {
+            queued.release(maxQueued);
+            rootDone.countDown();
+        }
+    }
+
+    /**
+     * An Item package to ingest, with the Collections which referenced it.
+     */
+    protected static class ItemPackage
+    {
+        final File file;
+        final List<String> collections = new ArrayList<String>();
+
+        ItemPackage(File file)
+        {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Ingestion: the calling thread ingests the Site, Community and
+     * Collection packages, committing each one, then the workers ingest the
+     * Item packages. Every parent therefore exists before its children are
+     * ingested.
+     */
+    protected class Ingestion extends Pool<ItemPackage, PackageIngester>
+    {
+        private final AbstractPackageIngester sip;
+        private final PackageParameters params;
+        private final Set<String> visited = new HashSet<String>();
+        private final Map<String, ItemPackage> items = new LinkedHashMap<String, ItemPackage>();
+
+        protected Ingestion(AbstractPackageIngester sip, PackageParameters params)
+        {
+            super(params);
+            this.sip = sip;
+            this.params = params;
+        }
+
+        protected void run(Context context, DSpaceObject parent, File pkgFile)
+            throws PackageException, CrosswalkException, AuthorizeException, SQLException, IOException,
+                   WorkflowException
+        {
+            ingestContainer(context, parent, pkgFile);
+            if (items.isEmpty())
+            {
+                return;
+            }
+            log.info("Ingesting " + items.size() + " Item packages with " + workers + " workers");
+            start(context, "packager-ingest");
+            for (ItemPackage item : items.values())
+            {
+                add(item);
+            }
+            try
+            {
+                finish();
+            }
+            catch (Exception e)
+            {
+                rethrow(e);
+            }
+        }
+
+        /**
+         * Ingest a package on the calling thread, then the packages it
+         * references, except Items of Collections, which are left to the workers.
+         */
+        private void ingestContainer(Context context, DSpaceObject parent, File pkgFile)
+            throws PackageException, CrosswalkException, AuthorizeException, SQLException, IOException,
+                   WorkflowException
+        {
+            if (!visited.add(pkgFile.getPath()))
+            {
+                return;
+            }
+
+            String handle;
+            int type;
+            List<String> refs;
+            ManifestEntry entry = completed.get(pkgFile.getPath());
+            if (entry != null)
+            {
+                skipped.incrementAndGet();
+                handle = entry.handle;
+                type = entry.type;
+                refs = entry.refs;
+            }
+            else
+            {
+                DSpaceObject dso;
+                try
+                {
+                    dso = sip.ingest(context, parent, pkgFile, params, null);
+                }
+                catch (IllegalStateException ie)
+                {
+                    // NOTE: the handle is already in use, so this object already exists
+                    if (params.keepExistingModeEnabled())
+                    {
+                        log.warn(LogManager.getHeader(context, "skip_package_ingest",
+                                "Object already exists, package-skipped=" + pkgFile.getName()));
+                        return;
+                    }
+                    throw ie;
+                }
+                if (dso == null)
+                {
+                    return;
+                }
+                handle = dso.getHandle();
+                type = dso.getType();
+                refs = type == Constants.ITEM ? null : sip.getPackageReferences(dso);
+                context.commit();
+                record(pkgFile, handle, type, refs);
+                handles.add(handle);
+            }
+
+            if (refs == null || type == Constants.ITEM)
+            {
+                return;
+            }
+            for (String ref : refs)
+            {
+                // package references are relative to the referencing package
+                File childPkg = new File(pkgFile.getParent(), ref);
+                if (type == Constants.COLLECTION)
+                {
+                    ItemPackage item = items.get(childPkg.getPath());
+                    if (item == null)
+                    {
+                        item = new ItemPackage(childPkg);
+                        items.put(childPkg.getPath(), item);
+                    }
+                    item.collections.add(handle);
+                }
+                else
+                {
+                    // NOTE: null parent, so the child is restored into the parent named in its package
+                    ingestContainer(context, null, childPkg);
+                }
+            }
+        }
+
+        @Override
+        protected PackageIngester newPlugin() throws Exception
+        {
+            return sip.getClass().newInstance();
+        }
+
+        @Override
+        protected void process(Worker<PackageIngester> worker, ItemPackage item) throws Exception
+        {
+            if (completed.containsKey(item.file.getPath()))
+            {
+                skipped.incrementAndGet();
+                return;
+            }
+
+            DSpaceObject dso;
+            try
+            {
+                dso = worker.plugin.ingest(worker.context, null, item.file, worker.params, null);
+            }
+            catch (IllegalStateException ie)
+            {
+                if (worker.params.keepExistingModeEnabled())
+                {
+                    log.warn(LogManager.getHeader(worker.context, "skip_package_ingest",
+                            "Object already exists, package-skipped=" + item.file.getName()));
+                    reopen(worker);
+                    return;
+                }
+                throw ie;
+            }
+            if (dso == null)
+            {
+                return;
+            }
+
+            // A Collection can map to Items that it does not "own"
+            if (dso.getType() == Constants.ITEM)
+            {
+                for (String collectionHandle : item.collections)
+                {
+                    DSpaceObject collection = handleService.resolveToObject(worker.context, collectionHandle);
+                    if (collection instanceof Collection && !itemService.isIn((Item) dso, (Collection) collection))
+                    {
+                        collectionService.addItem(worker.context, (Collection) collection, (Item) dso);
+                    }
+                }
+            }
+            String handle = dso.getHandle();
+            worker.context.commit();
+            record(item.file, handle, dso.getType(), null);
+            handles.add(handle);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.dspace.eperson.Group;
 import org.dspace.eperson.factory.EPersonServiceFactory;
 import org.dspace.event.Dispatcher;
 import org.dspace.event.Event;
+import org.dspace.event.EventCoalescer;
 import org.dspace.event.factory.EventServiceFactory;
 import org.dspace.event.service.EventService;
 import org.dspace.storage.rdbms.DatabaseConfigVO;
@@ -366,6 +367,21 @@ public class Context
         }
     }
 
+    /**
+     * Run a task once the current transaction is committed, e.g. to update a
+     * cache of this application: events are dispatched to the consumers
+     * before the transaction is committed, so what another thread reads from
+     * the database while they run is still the old state. The task is not run
+     * if the transaction is rolled back.
+     *
+     * @param task the task to run
+     * @throws SQLException if database error
+     */
+    public void afterCommit(Runnable task) throws SQLException
+    {
+        dbConnection.afterCommit(task);
+    }
+
     /**
      * Commit the current transaction with the database, persisting any pending changes.
      * The database connection is not closed and can be reused afterwards.
@@ -416,6 +432,11 @@ public class Context
         try {
             if (events != null) {
 
+                // Merge redundant events before any consumer sees them
+                if (ConfigurationManager.getBooleanProperty("event.coalesce", true)) {
+                    events = EventCoalescer.coalesce(events);
+                }
+
                 if (dispName == null) {
                     dispName = EventService.DEFAULT_DISPATCHER;
                 }
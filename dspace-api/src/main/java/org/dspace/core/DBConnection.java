@@ -48,6 +48,13 @@ public interface DBConnection<T> {
 
     public long getCacheSize() throws SQLException;
 
+    /**
+     * Run a task once the current transaction is committed. It is not run if
+     * the transaction is rolled back.
+     * @param task the task to run
+     */
+    public void afterCommit(Runnable task) throws SQLException;
+
     /**
      * Reload a DSpace object from the database. This will make sure the object is valid and stored in the cache.
      * @param entity The DSpace object to reload
@@ -0,0 +1,214 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Regions of the Hibernate second level cache holding the entities which are
+ * read by most requests but hardly ever change, and the results of their
+ * most frequent queries. The size and expiry of each region is configured in
+ * <code>[dspace]/config/hibernate-ehcache-config.xml</code>.
+ * <P>
+ * The query regions are invalidated by Hibernate whenever a table they depend
+ * on is written through it, and by the {@link HibernateCacheConsumer} when
+ * the objects they depend on are changed.
+ */
+public class HibernateCache
+{
+    /** Metadata schemas, metadata fields and bitstream formats */
+    public static final String REGISTRY = "org.dspace.registry";
+
+    /** Results of the queries for metadata schemas, metadata fields and bitstream formats */
+    public static final String REGISTRY_QUERIES = "org.dspace.registry.queries";
+
+    /** Handles */
+    public static final String HANDLE = "org.dspace.handle";
+
+    /** Results of the queries for handles */
+    public static final String HANDLE_QUERIES = "org.dspace.handle.queries";
+
+    /** Resource policies */
+    public static final String AUTHORIZE = "org.dspace.authorize";
+
+    /** Results of the queries for the resource policies of communities and collections */
+    public static final String AUTHORIZE_QUERIES = "org.dspace.authorize.queries";
+
+    /** Static methods only */
+    private HibernateCache()
+    {
+    }
+
+    private static SessionFactory getSessionFactory(Context context) throws SQLException
+    {
+        return ((Session) context.getDBConnection().getSession()).getSessionFactory();
+    }
+
+    /**
+     * Drop all cached results of the queries of a region.
+     *
+     * @param context
+     *            DSpace context object
+     * @param region
+     *            name of the query region, such as {@link #HANDLE_QUERIES}
+     * @throws SQLException if database error
+     */
+    public static void evictQueries(Context context, String region) throws SQLException
+    {
+        getSessionFactory(context).getCache().evictQueryRegion(region);
+    }
+
+    /**
+     * Drop all cached entities, collections and query results.
+     *
+     * @param context
+     *            DSpace context object
+     * @throws SQLException if database error
+     */
+    public static void evictAll(Context context) throws SQLException
+    {
+        Cache cache = getSessionFactory(context).getCache();
+        cache.evictEntityRegions();
+        cache.evictCollectionRegions();
+        cache.evictDefaultQueryRegion();
+        cache.evictQueryRegions();
+    }
+
+    /**
+     * Whether Hibernate gathers the numbers of hits, misses and puts of the
+     * regions (<code>db.cache.statistics</code>). Without them, only the
+     * number of entries and the memory used are known.
+     *
+     * @param context
+     *            DSpace context object
+     * @return true if the statistics are gathered
+     * @throws SQLException if database error
+     */
+    public static boolean isStatisticsEnabled(Context context) throws SQLException
+    {
+        return getSessionFactory(context).getStatistics().isStatisticsEnabled();
+    }
+
+    /**
+     * Statistics of all regions of the second level cache used since the
+     * application started, to size them. Regions of queries are only created
+     * when a query is first cached in them.
+     *
+     * @param context
+     *            DSpace context object
+     * @return the statistics of the regions, sorted by name
+     * @throws SQLException if database error
+     */
+    public static List<RegionStatistics> getStatistics(Context context) throws SQLException
+    {
+        Statistics statistics = getSessionFactory(context).getStatistics();
+        String[] names = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(names);
+
+        List<RegionStatistics> regions = new ArrayList<>(names.length);
+        for (String name : names)
+        {
+            SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(name);
+            if (region != null)
+            {
+                regions.add(new RegionStatistics(name, region));
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Usage of one region of the second level cache.
+     */
+    public static class RegionStatistics
+    {
+        private final String name;
+        private final long elements;
+        private final long size;
+        private final long hits;
+        private final long misses;
+        private final long puts;
+
+        private RegionStatistics(String name, SecondLevelCacheStatistics statistics)
+        {
+            this.name = name;
+            this.elements = statistics.getElementCountInMemory() + Math.max(0, statistics.getElementCountOnDisk());
+            this.size = statistics.getSizeInMemory();
+            this.hits = statistics.getHitCount();
+            this.misses = statistics.getMissCount();
+            this.puts = statistics.getPutCount();
+        }
+
+        /**
+         * @return the name of the region
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return the number of entries in the region
+         */
+        public long getElements()
+        {
+            return elements;
+        }
+
+        /**
+         * @return the memory used by the region in bytes, or -1 if unknown
+         */
+        public long getSize()
+        {
+            return size;
+        }
+
+        /**
+         * @return the number of lookups which found their entry
+         */
+        public long getHits()
+        {
+            return hits;
+        }
+
+        /**
+         * @return the number of lookups which did not find their entry
+         */
+        public long getMisses()
+        {
+            return misses;
+        }
+
+        /**
+         * @return the number of entries added to the region
+         */
+        public long getPuts()
+        {
+            return puts;
+        }
+
+        /**
+         * @return the share of the lookups which found their entry, between
+         *         0 and 1, or -1 if there were none
+         */
+        public double getHitRatio()
+        {
+            long lookups = hits + misses;
+            return lookups == 0 ? -1 : (double) hits / lookups;
+        }
+    }
+}
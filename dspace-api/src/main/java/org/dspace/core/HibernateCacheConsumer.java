@@ -0,0 +1,86 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import org.apache.log4j.Logger;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Consumer dropping the cached query results of the {@link HibernateCache}
+ * regions depending on the objects changed by a transaction: the policies of
+ * communities and collections when one of them changes, and the handles
+ * when an object is deleted.
+ * <P>
+ * Hibernate already invalidates the query regions whenever it writes to a
+ * table they depend on; this consumer drops them as well when the objects
+ * change, whatever way the change was written (for instance by native SQL
+ * statements). It must be called synchronously.
+ */
+public class HibernateCacheConsumer implements Consumer
+{
+    private static final Logger log = Logger.getLogger(HibernateCacheConsumer.class);
+
+    /** Whether a community or collection changed in the current transaction */
+    private boolean containersChanged = false;
+
+    /** Whether an object was deleted in the current transaction */
+    private boolean objectsDeleted = false;
+
+    @Override
+    public void initialize() throws Exception
+    {
+
+    }
+
+    @Override
+    public void consume(Context ctx, Event event) throws Exception
+    {
+        int type = event.getSubjectType();
+        if (type == Constants.COMMUNITY || type == Constants.COLLECTION)
+        {
+            containersChanged = true;
+        }
+        if (event.getEventType() == Event.DELETE)
+        {
+            objectsDeleted = true;
+        }
+    }
+
+    @Override
+    public void end(Context ctx) throws Exception
+    {
+        try
+        {
+            if (containersChanged)
+            {
+                HibernateCache.evictQueries(ctx, HibernateCache.AUTHORIZE_QUERIES);
+            }
+            if (objectsDeleted)
+            {
+                HibernateCache.evictQueries(ctx, HibernateCache.HANDLE_QUERIES);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // The cached results expire anyway, do not fail the transaction
+            log.error("Could not evict the cached query results", e);
+        }
+        finally
+        {
+            containersChanged = false;
+            objectsDeleted = false;
+        }
+    }
+
+    @Override
+    public void finish(Context ctx) throws Exception
+    {
+
+    }
+}
@@ -7,6 +7,7 @@
  */
 package org.dspace.core;
 
+import org.apache.log4j.Logger;
 import org.dspace.content.DSpaceObject;
 import org.dspace.storage.rdbms.DatabaseConfigVO;
 import org.hibernate.FlushMode;
@@ -20,6 +21,8 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.orm.hibernate4.SessionFactoryUtils;
 
 import javax.sql.DataSource;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
 import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -32,6 +35,8 @@ import java.sql.SQLException;
  */
 public class HibernateDBConnection implements DBConnection<Session> {
 
+    private static final Logger log = Logger.getLogger(HibernateDBConnection.class);
+
     @Autowired(required = true)
     @Qualifier("sessionFactory")
     private SessionFactory sessionFactory;
@@ -86,6 +91,27 @@ public class HibernateDBConnection implements DBConnection<Session> {
         }
     }
 
+    @Override
+    public void afterCommit(final Runnable task) throws SQLException {
+        getSession().getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        // the transaction is committed anyway
+                        log.error("Task run after commit failed", e);
+                    }
+                }
+            }
+        });
+    }
+
     @Override
     public synchronized void shutdown() {
         sessionFactory.close();
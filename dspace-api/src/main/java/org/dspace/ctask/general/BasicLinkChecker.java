@@ -7,16 +7,14 @@
  */
 package org.dspace.ctask.general;
 
-import org.apache.log4j.Logger;
 import org.dspace.content.MetadataValue;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.curate.AbstractCurationTask;
+import org.dspace.curate.Concurrent;
 import org.dspace.curate.Curator;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,22 +26,15 @@ import java.util.List;
  * This link checker can be enhanced by extending this class, and overriding the
  * getURLs and checkURL methods.
  *
+ * The links of an item are checked concurrently, and results are cached,
+ * by the shared {@link LinkChecker}.
+ *
  * @author Stuart Lewis
  */
-
+@Concurrent
 public class BasicLinkChecker extends AbstractCurationTask
 {
 
-    // The status of the link checking of this item
-    private int status = Curator.CURATE_UNSET;
-
-    // The results of link checking this item
-    private List<String> results = null;
-
-    // The log4j logger for this class
-    private static Logger log = Logger.getLogger(BasicLinkChecker.class);
-
-
     /**
      * Perform the link checking.
      *
@@ -58,7 +49,7 @@ public class BasicLinkChecker extends AbstractCurationTask
         StringBuilder results = new StringBuilder();
 
         // Unless this is  an item, we'll skip this item
-        status = Curator.CURATE_SKIP;
+        int status = Curator.CURATE_SKIP;
         if (dso instanceof Item)
         {
             Item item = (Item)dso;
@@ -70,6 +61,9 @@ public class BasicLinkChecker extends AbstractCurationTask
             status = Curator.CURATE_SKIP;
             results.append("Item: ").append(getItemHandle(item)).append("\n");
 
+            // Check all URLs of the item at once; checkURL then finds them cached
+            getLinkChecker().check(urls);
+
             // Check the URLs
             for (String url : urls)
             {
@@ -142,21 +136,17 @@ public class BasicLinkChecker extends AbstractCurationTask
      */
     protected int getResponseStatus(String url)
     {
-        try
-        {
-            URL theURL = new URL(url);
-            HttpURLConnection connection = (HttpURLConnection)theURL.openConnection();
-            int code = connection.getResponseCode();
-            connection.disconnect();
-
-            return code;
+        return getLinkChecker().check(url);
+    }
 
-        } catch (IOException ioe)
-        {
-            // Must be a bad URL
-            log.debug("Bad link: " + ioe.getMessage());
-            return 0;
-        }
+    /**
+     * Get the engine checking the links.
+     *
+     * @return the shared link checker
+     */
+    protected LinkChecker getLinkChecker()
+    {
+        return LinkChecker.getInstance();
     }
 
     /**
@@ -0,0 +1,528 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.ctask.general;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * Shared engine checking the HTTP status of links, used by the link
+ * checking curation tasks.
+ * <p>
+ * URLs are checked by a bounded pool of threads, with at most a few
+ * requests to the same host at a time.  The URLs of a host which is busy
+ * wait in a queue of that host, not in a thread of the pool, so a slow
+ * host cannot hold up the checks of the other hosts.  Each check sends a HEAD request
+ * and falls back to GET if the server fails or rejects it.  All requests
+ * have connect and read timeouts.  Results are cached by URL, both in
+ * memory and in a file which survives restarts, for a configurable time
+ * (shorter for failures), and a URL which is being checked is never
+ * requested a second time concurrently.
+ * <p>
+ * Configuration (in curate.cfg):
+ * <pre>
+ *   curate.linkchecker.threads = 16             # concurrent requests in total
+ *   curate.linkchecker.host-concurrency = 2     # concurrent requests per host
+ *   curate.linkchecker.connect-timeout = 10000  # milliseconds
+ *   curate.linkchecker.read-timeout = 20000     # milliseconds
+ *   curate.linkchecker.cache.ttl = 604800       # seconds to keep successful results
+ *   curate.linkchecker.cache.failure-ttl = 86400 # seconds to keep failed results
+ *   curate.linkchecker.cache.file = ${dspace.dir}/var/linkchecker.cache
+ * </pre>
+ */
+public class LinkChecker
+{
+    // The log4j logger for this class
+    private static final Logger log = Logger.getLogger(LinkChecker.class);
+
+    private static final String USER_AGENT = "DSpace Link Checker";
+
+    // write the cache file after this many new results at the latest
+    private static final int FLUSH_THRESHOLD = 1000;
+
+    private static LinkChecker instance = null;
+
+    private final ExecutorService executor;
+    private final int hostConcurrency;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final long ttl;
+    private final long failureTtl;
+    private final File cacheFile;
+
+    private final ConcurrentMap<String, Result> cache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Future<Result>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+    private final AtomicInteger unsaved = new AtomicInteger();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    /**
+     * @return the link checker of this JVM, configured from curate.cfg.
+     */
+    public static synchronized LinkChecker getInstance()
+    {
+        if (instance == null)
+        {
+            ConfigurationService config = DSpaceServicesFactory.getInstance().getConfigurationService();
+            String cachePath = config.getProperty("curate.linkchecker.cache.file",
+                    config.getProperty("dspace.dir") + File.separator + "var" + File.separator + "linkchecker.cache");
+            instance = new LinkChecker(
+                    config.getIntProperty("curate.linkchecker.threads", 16),
+                    config.getIntProperty("curate.linkchecker.host-concurrency", 2),
+                    config.getIntProperty("curate.linkchecker.connect-timeout", 10000),
+                    config.getIntProperty("curate.linkchecker.read-timeout", 20000),
+                    config.getLongProperty("curate.linkchecker.cache.ttl", 604800L) * 1000L,
+                    config.getLongProperty("curate.linkchecker.cache.failure-ttl", 86400L) * 1000L,
+                    new File(cachePath));
+            Runtime.getRuntime().addShutdownHook(new Thread("linkchecker-cache")
+            {
+                @Override
+                public void run()
+                {
+                    instance.flush();
+                }
+            });
+        }
+        return instance;
+    }
+
+    /**
+     * Create a link checker.
+     *
+     * @param threads maximum number of concurrent requests
+     * @param hostConcurrency maximum number of concurrent requests to one host
+     * @param connectTimeout connect timeout in milliseconds
+     * @param readTimeout read timeout in milliseconds
+     * @param ttl milliseconds to keep a successful (2xx) result
+     * @param failureTtl milliseconds to keep any other result
+     * @param cacheFile file keeping the results, or null to keep them in memory only
+     */
+    public LinkChecker(int threads, int hostConcurrency, int connectTimeout, int readTimeout,
+                       long ttl, long failureTtl, File cacheFile)
+    {
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "linkchecker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.hostConcurrency = Math.max(1, hostConcurrency);
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.ttl = ttl;
+        this.failureTtl = failureTtl;
+        this.cacheFile = cacheFile;
+        load();
+    }
+
+    /**
+     * Check a batch of URLs concurrently.
+     *
+     * @param urls the URLs to check
+     * @return the HTTP status of every URL, in the given order; 0 if the
+     *         URL could not be opened
+     */
+    public Map<String, Integer> check(Collection<String> urls)
+    {
+        Map<String, Future<Result>> pending = new LinkedHashMap<>();
+        Map<String, Integer> statuses = new LinkedHashMap<>();
+        for (String url : new LinkedHashSet<>(urls))
+        {
+            Result cached = getCached(url);
+            if (cached != null)
+            {
+                statuses.put(url, cached.status);
+            }
+            else
+            {
+                statuses.put(url, null);
+                pending.put(url, submit(url));
+            }
+        }
+        for (Map.Entry<String, Future<Result>> entry : pending.entrySet())
+        {
+            statuses.put(entry.getKey(), await(entry.getKey(), entry.getValue()));
+        }
+        if (unsaved.get() >= FLUSH_THRESHOLD)
+        {
+            flush();
+        }
+        return statuses;
+    }
+
+    /**
+     * Check a single URL.
+     *
+     * @param url the URL to check
+     * @return the HTTP status; 0 if the URL could not be opened
+     */
+    public int check(String url)
+    {
+        Result cached = getCached(url);
+        return (cached != null) ? cached.status : await(url, submit(url));
+    }
+
+    /**
+     * Write the cached results to the cache file.
+     */
+    public synchronized void flush()
+    {
+        if (cacheFile == null || unsaved.get() == 0)
+        {
+            return;
+        }
+        unsaved.set(0);
+        File parent = cacheFile.getAbsoluteFile().getParentFile();
+        File tmp = new File(parent, cacheFile.getName() + ".tmp");
+        try
+        {
+            if (!parent.exists() && !parent.mkdirs())
+            {
+                throw new IOException("Unable to create " + parent);
+            }
+            long now = System.currentTimeMillis();
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8")))
+            {
+                for (Map.Entry<String, Result> entry : cache.entrySet())
+                {
+                    Result result = entry.getValue();
+                    if (result.expires > now)
+                    {
+                        writer.write(result.expires + "\t" + result.status + "\t" + entry.getKey());
+                        writer.newLine();
+                    }
+                }
+            }
+            if (!tmp.renameTo(cacheFile))
+            {
+                // Windows does not replace existing files
+                if (!cacheFile.delete() || !tmp.renameTo(cacheFile))
+                {
+                    throw new IOException("Unable to replace " + cacheFile);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            log.error("Unable to write link checker cache: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stop the request threads and write the cache file.
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+        flush();
+    }
+
+    /**
+     * @return number of HTTP requests sent so far.
+     */
+    public long getRequests()
+    {
+        return requests.get();
+    }
+
+    /**
+     * @return number of URLs answered from the cache so far.
+     */
+    public long getCacheHits()
+    {
+        return cacheHits.get();
+    }
+
+    protected Result getCached(String url)
+    {
+        Result result = cache.get(url);
+        if (result != null)
+        {
+            if (result.expires > System.currentTimeMillis())
+            {
+                cacheHits.incrementAndGet();
+                return result;
+            }
+            cache.remove(url, result);
+        }
+        return null;
+    }
+
+    protected Future<Result> submit(final String url)
+    {
+        final Host host = getHost(url);
+        FutureTask<Result> task = new FutureTask<>(new Callable<Result>()
+        {
+            @Override
+            public Result call()
+            {
+                try
+                {
+                    int status = request(url);
+                    long expires = System.currentTimeMillis()
+                            + ((status >= 200 && status < 300) ? ttl : failureTtl);
+                    Result result = new Result(status, expires);
+                    cache.put(url, result);
+                    unsaved.incrementAndGet();
+                    return result;
+                }
+                finally
+                {
+                    inFlight.remove(url);
+                    if (host != null)
+                    {
+                        release(host);
+                    }
+                }
+            }
+        });
+        Future<Result> other = inFlight.putIfAbsent(url, task);
+        if (other != null)
+        {
+            // another thread is checking the same URL already
+            return other;
+        }
+        if (host == null || acquire(host, task))
+        {
+            executor.execute(task);
+        }
+        return task;
+    }
+
+    /**
+     * @return the requests to the host of a URL, or null if the URL is
+     *         malformed (it is rejected without any request).
+     */
+    protected Host getHost(String url)
+    {
+        String name;
+        try
+        {
+            name = new URL(url).getHost();
+        }
+        catch (MalformedURLException e)
+        {
+            return null;
+        }
+        Host host = hosts.get(name);
+        if (host == null)
+        {
+            Host created = new Host();
+            host = hosts.putIfAbsent(name, created);
+            if (host == null)
+            {
+                host = created;
+            }
+        }
+        return host;
+    }
+
+    /**
+     * Take a request slot of a host for a task, or queue the task until a
+     * slot is released if the host is busy.
+     *
+     * @return true if the task got a slot and may be executed now
+     */
+    protected boolean acquire(Host host, Runnable task)
+    {
+        synchronized (host)
+        {
+            if (host.running < hostConcurrency)
+            {
+                host.running++;
+                return true;
+            }
+            host.waiting.add(task);
+            return false;
+        }
+    }
+
+    /**
+     * Hand the request slot of a finished task to the next task waiting for
+     * the host, or free it if none is waiting.
+     */
+    protected void release(Host host)
+    {
+        Runnable next;
+        synchronized (host)
+        {
+            next = host.waiting.poll();
+            if (next == null)
+            {
+                host.running--;
+            }
+        }
+        if (next != null)
+        {
+            executor.execute(next);
+        }
+    }
+
+    protected int await(String url, Future<Result> future)
+    {
+        try
+        {
+            return future.get().status;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+        catch (ExecutionException e)
+        {
+            log.warn("Unable to check " + url + ": " + e.getCause());
+            return 0;
+        }
+    }
+
+    /**
+     * Send HEAD, then GET if HEAD fails or is rejected.  The caller holds a
+     * request slot of the host.
+     */
+    protected int request(String url)
+    {
+        URL theURL;
+        try
+        {
+            theURL = new URL(url);
+        }
+        catch (MalformedURLException e)
+        {
+            log.debug("Bad link: " + e.getMessage());
+            return 0;
+        }
+
+        int status = request(theURL, "HEAD");
+        if (status == 0 || status >= 400)
+        {
+            status = request(theURL, "GET");
+        }
+        return status;
+    }
+
+    protected int request(URL url, String method)
+    {
+        requests.incrementAndGet();
+        HttpURLConnection connection = null;
+        try
+        {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+            return connection.getResponseCode();
+        }
+        catch (IOException ioe)
+        {
+            // Must be a bad URL
+            log.debug("Bad link: " + ioe.getMessage());
+            return 0;
+        }
+        finally
+        {
+            if (connection != null)
+            {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private void load()
+    {
+        if (cacheFile == null || !cacheFile.exists())
+        {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), "UTF-8")))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                String[] fields = line.split("\t", 3);
+                if (fields.length == 3)
+                {
+                    long expires = Long.parseLong(fields[0]);
+                    if (expires > now)
+                    {
+                        cache.put(fields[2], new Result(Integer.parseInt(fields[1]), expires));
+                    }
+                }
+            }
+            log.info("Loaded " + cache.size() + " link check results from " + cacheFile);
+        }
+        catch (IOException | NumberFormatException e)
+        {
+            log.error("Unable to read link checker cache " + cacheFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The requests running and waiting for one host.
+     */
+    protected static class Host
+    {
+        int running = 0;
+        final Queue<Runnable> waiting = new ArrayDeque<>();
+    }
+
+    /**
+     * A cached check result.
+     */
+    protected static class Result
+    {
+        final int status;
+        final long expires;
+
+        Result(int status, long expires)
+        {
+            this.status = status;
+            this.expires = expires;
+        }
+    }
+}
@@ -9,6 +9,7 @@ package org.dspace.ctask.general;
 
 import org.dspace.content.MetadataValue;
 import org.dspace.content.Item;
+import org.dspace.curate.Concurrent;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -21,6 +22,7 @@ import java.util.List;
  *
  * @author Stuart Lewis
  */
+@Concurrent
 public class MetadataValueLinkChecker extends BasicLinkChecker {
 
     @Override
@@ -9,9 +9,9 @@ package org.dspace.ctask.general;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.dspace.app.util.DCInput;
 import org.dspace.app.util.DCInputSet;
@@ -22,6 +22,7 @@ import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.core.Constants;
 import org.dspace.curate.AbstractCurationTask;
+import org.dspace.curate.Concurrent;
 import org.dspace.curate.Curator;
 import org.dspace.curate.Suspendable;
 
@@ -34,12 +35,13 @@ import org.dspace.curate.Suspendable;
  * @author richardrodgers
  */
 @Suspendable
+@Concurrent
 public class RequiredMetadata extends AbstractCurationTask
 {
     // map of DCInputSets
     protected DCInputsReader reader = null;
     // map of required fields
-    protected Map<String, List<String>> reqMap = new HashMap<String, List<String>>();
+    protected Map<String, List<String>> reqMap = new ConcurrentHashMap<String, List<String>>();
     
     @Override 
     public void init(Curator curator, String taskId) throws IOException
@@ -117,7 +119,12 @@ public class RequiredMetadata extends AbstractCurationTask
         if (reqList == null)
         {
             reqList = new ArrayList<String>();
-            DCInputSet inputs = reader.getInputs(handle);
+            DCInputSet inputs;
+            // the reader caches its last input set, so is not thread-safe
+            synchronized (reader)
+            {
+                inputs = reader.getInputs(handle);
+            }
             for (int i = 0; i < inputs.getNumberPages(); i++)
             {
                 for (DCInput input : inputs.getPageRows(i, true, true))
@@ -0,0 +1,26 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Annotation type for CurationTasks. A task is concurrent if one instance
+ * may perform it on different objects from several threads at the same
+ * time. Such tasks may be run over the items of a container by a pool
+ * of workers, each using its own Context.
+ *
+ * @see Curator#setParallelism(int)
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Concurrent
+{
+}
@@ -10,6 +10,7 @@ package org.dspace.curate;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.util.Iterator;
+import java.util.Set;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -53,6 +54,8 @@ public class CurationCli
                 "reporter to manage results - use '-' to report to console. If absent, no reporting");
         options.addOption("s", "scope", true,
                 "transaction scope to impose: use 'object', 'curation', or 'open'. If absent, 'open' applies");
+        options.addOption("p", "parallel", true,
+                "number of worker threads for tasks which support concurrent curation. If absent, 'curate.parallel.workers' applies");
         options.addOption("v", "verbose", false,
                 "report activity to stdout");
         options.addOption("h", "help", false, "help");
@@ -66,6 +69,7 @@ public class CurationCli
         String ePersonName = null;
         String reporterName = null;
         String scope = null;
+        int workers = 0;
         boolean verbose = false;
 
         if (line.hasOption('h'))
@@ -117,6 +121,11 @@ public class CurationCli
             scope = line.getOptionValue('s');
         }
 
+        if (line.hasOption('p'))
+        { // worker threads
+            workers = Integer.parseInt(line.getOptionValue('p'));
+        }
+
         if (line.hasOption('v'))
         { // verbose
             verbose = true;
@@ -168,6 +177,10 @@ public class CurationCli
         	Curator.TxScope txScope = Curator.TxScope.valueOf(scope.toUpperCase());
         	curator.setTransactionScope(txScope);
         }
+        if (workers > 0)
+        {
+            curator.setParallelism(workers);
+        }
         // we are operating in batch mode, if anyone cares.
         curator.setInvoked(Curator.Invoked.BATCH);
         // load curation tasks
@@ -238,38 +251,67 @@ public class CurationCli
                 System.out.println("No implementation configured for queue");
                 throw new UnsupportedOperationException("No queue service available");
             }
-            // use current time as our reader 'ticket'
+            // use current time as our reader 'ticket', and process batches
+            // until the queue is empty (queues may hand out a batch at a time)
             long ticket = System.currentTimeMillis();
-            Iterator<TaskQueueEntry> entryIter = queue.dequeue(taskQueueName, ticket).iterator();
-            while (entryIter.hasNext())
+            long entries = 0;
+            while (true)
             {
-                TaskQueueEntry entry = entryIter.next();
-                if (verbose)
+                Set<TaskQueueEntry> entrySet = queue.dequeue(taskQueueName, ticket);
+                // every dequeue must be released, even an empty one, which
+                // holds the read ticket (and the queue lock) all the same;
+                // unprocessed entries are handed back to the queue
+                boolean processed = false;
+                try
                 {
-                    System.out.println("Curating id: " + entry.getObjectId());
-                }
-                curator.clear();
-                // does entry relate to a DSO or workflow object?
-                if (entry.getObjectId().indexOf("/") > 0)
-                {
-                    for (String task : entry.getTaskNames())
+                    Iterator<TaskQueueEntry> entryIter = entrySet.iterator();
+                    while (entryIter.hasNext())
                     {
-                        curator.addTask(task);
+                        TaskQueueEntry entry = entryIter.next();
+                        if (verbose)
+                        {
+                            System.out.println("Curating id: " + entry.getObjectId());
+                        }
+                        curator.clear();
+                        // does entry relate to a DSO or workflow object?
+                        if (entry.getObjectId().indexOf("/") > 0)
+                        {
+                            for (String task : entry.getTaskNames())
+                            {
+                                curator.addTask(task);
+                            }
+                            curator.curate(c, entry.getObjectId());
+                        }
+                        else
+                        {
+                            // make eperson who queued task the effective user
+                            EPerson agent = ePersonService.findByEmail(c, entry.getEpersonId());
+                            if (agent != null)
+                            {
+                                c.setCurrentUser(agent);
+                            }
+                            CurateServiceFactory.getInstance().getWorkflowCuratorService().curate(curator, c, entry.getObjectId());
+                        }
                     }
-                    curator.curate(c, entry.getObjectId());
+                    processed = true;
                 }
-                else
+                finally
                 {
-                    // make eperson who queued task the effective user
-                    EPerson agent = ePersonService.findByEmail(c, entry.getEpersonId());
-                    if (agent != null)
-                    {
-                        c.setCurrentUser(agent);
-                    }
-                    CurateServiceFactory.getInstance().getWorkflowCuratorService().curate(curator, c, entry.getObjectId());
+                    queue.release(taskQueueName, ticket, processed);
+                }
+                if (entrySet.isEmpty())
+                {
+                    break;
                 }
+                entries += entrySet.size();
+                ticket++;
+            }
+            if (verbose)
+            {
+                long elapsed = Math.max(1, System.currentTimeMillis() - start);
+                System.out.println("Processed " + entries + " queue entries ("
+                        + String.format("%.2f", entries * 1000.0 / elapsed) + " entries/s)");
             }
-            queue.release(taskQueueName, ticket, true);
         }
         c.complete();
         if (verbose)
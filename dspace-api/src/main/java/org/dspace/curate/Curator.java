@@ -10,6 +10,10 @@ package org.dspace.curate;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
@@ -21,8 +25,12 @@ import org.dspace.content.service.ItemService;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.core.factory.CoreServiceFactory;
+import org.dspace.eperson.EPerson;
+import org.dspace.eperson.Group;
+import org.dspace.eperson.factory.EPersonServiceFactory;
 import org.dspace.handle.factory.HandleServiceFactory;
 import org.dspace.handle.service.HandleService;
+import org.dspace.services.factory.DSpaceServicesFactory;
 
 /**
  * Curator orchestrates and manages the application of a one or more curation
@@ -63,6 +71,7 @@ public class Curator
     protected Invoked iMode = null;
     protected TaskResolver resolver = new TaskResolver();
     protected TxScope txScope = TxScope.OPEN;
+    protected int parallelism = 1;
     protected CommunityService communityService;
     protected ItemService itemService;
     protected HandleService handleService;
@@ -75,6 +84,8 @@ public class Curator
         communityService = ContentServiceFactory.getInstance().getCommunityService();
         itemService = ContentServiceFactory.getInstance().getItemService();
         handleService = HandleServiceFactory.getInstance().getHandleService();
+        parallelism = Math.max(1, DSpaceServicesFactory.getInstance().getConfigurationService()
+                .getIntProperty("curate.parallel.workers", 1));
     }
 
     /**
@@ -173,6 +184,23 @@ public class Curator
     	return this;
     }
 
+    /**
+     * Sets the number of worker threads used to perform tasks marked
+     * <code>@Concurrent</code> upon the items of a Site, Community or
+     * Collection. Each worker uses its own Context in batch mode, and
+     * applies the transaction scope to its own work. A value of 1 (the
+     * default, unless configured by 'curate.parallel.workers') performs all
+     * tasks on the calling thread.
+     * 
+     * @param workers number of worker threads
+     * @return the Curator instance
+     */
+    public Curator setParallelism(int workers)
+    {
+        parallelism = Math.max(1, workers);
+        return this;
+    }
+
     /**
      * Performs all configured tasks upon object identified by id. If
      * the object can be resolved as a handle, the DSO will be the
@@ -251,6 +279,11 @@ public class Curator
             {
                 tr.run(dso);
             }
+            else if (parallelism > 1 && tr.task.isConcurrent()
+                     && (type == Constants.SITE || isContainer(dso)))
+            {
+                doParallel(tr, dso);
+            }
             else if (type == Constants.COLLECTION)
             {
                 doCollection(tr, (Collection)dso);
@@ -277,6 +310,23 @@ public class Curator
      * @throws IOException if IO error
      */
     public void queue(Context c, String id, String queueId) throws IOException
+    {
+        queue(c, id, queueId, 0);
+    }
+
+    /**
+     * Places a curation request for the object identified by id on a
+     * managed queue named by the queueId, with a priority.
+     * 
+     * @param c A DSpace context
+     * @param id an object Id
+     * @param queueId name of a queue. If queue does not exist, it will
+     *                be created automatically.
+     * @param priority entries with a higher priority are processed first,
+     *                 if the queue implementation supports priorities.
+     * @throws IOException if IO error
+     */
+    public void queue(Context c, String id, String queueId, int priority) throws IOException
     {
         if (taskQ == null)
         {
@@ -285,7 +335,7 @@ public class Curator
         if (taskQ != null)
         {
             taskQ.enqueue(queueId, new TaskQueueEntry(c.getCurrentUser().getName(),
-                                    System.currentTimeMillis(), perfList, id));
+                                    System.currentTimeMillis(), perfList, id, priority));
         }
         else
         {
@@ -328,6 +378,20 @@ public class Curator
         return (tr != null) ? tr.statusCode : CURATE_NOTASK;
     }
 
+    /**
+     * Returns the number of objects per status code for the latest parallel
+     * performance of the named task.
+     * 
+     * @param taskName the task name
+     * @return map of status codes to counts, empty unless the task was
+     *         performed in parallel.
+     */
+    public Map<Integer, Long> getStatusCounts(String taskName)
+    {
+        TaskRunner tr = trMap.get(taskName);
+        return (tr != null) ? tr.statusCounts : Collections.<Integer, Long>emptyMap();
+    }
+
     /**
      * Returns the result string for the latest performance of the named task.
      * 
@@ -499,6 +563,88 @@ public class Curator
         return true;
     }
     
+    /**
+     * Run task for a Site, Community or Collection with a pool of workers.
+     * The containers are visited on the calling thread, while their items
+     * are handed to the workers.
+     * @param tr TaskRunner
+     * @param dso Site, Community or Collection
+     * @return true if successful, false otherwise
+     * @throws IOException if IO error
+     */
+    protected boolean doParallel(TaskRunner tr, DSpaceObject dso) throws IOException
+    {
+        ParallelRun run = new ParallelRun(tr);
+        boolean completed = false;
+        try
+        {
+            Context ctx = curationContext();
+            run.start(ctx);
+            completed = feed(run, ctx, dso);
+        }
+        catch (SQLException sqlE)
+        {
+            throw new IOException(sqlE.getMessage(), sqlE);
+        }
+        finally
+        {
+            completed = run.finish() && completed;
+        }
+        return completed;
+    }
+
+    /**
+     * Visit a container and hand its items to the workers.
+     */
+    protected boolean feed(ParallelRun run, Context ctx, DSpaceObject dso) throws SQLException, IOException
+    {
+        if (run.stopped() || ! run.tr.run(dso))
+        {
+            return false;
+        }
+        int type = dso.getType();
+        if (type == Constants.SITE)
+        {
+            for (Community comm : communityService.findAllTop(ctx))
+            {
+                if (! feed(run, ctx, comm))
+                {
+                    return false;
+                }
+            }
+        }
+        else if (type == Constants.COMMUNITY)
+        {
+            Community comm = (Community) dso;
+            for (Community subcomm : comm.getSubcommunities())
+            {
+                if (! feed(run, ctx, subcomm))
+                {
+                    return false;
+                }
+            }
+            for (Collection coll : comm.getCollections())
+            {
+                if (! feed(run, ctx, coll))
+                {
+                    return false;
+                }
+            }
+        }
+        else if (type == Constants.COLLECTION)
+        {
+            Iterator<Item> iter = itemService.findByCollection(ctx, (Collection) dso);
+            while (iter.hasNext())
+            {
+                if (! run.submit(iter.next().getID()))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Record a 'visit' to a DSpace object and enforce any policies set
      * on this curator.
@@ -519,7 +665,10 @@ public class Curator
     {
         ResolvedTask task = null;
         int statusCode = CURATE_UNSET;
-        String result = null;
+        volatile String result = null;
+        /** The result set by the current thread, for the workers of a parallel performance */
+        final ThreadLocal<String> threadResult = new ThreadLocal<String>();
+        Map<Integer, Long> statusCounts = Collections.emptyMap();
 
         public TaskRunner(ResolvedTask task)
         {
@@ -535,8 +684,7 @@ public class Curator
                     throw new IOException("DSpaceObject is null");
                 }
                 statusCode = task.perform(dso);
-                String id = (dso.getHandle() != null) ? dso.getHandle() : "workflow item: " + dso.getID();
-                log.info(logMessage(id));
+                log.info(logMessage(objectId(dso)));
                 visit(dso);
                 return ! suspend(statusCode);
             }
@@ -572,6 +720,7 @@ public class Curator
         public void setResult(String result)
         {
             this.result = result;
+            threadResult.set(result);
         }
         
         protected boolean suspend(int code)
@@ -596,16 +745,273 @@ public class Curator
          * @return log message text
          */
         protected String logMessage(String id)
+        {
+            return logMessage(id, statusCode, result);
+        }
+
+        protected String logMessage(String id, int status, String res)
         {
             StringBuilder mb = new StringBuilder();
             mb.append("Curation task: ").append(task.getName()).
                append(" performed on: ").append(id).
-               append(" with status: ").append(statusCode);
-            if (result != null)
+               append(" with status: ").append(status);
+            if (res != null)
             {
-                mb.append(". Result: '").append(result).append("'");
+                mb.append(". Result: '").append(res).append("'");
             }
             return mb.toString();
         }
+
+        protected String objectId(DSpaceObject dso)
+        {
+            return (dso.getHandle() != null) ? dso.getHandle() : "workflow item: " + dso.getID();
+        }
+    }
+
+    /**
+     * One parallel performance of a task: a bounded queue of item ids,
+     * filled by the calling thread and drained by the workers.
+     */
+    protected class ParallelRun
+    {
+        protected final TaskRunner tr;
+        protected final BlockingQueue<UUID> itemIds = new ArrayBlockingQueue<UUID>(parallelism * 100);
+        protected final List<Thread> workers = new ArrayList<Thread>();
+        protected final Map<Integer, AtomicLong> counts = new TreeMap<Integer, AtomicLong>();
+        protected volatile boolean fed = false;
+        protected volatile boolean stop = false;
+        protected volatile IOException failure = null;
+        protected long start;
+
+        protected ParallelRun(TaskRunner tr)
+        {
+            this.tr = tr;
+            for (int code : new int[] { CURATE_ERROR, CURATE_SUCCESS, CURATE_FAIL, CURATE_SKIP })
+            {
+                counts.put(code, new AtomicLong());
+            }
+        }
+
+        /**
+         * Start the workers, acting as the current user of the given context.
+         */
+        protected void start(Context ctx) throws SQLException
+        {
+            start = System.currentTimeMillis();
+            final EPerson user = ctx.getCurrentUser();
+            final boolean ignoreAuth = ctx.ignoreAuthorization();
+            final List<UUID> specialGroups = new ArrayList<UUID>();
+            for (Group group : ctx.getSpecialGroups())
+            {
+                specialGroups.add(group.getID());
+            }
+            for (int i = 0; i < parallelism; i++)
+            {
+                Thread worker = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        work(user == null ? null : user.getID(), ignoreAuth, specialGroups);
+                    }
+                }, "curate-" + tr.task.getName() + "-" + i);
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        /**
+         * Hand an item to the workers, waiting while they are busy.
+         * @return false if the performance was stopped
+         */
+        protected boolean submit(UUID itemId) throws IOException
+        {
+            try
+            {
+                while (! stop)
+                {
+                    if (itemIds.offer(itemId, 1, TimeUnit.SECONDS))
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                stop = true;
+                throw new IOException("Interrupted while curating with task '" + tr.task.getName() + "'", e);
+            }
+        }
+
+        protected boolean stopped()
+        {
+            return stop;
+        }
+
+        /**
+         * Wait for the workers to process all submitted items, and record
+         * the aggregated status and result.
+         * @return false if a task suspended the performance
+         */
+        protected boolean finish() throws IOException
+        {
+            fed = true;
+            for (Thread worker : workers)
+            {
+                try
+                {
+                    worker.join();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    stop = true;
+                }
+            }
+
+            Map<Integer, Long> totals = new TreeMap<Integer, Long>();
+            long items = 0;
+            for (Map.Entry<Integer, AtomicLong> entry : counts.entrySet())
+            {
+                totals.put(entry.getKey(), entry.getValue().get());
+                items += entry.getValue().get();
+            }
+            tr.statusCounts = Collections.unmodifiableMap(totals);
+            // the most severe status of all items stands for the whole performance
+            if (totals.get(CURATE_ERROR) > 0)
+            {
+                tr.statusCode = CURATE_ERROR;
+            }
+            else if (totals.get(CURATE_FAIL) > 0)
+            {
+                tr.statusCode = CURATE_FAIL;
+            }
+            else if (totals.get(CURATE_SUCCESS) > 0)
+            {
+                tr.statusCode = CURATE_SUCCESS;
+            }
+            tr.result = items + " items: " + totals.get(CURATE_SUCCESS) + " success, "
+                    + totals.get(CURATE_FAIL) + " fail, " + totals.get(CURATE_SKIP) + " skip, "
+                    + totals.get(CURATE_ERROR) + " error";
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            log.info("Curation task: " + tr.task.getName() + " performed in parallel by " + workers.size()
+                    + " workers on " + tr.result + " in " + elapsed + " ms ("
+                    + String.format("%.2f", items * 1000.0 / elapsed) + " items/s)");
+
+            if (failure != null)
+            {
+                throw failure;
+            }
+            return ! stop;
+        }
+
+        /**
+         * Worker loop: perform the task on queued items with a Context of
+         * its own, committing according to the transaction scope.
+         */
+        protected void work(UUID userId, boolean ignoreAuth, List<UUID> specialGroups)
+        {
+            Context wctx = null;
+            int sinceClear = 0;
+            try
+            {
+                wctx = new Context();
+                if (userId != null)
+                {
+                    wctx.setCurrentUser(EPersonServiceFactory.getInstance().getEPersonService().find(wctx, userId));
+                }
+                if (ignoreAuth)
+                {
+                    wctx.turnOffAuthorisationSystem();
+                }
+                for (UUID groupId : specialGroups)
+                {
+                    wctx.setSpecialGroup(groupId);
+                }
+                wctx.enableBatchMode(true);
+                curationCtx.set(wctx);
+
+                while (! stop)
+                {
+                    UUID itemId = itemIds.poll(100, TimeUnit.MILLISECONDS);
+                    if (itemId == null)
+                    {
+                        if (fed && itemIds.isEmpty())
+                        {
+                            break;
+                        }
+                        continue;
+                    }
+                    Item item = itemService.find(wctx, itemId);
+                    if (item == null)
+                    {
+                        continue;
+                    }
+                    int status;
+                    // the shared result is written by all workers: log the one of this item
+                    tr.threadResult.remove();
+                    try
+                    {
+                        status = tr.task.perform(item);
+                    }
+                    catch (IOException ioe)
+                    {
+                        log.error("Error executing curation task '" + tr.task.getName() + "'", ioe);
+                        counts.get(CURATE_ERROR).incrementAndGet();
+                        throw ioe;
+                    }
+                    log.info(tr.logMessage(tr.objectId(item), status, tr.threadResult.get()));
+                    AtomicLong count = counts.get(status);
+                    if (count != null)
+                    {
+                        count.incrementAndGet();
+                    }
+                    if (tr.suspend(status))
+                    {
+                        stop = true;
+                    }
+                    if (txScope.equals(TxScope.OBJECT))
+                    {
+                        wctx.commit();
+                    }
+                    // keep the worker's session small
+                    if (++sinceClear >= 100)
+                    {
+                        wctx.clearCache();
+                        sinceClear = 0;
+                    }
+                }
+                // commit this worker's work, also when the performance was suspended
+                wctx.complete();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                stop = true;
+            }
+            catch (IOException e)
+            {
+                failure = e;
+                stop = true;
+            }
+            catch (Exception e)
+            {
+                log.error("Error in curation worker for task '" + tr.task.getName() + "'", e);
+                failure = new IOException(e.getMessage(), e);
+                stop = true;
+            }
+            finally
+            {
+                curationCtx.remove();
+                tr.threadResult.remove();
+                if (wctx != null && wctx.isValid())
+                {
+                    wctx.abort();
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,308 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.core.Utils;
+import org.dspace.curate.factory.CurateServiceFactory;
+import org.dspace.curate.service.TaskQueueService;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * TaskQueue implementation keeping the queues in a database table.
+ * <p>
+ * Unlike {@link FileTaskQueue}, any number of readers may work on the same
+ * queue at the same time, also from different servers sharing the
+ * database: each call to {@link #dequeue} claims the next batch of entries
+ * which are not claimed by another reader, highest priority first.  A claim
+ * is a conditional UPDATE of the entry, so a reader never waits for locks
+ * held by another reader.  Claims expire after a visibility timeout, after
+ * which entries of a reader that died without releasing them are handed to
+ * other readers.
+ * <p>
+ * Queue operations run in short transactions of their own, independent of
+ * the transaction of the caller, so that claims are visible to other
+ * readers at once and survive a rollback of the curation work.
+ * <p>
+ * Configuration (in curate.cfg):
+ * <pre>
+ *   plugin.single.org.dspace.curate.TaskQueue = org.dspace.curate.DBTaskQueue
+ *   curate.taskqueue.db.batch-size = 50             # entries claimed per dequeue
+ *   curate.taskqueue.db.visibility-timeout = 3600   # seconds until a claim expires
+ * </pre>
+ */
+public class DBTaskQueue implements TaskQueue
+{
+    private static final Logger log = Logger.getLogger(DBTaskQueue.class);
+
+    /** Name of this JVM among all readers of the queues. */
+    private static final String instanceName = makeInstanceName();
+
+    /**
+     * Runs the queue operations.  Hibernate sessions are bound to threads,
+     * so a Context created on the caller's thread would share the caller's
+     * transaction.
+     */
+    private static final ExecutorService queueExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+    {
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread thread = new Thread(r, "curation-task-queue");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static final AtomicLong enqueued = new AtomicLong();
+    private static final AtomicLong dequeued = new AtomicLong();
+    private static final AtomicLong completed = new AtomicLong();
+    private static final AtomicLong returned = new AtomicLong();
+
+    // claims held by this reader, by ticket
+    protected Map<Long, Claim> claims = new ConcurrentHashMap<>();
+
+    protected int batchSize;
+    protected int visibilityTimeout;
+
+    public DBTaskQueue()
+    {
+        ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+        batchSize = Math.max(1, configurationService.getIntProperty("curate.taskqueue.db.batch-size", 50));
+        visibilityTimeout = Math.max(1, configurationService.getIntProperty("curate.taskqueue.db.visibility-timeout", 3600));
+    }
+
+    @Override
+    public String[] queueNames()
+    {
+        try
+        {
+            List<String> names = execute(new QueueOperation<List<String>>()
+            {
+                @Override
+                List<String> run(Context context, TaskQueueService taskQueueService) throws SQLException
+                {
+                    return taskQueueService.findQueueNames(context);
+                }
+            });
+            return names.toArray(new String[names.size()]);
+        }
+        catch (IOException e)
+        {
+            log.error("Unable to read curation task queue names", e);
+            return new String[0];
+        }
+    }
+
+    @Override
+    public void enqueue(String queueName, TaskQueueEntry entry)
+           throws IOException
+    {
+        enqueue(queueName, Collections.singleton(entry));
+    }
+
+    @Override
+    public void enqueue(final String queueName, final Set<TaskQueueEntry> entrySet)
+           throws IOException
+    {
+        execute(new QueueOperation<Void>()
+        {
+            @Override
+            Void run(Context context, TaskQueueService taskQueueService) throws SQLException
+            {
+                for (TaskQueueEntry entry : entrySet)
+                {
+                    taskQueueService.enqueue(context, queueName, entry);
+                }
+                return null;
+            }
+        });
+        enqueued.addAndGet(entrySet.size());
+    }
+
+    @Override
+    public Set<TaskQueueEntry> dequeue(final String queueName, long ticket)
+           throws IOException
+    {
+        Set<TaskQueueEntry> entrySet = new HashSet<TaskQueueEntry>();
+        final Claim claim = new Claim(instanceName + "-" + ticket);
+        if (claims.containsKey(ticket))
+        {
+            // this ticket has not been released yet
+            return entrySet;
+        }
+
+        List<QueuedTask> claimed = execute(new QueueOperation<List<QueuedTask>>()
+        {
+            @Override
+            List<QueuedTask> run(Context context, TaskQueueService taskQueueService) throws SQLException
+            {
+                return taskQueueService.claim(context, queueName, claim.owner, batchSize, visibilityTimeout);
+            }
+        });
+        for (QueuedTask queuedTask : claimed)
+        {
+            entrySet.add(queuedTask.getEntry());
+        }
+        if (!entrySet.isEmpty())
+        {
+            claims.put(ticket, claim);
+            dequeued.addAndGet(entrySet.size());
+        }
+        return entrySet;
+    }
+
+    @Override
+    public void release(String queueName, long ticket, final boolean removeEntries)
+    {
+        final Claim claim = claims.remove(ticket);
+        if (claim == null)
+        {
+            return;
+        }
+        try
+        {
+            int count = execute(new QueueOperation<Integer>()
+            {
+                @Override
+                Integer run(Context context, TaskQueueService taskQueueService) throws SQLException
+                {
+                    return removeEntries ? taskQueueService.complete(context, claim.owner)
+                                         : taskQueueService.release(context, claim.owner);
+                }
+            });
+            long elapsed = Math.max(1, System.currentTimeMillis() - claim.start);
+            if (removeEntries)
+            {
+                completed.addAndGet(count);
+                log.info("Curation task queue '" + queueName + "': " + claim.owner + " completed "
+                        + count + " entries in " + elapsed + " ms ("
+                        + String.format("%.2f", count * 1000.0 / elapsed) + " entries/s)");
+            }
+            else
+            {
+                returned.addAndGet(count);
+                log.info("Curation task queue '" + queueName + "': " + claim.owner + " returned "
+                        + count + " entries");
+            }
+        }
+        catch (IOException e)
+        {
+            // the claims expire after the visibility timeout
+            log.error("Unable to release curation task queue entries of " + claim.owner, e);
+        }
+    }
+
+    /**
+     * @return counters of this JVM since startup.
+     */
+    public static String getStatistics()
+    {
+        return "enqueued=" + enqueued.get()
+                + ", dequeued=" + dequeued.get()
+                + ", completed=" + completed.get()
+                + ", returned=" + returned.get();
+    }
+
+    /**
+     * Run a queue operation in a transaction of its own, and wait for it.
+     */
+    protected <T> T execute(final QueueOperation<T> operation) throws IOException
+    {
+        try
+        {
+            return queueExecutor.submit(new Callable<T>()
+            {
+                @Override
+                public T call() throws Exception
+                {
+                    Context context = new Context();
+                    try
+                    {
+                        T result = operation.run(context,
+                                CurateServiceFactory.getInstance().getTaskQueueService());
+                        context.complete();
+                        return result;
+                    }
+                    finally
+                    {
+                        if (context.isValid())
+                        {
+                            context.abort();
+                        }
+                    }
+                }
+            }).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while accessing the curation task queue", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("Unable to access the curation task queue", e.getCause());
+        }
+    }
+
+    private static String makeInstanceName()
+    {
+        String host;
+        try
+        {
+            host = InetAddress.getLocalHost().getHostName();
+        }
+        catch (UnknownHostException e)
+        {
+            host = "unknown";
+        }
+        return StringUtils.left(host, 64) + "-" + Utils.generateHexKey().substring(0, 8);
+    }
+
+    /**
+     * A database operation on the queues.
+     */
+    protected abstract static class QueueOperation<T>
+    {
+        abstract T run(Context context, TaskQueueService taskQueueService) throws SQLException;
+    }
+
+    /**
+     * The entries claimed for one ticket.
+     */
+    protected static class Claim
+    {
+        final String owner;
+        final long start = System.currentTimeMillis();
+
+        Claim(String owner)
+        {
+            this.owner = owner;
+        }
+    }
+}
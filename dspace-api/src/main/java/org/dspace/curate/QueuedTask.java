@@ -0,0 +1,127 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate;
+
+import java.util.Arrays;
+import java.util.Date;
+import javax.persistence.*;
+
+import org.apache.commons.lang.StringUtils;
+import org.dspace.core.Context;
+import org.dspace.core.ReloadableEntity;
+
+/**
+ * An entry of a curation task queue kept in the database by the
+ * {@link DBTaskQueue}.
+ * <p>
+ * An entry is available to readers unless it is claimed. A claim records
+ * the reader holding it and when the claim expires; an entry whose claim
+ * has expired (because its reader died or never released it) becomes
+ * available again.
+ */
+@Entity
+@Table(name = "curation_task_queue")
+public class QueuedTask implements ReloadableEntity<Integer>
+{
+    @Id
+    @Column(name = "task_id")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "curation_task_queue_seq")
+    @SequenceGenerator(name = "curation_task_queue_seq", sequenceName = "curation_task_queue_seq", allocationSize = 1)
+    private Integer id;
+
+    @Column(name = "queue_name", length = 64, nullable = false)
+    private String queueName;
+
+    @Column(name = "priority", nullable = false)
+    private int priority = 0;
+
+    @Column(name = "eperson", length = 256)
+    private String eperson;
+
+    @Column(name = "submit_time", nullable = false)
+    private long submitTime;
+
+    @Column(name = "tasks", length = 2000, nullable = false)
+    private String tasks;
+
+    @Column(name = "object_id", length = 256, nullable = false)
+    private String objectId;
+
+    @Column(name = "claimed_by", length = 128)
+    private String claimedBy;
+
+    @Column(name = "claim_expires")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date claimExpires;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    /**
+     * Protected constructor, create object using:
+     * {@link org.dspace.curate.service.TaskQueueService#enqueue(Context, String, TaskQueueEntry)}
+     */
+    protected QueuedTask()
+    {
+    }
+
+    /**
+     * Copy the content of a task queue entry.
+     *
+     * @param queueName name of the queue.
+     * @param entry the entry.
+     */
+    void setEntry(String queueName, TaskQueueEntry entry)
+    {
+        this.queueName = queueName;
+        this.priority = entry.getPriority();
+        this.eperson = entry.getEpersonId();
+        this.submitTime = entry.getSubmitTime();
+        this.tasks = StringUtils.join(entry.getTaskNames(), ",");
+        this.objectId = entry.getObjectId();
+    }
+
+    /**
+     * @return a new task queue entry equal to the one that was queued.
+     */
+    public TaskQueueEntry getEntry()
+    {
+        return new TaskQueueEntry(eperson, submitTime, Arrays.asList(tasks.split(",")), objectId, priority);
+    }
+
+    @Override
+    public Integer getID()
+    {
+        return id;
+    }
+
+    public String getQueueName()
+    {
+        return queueName;
+    }
+
+    public int getPriority()
+    {
+        return priority;
+    }
+
+    public String getClaimedBy()
+    {
+        return claimedBy;
+    }
+
+    public Date getClaimExpires()
+    {
+        return claimExpires;
+    }
+
+    public int getAttempts()
+    {
+        return attempts;
+    }
+}
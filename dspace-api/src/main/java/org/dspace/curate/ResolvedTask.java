@@ -29,6 +29,7 @@ public class ResolvedTask
 	// annotation data
 	private boolean distributive = false;
 	private boolean mutative = false;
+	private boolean concurrent = false;
 	private Curator.Invoked mode = null;
     private int[] codes = null;
 	
@@ -41,6 +42,7 @@ public class ResolvedTask
 		Class ctClass = cTask.getClass();
 		distributive = ctClass.isAnnotationPresent(Distributive.class);
 		mutative = ctClass.isAnnotationPresent(Mutative.class);
+		concurrent = ctClass.isAnnotationPresent(Concurrent.class);
 		Suspendable suspendAnno = (Suspendable)ctClass.getAnnotation(Suspendable.class);
         if (suspendAnno != null)
         {
@@ -128,6 +130,15 @@ public class ResolvedTask
     {
     	return mutative;
     }
+
+    /**
+     * Returns whether task may be performed by several threads at once
+     * 
+     */
+    public boolean isConcurrent()
+    {
+    	return concurrent;
+    }
     
     public Curator.Invoked getMode()
     {
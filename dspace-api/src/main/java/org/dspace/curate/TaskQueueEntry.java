@@ -22,6 +22,7 @@ public final class TaskQueueEntry
     private final String submitTime;
     private final String tasks;
     private final String objId;
+    private final int priority;
     
     /**
      * TaskQueueEntry constructor with enumerated field values.
@@ -33,6 +34,23 @@ public final class TaskQueueEntry
      */
     public TaskQueueEntry(String epersonId, long submitTime,
                           List<String> taskNames, String objId)
+    {
+        this(epersonId, submitTime, taskNames, objId, 0);
+    }
+
+    /**
+     * TaskQueueEntry constructor with enumerated field values and a priority.
+     *
+     * @param epersonId
+     * @param submitTime
+     * @param taskNames
+     * @param objId
+     * @param priority
+     *        entries with a higher priority are dequeued first, where the
+     *        queue implementation supports it
+     */
+    public TaskQueueEntry(String epersonId, long submitTime,
+                          List<String> taskNames, String objId, int priority)
     {
         this.epersonId = epersonId;
         this.submitTime = Long.toString(submitTime);
@@ -43,6 +61,7 @@ public final class TaskQueueEntry
         }
         this.tasks = sb.substring(0, sb.length() - 1);
         this.objId = objId;
+        this.priority = priority;
     }
     
     /**
@@ -58,6 +77,7 @@ public final class TaskQueueEntry
         submitTime = tokens[1];
         tasks = tokens[2];
         objId = tokens[3];
+        priority = (tokens.length > 4) ? Integer.parseInt(tokens[4]) : 0;
     }
     
     /**
@@ -102,6 +122,17 @@ public final class TaskQueueEntry
     {
         return objId;
     }
+
+    /**
+     * Returns the priority of this entry.
+     * @return priority
+     *         0 unless a priority was given when the entry was queued
+     */
+    public int getPriority()
+    {
+        return priority;
+    }
+
     /**
      * Returns a string representation of the entry
      * @return string
@@ -110,6 +141,7 @@ public final class TaskQueueEntry
     @Override
     public String toString()
     {
-        return epersonId + "|" + submitTime + "|" + tasks + "|" + objId;
+        String entry = epersonId + "|" + submitTime + "|" + tasks + "|" + objId;
+        return (priority != 0) ? entry + "|" + priority : entry;
     }
 }
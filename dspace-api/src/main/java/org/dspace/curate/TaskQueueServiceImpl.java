@@ -0,0 +1,106 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.curate.dao.QueuedTaskDAO;
+import org.dspace.curate.service.TaskQueueService;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Service implementation for the curation task queues kept in the database.
+ * This class is responsible for all business logic calls for the QueuedTask object and is autowired by spring.
+ * This class should never be accessed directly.
+ */
+public class TaskQueueServiceImpl implements TaskQueueService
+{
+    private static final Logger log = Logger.getLogger(TaskQueueServiceImpl.class);
+
+    @Autowired(required = true)
+    protected QueuedTaskDAO queuedTaskDAO;
+
+    protected TaskQueueServiceImpl()
+    {
+
+    }
+
+    @Override
+    public QueuedTask enqueue(Context context, String queueName, TaskQueueEntry entry) throws SQLException
+    {
+        QueuedTask queuedTask = new QueuedTask();
+        queuedTask.setEntry(queueName, entry);
+        return queuedTaskDAO.create(context, queuedTask);
+    }
+
+    @Override
+    public List<QueuedTask> claim(Context context, String queueName, String owner, int limit, int timeout)
+            throws SQLException
+    {
+        Date now = new Date();
+        Date expires = new Date(now.getTime() + timeout * 1000L);
+        List<QueuedTask> claimed = new ArrayList<>();
+
+        // Look at a few more candidates than needed, as concurrent readers
+        // may win some of them.
+        List<QueuedTask> candidates = queuedTaskDAO.findAvailable(context, queueName, now, limit * 2);
+        for (QueuedTask candidate : candidates)
+        {
+            if (claimed.size() >= limit)
+            {
+                break;
+            }
+            if (queuedTaskDAO.claim(context, candidate.getID(), owner, now, expires))
+            {
+                if (candidate.getClaimedBy() != null)
+                {
+                    log.warn("Claim of " + candidate.getClaimedBy() + " on curation task queue entry "
+                            + candidate.getID() + " (" + candidate.getEntry() + ") expired, "
+                            + "reclaimed by " + owner + " (attempt " + (candidate.getAttempts() + 1) + ")");
+                }
+                claimed.add(candidate);
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    public int complete(Context context, String owner) throws SQLException
+    {
+        return queuedTaskDAO.deleteByOwner(context, owner);
+    }
+
+    @Override
+    public int release(Context context, String owner) throws SQLException
+    {
+        return queuedTaskDAO.releaseByOwner(context, owner);
+    }
+
+    @Override
+    public int countEntries(Context context, String queueName) throws SQLException
+    {
+        return queuedTaskDAO.countByQueue(context, queueName);
+    }
+
+    @Override
+    public int countClaimed(Context context, String queueName) throws SQLException
+    {
+        return queuedTaskDAO.countClaimed(context, queueName, new Date());
+    }
+
+    @Override
+    public List<String> findQueueNames(Context context) throws SQLException
+    {
+        return queuedTaskDAO.findQueueNames(context);
+    }
+}
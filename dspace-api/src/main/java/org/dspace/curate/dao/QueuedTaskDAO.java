@@ -0,0 +1,66 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate.dao;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+
+import org.dspace.core.Context;
+import org.dspace.core.GenericDAO;
+import org.dspace.curate.QueuedTask;
+
+/**
+ * Database Access Object interface class for the QueuedTask object.
+ * The implementation of this class is responsible for all database calls for the QueuedTask object and is autowired by spring
+ * This class should only be accessed from a single service and should never be exposed outside of the API
+ */
+public interface QueuedTaskDAO extends GenericDAO<QueuedTask>
+{
+    /**
+     * Find entries of a queue which are not claimed, or whose claim has
+     * expired, highest priority first and oldest first within a priority.
+     *
+     * @param context DSpace context
+     * @param queueName name of the queue
+     * @param now current time
+     * @param limit maximum number of entries
+     * @return available entries
+     * @throws SQLException if database error
+     */
+    public List<QueuedTask> findAvailable(Context context, String queueName, Date now, int limit)
+            throws SQLException;
+
+    /**
+     * Claim an entry, unless another reader claimed it in the meantime.
+     * This is a single conditional UPDATE, so of several readers racing for
+     * the same entry exactly one succeeds, and none waits for the others
+     * beyond the duration of their UPDATE.
+     *
+     * @param context DSpace context
+     * @param id id of the entry
+     * @param owner name of the claiming reader
+     * @param now current time
+     * @param expires time when the claim expires
+     * @return true if the entry was claimed
+     * @throws SQLException if database error
+     */
+    public boolean claim(Context context, Integer id, String owner, Date now, Date expires) throws SQLException;
+
+    public List<QueuedTask> findByOwner(Context context, String owner) throws SQLException;
+
+    public int deleteByOwner(Context context, String owner) throws SQLException;
+
+    public int releaseByOwner(Context context, String owner) throws SQLException;
+
+    public int countByQueue(Context context, String queueName) throws SQLException;
+
+    public int countClaimed(Context context, String queueName, Date now) throws SQLException;
+
+    public List<String> findQueueNames(Context context) throws SQLException;
+}
@@ -0,0 +1,120 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate.dao.impl;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+
+import org.dspace.core.AbstractHibernateDAO;
+import org.dspace.core.Context;
+import org.dspace.curate.QueuedTask;
+import org.dspace.curate.dao.QueuedTaskDAO;
+import org.hibernate.Criteria;
+import org.hibernate.Query;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+
+/**
+ * Hibernate implementation of the Database Access Object interface class for the QueuedTask object.
+ * This class is responsible for all database calls for the QueuedTask object and is autowired by spring
+ * This class should never be accessed directly.
+ */
+public class QueuedTaskDAOImpl extends AbstractHibernateDAO<QueuedTask> implements QueuedTaskDAO
+{
+    protected QueuedTaskDAOImpl()
+    {
+        super();
+    }
+
+    @Override
+    public List<QueuedTask> findAvailable(Context context, String queueName, Date now, int limit)
+            throws SQLException
+    {
+        Criteria criteria = createCriteria(context, QueuedTask.class);
+        criteria.add(Restrictions.and(
+                Restrictions.eq("queueName", queueName),
+                Restrictions.or(
+                        Restrictions.isNull("claimExpires"),
+                        Restrictions.lt("claimExpires", now)
+                )
+        ));
+        criteria.addOrder(Order.desc("priority"));
+        criteria.addOrder(Order.asc("id"));
+        criteria.setMaxResults(limit);
+        return list(criteria);
+    }
+
+    @Override
+    public boolean claim(Context context, Integer id, String owner, Date now, Date expires) throws SQLException
+    {
+        Query query = createQuery(context, "UPDATE QueuedTask SET claimedBy = :owner, claimExpires = :expires,"
+                + " attempts = attempts + 1"
+                + " WHERE id = :id AND (claimExpires IS NULL OR claimExpires < :now)");
+        query.setParameter("owner", owner);
+        query.setTimestamp("expires", expires);
+        query.setParameter("id", id);
+        query.setTimestamp("now", now);
+        return query.executeUpdate() == 1;
+    }
+
+    @Override
+    public List<QueuedTask> findByOwner(Context context, String owner) throws SQLException
+    {
+        Criteria criteria = createCriteria(context, QueuedTask.class);
+        criteria.add(Restrictions.eq("claimedBy", owner));
+        criteria.addOrder(Order.desc("priority"));
+        criteria.addOrder(Order.asc("id"));
+        return list(criteria);
+    }
+
+    @Override
+    public int deleteByOwner(Context context, String owner) throws SQLException
+    {
+        Query query = createQuery(context, "DELETE FROM QueuedTask WHERE claimedBy = :owner");
+        query.setParameter("owner", owner);
+        return query.executeUpdate();
+    }
+
+    @Override
+    public int releaseByOwner(Context context, String owner) throws SQLException
+    {
+        Query query = createQuery(context, "UPDATE QueuedTask SET claimedBy = NULL, claimExpires = NULL"
+                + " WHERE claimedBy = :owner");
+        query.setParameter("owner", owner);
+        return query.executeUpdate();
+    }
+
+    @Override
+    public int countByQueue(Context context, String queueName) throws SQLException
+    {
+        Criteria criteria = createCriteria(context, QueuedTask.class);
+        criteria.add(Restrictions.eq("queueName", queueName));
+        return count(criteria);
+    }
+
+    @Override
+    public int countClaimed(Context context, String queueName, Date now) throws SQLException
+    {
+        Criteria criteria = createCriteria(context, QueuedTask.class);
+        criteria.add(Restrictions.and(
+                Restrictions.eq("queueName", queueName),
+                Restrictions.ge("claimExpires", now)
+        ));
+        return count(criteria);
+    }
+
+    @Override
+    public List<String> findQueueNames(Context context) throws SQLException
+    {
+        Query query = createQuery(context, "SELECT DISTINCT queueName FROM QueuedTask ORDER BY queueName");
+        @SuppressWarnings("unchecked")
+        List<String> names = query.list();
+        return names;
+    }
+}
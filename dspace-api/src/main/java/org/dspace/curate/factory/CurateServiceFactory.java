@@ -7,6 +7,7 @@
  */
 package org.dspace.curate.factory;
 
+import org.dspace.curate.service.TaskQueueService;
 import org.dspace.curate.service.WorkflowCuratorService;
 import org.dspace.services.factory.DSpaceServicesFactory;
 
@@ -19,6 +20,8 @@ public abstract class CurateServiceFactory {
 
     public abstract WorkflowCuratorService getWorkflowCuratorService();
 
+    public abstract TaskQueueService getTaskQueueService();
+
     public static CurateServiceFactory getInstance()
     {
         return DSpaceServicesFactory.getInstance().getServiceManager().getServiceByName("curateServiceFactory", CurateServiceFactory.class);
@@ -7,6 +7,7 @@
  */
 package org.dspace.curate.factory;
 
+import org.dspace.curate.service.TaskQueueService;
 import org.dspace.curate.service.WorkflowCuratorService;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -20,8 +21,16 @@ public class CurateServiceFactoryImpl extends CurateServiceFactory {
     @Autowired(required = true)
     private WorkflowCuratorService workflowCurator;
 
+    @Autowired(required = true)
+    private TaskQueueService taskQueueService;
+
     @Override
     public WorkflowCuratorService getWorkflowCuratorService() {
         return workflowCurator;
     }
+
+    @Override
+    public TaskQueueService getTaskQueueService() {
+        return taskQueueService;
+    }
 }
@@ -0,0 +1,78 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate.service;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.dspace.core.Context;
+import org.dspace.curate.QueuedTask;
+import org.dspace.curate.TaskQueueEntry;
+
+/**
+ * Service interface class for the curation task queues kept in the database.
+ * The implementation of this class is responsible for all business logic calls for the QueuedTask object and is autowired by spring
+ *
+ * @see org.dspace.curate.DBTaskQueue
+ */
+public interface TaskQueueService {
+
+    /**
+     * Add an entry to a queue.  The entry becomes visible to readers when
+     * the context's transaction is committed.
+     *
+     * @param context DSpace context
+     * @param queueName name of the queue
+     * @param entry the entry
+     * @return the stored entry
+     * @throws SQLException if database error
+     */
+    public QueuedTask enqueue(Context context, String queueName, TaskQueueEntry entry) throws SQLException;
+
+    /**
+     * Claim available entries of a queue for a reader, highest priority
+     * first.  Entries claimed by other readers are skipped, unless their
+     * claim has expired.
+     *
+     * @param context DSpace context
+     * @param queueName name of the queue
+     * @param owner unique name of the reader
+     * @param limit maximum number of entries to claim
+     * @param timeout seconds until the claim expires
+     * @return claimed entries, possibly empty
+     * @throws SQLException if database error
+     */
+    public List<QueuedTask> claim(Context context, String queueName, String owner, int limit, int timeout)
+            throws SQLException;
+
+    /**
+     * Remove all entries claimed by a reader from their queue.
+     *
+     * @param context DSpace context
+     * @param owner unique name of the reader
+     * @return number of removed entries
+     * @throws SQLException if database error
+     */
+    public int complete(Context context, String owner) throws SQLException;
+
+    /**
+     * Give up the claims of a reader, making its entries available again.
+     *
+     * @param context DSpace context
+     * @param owner unique name of the reader
+     * @return number of released entries
+     * @throws SQLException if database error
+     */
+    public int release(Context context, String owner) throws SQLException;
+
+    public int countEntries(Context context, String queueName) throws SQLException;
+
+    public int countClaimed(Context context, String queueName) throws SQLException;
+
+    public List<String> findQueueNames(Context context) throws SQLException;
+}
@@ -0,0 +1,195 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a facet value returned by Solr into the value to display, its
+ * authority key and its sort value, in one pass.
+ * <P>
+ * Facet values of <code>_filter</code>, <code>_ac</code> and
+ * <code>_acid</code> fields are indexed as
+ * <code>sortValue SEPARATOR displayedValue###authority</code>. Other values
+ * may be wrapped in brackets. The separator is searched for as a plain
+ * string, so no regular expression is compiled or run per value. The
+ * results are the same as splitting with
+ * <code>Pattern.quote(separator)</code>, including the removal of trailing
+ * empty parts.
+ */
+public class FacetValueDecoder
+{
+    private final String separator;
+
+    /**
+     * @param separator the separator between the sort value and the displayed value,
+     *        as configured by <code>discovery.solr.facets.split.char</code>; null for the default
+     */
+    public FacetValueDecoder(String separator)
+    {
+        this.separator = separator == null || separator.isEmpty() ? SolrServiceImpl.FILTER_SEPARATOR : separator;
+    }
+
+    /**
+     * @return the separator this decoder splits on
+     */
+    public String getSeparator()
+    {
+        return separator;
+    }
+
+    /**
+     * @param field the facet field
+     * @return true if values of the field hold a sort value, a displayed value and maybe an authority
+     */
+    public static boolean isSplitField(String field)
+    {
+        return field.endsWith("_filter") || field.endsWith("_ac") || field.endsWith("_acid");
+    }
+
+    /**
+     * @param field the facet field
+     * @return true if values of the field are the UUID of a Community or Collection
+     */
+    public static boolean isLocationField(String field)
+    {
+        return "location.comm".equals(field) || "location.coll".equals(field);
+    }
+
+    /**
+     * Decode a facet value. Values of location fields are returned as they
+     * are: looking up the name of the Community or Collection is up to the caller.
+     *
+     * @param field the facet field
+     * @param value the facet value as returned by Solr
+     * @return the parts of the value
+     */
+    public Decoded decode(String field, String value)
+    {
+        if (isLocationField(field))
+        {
+            return new Decoded(value, value, value);
+        }
+        if (isSplitField(field))
+        {
+            List<String> parts = split(value);
+            int half = parts.size() / 2;
+            StringBuilder sort = new StringBuilder();
+            for (int i = 0; i < half; i++)
+            {
+                sort.append(parts.get(i));
+            }
+            StringBuilder displayed = new StringBuilder();
+            StringBuilder authority = new StringBuilder();
+            for (int i = half; i < parts.size(); i++)
+            {
+                String part = parts.get(i);
+                int authorityStart = part.indexOf(SolrServiceImpl.AUTHORITY_SEPARATOR);
+                if (authorityStart < 0)
+                {
+                    displayed.append(part);
+                }
+                else
+                {
+                    displayed.append(part, 0, authorityStart);
+                    authority.append(part, authorityStart + SolrServiceImpl.AUTHORITY_SEPARATOR.length(), part.length());
+                }
+            }
+            return new Decoded(displayed.toString(), authority.length() > 0 ? authority.toString() : null,
+                    sort.toString());
+        }
+        String unwrapped = isBracketed(value) ? value.substring(1, value.length() - 1) : value;
+        return new Decoded(unwrapped, null, unwrapped);
+    }
+
+    /**
+     * Split on the separator, dropping trailing empty parts as
+     * <code>String.split</code> does.
+     */
+    protected List<String> split(String value)
+    {
+        List<String> parts = new ArrayList<String>(4);
+        int from = 0;
+        int index;
+        while ((index = value.indexOf(separator, from)) >= 0)
+        {
+            parts.add(value.substring(from, index));
+            from = index + separator.length();
+        }
+        if (parts.isEmpty())
+        {
+            parts.add(value);
+            return parts;
+        }
+        parts.add(value.substring(from));
+        int size = parts.size();
+        while (size > 0 && parts.get(size - 1).isEmpty())
+        {
+            parts.remove(--size);
+        }
+        return parts;
+    }
+
+    /**
+     * Equivalent of <code>value.matches("\\((.*?)\\)")</code>: the value is
+     * enclosed in brackets with no line terminator in between.
+     */
+    protected static boolean isBracketed(String value)
+    {
+        int last = value.length() - 1;
+        if (last < 1 || value.charAt(0) != '(' || value.charAt(last) != ')')
+        {
+            return false;
+        }
+        for (int i = 1; i < last; i++)
+        {
+            char c = value.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The parts of a facet value.
+     */
+    public static class Decoded
+    {
+        private final String displayedValue;
+        private final String authorityValue;
+        private final String sortValue;
+
+        public Decoded(String displayedValue, String authorityValue, String sortValue)
+        {
+            this.displayedValue = displayedValue;
+            this.authorityValue = authorityValue;
+            this.sortValue = sortValue;
+        }
+
+        public String getDisplayedValue()
+        {
+            return displayedValue;
+        }
+
+        /**
+         * @return the authority key, or null if the value has none
+         */
+        public String getAuthorityValue()
+        {
+            return authorityValue;
+        }
+
+        public String getSortValue()
+        {
+            return sortValue;
+        }
+    }
+}
@@ -8,6 +8,7 @@
 package org.dspace.discovery;
 
 import org.apache.log4j.Logger;
+import org.dspace.browse.ItemCountCache;
 import org.dspace.content.Bundle;
 import org.dspace.content.DSpaceObject;
 import org.dspace.core.Constants;
@@ -69,6 +70,14 @@ public class IndexEventConsumer implements Consumer {
             return;
         }
 
+        // Names of Communities & Collections are cached for the location facets
+        int et = event.getEventType();
+        if ((st == Constants.COLLECTION || st == Constants.COMMUNITY)
+                && (et == Event.MODIFY || et == Event.MODIFY_METADATA || et == Event.DELETE))
+        {
+            LocationNameCache.invalidate(event.getSubjectID());
+        }
+
         DSpaceObject subject = event.getSubject(ctx);
 
         DSpaceObject object = event.getObject(ctx);
@@ -78,7 +87,6 @@ public class IndexEventConsumer implements Consumer {
         // transform the event to be a Modify on the owning Item.
         // It could be a new bitstream in the TEXT bundle which
         // would change the index.
-        int et = event.getEventType();
         if (st == Constants.BUNDLE) {
             if ((et == Event.ADD || et == Event.REMOVE) && subject != null
                     && ((Bundle) subject).getName().equals("TEXT")) {
@@ -194,6 +202,11 @@ public class IndexEventConsumer implements Consumer {
 
             }
 
+            if (!objectsToUpdate.isEmpty() || !handlesToDelete.isEmpty())
+            {
+                // item counts may have changed
+                ItemCountCache.getInstance().invalidate();
+            }
         }
 
         // "free" the resources
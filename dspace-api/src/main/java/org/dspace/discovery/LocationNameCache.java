@@ -0,0 +1,100 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * JVM-wide cache of the names of Communities and Collections, by UUID, for
+ * the <code>location.comm</code> and <code>location.coll</code> facets.
+ * <P>
+ * Every search showing a location facet used to load each Community and
+ * Collection in it from the database to display its name. Names are now
+ * cached, and an entry is removed by the {@link IndexEventConsumer} when its
+ * object is modified or deleted. The least recently used entries are dropped
+ * once the cache holds <code>discovery.facet.location.cache.size</code>
+ * names (default 1000).
+ */
+public class LocationNameCache
+{
+    private static final int DEFAULT_SIZE = 1000;
+
+    private static Map<UUID, String> names;
+
+    /** Static methods only */
+    private LocationNameCache()
+    {
+    }
+
+    private static synchronized Map<UUID, String> getNames()
+    {
+        if (names == null)
+        {
+            final int maxSize = DSpaceServicesFactory.getInstance().getConfigurationService()
+                    .getIntProperty("discovery.facet.location.cache.size", DEFAULT_SIZE);
+            names = new LinkedHashMap<UUID, String>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest)
+                {
+                    return size() > maxSize;
+                }
+            };
+        }
+        return names;
+    }
+
+    /**
+     * @param id UUID of a Community or Collection
+     * @return its cached name, or null if it is not cached
+     */
+    public static synchronized String get(UUID id)
+    {
+        return getNames().get(id);
+    }
+
+    /**
+     * @param id UUID of a Community or Collection
+     * @param name its name
+     */
+    public static synchronized void put(UUID id, String name)
+    {
+        if (id != null && name != null)
+        {
+            getNames().put(id, name);
+        }
+    }
+
+    /**
+     * Forget the name of a Community or Collection, e.g. because it was renamed.
+     *
+     * @param id UUID of the Community or Collection
+     */
+    public static synchronized void invalidate(UUID id)
+    {
+        if (names != null && id != null)
+        {
+            names.remove(id);
+        }
+    }
+
+    /**
+     * Forget all names.
+     */
+    public static synchronized void clear()
+    {
+        if (names != null)
+        {
+            names.clear();
+        }
+    }
+}
@@ -15,6 +15,7 @@ import org.dspace.discovery.configuration.DiscoveryMoreLikeThisConfiguration;
 import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Search interface that discovery uses
@@ -91,6 +92,21 @@ public interface SearchService {
 
     InputStream searchJSON(Context context, DiscoverQuery query, DSpaceObject dso, String jsonIdentifier) throws SearchServiceException;
 
+    /**
+     * Count the values of the facet fields of a query.  Unlike
+     * {@link #search(Context, DiscoverQuery, boolean)}, the values are
+     * returned as they are indexed, without looking up display names or
+     * authorities, so this is cheap even for many facet values.
+     *
+     * @param context
+     *            DSpace Context object
+     * @param query
+     *            the discovery query object, with its facet fields
+     * @return map of facet field names to maps of indexed values to counts
+     * @throws SearchServiceException if search error
+     */
+    Map<String, Map<String, Long>> searchFacetCounts(Context context, DiscoverQuery query) throws SearchServiceException;
+
 
     List<DSpaceObject> search(Context context, String query, String orderfield, boolean ascending, int offset, int max, String... filterquery);
 
@@ -102,6 +102,9 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
     public static final String VARIANTS_STORE_SEPARATOR = "###";
 
+    /** Decoder for the configured facet separator, replaced if the configuration changes */
+    private volatile FacetValueDecoder facetValueDecoder;
+
     @Autowired(required = true)
     protected ContentServiceFactory contentServiceFactory;
     @Autowired(required = true)
@@ -1524,10 +1527,17 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     public String locationToName(Context context, String field, String value) throws SQLException {
         if("location.comm".equals(field) || "location.coll".equals(field))
         {
+            UUID id = UUID.fromString(value);
+            String name = LocationNameCache.get(id);
+            if (name != null)
+            {
+                return name;
+            }
             int type = field.equals("location.comm") ? Constants.COMMUNITY : Constants.COLLECTION;
-            DSpaceObject commColl = contentServiceFactory.getDSpaceObjectService(type).find(context, UUID.fromString(value));
+            DSpaceObject commColl = contentServiceFactory.getDSpaceObjectService(type).find(context, id);
             if(commColl != null)
             {
+                LocationNameCache.put(id, commColl.getName());
                 return commColl.getName();
             }
 
@@ -1535,6 +1545,22 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         return value;
     }
 
+    /**
+     * @return a decoder for facet values, using the configured
+     *         <code>discovery.solr.facets.split.char</code>
+     */
+    protected FacetValueDecoder getFacetValueDecoder()
+    {
+        String separator = DSpaceServicesFactory.getInstance().getConfigurationService().getProperty("discovery.solr.facets.split.char");
+        FacetValueDecoder decoder = facetValueDecoder;
+        if (decoder == null || !decoder.getSeparator().equals(separator == null ? FILTER_SEPARATOR : separator))
+        {
+            decoder = new FacetValueDecoder(separator);
+            facetValueDecoder = decoder;
+        }
+        return decoder;
+    }
+
     //========== SearchService implementation
     @Override
     public DiscoverResult search(Context context, DiscoverQuery query) throws SearchServiceException
@@ -1588,6 +1614,38 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         }
     }
 
+    @Override
+    public Map<String, Map<String, Long>> searchFacetCounts(Context context, DiscoverQuery discoveryQuery) throws SearchServiceException {
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<String, Map<String, Long>>();
+        try {
+            if(getSolr() == null){
+                return counts;
+            }
+            SolrQuery solrQuery = resolveToSolrQuery(context, discoveryQuery, false);
+            QueryResponse queryResponse = getSolr().query(solrQuery);
+
+            if(queryResponse.getFacetFields() != null)
+            {
+                for (FacetField facetField : queryResponse.getFacetFields())
+                {
+                    Map<String, Long> values = new LinkedHashMap<String, Long>();
+                    if (facetField.getValues() != null)
+                    {
+                        for (FacetField.Count facetValue : facetField.getValues())
+                        {
+                            values.put(facetValue.getName(), facetValue.getCount());
+                        }
+                    }
+                    counts.put(facetField.getName(), values);
+                }
+            }
+            return counts;
+        } catch (Exception e)
+        {
+            throw new org.dspace.discovery.SearchServiceException(e.getMessage(),e);
+        }
+    }
+
     protected SolrQuery resolveToSolrQuery(Context context, DiscoverQuery discoveryQuery, boolean includeUnDiscoverable)
     {
         SolrQuery solrQuery = new SolrQuery();
@@ -1837,6 +1895,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             List<FacetField> facetFields = solrQueryResponse.getFacetFields();
             if(facetFields != null)
             {
+                FacetValueDecoder decoder = getFacetValueDecoder();
                 for (int i = 0; i <  facetFields.size(); i++)
                 {
                     FacetField facetField = facetFields.get(i);
@@ -1850,12 +1909,20 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                            Collections.reverse(facetValues);
                         }
 
+                        String field = transformFacetField(facetFieldConfig, facetField.getName(), true);
+                        boolean location = FacetValueDecoder.isLocationField(facetField.getName());
                         for (FacetField.Count facetValue : facetValues)
                         {
-                            String displayedValue = transformDisplayedValue(context, facetField.getName(), facetValue.getName());
-                            String field = transformFacetField(facetFieldConfig, facetField.getName(), true);
-                            String authorityValue = transformAuthorityValue(context, facetField.getName(), facetValue.getName());
-                            String sortValue = transformSortValue(context, facetField.getName(), facetValue.getName());
+                            //Split each value once into its displayed, authority & sort parts
+                            FacetValueDecoder.Decoded decoded = decoder.decode(facetField.getName(), facetValue.getName());
+                            String displayedValue = decoded.getDisplayedValue();
+                            String authorityValue = decoded.getAuthorityValue();
+                            String sortValue = decoded.getSortValue();
+                            if (location)
+                            {
+                                displayedValue = locationToName(context, facetField.getName(), facetValue.getName());
+                                sortValue = displayedValue;
+                            }
                             String filterValue = displayedValue;
                             if (StringUtils.isNotBlank(authorityValue))
                             {
@@ -2197,103 +2264,27 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     }
 
     protected String transformDisplayedValue(Context context, String field, String value) throws SQLException {
-        if(field.equals("location.comm") || field.equals("location.coll"))
+        if(FacetValueDecoder.isLocationField(field))
         {
-            value = locationToName(context, field, value);
+            return locationToName(context, field, value);
         }
-        else if (field.endsWith("_filter") || field.endsWith("_ac")
-          || field.endsWith("_acid"))
-        {
-            //We have a filter make sure we split !
-            String separator = DSpaceServicesFactory.getInstance().getConfigurationService().getProperty("discovery.solr.facets.split.char");
-            if(separator == null)
-            {
-                separator = FILTER_SEPARATOR;
-            }
-            //Escape any regex chars
-            separator = java.util.regex.Pattern.quote(separator);
-            String[] fqParts = value.split(separator);
-            StringBuffer valueBuffer = new StringBuffer();
-            int start = fqParts.length / 2;
-            for(int i = start; i < fqParts.length; i++)
-            {
-                String[] split = fqParts[i].split(AUTHORITY_SEPARATOR, 2);
-                valueBuffer.append(split[0]);
-            }
-            value = valueBuffer.toString();
-        }else if(value.matches("\\((.*?)\\)"))
-        {
-            //The brackets where added for better solr results, remove the first & last one
-            value = value.substring(1, value.length() -1);
-        }
-        return value;
+        return getFacetValueDecoder().decode(field, value).getDisplayedValue();
     }
 
     protected String transformAuthorityValue(Context context, String field, String value) throws SQLException {
-    	if(field.equals("location.comm") || field.equals("location.coll"))
-    	{
-            return value;
-    	}
-    	if (field.endsWith("_filter") || field.endsWith("_ac")
-                || field.endsWith("_acid"))
+        if(FacetValueDecoder.isLocationField(field))
         {
-            //We have a filter make sure we split !
-            String separator = DSpaceServicesFactory.getInstance().getConfigurationService().getProperty("discovery.solr.facets.split.char");
-            if(separator == null)
-            {
-                separator = FILTER_SEPARATOR;
-            }
-            //Escape any regex chars
-            separator = java.util.regex.Pattern.quote(separator);
-            String[] fqParts = value.split(separator);
-            StringBuffer authorityBuffer = new StringBuffer();
-            int start = fqParts.length / 2;
-            for(int i = start; i < fqParts.length; i++)
-            {
-                String[] split = fqParts[i].split(AUTHORITY_SEPARATOR, 2);
-                if (split.length == 2)
-                {
-                    authorityBuffer.append(split[1]);
-                }
-            }
-            if (authorityBuffer.length() > 0)
-            {
-                return authorityBuffer.toString();
-            }
+            return value;
         }
-        return null;
+        return getFacetValueDecoder().decode(field, value).getAuthorityValue();
     }
 
     protected String transformSortValue(Context context, String field, String value) throws SQLException {
-        if(field.equals("location.comm") || field.equals("location.coll"))
-        {
-            value = locationToName(context, field, value);
-        }
-        else if (field.endsWith("_filter") || field.endsWith("_ac")
-                || field.endsWith("_acid"))
+        if(FacetValueDecoder.isLocationField(field))
         {
-            //We have a filter make sure we split !
-            String separator = DSpaceServicesFactory.getInstance().getConfigurationService().getProperty("discovery.solr.facets.split.char");
-            if(separator == null)
-            {
-                separator = FILTER_SEPARATOR;
-            }
-            //Escape any regex chars
-            separator = java.util.regex.Pattern.quote(separator);
-            String[] fqParts = value.split(separator);
-            StringBuffer valueBuffer = new StringBuffer();
-            int end = fqParts.length / 2;
-            for(int i = 0; i < end; i++)
-            {
-                valueBuffer.append(fqParts[i]);
-            }
-            value = valueBuffer.toString();
-        }else if(value.matches("\\((.*?)\\)"))
-        {
-            //The brackets where added for better solr results, remove the first & last one
-            value = value.substring(1, value.length() -1);
+            return locationToName(context, field, value);
         }
-        return value;
+        return getFacetValueDecoder().decode(field, value).getSortValue();
     }
 
 	@Override
@@ -0,0 +1,173 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+import org.dspace.core.Utils;
+import org.dspace.event.factory.EventServiceFactory;
+import org.dspace.event.service.EventQueueService;
+
+/**
+ * Dispatcher which delivers events to selected consumers asynchronously.
+ * <p>
+ * Consumers configured with {@code event.consumer.<name>.async = true} do not
+ * see events on the committing thread. Instead, each event they would receive
+ * is written to the persistent event queue, in the same database transaction
+ * as the change that caused it, and delivered later by the
+ * {@link EventQueueProcessor} on a background worker. All other consumers are
+ * called synchronously, exactly as by the {@link BasicDispatcher}.
+ * <p>
+ * Configuration example:
+ * <pre>
+ *   event.dispatcher.default.class = org.dspace.event.AsynchronousDispatcher
+ *   event.consumer.discovery.async = true
+ * </pre>
+ *
+ * @see EventQueueProcessor
+ * @see org.dspace.event.service.EventQueueService
+ */
+public class AsynchronousDispatcher extends BasicDispatcher
+{
+    /** log4j category */
+    private static Logger log = Logger.getLogger(AsynchronousDispatcher.class);
+
+    /**
+     * Map of asynchronous consumers by their configured name.
+     */
+    protected Map<String, ConsumerProfile> asyncConsumers = new LinkedHashMap<String, ConsumerProfile>();
+
+    public AsynchronousDispatcher(String name)
+    {
+        super(name);
+    }
+
+    /**
+     * @param consumerName name of a configured consumer.
+     * @return true if the consumer is configured for asynchronous delivery.
+     */
+    public static boolean isAsynchronous(String consumerName)
+    {
+        return ConfigurationManager.getBooleanProperty(
+                "event.consumer." + consumerName + ".async", false);
+    }
+
+    @Override
+    public Collection getConsumers()
+    {
+        List<ConsumerProfile> all = new ArrayList<ConsumerProfile>(consumers.values());
+        all.addAll(asyncConsumers.values());
+        return all;
+    }
+
+    @Override
+    public void addConsumerProfile(ConsumerProfile cp)
+            throws IllegalArgumentException
+    {
+        if (!isAsynchronous(cp.getName()))
+        {
+            super.addConsumerProfile(cp);
+            return;
+        }
+
+        if (asyncConsumers.containsKey(cp.getName()) || consumers.containsKey(cp.getName()))
+        {
+            throw new IllegalArgumentException(
+                    "This dispatcher already has a consumer named \""
+                            + cp.getName() + "\"");
+        }
+        asyncConsumers.put(cp.getName(), cp);
+        log.debug("Adding asynchronous Consumer=\"" + cp.getName() + "\"");
+
+        EventQueueProcessor.getInstance().register(cp.getName());
+    }
+
+    /**
+     * Queue the events for the asynchronous consumers, then dispatch them
+     * to the synchronous consumers.
+     *
+     * @param ctx
+     *            the execution context
+     */
+    @Override
+    public void dispatch(Context ctx)
+    {
+        if (!asyncConsumers.isEmpty() && ctx.hasEvents())
+        {
+            EventQueueService eventQueueService = EventServiceFactory.getInstance().getEventQueueService();
+            String tid = "TX" + Utils.generateKey();
+            List<ConsumerProfile> fallback = new ArrayList<ConsumerProfile>();
+
+            for (Event event : ctx.getEvents())
+            {
+                event.setDispatcher(getIdentifier());
+                event.setTransactionID(tid);
+
+                for (ConsumerProfile cp : asyncConsumers.values())
+                {
+                    if (!event.pass(cp.getFilters()))
+                    {
+                        continue;
+                    }
+                    try
+                    {
+                        eventQueueService.enqueue(ctx, cp.getName(), event);
+                    }
+                    catch (SQLException e)
+                    {
+                        // Better late than never: deliver it now instead.
+                        log.error("Could not queue event for \"" + cp.getName()
+                                + "\", delivering synchronously: " + e.toString(), e);
+                        consumeNow(ctx, cp, event);
+                        if (!fallback.contains(cp))
+                        {
+                            fallback.add(cp);
+                        }
+                    }
+                }
+            }
+
+            for (ConsumerProfile cp : fallback)
+            {
+                try
+                {
+                    cp.getConsumer().end(ctx);
+                }
+                catch (Exception e)
+                {
+                    log.error("Error in Consumer(\"" + cp.getName()
+                            + "\").end: " + e.toString(), e);
+                }
+            }
+        }
+
+        super.dispatch(ctx);
+    }
+
+    private void consumeNow(Context ctx, ConsumerProfile cp, Event event)
+    {
+        try
+        {
+            cp.getConsumer().consume(ctx, event);
+            event.setBitSet(cp.getName());
+        }
+        catch (Exception e)
+        {
+            log.error("Consumer(\"" + cp.getName()
+                    + "\").consume threw: " + e.toString(), e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Removes redundant events from the events of one transaction before they
+ * are dispatched, so that consumers see each change of an object only once.
+ * <p>
+ * The rules keep the meaning of the event stream for every consumer:
+ * <ul>
+ * <li>All MODIFY events of one subject are merged into a single MODIFY, and
+ * all MODIFY_METADATA events into a single MODIFY_METADATA, placed where the
+ * last of them was and carrying the union of their details.</li>
+ * <li>MODIFY and MODIFY_METADATA events of a subject which is deleted later
+ * in the same transaction are dropped.</li>
+ * <li>An ADD or REMOVE is dropped if it repeats the previous ADD or REMOVE of
+ * the same object to/from the same subject; otherwise ADD and REMOVE events
+ * keep their order.</li>
+ * <li>CREATE, DELETE and INSTALL events are never touched.</li>
+ * </ul>
+ * Counts of events before and after coalescing are kept for the whole JVM.
+ */
+public class EventCoalescer
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(EventCoalescer.class);
+
+    /** Separator used by DSpaceObject.addDetails() */
+    private static final String DETAIL_SEPARATOR = ", ";
+
+    private static final AtomicLong eventsIn = new AtomicLong();
+    private static final AtomicLong eventsOut = new AtomicLong();
+
+    /** Default constructor */
+    private EventCoalescer() { }
+
+    /**
+     * Coalesce the events of one transaction.
+     *
+     * @param events events in the order they were added.
+     * @return the coalesced events, in dispatch order.
+     */
+    public static LinkedList<Event> coalesce(List<Event> events)
+    {
+        int size = events.size();
+        LinkedList<Event> result = new LinkedList<Event>();
+        if (size < 2)
+        {
+            result.addAll(events);
+            count(size, size);
+            return result;
+        }
+
+        // Pass 1: find the last DELETE of every subject, and the last
+        // position and collected details of every mergeable modification.
+        Map<String, Integer> lastDelete = new HashMap<String, Integer>();
+        Map<String, Integer> lastModify = new HashMap<String, Integer>();
+        Map<String, Set<String>> modifyDetails = new HashMap<String, Set<String>>();
+        Map<String, Integer> modifyCount = new HashMap<String, Integer>();
+        for (int i = 0; i < size; i++)
+        {
+            Event event = events.get(i);
+            int type = event.getEventType();
+            if (type == Event.DELETE)
+            {
+                lastDelete.put(subjectKey(event), i);
+            }
+            else if (type == Event.MODIFY || type == Event.MODIFY_METADATA)
+            {
+                String key = type + ":" + subjectKey(event);
+                lastModify.put(key, i);
+                Integer n = modifyCount.get(key);
+                modifyCount.put(key, n == null ? 1 : n + 1);
+                Set<String> details = modifyDetails.get(key);
+                if (details == null)
+                {
+                    details = new LinkedHashSet<String>();
+                    modifyDetails.put(key, details);
+                }
+                if (event.getDetail() != null)
+                {
+                    for (String detail : event.getDetail().split(DETAIL_SEPARATOR))
+                    {
+                        if (!detail.isEmpty())
+                        {
+                            details.add(detail);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Pass 2: emit.
+        Map<String, Integer> lastMembership = new HashMap<String, Integer>();
+        for (int i = 0; i < size; i++)
+        {
+            Event event = events.get(i);
+            int type = event.getEventType();
+            if (type == Event.MODIFY || type == Event.MODIFY_METADATA)
+            {
+                String key = type + ":" + subjectKey(event);
+                if (lastModify.get(key) != i)
+                {
+                    continue;
+                }
+                Integer deleted = lastDelete.get(subjectKey(event));
+                if (deleted != null && deleted > i)
+                {
+                    continue;
+                }
+                if (modifyCount.get(key) > 1)
+                {
+                    event = merge(event, modifyDetails.get(key));
+                }
+            }
+            else if (type == Event.ADD || type == Event.REMOVE)
+            {
+                String key = subjectKey(event) + ">" + event.getObjectType() + ":" + event.getObjectID();
+                Integer previous = lastMembership.put(key, type);
+                if (previous != null && previous == type)
+                {
+                    continue;
+                }
+            }
+            result.add(event);
+        }
+
+        count(size, result.size());
+        if (log.isDebugEnabled() && result.size() < size)
+        {
+            log.debug("Coalesced " + size + " events into " + result.size());
+        }
+        return result;
+    }
+
+    /**
+     * @return number of events given to the coalescer since startup.
+     */
+    public static long getEventsIn()
+    {
+        return eventsIn.get();
+    }
+
+    /**
+     * @return number of events left after coalescing since startup.
+     */
+    public static long getEventsOut()
+    {
+        return eventsOut.get();
+    }
+
+    private static void count(int in, int out)
+    {
+        eventsIn.addAndGet(in);
+        eventsOut.addAndGet(out);
+    }
+
+    private static String subjectKey(Event event)
+    {
+        return event.getSubjectType() + ":" + event.getSubjectID();
+    }
+
+    /**
+     * Build a copy of the last event of a series with all their details.
+     */
+    private static Event merge(Event last, Set<String> details)
+    {
+        Event merged = new Event(last.getEventType(), last.getSubjectType(), last.getSubjectID(),
+                last.getObjectType(), last.getObjectID(),
+                details.isEmpty() ? last.getDetail() : StringUtils.join(details, DETAIL_SEPARATOR),
+                new ArrayList<String>(last.getIdentifiers()));
+        merged.setCurrentUser(last.getCurrentUser());
+        merged.setExtraLogInfo(last.getExtraLogInfo());
+        return merged;
+    }
+}
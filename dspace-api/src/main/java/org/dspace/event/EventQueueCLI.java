@@ -0,0 +1,101 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event;
+
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.PosixParser;
+import org.dspace.core.Context;
+import org.dspace.event.factory.EventServiceFactory;
+import org.dspace.event.service.EventQueueService;
+
+/**
+ * Command line tool to inspect and maintain the persistent event queue used
+ * by asynchronous event consumers.
+ *
+ * @see AsynchronousDispatcher
+ */
+public class EventQueueCLI
+{
+    /** Default constructor */
+    private EventQueueCLI() { }
+
+    public static void main(String[] argv) throws Exception
+    {
+        CommandLineParser parser = new PosixParser();
+
+        Options options = new Options();
+        options.addOption("s", "status", false, "show pending and dead-lettered events per consumer");
+        options.addOption("l", "list-dead", true, "list the dead-lettered events of a consumer");
+        options.addOption("r", "requeue", true, "put the dead-lettered events of a consumer back in its queue");
+        options.addOption("p", "process", true, "deliver all due events of a consumer now, then exit");
+        options.addOption("h", "help", false, "help");
+
+        CommandLine line = parser.parse(options, argv);
+        if (line.hasOption('h') || line.getOptions().length == 0)
+        {
+            HelpFormatter myhelp = new HelpFormatter();
+            myhelp.printHelp("EventQueueCLI\n", options);
+            System.exit(0);
+        }
+
+        EventQueueService eventQueueService = EventServiceFactory.getInstance().getEventQueueService();
+        Context context = new Context();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            if (line.hasOption('s'))
+            {
+                List<String> consumers = eventQueueService.findConsumers(context);
+                if (consumers.isEmpty())
+                {
+                    System.out.println("The event queue is empty.");
+                }
+                for (String consumer : consumers)
+                {
+                    System.out.println(consumer + ": pending=" + eventQueueService.countPending(context, consumer)
+                            + ", dead=" + eventQueueService.countDead(context, consumer));
+                }
+            }
+            if (line.hasOption('l'))
+            {
+                for (QueuedEvent queuedEvent : eventQueueService.findDead(context, line.getOptionValue('l')))
+                {
+                    System.out.println("#" + queuedEvent.getID() + " queued " + queuedEvent.getQueued()
+                            + ", " + queuedEvent.getAttempts() + " attempts: " + queuedEvent.getEvent());
+                    System.out.println("    " + queuedEvent.getLastError());
+                }
+            }
+            if (line.hasOption('r'))
+            {
+                String consumer = line.getOptionValue('r');
+                int count = eventQueueService.requeueDead(context, consumer);
+                System.out.println("Requeued " + count + " events for " + consumer);
+            }
+            context.complete();
+
+            if (line.hasOption('p'))
+            {
+                String consumer = line.getOptionValue('p');
+                long count = EventQueueProcessor.getInstance().processPending(consumer);
+                System.out.println("Delivered " + count + " events to " + consumer);
+            }
+        }
+        finally
+        {
+            if (context.isValid())
+            {
+                context.abort();
+            }
+        }
+    }
+}
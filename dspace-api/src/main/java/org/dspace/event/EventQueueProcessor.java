@@ -0,0 +1,370 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+import org.dspace.event.factory.EventServiceFactory;
+import org.dspace.event.service.EventQueueService;
+
+/**
+ * Background delivery of queued events to asynchronous consumers.
+ * <p>
+ * There is one processor per JVM.  Every asynchronous consumer gets its own
+ * worker thread, with its own consumer instance, which periodically claims
+ * batches of queued events, calls {@link Consumer#consume} for each of them
+ * and {@link Consumer#end} once per batch, and removes the delivered entries,
+ * all in one transaction of its own {@link Context}.  Events are delivered to
+ * each consumer in the order they were queued; queue entries are locked while
+ * a batch is processed, so several DSpace applications may share one queue.
+ * <p>
+ * A failing event is retried later and eventually dead-lettered by the
+ * {@link EventQueueService}.
+ * <p>
+ * Configuration:
+ * <pre>
+ *   event.queue.workers.enabled = true   # run workers in this JVM
+ *   event.queue.poll-interval = 5        # seconds between polls of an idle queue
+ *   event.queue.batch-size = 100         # events per transaction
+ * </pre>
+ *
+ * @see AsynchronousDispatcher
+ */
+public class EventQueueProcessor
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(EventQueueProcessor.class);
+
+    private static final EventQueueProcessor instance = new EventQueueProcessor();
+
+    /** Running workers, by consumer name. */
+    private final Map<String, Worker> workers = new ConcurrentHashMap<String, Worker>();
+
+    private final Map<String, ScheduledExecutorService> executors = new ConcurrentHashMap<String, ScheduledExecutorService>();
+
+    protected EventQueueProcessor()
+    {
+    }
+
+    public static EventQueueProcessor getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Start a background worker for an asynchronous consumer, unless one is
+     * already running or workers are disabled in this JVM.
+     *
+     * @param consumerName name of the consumer.
+     */
+    public synchronized void register(String consumerName)
+    {
+        if (workers.containsKey(consumerName)
+                || !ConfigurationManager.getBooleanProperty("event.queue.workers.enabled", true))
+        {
+            return;
+        }
+
+        long interval = Math.max(1, ConfigurationManager.getLongProperty("event.queue.poll-interval", 5));
+        Worker worker = new Worker(consumerName);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                new WorkerThreadFactory(consumerName));
+        executor.scheduleWithFixedDelay(worker, interval, interval, TimeUnit.SECONDS);
+        workers.put(consumerName, worker);
+        executors.put(consumerName, executor);
+        log.info("Started event queue worker for consumer \"" + consumerName
+                + "\", polling every " + interval + "s");
+    }
+
+    /**
+     * Deliver all due events of a consumer on the calling thread.
+     *
+     * @param consumerName name of the consumer.
+     * @return number of delivered events.
+     */
+    public long processPending(String consumerName)
+    {
+        Worker worker = new Worker(consumerName);
+        try
+        {
+            worker.drain();
+        }
+        finally
+        {
+            worker.finish();
+        }
+        return worker.delivered.get();
+    }
+
+    /**
+     * Stop all background workers, waiting briefly for running batches, and
+     * finish their consumers.  Called when a web application is stopped, see
+     * {@link org.dspace.app.util.DSpaceContextListener}.
+     */
+    public synchronized void shutdown()
+    {
+        for (ScheduledExecutorService executor : executors.values())
+        {
+            executor.shutdown();
+        }
+        for (ScheduledExecutorService executor : executors.values())
+        {
+            try
+            {
+                executor.awaitTermination(30, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Worker worker : workers.values())
+        {
+            worker.finish();
+        }
+        executors.clear();
+        workers.clear();
+    }
+
+    /**
+     * @return one line per running worker with its delivery counters.
+     */
+    public List<String> getStatistics()
+    {
+        List<String> lines = new ArrayList<String>();
+        for (Worker worker : workers.values())
+        {
+            lines.add(worker.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Delivers the queued events of one consumer.
+     */
+    protected static class Worker implements Runnable
+    {
+        private final String consumerName;
+
+        private ConsumerProfile profile;
+
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong deadLettered = new AtomicLong();
+        final AtomicLong batches = new AtomicLong();
+
+        Worker(String consumerName)
+        {
+            this.consumerName = consumerName;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                drain();
+            }
+            catch (Throwable t)
+            {
+                // never let an exception cancel the scheduled task
+                log.error("Event queue worker for \"" + consumerName + "\" failed: " + t.toString(), t);
+            }
+        }
+
+        /**
+         * Process batches until the consumer's queue has no due events left.
+         */
+        void drain()
+        {
+            int batchSize = Math.max(1, ConfigurationManager.getIntProperty("event.queue.batch-size", 100));
+            while (processBatch(batchSize) == batchSize)
+            {
+                // keep going while there are full batches
+            }
+        }
+
+        /**
+         * Claim and deliver one batch of events in a transaction.
+         *
+         * @return number of claimed events.
+         */
+        int processBatch(int batchSize)
+        {
+            EventQueueService eventQueueService = EventServiceFactory.getInstance().getEventQueueService();
+            Context context = null;
+            try
+            {
+                Consumer consumer = getConsumer();
+                context = new Context();
+                context.turnOffAuthorisationSystem();
+
+                List<QueuedEvent> batch = eventQueueService.claim(context, consumerName, batchSize);
+                if (batch.isEmpty())
+                {
+                    context.abort();
+                    return 0;
+                }
+
+                long start = System.currentTimeMillis();
+                List<QueuedEvent> consumed = new ArrayList<QueuedEvent>(batch.size());
+                QueuedEvent failedEntry = null;
+                Exception failure = null;
+                for (QueuedEvent queuedEvent : batch)
+                {
+                    try
+                    {
+                        consumer.consume(context, queuedEvent.getEvent());
+                        consumed.add(queuedEvent);
+                    }
+                    catch (Exception e)
+                    {
+                        // stop here, so that later events wait for this one
+                        failedEntry = queuedEvent;
+                        failure = e;
+                        break;
+                    }
+                }
+
+                if (!consumed.isEmpty())
+                {
+                    try
+                    {
+                        consumer.end(context);
+                        for (QueuedEvent queuedEvent : consumed)
+                        {
+                            eventQueueService.delivered(context, queuedEvent);
+                        }
+                        delivered.addAndGet(consumed.size());
+                    }
+                    catch (Exception e)
+                    {
+                        // the whole batch will be delivered again
+                        for (QueuedEvent queuedEvent : consumed)
+                        {
+                            recordFailure(eventQueueService, context, queuedEvent, e);
+                        }
+                    }
+                }
+                if (failedEntry != null)
+                {
+                    recordFailure(eventQueueService, context, failedEntry, failure);
+                }
+
+                context.complete();
+                batches.incrementAndGet();
+                if (log.isDebugEnabled())
+                {
+                    log.debug("Delivered " + consumed.size() + " of " + batch.size()
+                            + " queued events to \"" + consumerName + "\" in "
+                            + (System.currentTimeMillis() - start) + " ms");
+                }
+                return failedEntry == null ? batch.size() : 0;
+            }
+            catch (Exception e)
+            {
+                log.error("Could not process event queue of \"" + consumerName + "\": " + e.toString(), e);
+                return 0;
+            }
+            finally
+            {
+                if (context != null && context.isValid())
+                {
+                    context.abort();
+                }
+            }
+        }
+
+        private void recordFailure(EventQueueService eventQueueService, Context context,
+                QueuedEvent queuedEvent, Exception e) throws java.sql.SQLException
+        {
+            failed.incrementAndGet();
+            if (eventQueueService.failed(context, queuedEvent, e))
+            {
+                deadLettered.incrementAndGet();
+            }
+        }
+
+        private synchronized Consumer getConsumer() throws Exception
+        {
+            if (profile == null)
+            {
+                ConsumerProfile newProfile = ConsumerProfile.makeConsumerProfile(consumerName);
+                newProfile.getConsumer().initialize();
+                profile = newProfile;
+            }
+            return profile.getConsumer();
+        }
+
+        synchronized void finish()
+        {
+            if (profile == null)
+            {
+                return;
+            }
+            Context context = new Context();
+            try
+            {
+                profile.getConsumer().finish(context);
+                context.complete();
+            }
+            catch (Exception e)
+            {
+                log.error("Error finishing consumer \"" + consumerName + "\": " + e.toString(), e);
+            }
+            finally
+            {
+                if (context.isValid())
+                {
+                    context.abort();
+                }
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return consumerName + ": delivered=" + delivered.get()
+                    + ", failed=" + failed.get()
+                    + ", deadLettered=" + deadLettered.get()
+                    + ", batches=" + batches.get();
+        }
+    }
+
+    /**
+     * Creates named daemon threads, so that workers never keep a JVM alive.
+     */
+    private static class WorkerThreadFactory implements ThreadFactory
+    {
+        private final String consumerName;
+
+        WorkerThreadFactory(String consumerName)
+        {
+            this.consumerName = consumerName;
+        }
+
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread thread = new Thread(r, "event-queue-" + consumerName);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
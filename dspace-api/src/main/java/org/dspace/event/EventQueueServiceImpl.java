@@ -0,0 +1,154 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.event.dao.QueuedEventDAO;
+import org.dspace.event.service.EventQueueService;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Service implementation for the QueuedEvent object.
+ * This class is responsible for all business logic calls for the QueuedEvent object and is autowired by spring.
+ * This class should never be accessed directly.
+ * <p>
+ * Configuration:
+ * <pre>
+ *   event.queue.max-attempts = 5    # deliveries before an entry is dead-lettered
+ *   event.queue.retry-delay = 30    # seconds before the first retry, doubled on every further attempt
+ * </pre>
+ */
+public class EventQueueServiceImpl implements EventQueueService
+{
+    private static final Logger log = Logger.getLogger(EventQueueServiceImpl.class);
+
+    /** Longest error message kept with a failed entry. */
+    private static final int MAX_ERROR_LENGTH = 4000;
+
+    @Autowired(required = true)
+    protected QueuedEventDAO queuedEventDAO;
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    protected EventQueueServiceImpl()
+    {
+
+    }
+
+    @Override
+    public QueuedEvent enqueue(Context context, String consumer, Event event) throws SQLException
+    {
+        QueuedEvent queuedEvent = new QueuedEvent();
+        queuedEvent.setEvent(consumer, event);
+        return queuedEventDAO.create(context, queuedEvent);
+    }
+
+    @Override
+    public List<QueuedEvent> claim(Context context, String consumer, int limit) throws SQLException
+    {
+        // Events are delivered strictly in queue order: an entry waiting for
+        // a retry holds back everything queued after it.
+        List<QueuedEvent> pending = queuedEventDAO.findPendingForUpdate(context, consumer, limit);
+        Date now = new Date();
+        for (int i = 0; i < pending.size(); i++)
+        {
+            Date nextAttempt = pending.get(i).getNextAttempt();
+            if (nextAttempt != null && nextAttempt.after(now))
+            {
+                return new ArrayList<>(pending.subList(0, i));
+            }
+        }
+        return pending;
+    }
+
+    @Override
+    public void delivered(Context context, QueuedEvent queuedEvent) throws SQLException
+    {
+        queuedEventDAO.delete(context, queuedEvent);
+    }
+
+    @Override
+    public boolean failed(Context context, QueuedEvent queuedEvent, Throwable error) throws SQLException
+    {
+        int maxAttempts = configurationService.getIntProperty("event.queue.max-attempts", 5);
+        long retryDelay = configurationService.getLongProperty("event.queue.retry-delay", 30);
+
+        int attempts = queuedEvent.getAttempts() + 1;
+        queuedEvent.setAttempts(attempts);
+        queuedEvent.setLastError(StringUtils.abbreviate(ExceptionUtils.getStackTrace(error), MAX_ERROR_LENGTH));
+
+        boolean dead = attempts >= maxAttempts;
+        if (dead)
+        {
+            queuedEvent.setStatus(QueuedEvent.STATUS_DEAD);
+            log.error("Event queue entry " + queuedEvent.getID() + " for consumer \""
+                    + queuedEvent.getConsumer() + "\" failed " + attempts
+                    + " times and was dead-lettered: " + error.toString());
+        }
+        else
+        {
+            // 30s, 60s, 120s, ...
+            long delay = retryDelay * 1000L * (1L << Math.min(attempts - 1, 16));
+            queuedEvent.setNextAttempt(new Date(System.currentTimeMillis() + delay));
+            log.warn("Event queue entry " + queuedEvent.getID() + " for consumer \""
+                    + queuedEvent.getConsumer() + "\" failed (attempt " + attempts
+                    + "), retrying in " + (delay / 1000) + "s: " + error.toString());
+        }
+        queuedEventDAO.save(context, queuedEvent);
+        return dead;
+    }
+
+    @Override
+    public int requeueDead(Context context, String consumer) throws SQLException
+    {
+        List<QueuedEvent> dead = queuedEventDAO.findByStatus(context, consumer, QueuedEvent.STATUS_DEAD);
+        Date now = new Date();
+        for (QueuedEvent queuedEvent : dead)
+        {
+            queuedEvent.setStatus(QueuedEvent.STATUS_PENDING);
+            queuedEvent.setAttempts(0);
+            queuedEvent.setNextAttempt(now);
+            queuedEventDAO.save(context, queuedEvent);
+        }
+        return dead.size();
+    }
+
+    @Override
+    public List<QueuedEvent> findDead(Context context, String consumer) throws SQLException
+    {
+        return queuedEventDAO.findByStatus(context, consumer, QueuedEvent.STATUS_DEAD);
+    }
+
+    @Override
+    public int countPending(Context context, String consumer) throws SQLException
+    {
+        return queuedEventDAO.countByStatus(context, consumer, QueuedEvent.STATUS_PENDING);
+    }
+
+    @Override
+    public int countDead(Context context, String consumer) throws SQLException
+    {
+        return queuedEventDAO.countByStatus(context, consumer, QueuedEvent.STATUS_DEAD);
+    }
+
+    @Override
+    public List<String> findConsumers(Context context) throws SQLException
+    {
+        return queuedEventDAO.findConsumers(context);
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import javax.persistence.*;
+
+import org.apache.commons.lang.StringUtils;
+import org.dspace.core.Context;
+import org.dspace.core.ReloadableEntity;
+import org.hibernate.annotations.Type;
+
+/**
+ * An {@link Event} waiting in the persistent event queue to be delivered to
+ * one asynchronous consumer.  Rows are written by the
+ * {@link AsynchronousDispatcher} in the same transaction as the change which
+ * caused the event, and removed once the consumer has processed them.
+ *
+ * @see org.dspace.event.service.EventQueueService
+ */
+@Entity
+@Table(name = "eventqueue")
+public class QueuedEvent implements ReloadableEntity<Integer>
+{
+    /** Waiting to be delivered (again). */
+    public static final int STATUS_PENDING = 0;
+
+    /** Delivery failed too often; kept for inspection and requeueing. */
+    public static final int STATUS_DEAD = 1;
+
+    @Id
+    @Column(name = "queue_id")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eventqueue_seq")
+    @SequenceGenerator(name = "eventqueue_seq", sequenceName = "eventqueue_seq", allocationSize = 1)
+    private Integer id;
+
+    @Column(name = "consumer", length = 64, nullable = false)
+    private String consumer;
+
+    @Column(name = "event_type", nullable = false)
+    private int eventType;
+
+    @Column(name = "subject_type", nullable = false)
+    private int subjectType;
+
+    @Column(name = "subject_id")
+    private UUID subjectId;
+
+    @Column(name = "object_type")
+    private int objectType = -1;
+
+    @Column(name = "object_id")
+    private UUID objectId;
+
+    @Lob
+    @Type(type = "org.hibernate.type.MaterializedClobType")
+    @Column(name = "detail")
+    private String detail;
+
+    @Lob
+    @Type(type = "org.hibernate.type.MaterializedClobType")
+    @Column(name = "identifiers")
+    private String identifiers;
+
+    @Column(name = "transaction_id", length = 64)
+    private String transactionId;
+
+    @Column(name = "status", nullable = false)
+    private int status = STATUS_PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "queued")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date queued;
+
+    @Column(name = "next_attempt")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date nextAttempt;
+
+    @Lob
+    @Type(type = "org.hibernate.type.MaterializedClobType")
+    @Column(name = "last_error")
+    private String lastError;
+
+    /**
+     * Protected constructor, create object using:
+     * {@link org.dspace.event.service.EventQueueService#enqueue(Context, String, Event)}
+     */
+    protected QueuedEvent()
+    {
+    }
+
+    /**
+     * Copy the content of an event into this queue entry.
+     *
+     * @param consumer name of the consumer the event is queued for.
+     * @param event the event.
+     */
+    void setEvent(String consumer, Event event)
+    {
+        this.consumer = consumer;
+        this.eventType = event.getEventType();
+        this.subjectType = event.getSubjectType();
+        this.subjectId = event.getSubjectID();
+        this.objectType = event.getObjectType();
+        this.objectId = event.getObjectID();
+        this.detail = event.getDetail();
+        this.identifiers = StringUtils.join(event.getIdentifiers(), '\n');
+        this.transactionId = event.getTransactionID();
+        this.queued = new Date();
+        this.nextAttempt = this.queued;
+    }
+
+    /**
+     * Rebuild the queued event.
+     *
+     * @return a new event equal to the one that was queued.
+     */
+    public Event getEvent()
+    {
+        ArrayList<String> ids = new ArrayList<>();
+        if (StringUtils.isNotEmpty(identifiers))
+        {
+            ids.addAll(Arrays.asList(identifiers.split("\n")));
+        }
+        Event event = new Event(eventType, subjectType, subjectId, objectType, objectId, detail, ids);
+        event.setTransactionID(transactionId);
+        return event;
+    }
+
+    @Override
+    public Integer getID()
+    {
+        return id;
+    }
+
+    public String getConsumer()
+    {
+        return consumer;
+    }
+
+    public String getTransactionId()
+    {
+        return transactionId;
+    }
+
+    public int getStatus()
+    {
+        return status;
+    }
+
+    void setStatus(int status)
+    {
+        this.status = status;
+    }
+
+    public int getAttempts()
+    {
+        return attempts;
+    }
+
+    void setAttempts(int attempts)
+    {
+        this.attempts = attempts;
+    }
+
+    public Date getQueued()
+    {
+        return queued;
+    }
+
+    public Date getNextAttempt()
+    {
+        return nextAttempt;
+    }
+
+    void setNextAttempt(Date nextAttempt)
+    {
+        this.nextAttempt = nextAttempt;
+    }
+
+    public String getLastError()
+    {
+        return lastError;
+    }
+
+    void setLastError(String lastError)
+    {
+        this.lastError = lastError;
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event.dao;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.dspace.core.Context;
+import org.dspace.core.GenericDAO;
+import org.dspace.event.QueuedEvent;
+
+/**
+ * Database Access Object interface class for the QueuedEvent object.
+ * The implementation of this class is responsible for all database calls for the QueuedEvent object and is autowired by spring
+ * This class should only be accessed from a single service and should never be exposed outside of the API
+ */
+public interface QueuedEventDAO extends GenericDAO<QueuedEvent>
+{
+    /**
+     * Find the oldest pending events of a consumer, locking them against
+     * other workers until the current transaction ends.
+     *
+     * @param context DSpace context
+     * @param consumer consumer name
+     * @param limit maximum number of events
+     * @return pending events in queue order
+     * @throws SQLException if database error
+     */
+    public List<QueuedEvent> findPendingForUpdate(Context context, String consumer, int limit)
+            throws SQLException;
+
+    public List<QueuedEvent> findByStatus(Context context, String consumer, int status) throws SQLException;
+
+    public int countByStatus(Context context, String consumer, int status) throws SQLException;
+
+    public List<String> findConsumers(Context context) throws SQLException;
+}
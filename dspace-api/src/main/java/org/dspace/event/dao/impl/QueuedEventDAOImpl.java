@@ -0,0 +1,81 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event.dao.impl;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.dspace.core.AbstractHibernateDAO;
+import org.dspace.core.Context;
+import org.dspace.event.QueuedEvent;
+import org.dspace.event.dao.QueuedEventDAO;
+import org.hibernate.Criteria;
+import org.hibernate.LockMode;
+import org.hibernate.Query;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+
+/**
+ * Hibernate implementation of the Database Access Object interface class for the QueuedEvent object.
+ * This class is responsible for all database calls for the QueuedEvent object and is autowired by spring
+ * This class should never be accessed directly.
+ */
+public class QueuedEventDAOImpl extends AbstractHibernateDAO<QueuedEvent> implements QueuedEventDAO
+{
+    protected QueuedEventDAOImpl()
+    {
+        super();
+    }
+
+    @Override
+    public List<QueuedEvent> findPendingForUpdate(Context context, String consumer, int limit)
+            throws SQLException
+    {
+        Criteria criteria = createCriteria(context, QueuedEvent.class);
+        criteria.add(Restrictions.and(
+                Restrictions.eq("consumer", consumer),
+                Restrictions.eq("status", QueuedEvent.STATUS_PENDING)
+        ));
+        criteria.addOrder(Order.asc("id"));
+        criteria.setMaxResults(limit);
+        criteria.setLockMode(LockMode.PESSIMISTIC_WRITE);
+        return list(criteria);
+    }
+
+    @Override
+    public List<QueuedEvent> findByStatus(Context context, String consumer, int status) throws SQLException
+    {
+        Criteria criteria = createCriteria(context, QueuedEvent.class);
+        criteria.add(Restrictions.and(
+                Restrictions.eq("consumer", consumer),
+                Restrictions.eq("status", status)
+        ));
+        criteria.addOrder(Order.asc("id"));
+        return list(criteria);
+    }
+
+    @Override
+    public int countByStatus(Context context, String consumer, int status) throws SQLException
+    {
+        Criteria criteria = createCriteria(context, QueuedEvent.class);
+        criteria.add(Restrictions.and(
+                Restrictions.eq("consumer", consumer),
+                Restrictions.eq("status", status)
+        ));
+        return count(criteria);
+    }
+
+    @Override
+    public List<String> findConsumers(Context context) throws SQLException
+    {
+        Query query = createQuery(context, "SELECT DISTINCT consumer FROM QueuedEvent ORDER BY consumer");
+        @SuppressWarnings("unchecked")
+        List<String> consumers = query.list();
+        return consumers;
+    }
+}
@@ -7,6 +7,7 @@
  */
 package org.dspace.event.factory;
 
+import org.dspace.event.service.EventQueueService;
 import org.dspace.event.service.EventService;
 import org.dspace.services.factory.DSpaceServicesFactory;
 
@@ -19,6 +20,8 @@ public abstract class EventServiceFactory {
 
     public abstract EventService getEventService();
 
+    public abstract EventQueueService getEventQueueService();
+
     public static EventServiceFactory getInstance()
     {
         return DSpaceServicesFactory.getInstance().getServiceManager().getServiceByName("eventServiceFactory", EventServiceFactory.class);
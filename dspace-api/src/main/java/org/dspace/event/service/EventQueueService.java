@@ -0,0 +1,95 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event.service;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.dspace.core.Context;
+import org.dspace.event.Event;
+import org.dspace.event.QueuedEvent;
+
+/**
+ * Service interface class for the persistent event queue used by
+ * asynchronous event consumers.
+ * The implementation of this class is responsible for all business logic calls for the QueuedEvent object and is autowired by spring
+ *
+ * @see org.dspace.event.AsynchronousDispatcher
+ */
+public interface EventQueueService {
+
+    /**
+     * Queue an event for later delivery to a consumer.  The entry becomes
+     * visible to workers when the context's transaction is committed.
+     *
+     * @param context DSpace context
+     * @param consumer name of the consumer
+     * @param event the event
+     * @return the queue entry
+     * @throws SQLException if database error
+     */
+    public QueuedEvent enqueue(Context context, String consumer, Event event) throws SQLException;
+
+    /**
+     * Claim the next due events of a consumer, in queue order.  The entries
+     * stay locked against other workers until the context's transaction
+     * ends.
+     *
+     * @param context DSpace context
+     * @param consumer name of the consumer
+     * @param limit maximum number of entries to claim
+     * @return claimed entries, possibly empty
+     * @throws SQLException if database error
+     */
+    public List<QueuedEvent> claim(Context context, String consumer, int limit) throws SQLException;
+
+    /**
+     * Remove a successfully delivered entry from the queue.
+     *
+     * @param context DSpace context
+     * @param queuedEvent the delivered entry
+     * @throws SQLException if database error
+     */
+    public void delivered(Context context, QueuedEvent queuedEvent) throws SQLException;
+
+    /**
+     * Record a failed delivery.  The entry is retried later with an
+     * increasing delay, or moved to the dead letters once the configured
+     * maximum number of attempts is reached.
+     *
+     * @param context DSpace context
+     * @param queuedEvent the entry that could not be delivered
+     * @param error the cause of the failure
+     * @return true if the entry was dead-lettered
+     * @throws SQLException if database error
+     */
+    public boolean failed(Context context, QueuedEvent queuedEvent, Throwable error) throws SQLException;
+
+    /**
+     * Put all dead letters of a consumer back into its queue.
+     *
+     * @param context DSpace context
+     * @param consumer name of the consumer
+     * @return number of requeued entries
+     * @throws SQLException if database error
+     */
+    public int requeueDead(Context context, String consumer) throws SQLException;
+
+    public List<QueuedEvent> findDead(Context context, String consumer) throws SQLException;
+
+    public int countPending(Context context, String consumer) throws SQLException;
+
+    public int countDead(Context context, String consumer) throws SQLException;
+
+    /**
+     * @param context DSpace context
+     * @return names of all consumers with entries in the queue
+     * @throws SQLException if database error
+     */
+    public List<String> findConsumers(Context context) throws SQLException;
+}
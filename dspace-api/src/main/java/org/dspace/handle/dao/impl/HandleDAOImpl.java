@@ -10,6 +10,7 @@ package org.dspace.handle.dao.impl;
 import org.dspace.content.DSpaceObject;
 import org.dspace.core.Context;
 import org.dspace.core.AbstractHibernateDAO;
+import org.dspace.core.HibernateCache;
 import org.dspace.handle.Handle;
 import org.dspace.handle.dao.HandleDAO;
 import org.hibernate.Criteria;
@@ -39,15 +40,17 @@ public class HandleDAOImpl extends AbstractHibernateDAO<Handle> implements Handl
         if(dso == null) {
             return Collections.emptyList();
         } else {
+            // No fetch join of the object: its tables would be query spaces of
+            // the cached results, which would be invalidated by every new object
             Query query = createQuery(context,
                     "SELECT h " +
                     "FROM Handle h " +
-                    "LEFT JOIN FETCH h.dso " +
                     "WHERE h.dso.id = :id ");
 
             query.setParameter("id", dso.getID());
 
             query.setCacheable(true);
+            query.setCacheRegion(HibernateCache.HANDLE_QUERIES);
             return list(query);
         }
     }
@@ -57,12 +60,12 @@ public class HandleDAOImpl extends AbstractHibernateDAO<Handle> implements Handl
         Query query = createQuery(context,
                 "SELECT h " +
                 "FROM Handle h " +
-                "LEFT JOIN FETCH h.dso " +
                 "WHERE h.handle = :handle ");
 
         query.setParameter("handle", handle);
 
         query.setCacheable(true);
+        query.setCacheRegion(HibernateCache.HANDLE_QUERIES);
         return uniqueResult(query);
     }
 
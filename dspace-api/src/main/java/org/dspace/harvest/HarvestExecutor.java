@@ -0,0 +1,420 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.harvest;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs the harvests queued by the {@link HarvestScheduler} on a bounded pool
+ * of threads.
+ * <P>
+ * Harvests are started in the order they were queued, but never more than
+ * the configured number per OAI host at a time: a harvest whose host is busy
+ * waits and lets the next ones pass. With a limit per host lower than the
+ * number of threads, one slow provider cannot occupy all threads. A
+ * collection is never queued twice. A new harvest is started as soon as a
+ * running one completes, and threads waiting for the executor to become idle
+ * are signalled rather than polling.
+ */
+public class HarvestExecutor
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(HarvestExecutor.class);
+
+    private final int maxThreads;
+    private final int maxThreadsPerHost;
+    private final ExecutorService pool;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition idle = lock.newCondition();
+
+    /** Harvests waiting for a thread, in the order they were queued */
+    private final LinkedList<Harvest> pending = new LinkedList<Harvest>();
+    /** Collections queued or running */
+    private final Set<UUID> collections = new HashSet<UUID>();
+    /** Running harvests, by host */
+    private final Map<String, Integer> runningPerHost = new HashMap<String, Integer>();
+    /** Duration of the last harvest of each collection in milliseconds */
+    private final Map<UUID, Long> durations = new LinkedHashMap<UUID, Long>();
+
+    private int running = 0;
+    private long completed = 0;
+    private boolean paused = false;
+    private boolean shutdown = false;
+
+    /**
+     * @param maxThreads the maximum number of harvests running at a time
+     * @param maxThreadsPerHost the maximum number of harvests from one OAI host running at a time
+     */
+    public HarvestExecutor(int maxThreads, int maxThreadsPerHost)
+    {
+        this.maxThreads = Math.max(1, maxThreads);
+        this.maxThreadsPerHost = Math.max(1, maxThreadsPerHost);
+        this.pool = Executors.newFixedThreadPool(this.maxThreads, new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "oai-harvest-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param collectionId a collection
+     * @return true if the collection is queued or being harvested
+     */
+    public boolean contains(UUID collectionId)
+    {
+        lock.lock();
+        try
+        {
+            return collections.contains(collectionId);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a harvest, and start it if there is capacity.
+     *
+     * @param collectionId the collection to harvest
+     * @param oaiSource the address of the OAI-PMH provider
+     * @param harvest the harvest itself
+     * @return false if the collection is already queued or running, or the executor was shut down
+     */
+    public boolean submit(UUID collectionId, String oaiSource, Runnable harvest)
+    {
+        lock.lock();
+        try
+        {
+            if (shutdown || !collections.add(collectionId))
+            {
+                return false;
+            }
+            pending.add(new Harvest(collectionId, getHost(oaiSource), harvest));
+            dispatch();
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop or resume starting queued harvests. Running harvests are not
+     * affected.
+     *
+     * @param paused true to hold the queued harvests
+     */
+    public void setPaused(boolean paused)
+    {
+        lock.lock();
+        try
+        {
+            this.paused = paused;
+            dispatch();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove all harvests which have not started yet.
+     *
+     * @return the collections removed from the queue
+     */
+    public List<UUID> cancelPending()
+    {
+        lock.lock();
+        try
+        {
+            List<UUID> cancelled = new ArrayList<UUID>();
+            for (Harvest harvest : pending)
+            {
+                cancelled.add(harvest.collectionId);
+                collections.remove(harvest.collectionId);
+            }
+            pending.clear();
+            signalIfIdle();
+            return cancelled;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until no harvest is queued or running.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if the executor is idle, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try
+        {
+            while (running > 0 || (!pending.isEmpty() && !paused))
+            {
+                if (nanos <= 0)
+                {
+                    return false;
+                }
+                nanos = idle.awaitNanos(nanos);
+            }
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop the queued harvests and release the threads once the running
+     * ones have completed.
+     */
+    public void shutdown()
+    {
+        lock.lock();
+        try
+        {
+            shutdown = true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        cancelPending();
+        pool.shutdown();
+    }
+
+    /**
+     * @return the number of harvests waiting for a thread
+     */
+    public int getQueueDepth()
+    {
+        lock.lock();
+        try
+        {
+            return pending.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of running harvests
+     */
+    public int getActiveCount()
+    {
+        lock.lock();
+        try
+        {
+            return running;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of harvests completed since the executor was created
+     */
+    public long getCompletedCount()
+    {
+        lock.lock();
+        try
+        {
+            return completed;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the duration of the last completed harvest of each collection, in milliseconds
+     */
+    public Map<UUID, Long> getDurations()
+    {
+        lock.lock();
+        try
+        {
+            return new LinkedHashMap<UUID, Long>(durations);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Start as many queued harvests as the limits allow. Must be called with
+     * the lock held.
+     */
+    private void dispatch()
+    {
+        if (paused || shutdown)
+        {
+            return;
+        }
+        Iterator<Harvest> iterator = pending.iterator();
+        while (running < maxThreads && iterator.hasNext())
+        {
+            Harvest harvest = iterator.next();
+            Integer hostCount = runningPerHost.get(harvest.host);
+            if (hostCount != null && hostCount >= maxThreadsPerHost)
+            {
+                continue;
+            }
+            iterator.remove();
+            runningPerHost.put(harvest.host, hostCount == null ? 1 : hostCount + 1);
+            running++;
+            pool.execute(harvest);
+            log.info("Harvest of collection " + harvest.collectionId + " from " + harvest.host + " started, "
+                    + running + " running, " + pending.size() + " queued");
+        }
+    }
+
+    private void completed(Harvest harvest, long duration)
+    {
+        lock.lock();
+        try
+        {
+            running--;
+            completed++;
+            Integer hostCount = runningPerHost.get(harvest.host);
+            if (hostCount == null || hostCount <= 1)
+            {
+                runningPerHost.remove(harvest.host);
+            }
+            else
+            {
+                runningPerHost.put(harvest.host, hostCount - 1);
+            }
+            collections.remove(harvest.collectionId);
+            durations.remove(harvest.collectionId);
+            durations.put(harvest.collectionId, duration);
+
+            dispatch();
+            signalIfIdle();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void signalIfIdle()
+    {
+        if (running == 0 && (pending.isEmpty() || paused))
+        {
+            idle.signalAll();
+        }
+    }
+
+    /**
+     * @param oaiSource the address of an OAI-PMH provider
+     * @return the host name of the provider, or the address itself if it cannot be parsed
+     */
+    protected static String getHost(String oaiSource)
+    {
+        if (oaiSource == null)
+        {
+            return "";
+        }
+        try
+        {
+            String host = new URI(oaiSource.trim()).getHost();
+            if (host != null)
+            {
+                return host.toLowerCase();
+            }
+        }
+        catch (java.net.URISyntaxException e)
+        {
+            log.debug("Unable to parse OAI source " + oaiSource);
+        }
+        return oaiSource;
+    }
+
+    /**
+     * A queued harvest, which reports its completion to the executor.
+     */
+    private class Harvest implements Runnable
+    {
+        private final UUID collectionId;
+        private final String host;
+        private final Runnable task;
+
+        Harvest(UUID collectionId, String host, Runnable task)
+        {
+            this.collectionId = collectionId;
+            this.host = host;
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            long start = System.currentTimeMillis();
+            try
+            {
+                task.run();
+            }
+            catch (RuntimeException e)
+            {
+                log.error("Harvest of collection " + collectionId + " failed: " + e.getMessage(), e);
+            }
+            finally
+            {
+                long duration = System.currentTimeMillis() - start;
+                log.info("Harvest of collection " + collectionId + " completed in " + duration + " ms");
+                completed(this, duration);
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import org.dspace.harvest.service.HarvestedCollectionService;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The class responsible for scheduling harvesting cycles are regular intervals.
@@ -37,11 +38,13 @@ public class HarvestScheduler implements Runnable
 
     public static final Object lock = new Object();
 
-    protected static Stack<HarvestThread> harvestThreads;
+    /** Runs the harvests of this scheduler */
+    protected HarvestExecutor executor;
 
-    protected static Integer maxActiveThreads;
+    /** The executor of the most recently created scheduler, for status reports */
+    protected static volatile HarvestExecutor activeExecutor;
 
-    protected static volatile Integer activeThreads = 0;
+    protected static Integer maxActiveThreads;
 
     public static final int HARVESTER_STATUS_RUNNING = 1;
 
@@ -65,7 +68,7 @@ public class HarvestScheduler implements Runnable
 
     protected static int status = HARVESTER_STATUS_STOPPED;
 
-    private static int interrupt = HARVESTER_INTERRUPT_NONE;
+    private static volatile int interrupt = HARVESTER_INTERRUPT_NONE;
 
     protected static UUID interruptValue = null;
 
@@ -100,13 +103,45 @@ public class HarvestScheduler implements Runnable
             case HARVESTER_INTERRUPT_PAUSE: return("The scheduler is finishing active harvests before pausing. ");
             case HARVESTER_INTERRUPT_STOP: return("The scheduler is shutting down. ");
             }
-            return("The scheduler is actively harvesting collections. ");
-        case HARVESTER_STATUS_SLEEPING: return("The scheduler is waiting for collections to harvest. ");
-        case HARVESTER_STATUS_PAUSED: return("The scheduler is paused. ");
+            return("The scheduler is actively harvesting collections. " + getQueueStatus());
+        case HARVESTER_STATUS_SLEEPING: return("The scheduler is waiting for collections to harvest. " + getQueueStatus());
+        case HARVESTER_STATUS_PAUSED: return("The scheduler is paused. " + getQueueStatus());
         default: return("Automatic harvesting is not active. ");
         }
     }
 
+    private static String getQueueStatus() {
+        HarvestExecutor current = activeExecutor;
+        if (current == null || (current.getActiveCount() == 0 && current.getQueueDepth() == 0)) {
+            return "";
+        }
+        return "(" + current.getActiveCount() + " running, " + current.getQueueDepth() + " queued) ";
+    }
+
+    /**
+     * @return the number of collections waiting to be harvested
+     */
+    public static int getQueueDepth() {
+        HarvestExecutor current = activeExecutor;
+        return current == null ? 0 : current.getQueueDepth();
+    }
+
+    /**
+     * @return the number of collections being harvested
+     */
+    public static int getActiveHarvests() {
+        HarvestExecutor current = activeExecutor;
+        return current == null ? 0 : current.getActiveCount();
+    }
+
+    /**
+     * @return the duration of the last harvest of each collection in milliseconds, since the scheduler was started
+     */
+    public static Map<UUID, Long> getHarvestDurations() {
+        HarvestExecutor current = activeExecutor;
+        return current == null ? Collections.<UUID, Long>emptyMap() : current.getDurations();
+    }
+
     public HarvestScheduler() throws SQLException, AuthorizeException {
         mainContext = new Context();
         String harvestAdminParam = ConfigurationManager.getProperty("oai", "harvester.eperson");
@@ -116,13 +151,14 @@ public class HarvestScheduler implements Runnable
             harvestAdmin = EPersonServiceFactory.getInstance().getEPersonService().findByEmail(mainContext, harvestAdminParam);
         }
 
-        harvestThreads = new Stack<HarvestThread>();
-
         maxActiveThreads = ConfigurationManager.getIntProperty("oai", "harvester.maxThreads");
         if (maxActiveThreads == 0)
         {
             maxActiveThreads = 3;
         }
+        int maxThreadsPerHost = ConfigurationManager.getIntProperty("oai", "harvester.maxThreadsPerHost", maxActiveThreads);
+        executor = new HarvestExecutor(maxActiveThreads, maxThreadsPerHost);
+        activeExecutor = executor;
         minHeartbeat = ConfigurationManager.getIntProperty("oai", "harvester.minHeartbeat") * 1000;
         if (minHeartbeat == 0)
         {
@@ -148,6 +184,7 @@ public class HarvestScheduler implements Runnable
             {
                 mainContext = new Context();
 
+                boolean stop = false;
                 synchronized (HarvestScheduler.class) {
                     switch (interrupt) {
                         case HARVESTER_INTERRUPT_NONE:
@@ -160,27 +197,42 @@ public class HarvestScheduler implements Runnable
                         case HARVESTER_INTERRUPT_PAUSE:
                             interrupt = HARVESTER_INTERRUPT_NONE;
                             status = HARVESTER_STATUS_PAUSED;
+                            executor.setPaused(true);
                             break;
                         case HARVESTER_INTERRUPT_STOP:
-                            interrupt = HARVESTER_INTERRUPT_NONE;
-                            status = HARVESTER_STATUS_STOPPED;
-                            return;
+                            stop = true;
+                            break;
                     }
                 }
 
+                if (stop) {
+                    shutdown();
+                    return;
+                }
+
                 if (status == HARVESTER_STATUS_PAUSED) {
-                    while(interrupt != HARVESTER_INTERRUPT_RESUME && interrupt != HARVESTER_INTERRUPT_STOP) {
-                        Thread.sleep(1000);
+                    // queued harvests are held until the scheduler is resumed or stopped
+                    synchronized (lock) {
+                        while (interrupt != HARVESTER_INTERRUPT_RESUME && interrupt != HARVESTER_INTERRUPT_STOP) {
+                            lock.wait();
+                        }
                     }
 
-                    if (interrupt != HARVESTER_INTERRUPT_STOP) {
-                        break;
+                    if (interrupt == HARVESTER_INTERRUPT_STOP) {
+                        mainContext.abort();
+                        shutdown();
+                        return;
+                    }
+                    synchronized (HarvestScheduler.class) {
+                        interrupt = HARVESTER_INTERRUPT_NONE;
                     }
+                    executor.setPaused(false);
                 }
 
                 status = HARVESTER_STATUS_RUNNING;
 
-                // Stage #1: if something is ready for harvest, push it onto the ready stack, mark it as "queued"
+                // Queue everything that is ready for harvest; the executor starts the harvests
+                // as threads become available, so a long harvest does not hold up the others
                 List<HarvestedCollection> cids = harvestedCollectionService.findReady(mainContext);
                 log.info("Collections ready for immediate harvest: " + cids.toString());
 
@@ -188,42 +240,25 @@ public class HarvestScheduler implements Runnable
                     addThread(mainContext, harvestedCollection);
                 }
 
-                // Stage #2: start up all the threads currently in the queue up to the maximum number
-                while (!harvestThreads.isEmpty()) {
-                    synchronized(HarvestScheduler.class) {
-                        activeThreads++;
-                    }
-                    Thread activeThread = new Thread(harvestThreads.pop());
-                    activeThread.start();
-                    log.info("Thread started: " + activeThread.toString());
-
-                    /* Wait while the number of threads running is greater than or equal to max */
-                    while (activeThreads >= maxActiveThreads) {
-                        /* Wait a second */
-                        Thread.sleep(1000);
-                    }
-                }
-
-                // Finally, wait for the last few remaining threads to finish
-                // TODO: this step might be unnecessary. Theoretically a single very long harvest process
-                // could then lock out all the other ones from starting on their next iteration.
-                // FIXME: also, this might lead to a situation when a single thread getting stuck without
-                // throwing an exception would shut down the whole scheduler
-                while (activeThreads != 0) {
-                        /* Wait a second */
-                        Thread.sleep(1000);
-                }
-
                 // Commit everything
                 try {
                         mainContext.complete();
-                        log.info("Done with iteration " + i);
+                        log.info("Done with iteration " + i + ": " + executor.getActiveCount() + " harvests running, "
+                                + executor.getQueueDepth() + " queued");
                 } catch (SQLException e) {
                         e.printStackTrace();
                         mainContext.abort();
                 }
 
             }
+            catch (InterruptedException ie) {
+                    log.warn("Interrupt: " + ie.getMessage());
+                    if (mainContext != null && mainContext.isValid()) {
+                        mainContext.abort();
+                    }
+                    shutdown();
+                    return;
+            }
             catch (Exception e) {
                     log.error("Exception on iteration: " + i);
                     e.printStackTrace();
@@ -274,24 +309,73 @@ public class HarvestScheduler implements Runnable
 
 
     /**
-     * Adds a thread to the ready stack. Can also be called externally to queue up a collection
+     * Stop the scheduler: drop the queued harvests, and wait for the running
+     * ones, which see the STOP interrupt, to save their progress and end.
+     */
+    protected void shutdown() throws InterruptedException {
+        List<UUID> cancelled = executor.cancelPending();
+        if (!cancelled.isEmpty()) {
+            resetQueued(cancelled);
+        }
+        executor.shutdown();
+        executor.awaitIdle(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        synchronized (HarvestScheduler.class) {
+            interrupt = HARVESTER_INTERRUPT_NONE;
+            status = HARVESTER_STATUS_STOPPED;
+        }
+        log.info("Harvest scheduler stopped");
+    }
+
+    /**
+     * Set collections which were queued but never harvested back to "ready".
+     */
+    private void resetQueued(List<UUID> collectionIds) {
+        Context context = null;
+        try {
+            context = new Context();
+            for (UUID collectionId : collectionIds) {
+                HarvestedCollection hc = harvestedCollectionService.find(context, collectionService.find(context, collectionId));
+                if (hc != null && hc.getHarvestStatus() == HarvestedCollection.STATUS_QUEUED) {
+                    hc.setHarvestStatus(HarvestedCollection.STATUS_READY);
+                    harvestedCollectionService.update(context, hc);
+                }
+            }
+            context.complete();
+        } catch (SQLException e) {
+            log.error("Unable to reset the status of queued collections: " + e.getMessage(), e);
+        } finally {
+            if (context != null && context.isValid()) {
+                context.abort();
+            }
+        }
+    }
+
+    /**
+     * Adds a collection to the harvest queue. Can also be called externally to queue up a collection
      * for harvesting before it is "due" for another cycle. This allows starting a harvest process
      * from the UI that still "plays nice" with these thread mechanics instead of making an
      * asynchronous call to runHarvest().
+     * The queued status is committed before the harvest can start.
      */
     public void addThread(Context context, HarvestedCollection harvestedCollection) throws SQLException, IOException, AuthorizeException {
-        log.debug("****** Entered the addThread method. Active threads: " + harvestThreads.toString());
+        // an earlier call may have committed the context
+        harvestedCollection = context.reloadEntity(harvestedCollection);
+        UUID collectionId = harvestedCollection.getCollection().getID();
+        if (executor.contains(collectionId)) {
+            log.debug("Collection " + collectionId + " is already queued or being harvested");
+            return;
+        }
         context.setCurrentUser(harvestAdmin);
 
+        String oaiSource = harvestedCollection.getOaiSource();
         harvestedCollection.setHarvestStatus(HarvestedCollection.STATUS_QUEUED);
         harvestedCollectionService.update(context, harvestedCollection);
-        context.dispatchEvents();
+        context.commit();
 
-        HarvestThread ht = new HarvestThread(harvestedCollection.getCollection().getID());
-        harvestThreads.push(ht);
+        HarvestThread ht = new HarvestThread(collectionId);
+        executor.submit(collectionId, oaiSource, ht);
 
-        log.debug("****** Queued up a thread. Active threads: " + harvestThreads.toString());
-        log.info("Thread queued up: " + ht.toString());
+        log.info("Thread queued up: " + ht.toString() + ", " + executor.getQueueDepth() + " queued");
     }
 
 
@@ -77,10 +77,6 @@ public class HarvestThread extends Thread {
                     log.error("Unexpected exception while recovering from a harvesting error: " + e.getMessage(), e);
                     context.abort();
                 }
-
-                synchronized (HarvestScheduler.class) {
-                    HarvestScheduler.activeThreads--;
-                }
             }
         } catch (SQLException e) {
             log.error(e.getMessage(), e);
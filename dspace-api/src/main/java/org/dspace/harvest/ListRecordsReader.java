@@ -0,0 +1,539 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.harvest;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.IllegalAddException;
+import org.jdom.Namespace;
+
+/**
+ * Reads the pages of an OAI-PMH ListRecords response, one resumption token
+ * after the other.
+ * <P>
+ * Each page is parsed with StAX: only the {@code record} elements are built
+ * as JDOM elements, one at a time, so no DOM or JDOM tree of the whole
+ * response is kept. As soon as a page has been read, the request for the
+ * next one is started on a background thread, so the next page is downloaded
+ * and parsed while the records of the current one are ingested.
+ */
+public class ListRecordsReader implements Closeable
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(ListRecordsReader.class);
+
+    private static final String OAI_NS_URI = "http://www.openarchives.org/OAI/2.0/";
+
+    /** Number of times a request answered with "503 Retry-After" is repeated */
+    private static final int MAX_RETRIES = 5;
+
+    /** Longest wait asked for by a "Retry-After" header that is honoured, in seconds */
+    private static final int MAX_RETRY_AFTER = 3600;
+
+    private static final XMLInputFactory inputFactory;
+    static
+    {
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
+
+    private final String baseURL;
+    private final int timeout;
+    private final ExecutorService executor;
+
+    private Future<Page> pending;
+
+    /**
+     * Start reading a ListRecords response. The first page is requested
+     * immediately, in the background.
+     *
+     * @param baseURL the address of the OAI-PMH provider
+     * @param from the "from" argument, or null
+     * @param until the "until" argument, or null
+     * @param set the set to harvest, or null for all records
+     * @param metadataPrefix the metadata format to harvest
+     * @param timeout the connect and read timeout of every request in milliseconds, 0 for none
+     */
+    public ListRecordsReader(String baseURL, String from, String until, String set, String metadataPrefix,
+            int timeout)
+    {
+        this.baseURL = baseURL;
+        this.timeout = timeout;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "oai-harvest-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        StringBuilder url = new StringBuilder(baseURL).append("?verb=ListRecords");
+        appendParameter(url, "from", from);
+        appendParameter(url, "until", until);
+        appendParameter(url, "set", set);
+        appendParameter(url, "metadataPrefix", metadataPrefix);
+        request(url.toString());
+    }
+
+    /**
+     * Wait for the next page, and start requesting the one after it.
+     *
+     * @return the next page, or null if the previous page was the last one
+     * @throws IOException if the page could not be requested or parsed
+     */
+    public Page next() throws IOException
+    {
+        if (pending == null)
+        {
+            return null;
+        }
+
+        Page page;
+        try
+        {
+            page = pending.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + baseURL);
+        }
+        catch (ExecutionException e)
+        {
+            pending = null;
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to read the ListRecords response of " + baseURL, e.getCause());
+        }
+
+        pending = null;
+        if (page.getErrors().isEmpty() && StringUtils.isNotEmpty(page.getResumptionToken()))
+        {
+            StringBuilder url = new StringBuilder(baseURL).append("?verb=ListRecords");
+            appendParameter(url, "resumptionToken", page.getResumptionToken());
+            request(url.toString());
+        }
+        return page;
+    }
+
+    /**
+     * Abandon any request still running.
+     */
+    @Override
+    public void close()
+    {
+        if (pending != null)
+        {
+            pending.cancel(true);
+            pending = null;
+        }
+        executor.shutdownNow();
+    }
+
+    private void request(final String url)
+    {
+        pending = executor.submit(new Callable<Page>()
+        {
+            @Override
+            public Page call() throws Exception
+            {
+                return fetch(url, timeout);
+            }
+        });
+    }
+
+    private static void appendParameter(StringBuilder url, String name, String value)
+    {
+        if (value != null)
+        {
+            try
+            {
+                url.append('&').append(name).append('=').append(URLEncoder.encode(value, "UTF-8"));
+            }
+            catch (java.io.UnsupportedEncodingException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Request and parse one page, waiting and repeating the request as long
+     * as the provider asks for it with "503 Retry-After".
+     *
+     * @param url the complete request URL
+     * @param timeout the connect and read timeout in milliseconds, 0 for none
+     * @return the parsed page
+     * @throws IOException if the request fails or the response is not well-formed
+     * @throws InterruptedException if interrupted while waiting to retry
+     */
+    protected static Page fetch(String url, int timeout) throws IOException, InterruptedException
+    {
+        long start = System.currentTimeMillis();
+        for (int attempt = 0; ; attempt++)
+        {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            connection.setRequestProperty("User-Agent", "OAIHarvester/2.0");
+            connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+            try
+            {
+                int status = connection.getResponseCode();
+                if (status == HttpURLConnection.HTTP_UNAVAILABLE && attempt < MAX_RETRIES)
+                {
+                    int retryAfter = parseRetryAfter(connection.getHeaderField("Retry-After"));
+                    if (retryAfter >= 0)
+                    {
+                        log.info("OAI server asked to retry " + url + " after " + retryAfter + " seconds");
+                        Thread.sleep(retryAfter * 1000L);
+                        continue;
+                    }
+                }
+                if (status != HttpURLConnection.HTTP_OK)
+                {
+                    throw new IOException("OAI server returned HTTP " + status + " for " + url);
+                }
+
+                InputStream in = new BufferedInputStream(connection.getInputStream());
+                String encoding = connection.getContentEncoding();
+                if ("gzip".equalsIgnoreCase(encoding))
+                {
+                    in = new GZIPInputStream(in);
+                }
+                else if ("deflate".equalsIgnoreCase(encoding))
+                {
+                    in = new InflaterInputStream(in);
+                }
+                try
+                {
+                    Page page = parse(in);
+                    page.requestURL = url;
+                    if (log.isDebugEnabled())
+                    {
+                        log.debug("Read " + page.getRecords().size() + " records from " + url + " in "
+                                + (System.currentTimeMillis() - start) + " ms");
+                    }
+                    return page;
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+            finally
+            {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static int parseRetryAfter(String value)
+    {
+        if (value == null)
+        {
+            return -1;
+        }
+        try
+        {
+            int seconds = Integer.parseInt(value.trim());
+            return seconds >= 0 && seconds <= MAX_RETRY_AFTER ? seconds : -1;
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Parse one ListRecords response.
+     *
+     * @param in the response, which is not closed
+     * @return the records, resumption token and errors of the response
+     * @throws IOException if the response is not well-formed XML
+     */
+    public static Page parse(InputStream in) throws IOException
+    {
+        Page page = new Page();
+        XMLStreamReader reader = null;
+        try
+        {
+            reader = inputFactory.createXMLStreamReader(in);
+
+            // namespaces declared on the elements enclosing the current one
+            Deque<Map<String, String>> declarations = new ArrayDeque<Map<String, String>>();
+            // path of OAI-PMH element names from the root to the current element
+            Deque<String> path = new ArrayDeque<String>();
+            StringBuilder text = null;
+
+            while (reader.hasNext())
+            {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT)
+                {
+                    String name = OAI_NS_URI.equals(reader.getNamespaceURI()) ? reader.getLocalName() : "";
+                    if ("record".equals(name) && path.size() == 2 && "ListRecords".equals(path.peek()))
+                    {
+                        Element record = readElement(reader);
+                        for (Map<String, String> scope : declarations)
+                        {
+                            for (Map.Entry<String, String> entry : scope.entrySet())
+                            {
+                                addNamespaceDeclaration(record, entry.getKey(), entry.getValue());
+                            }
+                        }
+                        page.records.add(record);
+                        continue;
+                    }
+
+                    Map<String, String> scope = new LinkedHashMap<String, String>();
+                    for (int i = 0; i < reader.getNamespaceCount(); i++)
+                    {
+                        scope.put(StringUtils.defaultString(reader.getNamespacePrefix(i)),
+                                reader.getNamespaceURI(i));
+                    }
+                    declarations.push(scope);
+                    path.push(name);
+
+                    if ("resumptionToken".equals(name))
+                    {
+                        String size = reader.getAttributeValue(null, "completeListSize");
+                        if (StringUtils.isNotBlank(size))
+                        {
+                            try
+                            {
+                                page.completeListSize = Long.parseLong(size.trim());
+                            }
+                            catch (NumberFormatException e)
+                            {
+                                log.warn("Ignoring invalid completeListSize " + size);
+                            }
+                        }
+                        text = new StringBuilder();
+                    }
+                    else if ("error".equals(name) && path.size() == 2)
+                    {
+                        page.errors.add(StringUtils.defaultString(reader.getAttributeValue(null, "code")));
+                    }
+                }
+                else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)
+                {
+                    if (text != null)
+                    {
+                        text.append(reader.getText());
+                    }
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT)
+                {
+                    if (text != null && "resumptionToken".equals(path.peek()))
+                    {
+                        page.resumptionToken = text.toString().trim();
+                        text = null;
+                    }
+                    declarations.pop();
+                    path.pop();
+                }
+            }
+            return page;
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException("Malformed ListRecords response: " + e.getMessage(), e);
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (XMLStreamException e)
+                {
+                    log.debug("Unable to close XML reader", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the element the reader is positioned on, with all its content,
+     * leaving the reader on its end tag.
+     */
+    private static Element readElement(XMLStreamReader reader) throws XMLStreamException
+    {
+        Element root = startElement(reader);
+        Element current = root;
+        while (true)
+        {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+            {
+                Element child = startElement(reader);
+                current.addContent(child);
+                current = child;
+            }
+            else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE)
+            {
+                current.addContent(reader.getText());
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT)
+            {
+                if (current == root)
+                {
+                    return root;
+                }
+                current = (Element) current.getParent();
+            }
+        }
+    }
+
+    private static Element startElement(XMLStreamReader reader)
+    {
+        Element element = new Element(reader.getLocalName(),
+                Namespace.getNamespace(StringUtils.defaultString(reader.getPrefix()),
+                        StringUtils.defaultString(reader.getNamespaceURI())));
+        for (int i = 0; i < reader.getNamespaceCount(); i++)
+        {
+            addNamespaceDeclaration(element, StringUtils.defaultString(reader.getNamespacePrefix(i)),
+                    reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++)
+        {
+            String uri = reader.getAttributeNamespace(i);
+            Namespace namespace = StringUtils.isEmpty(uri) ? Namespace.NO_NAMESPACE
+                    : Namespace.getNamespace(reader.getAttributePrefix(i), uri);
+            element.setAttribute(new Attribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i),
+                    namespace));
+        }
+        return element;
+    }
+
+    /**
+     * Declare a namespace on an element, unless its prefix is already in use
+     * there. Default namespace declarations are left to the elements.
+     */
+    private static void addNamespaceDeclaration(Element element, String prefix, String uri)
+    {
+        if (StringUtils.isEmpty(prefix) || StringUtils.isEmpty(uri) || XMLConstants.XML_NS_PREFIX.equals(prefix)
+                || prefix.equals(element.getNamespacePrefix()))
+        {
+            return;
+        }
+        for (Object declared : element.getAdditionalNamespaces())
+        {
+            if (prefix.equals(((Namespace) declared).getPrefix()))
+            {
+                return;
+            }
+        }
+        try
+        {
+            element.addNamespaceDeclaration(Namespace.getNamespace(prefix, uri));
+        }
+        catch (IllegalAddException e)
+        {
+            // the prefix is bound differently by an attribute of the element
+            log.debug("Not declaring namespace " + prefix + " on " + element.getQualifiedName());
+        }
+    }
+
+    /**
+     * One page of a ListRecords response.
+     */
+    public static class Page
+    {
+        private final List<Element> records = new ArrayList<Element>();
+        private final Set<String> errors = new LinkedHashSet<String>();
+        private String resumptionToken;
+        private long completeListSize = -1;
+        private String requestURL;
+
+        /**
+         * @return the record elements of the page, in the OAI-PMH namespace
+         */
+        public List<Element> getRecords()
+        {
+            return records;
+        }
+
+        /**
+         * @return the codes of the OAI-PMH errors of the response, empty if there were none
+         */
+        public Set<String> getErrors()
+        {
+            return errors;
+        }
+
+        /**
+         * @return the resumption token, empty or null on the last page
+         */
+        public String getResumptionToken()
+        {
+            return resumptionToken;
+        }
+
+        /**
+         * @return the completeListSize of the resumption token, or -1 if not given
+         */
+        public long getCompleteListSize()
+        {
+            return completeListSize;
+        }
+
+        /**
+         * @return the URL the page was requested from
+         */
+        public String getRequestURL()
+        {
+            return requestURL;
+        }
+    }
+}
@@ -274,10 +274,6 @@ public class OAIHarvester {
 				throw new HarvestingException("The OAI server does not support ORE dissemination in the configured serialization format: " + ORESerialNS.getURI());
 			}
 
-			Document oaiResponse = null;
-			Element root = null;
-			String resumptionToken;
-
 			// set the status indicating the collection is currently being processed
 			harvestRow.setHarvestStatus(HarvestedCollection.STATUS_BUSY);
 			harvestRow.setHarvestMessage("Collection harvesting is initializing...");
@@ -297,101 +293,91 @@ public class OAIHarvester {
 			calendar.add(Calendar.HOUR, expirationInterval);
             Date expirationTime = calendar.getTime();
 
-			// main loop to keep requesting more objects until we're done
-			List<Element> records;
-			Set<String> errorSet = new HashSet<String>();
+			// main loop to keep requesting more objects until we're done; the next page is
+			// fetched in the background while the records of the current one are ingested
+			int commitBatchSize = Math.max(1, configurationService.getIntProperty("oai.harvester.commitBatchSize", 50));
+			int requestTimeout = Math.max(0, configurationService.getIntProperty("oai.harvester.requestTimeout", 300));
+			long uncommitted = 0;
 
-			ListRecords listRecords = new ListRecords(oaiSource, fromDate, toDate, oaiSetId, descMDPrefix);
 			log.debug("Harvesting request parameters: listRecords " + oaiSource + " " + fromDate + " " + toDate + " " + oaiSetId + " " + descMDPrefix);
-			if (listRecords != null)
-            {
-                log.info("HTTP Request: " + listRecords.getRequestURL());
-            }
-
-			while (listRecords != null)
+			ListRecordsReader listRecords = new ListRecordsReader(oaiSource, fromDate, toDate, oaiSetId, descMDPrefix, requestTimeout * 1000);
+			try
 			{
-				records = new ArrayList<Element>();
-				oaiResponse = db.build(listRecords.getDocument());
-
-				if (listRecords.getErrors() != null && listRecords.getErrors().getLength() > 0)
+				ListRecordsReader.Page page;
+				while ((page = listRecords.next()) != null)
 				{
-					for (int i=0; i<listRecords.getErrors().getLength(); i++)
+					log.info("HTTP Request: " + page.getRequestURL());
+
+					Set<String> errorSet = page.getErrors();
+					if (!errorSet.isEmpty())
 					{
-						String errorCode = listRecords.getErrors().item(i).getAttributes().getNamedItem("code").getTextContent();
-						errorSet.add(errorCode);
+						if (errorSet.contains("noRecordsMatch"))
+						{
+							log.info("noRecordsMatch: OAI server did not contain any updates");
+							harvestRow.setHarvestStartTime(new Date());
+							harvestRow.setHarvestMessage("OAI server did not contain any updates");
+							harvestRow.setHarvestStatus(HarvestedCollection.STATUS_READY);
+							harvestedCollection.update(ourContext, harvestRow);
+							return;
+						} else {
+							throw new HarvestingException(errorSet.toString());
+						}
 					}
-					if (errorSet.contains("noRecordsMatch"))
+					if (page.getCompleteListSize() >= 0)
 					{
-						log.info("noRecordsMatch: OAI server did not contain any updates");
-						harvestRow.setHarvestStartTime(new Date());
-						harvestRow.setHarvestMessage("OAI server did not contain any updates");
-						harvestRow.setHarvestStatus(HarvestedCollection.STATUS_READY);
-						harvestedCollection.update(ourContext, harvestRow);
-						return;
-					} else {
-						throw new HarvestingException(errorSet.toString());
+						totalListSize = page.getCompleteListSize();
 					}
-				}
-				else
-				{
-					root = oaiResponse.getRootElement();
-					records.addAll(root.getChild("ListRecords", OAI_NS).getChildren("record", OAI_NS));
-
-					Element resumptionElement = root.getChild("ListRecords", OAI_NS).getChild("resumptionToken", OAI_NS);
-					if(resumptionElement != null && resumptionElement.getAttribute("completeListSize") != null) {
-						String value = resumptionElement.getAttribute("completeListSize").getValue();
-						if(StringUtils.isNotBlank(value)) {
-							totalListSize = Long.parseLong(value);
+
+					// Process the obtained records
+					List<Element> records = page.getRecords();
+					if (records.size() > 0)
+					{
+						log.info("Found " + records.size() + " records to process");
+						for (Element record : records) {
+							// check for STOP interrupt from the scheduler
+							if (HarvestScheduler.getInterrupt() == HarvestScheduler.HARVESTER_INTERRUPT_STOP)
+							{
+								throw new HarvestingException("Harvest process for " + targetCollection.getID() + " interrupted by stopping the scheduler.");
+							}
+							// check for timeout
+							if (expirationTime.before(new Date()))
+							{
+								throw new HarvestingException("runHarvest method timed out for collection " + targetCollection.getID());
+							}
+
+							currentRecord++;
+
+							processRecord(record, OREPrefix, currentRecord, totalListSize);
+
+							// commit in batches rather than after every record
+							if (++uncommitted >= commitBatchSize)
+							{
+								ourContext.dispatchEvents();
+								intermediateCommit();
+								uncommitted = 0;
+							}
 						}
 					}
-				}
 
-				// Process the obtained records
-				if (records != null && records.size()>0)
-				{
-					log.info("Found " + records.size() + " records to process");
-					for (Element record : records) {
-						// check for STOP interrupt from the scheduler
-						if (HarvestScheduler.getInterrupt() == HarvestScheduler.HARVESTER_INTERRUPT_STOP)
-                        {
-                            throw new HarvestingException("Harvest process for " + targetCollection.getID() + " interrupted by stopping the scheduler.");
-                        }
-						// check for timeout
-						if (expirationTime.before(new Date()))
-                        {
-                            throw new HarvestingException("runHarvest method timed out for collection " + targetCollection.getID());
-                        }
-
-						currentRecord++;
-
-						processRecord(record, OREPrefix, currentRecord, totalListSize);
-						ourContext.dispatchEvents();
-
-						intermediateCommit();
+					ourContext.turnOffAuthorisationSystem();
+					try {
+						collectionService.update(ourContext, targetCollection);
+
+						harvestRow.setHarvestMessage(String.format("Collection is currently being harvested (item %d of %d)", currentRecord, totalListSize));
+						harvestedCollection.update(ourContext, harvestRow);
+					} finally {
+						//In case of an exception, make sure to restore our authentication state to the previous state
+						ourContext.restoreAuthSystemState();
 					}
-				}
 
-				// keep going if there are more records to process
-				resumptionToken = listRecords.getResumptionToken();
-				if (resumptionToken == null || resumptionToken.length() == 0) {
-					listRecords = null;
+					ourContext.dispatchEvents();
+					intermediateCommit();
+					uncommitted = 0;
 				}
-				else {
-					listRecords = new ListRecords(oaiSource, resumptionToken);
-				}
-                ourContext.turnOffAuthorisationSystem();
-                try {
-                    collectionService.update(ourContext, targetCollection);
-
-					harvestRow.setHarvestMessage(String.format("Collection is currently being harvested (item %d of %d)", currentRecord, totalListSize));
-					harvestedCollection.update(ourContext, harvestRow);
-                } finally {
-                    //In case of an exception, make sure to restore our authentication state to the previous state
-                    ourContext.restoreAuthSystemState();
-                }
-
-				ourContext.dispatchEvents();
-				intermediateCommit();
+			}
+			finally
+			{
+				listRecords.close();
 			}
 		}
 		catch (HarvestingException hex) {
@@ -82,6 +82,17 @@ public class RDFUtil {
      * endpoint is required.
      */
     public static final String STORAGE_GRAPHSTORE_LOGIN_KEY = "rdf.storage.graphstore.login";
+    /**
+     * Property key to load the address of the SPARQL 1.1 Update endpoint used
+     * to store several graphs with one request. If the property is empty or
+     * does not exist, each graph is stored with its own Graph Store request.
+     */
+    public static final String STORAGE_SPARQL_UPDATE_ENDPOINT_KEY = "rdf.storage.sparql.update.endpoint";
+    /**
+     * Property key to load the number of graphs stored together when
+     * converting many DSpaceObjects.
+     */
+    public static final String STORAGE_BATCH_SIZE_KEY = "rdf.storage.batch.size";
 
     /**
      * Loads converted data of a DSpaceObject identified by the URI provided
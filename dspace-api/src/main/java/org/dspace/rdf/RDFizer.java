@@ -9,13 +9,22 @@
 package org.dspace.rdf;
 
 import com.hp.hpl.jena.rdf.model.Model;
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
@@ -29,6 +38,7 @@ import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
+import org.dspace.content.DCDate;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.content.Site;
@@ -37,10 +47,13 @@ import org.dspace.content.service.CommunityService;
 import org.dspace.content.service.ItemService;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
+import org.dspace.eperson.Group;
+import org.dspace.eperson.factory.EPersonServiceFactory;
 import org.dspace.handle.factory.HandleServiceFactory;
 import org.dspace.handle.service.HandleService;
 import org.dspace.rdf.factory.RDFFactory;
 import org.dspace.rdf.storage.RDFStorage;
+import org.dspace.rdf.storage.RDFStorageBatch;
 import org.dspace.services.ConfigurationService;
 import org.dspace.services.factory.DSpaceServicesFactory;
 
@@ -60,6 +73,8 @@ public class RDFizer {
     protected boolean dryrun;
     protected String lang;
     protected Context context;
+    protected int workers;
+    protected Date modifiedSince;
     
     protected final ConfigurationService configurationService;
     protected final ContentServiceFactory contentServiceFactory;
@@ -77,13 +92,20 @@ public class RDFizer {
      */
     protected Set<UUID> processed;
 
+    /**
+     * Batch collecting the converted graphs while converting, so that they
+     * are stored together.
+     */
+    protected RDFStorageBatch batch;
+
     public RDFizer()
     {
         this.stdout = false;
         this.verbose = false;
         this.dryrun = false;
         this.lang = "TURTLE";
-        this.processed = new CopyOnWriteArraySet<UUID>();
+        this.workers = 1;
+        this.processed = Collections.newSetFromMap(new ConcurrentHashMap<UUID, Boolean>());
         this.context = new Context(Context.READ_ONLY);
         
         this.configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
@@ -169,6 +191,44 @@ public class RDFizer {
         this.dryrun = dryrun;
     }
     
+    /**
+     * Returns the number of threads converting Items.
+     * @return 
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Set the number of threads converting Items. With more than one, Items
+     * are converted by worker threads using Contexts of their own, with the
+     * user and special groups of the context used for conversion, while the
+     * Communities and Collections are walked through.
+     * @param workers 
+     */
+    public void setWorkers(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Returns the date Items must have been modified after to be converted, 
+     * or null if all Items are converted.
+     * @return 
+     */
+    public Date getModifiedSince() {
+        return modifiedSince;
+    }
+
+    /**
+     * Set this to only convert Items modified after the given date, for
+     * incremental conversions. Communities and Collections are always
+     * converted.
+     * @param modifiedSince 
+     */
+    public void setModifiedSince(Date modifiedSince) {
+        this.modifiedSince = modifiedSince;
+    }
+    
     /**
      * Deletes all data stored in the triplestore (drops all named graphs and
      * cleans the default graph).
@@ -243,6 +303,42 @@ public class RDFizer {
         report("Conversion ended.");
     }
     
+    /**
+     * Converts and stores all Items modified since the last incremental
+     * conversion, and all Communities and Collections. The start time of 
+     * the conversion is kept in the given file once it succeeded; if the file
+     * does not exist all Items are converted. Items which are withdrawn or
+     * made private are removed from the triple store by the RDFConsumer,
+     * not by this conversion.
+     * @param lastRun file keeping the start time of the last incremental 
+     *                conversion.
+     */
+    public void convertIncremental(File lastRun)
+            throws SQLException, IOException
+    {
+        Date start = new Date();
+        if (lastRun.exists())
+        {
+            String date = new String(Files.readAllBytes(lastRun.toPath()),
+                    StandardCharsets.UTF_8).trim();
+            Date since = new DCDate(date).toDate();
+            if (since == null)
+            {
+                throw new IOException("Cannot recognize the date '" + date 
+                        + "' in " + lastRun.getPath() + ".");
+            }
+            this.setModifiedSince(since);
+            report("Converting Items modified since " + date + ".");
+        }
+        this.convertAll();
+        if (!this.dryrun)
+        {
+            lastRun.getParentFile().mkdirs();
+            Files.write(lastRun.toPath(), 
+                    new DCDate(start).toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
     protected void convert(DSpaceObject dso, boolean reset)
             throws SQLException
     {
@@ -255,68 +351,134 @@ public class RDFizer {
                     + " is currently not supported as independent entity.");
         }
         
-        Callback callback = new Callback() {
-            @Override
-            protected void callback(DSpaceObject dso)
-                    throws SQLException
-            {
-                Model converted = null;
-                try
+        this.batch = new RDFStorageBatch(storage, configurationService
+                .getIntProperty(RDFUtil.STORAGE_BATCH_SIZE_KEY, 100));
+        if (workers > 1)
+        {
+            final Workers pool = new Workers();
+            pool.start();
+            Callback callback = new Callback() {
+                @Override
+                protected void callback(DSpaceObject dso)
+                        throws SQLException
                 {
-                    if (dryrun)
+                    if (dso instanceof Item)
                     {
-                        converted = RDFUtil.convert(context, dso);
+                        pool.add(dso.getID());
                     } else {
-                        converted = RDFUtil.convertAndStore(context, dso);
+                        convertAndStore(context, dso);
                     }
-                } catch (ItemNotArchivedException ex) {
-                    if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
-                    report("Skipping conversion of Item " + dso.getID() 
-                            + " (handle " + dso.getHandle() + "): Item is not "
-                            + "archived.");
-                    return;
-                } catch (ItemWithdrawnException ex) {
-                    if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
-                    report("Skipping conversion of Item " + dso.getID() 
-                            + " (handle " + dso.getHandle() + "): Item is "
-                            + "withdrawn.");
-                    return;
-                } catch (ItemNotDiscoverableException ex) {
-                    if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
-                    report("Skipping conversion of Item " + dso.getID() 
-                            + " (handle " + dso.getHandle() + "): Item is not "
-                            + "discoverable.");
-                    return;
-                } catch (AuthorizeException ex) {
-                    report("Skipping conversion of " + contentServiceFactory.getDSpaceObjectService(dso).getTypeText(dso) + " " 
-                            + dso.getID() + " (handle " + dso.getHandle() + ")" 
-                            + ", not authorized: " + ex.getMessage());
-                    return;
-                } catch (RDFMissingIdentifierException ex) {
-                    String errormessage = "Skipping conversion of " 
-                            + contentServiceFactory.getDSpaceObjectService(dso).getTypeText(dso) + " " + dso.getID() 
-                            + " (handle " + dso.getHandle() + ").";
-                    log.error(errormessage, ex);
-                    System.err.println(errormessage 
-                            + " Error while converting: " + ex.getMessage());
-                    
-                    return;
                 }
-                    
-                if (stdout) {
-                    if (converted == null)
-                    {
-                        System.err.println("Conversion of " + contentServiceFactory.getDSpaceObjectService(dso).getTypeText(dso) 
-                                + " " + dso.getID() + " resulted in no data.");
-                    } else {
-                        converted.write(System.out, lang);
-                    }
+            };
+            try
+            {
+                this.dspaceDFS(dso, callback, true, reset);
+            } finally {
+                pool.finish();
+            }
+        } else {
+            Callback callback = new Callback() {
+                @Override
+                protected void callback(DSpaceObject dso)
+                        throws SQLException
+                {
+                    convertAndStore(context, dso);
+                }
+            };
+            this.dspaceDFS(dso, callback, true, reset);
+        }
+        this.batch.flush();
+    }
+    
+    /**
+     * Converts a DSpaceObject and adds the converted data to the batch of 
+     * graphs to store, or deletes the stored data if the conversion resulted
+     * in no data. Reports DSpaceObjects that cannot be converted.
+     * @param context The context to convert the DSpaceObject with.
+     * @param dso The DSpaceObject to convert.
+     * @throws SQLException if database error
+     */
+    protected void convertAndStore(Context context, DSpaceObject dso)
+            throws SQLException
+    {
+        Model converted = null;
+        String identifier = null;
+        try
+        {
+            converted = RDFUtil.convert(context, dso);
+            if (!dryrun)
+            {
+                identifier = RDFUtil.generateIdentifier(context, dso);
+                if (StringUtils.isEmpty(identifier))
+                {
+                    if (converted != null) converted.close();
+                    throw new RDFMissingIdentifierException(dso.getType(), dso.getID());
+                }
+                if (converted == null)
+                {
+                    // if data about this dso is stored in the triplestore 
+                    // already, we should remove it as a conversion currently
+                    // result in no data
+                    storage.delete(identifier);
                 }
-                if (converted != null) converted.close();
             }
-        };
-        
-        this.dspaceDFS(dso, callback, true, reset);
+        } catch (ItemNotArchivedException ex) {
+            if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
+            report("Skipping conversion of Item " + dso.getID() 
+                    + " (handle " + dso.getHandle() + "): Item is not "
+                    + "archived.");
+            return;
+        } catch (ItemWithdrawnException ex) {
+            if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
+            report("Skipping conversion of Item " + dso.getID() 
+                    + " (handle " + dso.getHandle() + "): Item is "
+                    + "withdrawn.");
+            return;
+        } catch (ItemNotDiscoverableException ex) {
+            if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
+            report("Skipping conversion of Item " + dso.getID() 
+                    + " (handle " + dso.getHandle() + "): Item is not "
+                    + "discoverable.");
+            return;
+        } catch (AuthorizeException ex) {
+            report("Skipping conversion of " + contentServiceFactory.getDSpaceObjectService(dso).getTypeText(dso) + " " 
+                    + dso.getID() + " (handle " + dso.getHandle() + ")" 
+                    + ", not authorized: " + ex.getMessage());
+            return;
+        } catch (RDFMissingIdentifierException ex) {
+            String errormessage = "Skipping conversion of " 
+                    + contentServiceFactory.getDSpaceObjectService(dso).getTypeText(dso) + " " + dso.getID() 
+                    + " (handle " + dso.getHandle() + ").";
+            log.error(errormessage, ex);
+            System.err.println(errormessage 
+                    + " Error while converting: " + ex.getMessage());
+            
+            return;
+        }
+            
+        if (stdout) {
+            if (converted == null)
+            {
+                System.err.println("Conversion of " + contentServiceFactory.getDSpaceObjectService(dso).getTypeText(dso) 
+                        + " " + dso.getID() + " resulted in no data.");
+            } else {
+                // workers may convert Items concurrently
+                synchronized (System.out)
+                {
+                    converted.write(System.out, lang);
+                }
+            }
+        }
+        if (converted != null)
+        {
+            if (dryrun)
+            {
+                converted.close();
+            } else {
+                // the batch closes the model once it is stored
+                batch.add(identifier, converted);
+            }
+        }
     }
     
     protected void dspaceDFS(DSpaceObject dso, Callback callback, boolean check, boolean reset)
@@ -344,6 +506,16 @@ public class RDFizer {
             return;
         }
         markProcessed(dso);
+
+        // when converting incrementally, skip Items not modified since then
+        if (check && modifiedSince != null && dso instanceof Item
+                && !((Item) dso).getLastModified().after(modifiedSince))
+        {
+            log.debug("Skipping processing of Item " + dso.getID() 
+                    + " (handle " + dso.getHandle() + "), not modified since "
+                    + modifiedSince + ".");
+            return;
+        }
         // this is useful to debug depth first search, but it is really noisy.
         //log.debug("Procesing " + contentServiceFactory.getDSpaceObjectService(dso).getTypeText(dso) + " " + dso.getID() + ":" + dso.getHandle() + ".");
         
@@ -519,6 +691,34 @@ public class RDFizer {
         {
             setStdout(true);
         }
+
+        if (line.hasOption("parallel"))
+        {
+            try
+            {
+                setWorkers(Integer.parseInt(line.getOptionValue("parallel")));
+            }
+            catch (NumberFormatException ex)
+            {
+                usage(options);
+                System.err.println("\n\nThe option --parallel requires a "
+                        + "number of worker threads.");
+                System.exit(1);
+            }
+        }
+
+        if (line.hasOption("since"))
+        {
+            Date since = new DCDate(line.getOptionValue("since")).toDate();
+            if (since == null)
+            {
+                usage(options);
+                System.err.println("\n\nCannot recognize the date '"
+                        + line.getOptionValue("since") + "'.");
+                System.exit(1);
+            }
+            setModifiedSince(since);
+        }
                 
         // check mutual exclusive arguments
         if (line.hasOption("delete") && line.hasOption("delete-all"))
@@ -553,6 +753,14 @@ public class RDFizer {
                     + "with --delete or --deleta-all.");
             System.exit(1);
         }
+        if (line.hasOption("incremental")
+                && (line.hasOption("since") || !line.hasOption("convert-all")))
+        {
+            usage(options);
+            System.err.println("\n\nYou can use the option --incremental only "
+                    + "together with --convert-all, and not with --since.");
+            System.exit(1);
+        }
 
         // Run commands depending on CLI arguments.
         // process help first to prevent further evaluation of given options.
@@ -656,7 +864,20 @@ public class RDFizer {
         if (line.hasOption("convert-all"))
         {
             try {
-                this.convertAll();
+                if (line.hasOption("incremental"))
+                {
+                    this.convertIncremental(new File(configurationService.getProperty("dspace.dir"),
+                            "var" + File.separator + "rdfizer.lastrun"));
+                } else {
+                    this.convertAll();
+                }
+            }
+            catch (IOException ex)
+            {
+                log.error(ex);
+                System.err.println("Cannot read or write the date of the last "
+                        + "incremental conversion: " + ex.getMessage());
+                System.exit(1);
             }
             catch (SQLException ex)
             {
@@ -769,6 +990,17 @@ public class RDFizer {
                 .withDescription("Delete all converted data from the triplestore.")
                 .create();
         options.addOption(optDeleteAll);
+
+        options.addOption("P", "parallel", true, "Convert Items on the given "
+                + "number of worker threads. The converted data is stored "
+                + "in batches of rdf.storage.batch.size graphs.");
+        options.addOption("s", "since", true, "Only convert Items modified "
+                + "after this date (e.g. 2016-01-31 or 2016-01-31T22:00:00Z). "
+                + "Communities and Collections are always converted.");
+        options.addOption("u", "incremental", false, "Use with --convert-all: "
+                + "only convert Items modified since the last conversion using "
+                + "this option, whose date is kept in "
+                + "[dspace]/var/rdfizer.lastrun.");
         
         return options;
     }
@@ -807,6 +1039,188 @@ public class RDFizer {
         context.abort();
     }
     
+    /**
+     * Worker threads converting Items, each with a Context of its own. The
+     * first failure stops all workers and is rethrown by {@link #finish()}.
+     */
+    protected class Workers
+    {
+        private final UUID end = new UUID(0L, 0L);
+        private final BlockingQueue<UUID> queue = new ArrayBlockingQueue<>(workers * 16);
+        private final List<Thread> threads = new ArrayList<>();
+        private final List<UUID> specialGroups = new ArrayList<>();
+        private UUID userId;
+        private boolean ignoreAuth;
+        private volatile Exception failure;
+
+        /**
+         * Start the worker threads, with the user and authorization state
+         * of the context used for conversion.
+         * @throws SQLException if database error
+         */
+        protected void start() throws SQLException
+        {
+            userId = context.getCurrentUser() == null ? null : context.getCurrentUser().getID();
+            ignoreAuth = context.ignoreAuthorization();
+            for (Group group : context.getSpecialGroups())
+            {
+                specialGroups.add(group.getID());
+            }
+            for (int i = 0; i < workers; i++)
+            {
+                Thread thread = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        work();
+                    }
+                }, "rdfizer-" + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        /**
+         * Queue an Item for conversion, waiting while the queue is full.
+         * @param id the UUID of the Item
+         * @throws SQLException the failure of a worker, if it was one
+         */
+        protected void add(UUID id) throws SQLException
+        {
+            rethrow();
+            try
+            {
+                queue.put(id);
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing Items.", ex);
+            }
+        }
+
+        /**
+         * Let the workers convert the queued Items and wait for them to exit.
+         * @throws SQLException the failure of a worker, if it was one
+         */
+        protected void finish() throws SQLException
+        {
+            try
+            {
+                for (int i = 0; i < threads.size(); i++)
+                {
+                    queue.put(end);
+                }
+                for (Thread thread : threads)
+                {
+                    thread.join();
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while converting Items.", ex);
+            }
+            rethrow();
+        }
+
+        private void rethrow() throws SQLException
+        {
+            Exception e = failure;
+            if (e instanceof SQLException)
+            {
+                throw (SQLException) e;
+            }
+            if (e instanceof RuntimeException)
+            {
+                throw (RuntimeException) e;
+            }
+            if (e != null)
+            {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+
+        protected Context openContext() throws SQLException
+        {
+            Context wctx = new Context(Context.READ_ONLY);
+            if (userId != null)
+            {
+                wctx.setCurrentUser(EPersonServiceFactory.getInstance()
+                        .getEPersonService().find(wctx, userId));
+            }
+            if (ignoreAuth)
+            {
+                wctx.turnOffAuthorisationSystem();
+            }
+            for (UUID groupId : specialGroups)
+            {
+                wctx.setSpecialGroup(groupId);
+            }
+            return wctx;
+        }
+
+        private void work()
+        {
+            Context wctx = null;
+            try
+            {
+                wctx = openContext();
+                int converted = 0;
+                UUID id;
+                while ((id = queue.take()) != end)
+                {
+                    if (failure != null)
+                    {
+                        // keep draining the queue so that add() and finish() return
+                        continue;
+                    }
+                    Item item = itemService.find(wctx, id);
+                    if (item != null)
+                    {
+                        convertAndStore(wctx, item);
+                    }
+                    if (++converted % 100 == 0)
+                    {
+                        wctx.clearCache();
+                    }
+                }
+            }
+            catch (Exception e)
+            {
+                log.error("RDFizer worker " + Thread.currentThread().getName() 
+                        + " failed: " + e.getMessage(), e);
+                synchronized (this)
+                {
+                    if (failure == null)
+                    {
+                        failure = e;
+                    }
+                }
+                try
+                {
+                    while (queue.take() != end)
+                    {
+                        // skip
+                    }
+                }
+                catch (InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            finally
+            {
+                if (wctx != null && wctx.isValid())
+                {
+                    wctx.abort();
+                }
+            }
+        }
+    }
+    
     protected abstract class Callback
     {
         protected abstract void callback(DSpaceObject dso)
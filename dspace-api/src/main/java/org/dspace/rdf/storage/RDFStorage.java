@@ -10,6 +10,7 @@ package org.dspace.rdf.storage;
 
 import com.hp.hpl.jena.rdf.model.Model;
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -27,6 +28,15 @@ public interface RDFStorage {
      * @see org.dspace.rdf.RDFizer;
      */
     public void store(String uri, Model model);
+
+    /**
+     * Store several graphs at once, replacing any graphs stored under the
+     * same URIs. Used by {@link org.dspace.rdf.RDFizer RDFizer} when
+     * converting many DSpaceObjects.
+     * @param graphs The models to store, by the URI of their graph.
+     * @see RDFStorageBatch
+     */
+    public void store(Map<String, Model> graphs);
     
     /**
      * Don't use this method directly, use
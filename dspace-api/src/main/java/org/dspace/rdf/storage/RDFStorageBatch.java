@@ -0,0 +1,99 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.rdf.storage;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects converted graphs and stores them together with
+ * {@link RDFStorage#store(java.util.Map)}, as soon as a given number of
+ * graphs was collected. Graphs can be added from several threads; a full
+ * batch is stored by the thread adding its last graph, while the others
+ * go on filling the next one.
+ * <p>
+ * The batch takes over the models added to it and closes them once they
+ * are stored.
+ * </p>
+ */
+public class RDFStorageBatch
+{
+    private final RDFStorage storage;
+    private final int size;
+    private Map<String, Model> graphs = new LinkedHashMap<>();
+
+    /**
+     * @param storage The storage to store the graphs in.
+     * @param size Number of graphs to store together.
+     */
+    public RDFStorageBatch(RDFStorage storage, int size)
+    {
+        this.storage = storage;
+        this.size = Math.max(1, size);
+    }
+
+    /**
+     * Add a graph to the batch, and store the batch if it is full.
+     * @param uri The URI of the graph.
+     * @param model The model to store, closed by the batch once stored.
+     */
+    public void add(String uri, Model model)
+    {
+        Map<String, Model> full = null;
+        synchronized (this)
+        {
+            Model replaced = graphs.put(uri, model);
+            if (replaced != null && replaced != model)
+            {
+                replaced.close();
+            }
+            if (graphs.size() >= size)
+            {
+                full = graphs;
+                graphs = new LinkedHashMap<>();
+            }
+        }
+        if (full != null)
+        {
+            store(full);
+        }
+    }
+
+    /**
+     * Store all graphs added since the batch was last stored.
+     */
+    public void flush()
+    {
+        Map<String, Model> pending;
+        synchronized (this)
+        {
+            pending = graphs;
+            graphs = new LinkedHashMap<>();
+        }
+        store(pending);
+    }
+
+    private void store(Map<String, Model> batch)
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            storage.store(batch);
+        } finally {
+            for (Model model : batch.values())
+            {
+                model.close();
+            }
+        }
+    }
+}
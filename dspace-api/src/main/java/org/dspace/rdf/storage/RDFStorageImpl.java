@@ -11,6 +11,7 @@ package org.dspace.rdf.storage;
 import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.query.Dataset;
 import com.hp.hpl.jena.query.DatasetFactory;
 import com.hp.hpl.jena.query.QueryExecution;
@@ -19,11 +20,20 @@ import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.sparql.core.DatasetGraph;
+import com.hp.hpl.jena.sparql.core.Quad;
+import com.hp.hpl.jena.sparql.modify.request.QuadDataAcc;
+import com.hp.hpl.jena.sparql.modify.request.UpdateDataInsert;
+import com.hp.hpl.jena.sparql.modify.request.UpdateDrop;
 import com.hp.hpl.jena.update.GraphStore;
 import com.hp.hpl.jena.update.GraphStoreFactory;
+import com.hp.hpl.jena.update.UpdateExecutionFactory;
+import com.hp.hpl.jena.update.UpdateProcessor;
+import com.hp.hpl.jena.update.UpdateRequest;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 import org.apache.jena.atlas.web.auth.HttpAuthenticator;
 import org.apache.jena.atlas.web.auth.SimpleAuthenticator;
@@ -57,6 +67,73 @@ implements RDFStorage
         accessor.httpPut(graphNode, g);
     }
     
+    /**
+     * Store the graphs with one SPARQL 1.1 Update request if
+     * {@code rdf.storage.sparql.update.endpoint} is set, otherwise with one
+     * Graph Store HTTP Protocol request each.
+     */
+    @Override
+    public void store(Map<String, Model> graphs)
+    {
+        if (graphs.isEmpty())
+        {
+            return;
+        }
+        String endpoint = configurationService.getProperty(RDFUtil.STORAGE_SPARQL_UPDATE_ENDPOINT_KEY);
+        if (StringUtils.isEmpty(endpoint))
+        {
+            for (Map.Entry<String, Model> graph : graphs.entrySet())
+            {
+                this.store(graph.getKey(), graph.getValue());
+            }
+            return;
+        }
+
+        UpdateRequest request = this.createUpdateRequest(graphs);
+        UpdateProcessor processor;
+        if (configurationService.hasProperty(RDFUtil.STORAGE_GRAPHSTORE_LOGIN_KEY)
+                && configurationService.hasProperty(RDFUtil.STORAGE_GRAPHSTORE_PASSWORD_KEY))
+        {
+            HttpAuthenticator httpAuthenticator = new SimpleAuthenticator(
+                    configurationService.getProperty(RDFUtil.STORAGE_GRAPHSTORE_LOGIN_KEY),
+                    configurationService.getProperty(RDFUtil.STORAGE_GRAPHSTORE_PASSWORD_KEY).toCharArray());
+            processor = UpdateExecutionFactory.createRemote(request, endpoint, httpAuthenticator);
+        } else {
+            processor = UpdateExecutionFactory.createRemote(request, endpoint);
+        }
+        processor.execute();
+    }
+
+    /**
+     * Create the SPARQL Update replacing the graphs: each named graph is
+     * dropped and its triples inserted again, in one request.
+     * @param graphs The models to store, by the URI of their graph.
+     * @return the update request
+     */
+    protected UpdateRequest createUpdateRequest(Map<String, Model> graphs)
+    {
+        UpdateRequest request = new UpdateRequest();
+        for (Map.Entry<String, Model> graph : graphs.entrySet())
+        {
+            Node graphNode = NodeFactory.createURI(graph.getKey());
+            request.add(new UpdateDrop(graphNode, true));
+            QuadDataAcc quads = new QuadDataAcc();
+            ExtendedIterator<Triple> triples = graph.getValue().getGraph()
+                    .find(Node.ANY, Node.ANY, Node.ANY);
+            try
+            {
+                while (triples.hasNext())
+                {
+                    quads.addQuad(new Quad(graphNode, triples.next()));
+                }
+            } finally {
+                triples.close();
+            }
+            request.add(new UpdateDataInsert(quads));
+        }
+        return request;
+    }
+    
     @Override
     public Model load(String uri)
     {
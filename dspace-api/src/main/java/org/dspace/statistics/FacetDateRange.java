@@ -0,0 +1,265 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * The buckets of a Solr date facet on the <code>time</code> field, as
+ * requested by {@link SolrLoggerServiceImpl#query} with
+ * <code>facet.date.start=NOW/TYPE+startTYPES</code>,
+ * <code>facet.date.end=NOW/TYPE+endTYPE</code> and
+ * <code>facet.date.gap=+1TYPE</code>, written out as one range query per
+ * bucket.
+ * <P>
+ * This lets the date facet counts of several objects be asked for in a
+ * single request, as facet queries, instead of one date facet request per
+ * object. The buckets follow the Solr date faceting rules: dates are
+ * rounded in UTC, each bucket includes its start but not its end, the last
+ * bucket is not cut short at the end date, and buckets without any count
+ * are left out (<code>facet.mincount=1</code>).
+ */
+public class FacetDateRange
+{
+    private static final String TIME_FIELD = "time";
+
+    /** Format of the date facet labels returned by Solr */
+    private static final String LABEL_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    private final List<Date> starts = new ArrayList<Date>();
+    private final List<Date> ends = new ArrayList<Date>();
+
+    /**
+     * @param unit Calendar field of the bucket size
+     * @param startOffset start of the range, in units from the current one
+     * @param endOffset end of the range, in units from the current one
+     * @param now the current time
+     */
+    protected FacetDateRange(int unit, int startOffset, int endOffset, Date now)
+    {
+        Calendar current = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ROOT);
+        current.setTime(now);
+        round(current, unit);
+
+        Calendar low = (Calendar) current.clone();
+        low.add(unit, startOffset);
+        Calendar end = (Calendar) current.clone();
+        end.add(unit, endOffset);
+        while (low.before(end))
+        {
+            Calendar high = (Calendar) low.clone();
+            high.add(unit, 1);
+            if (end.before(high))
+            {
+                end = high;
+            }
+            starts.add(low.getTime());
+            ends.add(high.getTime());
+            low = high;
+        }
+    }
+
+    /**
+     * @param dateType the bucket size: YEAR, MONTH, DAY or HOUR
+     * @param dateStart start of the range, relative to the current date, e.g. "-6"
+     * @param dateEnd end of the range, relative to the current date, e.g. "+1"
+     * @param now the current time
+     * @return the date range, or null if it cannot be written out as range queries
+     */
+    public static FacetDateRange create(String dateType, String dateStart, String dateEnd, Date now)
+    {
+        int unit = getUnit(dateType);
+        if (unit < 0 || dateStart == null || dateEnd == null)
+        {
+            return null;
+        }
+        try
+        {
+            return new FacetDateRange(unit, Integer.parseInt(dateStart.trim()), Integer.parseInt(dateEnd.trim()), now);
+        }
+        catch (NumberFormatException e)
+        {
+            return null;
+        }
+    }
+
+    private static int getUnit(String dateType)
+    {
+        if ("YEAR".equalsIgnoreCase(dateType))
+        {
+            return Calendar.YEAR;
+        }
+        if ("MONTH".equalsIgnoreCase(dateType))
+        {
+            return Calendar.MONTH;
+        }
+        if ("DAY".equalsIgnoreCase(dateType))
+        {
+            return Calendar.DATE;
+        }
+        if ("HOUR".equalsIgnoreCase(dateType))
+        {
+            return Calendar.HOUR_OF_DAY;
+        }
+        return -1;
+    }
+
+    /**
+     * Round down to the unit, as Solr date math "/UNIT" does.
+     */
+    private static void round(Calendar calendar, int unit)
+    {
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        if (unit == Calendar.HOUR_OF_DAY)
+        {
+            return;
+        }
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        if (unit == Calendar.DATE)
+        {
+            return;
+        }
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        if (unit == Calendar.MONTH)
+        {
+            return;
+        }
+        calendar.set(Calendar.MONTH, Calendar.JANUARY);
+    }
+
+    private static String format(Date date)
+    {
+        SimpleDateFormat format = new SimpleDateFormat(LABEL_FORMAT, Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    /**
+     * @return the number of buckets
+     */
+    public int size()
+    {
+        return starts.size();
+    }
+
+    /**
+     * @param bucket index of a bucket
+     * @return the label Solr gives the bucket, its start date
+     */
+    public String getLabel(int bucket)
+    {
+        return format(starts.get(bucket));
+    }
+
+    /**
+     * @param bucket index of a bucket
+     * @return the start of the bucket, inclusive
+     */
+    public Date getStart(int bucket)
+    {
+        return starts.get(bucket);
+    }
+
+    /**
+     * @param bucket index of a bucket
+     * @return the end of the bucket, exclusive
+     */
+    public Date getEnd(int bucket)
+    {
+        return ends.get(bucket);
+    }
+
+    /**
+     * @param date a date
+     * @return the index of the bucket holding the date, or -1 if it is out of the range
+     */
+    public int getBucket(Date date)
+    {
+        for (int i = 0; i < size(); i++)
+        {
+            if (!date.before(starts.get(i)) && date.before(ends.get(i)))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param bucket index of a bucket
+     * @return a query matching the visits in the bucket
+     */
+    public String getRangeQuery(int bucket)
+    {
+        return TIME_FIELD + ":[" + format(starts.get(bucket)) + " TO " + format(ends.get(bucket)) + "}";
+    }
+
+    /**
+     * @param baseQuery a query selecting the visits to count, e.g. those of one object
+     * @param showTotal whether to count all visits matching the base query too
+     * @return the facet queries counting the visits matching the base query in every bucket
+     */
+    public List<String> getFacetQueries(String baseQuery, boolean showTotal)
+    {
+        List<String> queries = new ArrayList<String>(size() + 1);
+        for (int i = 0; i < size(); i++)
+        {
+            queries.add(baseQuery + " AND " + getRangeQuery(i));
+        }
+        if (showTotal)
+        {
+            queries.add(baseQuery);
+        }
+        return queries;
+    }
+
+    /**
+     * Read the counts of the facet queries of {@link #getFacetQueries} back
+     * into the result a date facet request for the base query would have
+     * given.
+     *
+     * @param baseQuery the base query
+     * @param facetCounts the counts of the facet queries, by query
+     * @param showTotal whether the total was counted
+     * @return the count of each bucket with visits, labelled with its start date,
+     *         followed by the total if asked for
+     */
+    public ObjectCount[] getCounts(String baseQuery, Map<String, Integer> facetCounts, boolean showTotal)
+    {
+        List<ObjectCount> result = new ArrayList<ObjectCount>(size() + 1);
+        for (int i = 0; i < size(); i++)
+        {
+            Integer count = facetCounts.get(baseQuery + " AND " + getRangeQuery(i));
+            if (count != null && 0 < count)
+            {
+                ObjectCount objectCount = new ObjectCount();
+                objectCount.setValue(getLabel(i));
+                objectCount.setCount(count);
+                result.add(objectCount);
+            }
+        }
+        if (showTotal)
+        {
+            Integer total = facetCounts.get(baseQuery);
+            ObjectCount objectCount = new ObjectCount();
+            objectCount.setValue("total");
+            objectCount.setCount(total == null ? 0 : total);
+            result.add(objectCount);
+        }
+        return result.toArray(new ObjectCount[result.size()]);
+    }
+}
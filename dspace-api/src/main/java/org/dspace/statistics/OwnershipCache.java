@@ -0,0 +1,362 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * JVM-wide cache of the owning Items, Collections and Communities of
+ * Bitstreams, Items, Collections and Communities, by UUID, as stored in the
+ * <code>owningItem</code>, <code>owningColl</code> and <code>owningComm</code>
+ * fields of the usage events by {@link SolrLoggerServiceImpl#storeParents}.
+ * <P>
+ * Logging a usage event used to load the whole ownership chain of its object
+ * from the database. The owners are now cached, and the
+ * {@link OwnershipCacheConsumer} removes the owners of an object, and of
+ * every object it owns, when it is added to or removed from a container, or
+ * when a container owning it is deleted.
+ * <P>
+ * Events are dispatched before their transaction is committed, so a lookup
+ * made right after an invalidation may still read the old owners from the
+ * database: the invalidated objects are remembered for a while, and owners
+ * whose chain includes one of them are not cached meanwhile, nor when it was
+ * invalidated during their lookup. Owners of other objects are still cached.
+ * <P>
+ * Changes made by other applications, such as command line tools, are not
+ * seen by the consumer of this one, so owners expire after
+ * <code>solr-statistics.owners.cache.ttl</code> seconds (default 3600). The
+ * least recently used owners are dropped once the cache holds those of
+ * <code>solr-statistics.owners.cache.size</code> objects (default 10000).
+ */
+public class OwnershipCache
+{
+    private static final int DEFAULT_SIZE = 10000;
+
+    private static final int DEFAULT_TTL = 3600;
+
+    private static Map<UUID, Owners> owners;
+
+    /** The objects whose cached owners include an object, by the UUID of that object */
+    private static final Map<UUID, Set<UUID>> dependents = new HashMap<UUID, Set<UUID>>();
+
+    /** Number of invalidations so far, to leave out owners looked up before one */
+    private static long generation = 0;
+
+    /** Generation of the last {@link #clear}, owners looked up before it are left out */
+    private static long cleared = 0;
+
+    /** Milliseconds after an invalidation during which its transaction may not be committed yet */
+    private static final long SETTLE_TIME = 30000;
+
+    /** The objects invalidated recently, in the order of their invalidation */
+    private static final Map<UUID, Tombstone> tombstones = new LinkedHashMap<UUID, Tombstone>();
+
+    private static long ttl;
+
+    /** Static methods only */
+    private OwnershipCache()
+    {
+    }
+
+    private static synchronized Map<UUID, Owners> getOwners()
+    {
+        if (owners == null)
+        {
+            final int maxSize = DSpaceServicesFactory.getInstance().getConfigurationService()
+                    .getIntProperty("solr-statistics.owners.cache.size", DEFAULT_SIZE);
+            ttl = DSpaceServicesFactory.getInstance().getConfigurationService()
+                    .getIntProperty("solr-statistics.owners.cache.ttl", DEFAULT_TTL) * 1000L;
+            owners = new LinkedHashMap<UUID, Owners>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, Owners> eldest)
+                {
+                    if (size() > maxSize)
+                    {
+                        removeDependent(eldest.getKey(), eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+        return owners;
+    }
+
+    private static void removeDependent(UUID id, Owners removed)
+    {
+        for (UUID ancestor : removed.ancestors)
+        {
+            Set<UUID> ids = dependents.get(ancestor);
+            if (ids != null)
+            {
+                ids.remove(id);
+                if (ids.isEmpty())
+                {
+                    dependents.remove(ancestor);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the current generation, to be passed to {@link #put} with the
+     *         owners looked up from now on
+     */
+    public static synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * @param id UUID of an object
+     * @return its cached owners, or null if they are not cached
+     */
+    public static synchronized Owners get(UUID id)
+    {
+        Owners cached = getOwners().get(id);
+        if (cached != null && cached.created + ttl < System.currentTimeMillis())
+        {
+            remove(id);
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * Cache the owners of an object, unless the object or one of its owners
+     * was invalidated since they were looked up, or so recently that the
+     * change may not be committed yet, as they may then be out of date.
+     *
+     * @param id UUID of the object
+     * @param found its owners
+     * @param lookupGeneration the generation when the lookup started
+     */
+    public static synchronized void put(UUID id, Owners found, long lookupGeneration)
+    {
+        if (id == null || found == null || lookupGeneration < cleared)
+        {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (isUnsettled(id, lookupGeneration, now))
+        {
+            return;
+        }
+        for (UUID ancestor : found.ancestors)
+        {
+            if (isUnsettled(ancestor, lookupGeneration, now))
+            {
+                return;
+            }
+        }
+        remove(id);
+        getOwners().put(id, found);
+        for (UUID ancestor : found.ancestors)
+        {
+            Set<UUID> ids = dependents.get(ancestor);
+            if (ids == null)
+            {
+                ids = new HashSet<UUID>();
+                dependents.put(ancestor, ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    private static boolean isUnsettled(UUID id, long lookupGeneration, long now)
+    {
+        Tombstone tombstone = tombstones.get(id);
+        return tombstone != null && (now < tombstone.settled || tombstone.generation > lookupGeneration);
+    }
+
+    private static void remove(UUID id)
+    {
+        Owners removed = getOwners().remove(id);
+        if (removed != null)
+        {
+            removeDependent(id, removed);
+        }
+    }
+
+    /**
+     * Forget the owners of an object and of all objects it owns, e.g.
+     * because it was moved.
+     *
+     * @param id UUID of the object
+     */
+    public static synchronized void invalidate(UUID id)
+    {
+        if (id == null)
+        {
+            return;
+        }
+        generation++;
+        long now = System.currentTimeMillis();
+        Iterator<Tombstone> expired = tombstones.values().iterator();
+        while (expired.hasNext() && expired.next().settled <= now)
+        {
+            expired.remove();
+        }
+
+        bury(id, now);
+        if (owners == null)
+        {
+            return;
+        }
+        remove(id);
+        Set<UUID> ids = dependents.remove(id);
+        if (ids != null)
+        {
+            for (UUID dependent : new ArrayList<UUID>(ids))
+            {
+                bury(dependent, now);
+                remove(dependent);
+            }
+        }
+    }
+
+    /**
+     * Forget the owners of an object and of all objects it owns, if any of
+     * them are cached. A new object, e.g. a Bitstream added to a Bundle, has
+     * no cached owners, so adding it leaves the cache as it is.
+     *
+     * @param id UUID of the object
+     */
+    public static synchronized void invalidateCached(UUID id)
+    {
+        if (owners != null && (owners.containsKey(id) || dependents.containsKey(id)))
+        {
+            invalidate(id);
+        }
+    }
+
+    private static void bury(UUID id, long now)
+    {
+        // re-inserted, to keep the tombstones in the order they expire
+        tombstones.remove(id);
+        tombstones.put(id, new Tombstone(generation, now + SETTLE_TIME));
+    }
+
+    /**
+     * Forget all owners.
+     */
+    public static synchronized void clear()
+    {
+        generation++;
+        cleared = generation;
+        if (owners != null)
+        {
+            owners.clear();
+            dependents.clear();
+        }
+    }
+
+    /**
+     * An invalidated object: owners including it are not cached until it is
+     * settled, nor if they were looked up before its invalidation.
+     */
+    private static class Tombstone
+    {
+        private final long generation;
+        private final long settled;
+
+        private Tombstone(long generation, long settled)
+        {
+            this.generation = generation;
+            this.settled = settled;
+        }
+    }
+
+    /**
+     * The owners of an object, in the order the ownership chain is walked.
+     * An owner reached along several paths is listed once per path.
+     */
+    public static class Owners
+    {
+        private final List<UUID> items = new ArrayList<UUID>();
+        private final List<UUID> collections = new ArrayList<UUID>();
+        private final List<UUID> communities = new ArrayList<UUID>();
+
+        /** All objects of the chain, including Bundles */
+        private final Set<UUID> ancestors = new HashSet<UUID>();
+
+        private final long created = System.currentTimeMillis();
+
+        public void addItem(UUID id)
+        {
+            items.add(id);
+            ancestors.add(id);
+        }
+
+        public void addCollection(UUID id)
+        {
+            collections.add(id);
+            ancestors.add(id);
+        }
+
+        public void addCommunity(UUID id)
+        {
+            communities.add(id);
+            ancestors.add(id);
+        }
+
+        public void addBundle(UUID id)
+        {
+            ancestors.add(id);
+        }
+
+        public List<UUID> getItems()
+        {
+            return Collections.unmodifiableList(items);
+        }
+
+        public List<UUID> getCollections()
+        {
+            return Collections.unmodifiableList(collections);
+        }
+
+        public List<UUID> getCommunities()
+        {
+            return Collections.unmodifiableList(communities);
+        }
+
+        /**
+         * Add the owners to a usage event.
+         *
+         * @param doc the usage event
+         */
+        public void addTo(SolrInputDocument doc)
+        {
+            for (UUID id : items)
+            {
+                doc.addField("owningItem", id);
+            }
+            for (UUID id : collections)
+            {
+                doc.addField("owningColl", id);
+            }
+            for (UUID id : communities)
+            {
+                doc.addField("owningComm", id);
+            }
+        }
+    }
+}
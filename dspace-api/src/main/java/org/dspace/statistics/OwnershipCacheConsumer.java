@@ -0,0 +1,62 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Consumer keeping the {@link OwnershipCache} up to date: the owners of an
+ * object added to or removed from a Community, Collection, Item or Bundle,
+ * and of everything it owns, are forgotten, as are those of everything a
+ * deleted object owned. Objects added without any cached owners, such as
+ * new Bitstreams, Bundles and Items, are left out.
+ * <P>
+ * The cache is only read when usage events are logged, so this consumer
+ * must be called synchronously.
+ */
+public class OwnershipCacheConsumer implements Consumer
+{
+    @Override
+    public void initialize() throws Exception
+    {
+
+    }
+
+    @Override
+    public void consume(Context ctx, Event event) throws Exception
+    {
+        switch (event.getEventType())
+        {
+            case Event.ADD:
+                OwnershipCache.invalidateCached(event.getObjectID());
+                break;
+            case Event.REMOVE:
+                OwnershipCache.invalidate(event.getObjectID());
+                break;
+            case Event.DELETE:
+                OwnershipCache.invalidate(event.getSubjectID());
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void end(Context ctx) throws Exception
+    {
+
+    }
+
+    @Override
+    public void finish(Context ctx) throws Exception
+    {
+
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Checkpoints of {@link SolrLoggerServiceImpl#shardSolrIndex}, kept in a
+ * file so that an interrupted run resumes where it stopped.
+ * <P>
+ * For each year core, the file holds the cursor mark after the last batch
+ * of usage events added to the core, or that all the usage events of the
+ * year were copied and committed, so only remain to be deleted from the
+ * statistics core. Adding a usage event again to a year core replaces it,
+ * so resuming from a checkpoint never duplicates events.
+ */
+public class ShardProgress
+{
+    private static final String CURSOR_PREFIX = "cursor:";
+
+    private static final String COPIED = "copied";
+
+    private final File file;
+
+    private final Properties checkpoints = new Properties();
+
+    /**
+     * @param file the checkpoint file, read if it exists
+     * @throws IOException if the file cannot be read
+     */
+    public ShardProgress(File file) throws IOException
+    {
+        this.file = file;
+        if (file.exists())
+        {
+            try (InputStream in = new FileInputStream(file))
+            {
+                checkpoints.load(in);
+            }
+        }
+    }
+
+    /**
+     * @param coreName name of a year core
+     * @return the cursor mark to resume copying the core from, or null to start from the beginning
+     */
+    public synchronized String getCursorMark(String coreName)
+    {
+        String checkpoint = checkpoints.getProperty(coreName);
+        if (checkpoint == null || !checkpoint.startsWith(CURSOR_PREFIX))
+        {
+            return null;
+        }
+        return checkpoint.substring(CURSOR_PREFIX.length());
+    }
+
+    /**
+     * @param coreName name of a year core
+     * @param cursorMark the cursor mark after the last batch added to the core
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public synchronized void setCursorMark(String coreName, String cursorMark) throws IOException
+    {
+        checkpoints.setProperty(coreName, CURSOR_PREFIX + cursorMark);
+        save();
+    }
+
+    /**
+     * @param coreName name of a year core
+     * @return whether all usage events of the year were copied to the core
+     */
+    public synchronized boolean isCopied(String coreName)
+    {
+        return COPIED.equals(checkpoints.getProperty(coreName));
+    }
+
+    /**
+     * @param coreName name of a year core all usage events of the year were copied and committed to
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public synchronized void setCopied(String coreName) throws IOException
+    {
+        checkpoints.setProperty(coreName, COPIED);
+        save();
+    }
+
+    /**
+     * @param coreName name of a year core whose usage events were deleted from the statistics core
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public synchronized void remove(String coreName) throws IOException
+    {
+        checkpoints.remove(coreName);
+        save();
+    }
+
+    /**
+     * Delete the checkpoint file, once all years were moved.
+     */
+    public synchronized void delete()
+    {
+        checkpoints.clear();
+        file.delete();
+    }
+
+    private void save() throws IOException
+    {
+        file.getParentFile().mkdirs();
+        // Write a new file and move it over the old one, so an interruption never leaves a partial file
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp))
+        {
+            checkpoints.store(out, "Statistics shard progress");
+        }
+        if (!temp.renameTo(file))
+        {
+            file.delete();
+            if (!temp.renameTo(file))
+            {
+                throw new IOException("Could not write " + file.getPath());
+            }
+        }
+    }
+}
@@ -7,25 +7,18 @@
  */
 package org.dspace.statistics;
 
-import au.com.bytecode.opencsv.CSVReader;
-import au.com.bytecode.opencsv.CSVWriter;
 import com.maxmind.geoip.Location;
 import com.maxmind.geoip.LookupService;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.DateFormatUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
-import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
-import org.apache.solr.client.solrj.request.ContentStreamUpdateRequest;
 import org.apache.solr.client.solrj.request.CoreAdminRequest;
 import org.apache.solr.client.solrj.response.FacetField;
+import org.apache.solr.client.solrj.response.PivotField;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.RangeFacet;
 import org.apache.solr.client.solrj.util.ClientUtils;
@@ -33,6 +26,7 @@ import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.*;
+import org.apache.solr.common.util.NamedList;
 import org.dspace.content.*;
 import org.dspace.content.Collection;
 import org.dspace.content.factory.ContentServiceFactory;
@@ -44,6 +38,7 @@ import org.dspace.eperson.EPerson;
 import org.dspace.eperson.Group;
 import org.dspace.services.ConfigurationService;
 import org.dspace.statistics.service.SolrLoggerService;
+import org.dspace.statistics.service.UsageRollupService;
 import org.dspace.statistics.util.DnsLookup;
 import org.dspace.statistics.util.LocationUtils;
 import org.dspace.statistics.util.SpiderDetector;
@@ -53,12 +48,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.*;
-import java.net.URLEncoder;
 import java.sql.SQLException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Static holder for a HttpSolrClient connection pool to issue
@@ -79,6 +74,9 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
     public static final String DATE_FORMAT_DCDATE = "yyyy-MM-dd'T'HH:mm:ss'Z'";
 
+    /** Longest query string sent with GET, leaving room for the rest of the request line and headers */
+    protected static final int MAX_GET_QUERY_LENGTH = 4096;
+
     protected LookupService locationService;
 
     protected boolean useProxies;
@@ -91,6 +89,8 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
     protected ContentServiceFactory contentServiceFactory;
     @Autowired(required = true)
     private ConfigurationService configurationService;
+    @Autowired(required = true)
+    protected UsageRollupService usageRollupService;
 
     public static enum StatisticsType {
    		VIEW ("view"),
@@ -561,14 +561,40 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
     @Override
     public void storeParents(SolrInputDocument doc1, DSpaceObject dso)
             throws SQLException
+    {
+        if (!(dso instanceof Community || dso instanceof Collection || dso instanceof Item
+                || dso instanceof Bitstream))
+        {
+            return;
+        }
+        OwnershipCache.Owners owners = OwnershipCache.get(dso.getID());
+        if (owners == null)
+        {
+            long generation = OwnershipCache.getGeneration();
+            owners = new OwnershipCache.Owners();
+            findParents(owners, dso);
+            OwnershipCache.put(dso.getID(), owners, generation);
+        }
+        owners.addTo(doc1);
+    }
+
+    /**
+     * Walk the ownership chain of an object.
+     *
+     * @param owners the owners found so far
+     * @param dso the object
+     * @throws SQLException if database error
+     */
+    protected void findParents(OwnershipCache.Owners owners, DSpaceObject dso)
+            throws SQLException
     {
         if (dso instanceof Community)
         {
             Community comm = (Community) dso;
             List<Community> parentCommunities = comm.getParentCommunities();
             for (Community parent : parentCommunities) {
-                doc1.addField("owningComm", parent.getID());
-                storeParents(doc1, parent);
+                owners.addCommunity(parent.getID());
+                findParents(owners, parent);
             }
         }
         else if (dso instanceof Collection)
@@ -576,8 +602,8 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
             Collection coll = (Collection) dso;
             List<Community> communities = coll.getCommunities();
             for (Community community : communities) {
-                doc1.addField("owningComm", community.getID());
-                storeParents(doc1, community);
+                owners.addCommunity(community.getID());
+                findParents(owners, community);
             }
         }
         else if (dso instanceof Item)
@@ -585,8 +611,8 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
             Item item = (Item) dso;
             List<Collection> collections = item.getCollections();
             for (Collection collection : collections) {
-                doc1.addField("owningColl", collection.getID());
-                storeParents(doc1, collection);
+                owners.addCollection(collection.getID());
+                findParents(owners, collection);
             }
         }
         else if (dso instanceof Bitstream)
@@ -594,10 +620,11 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
             Bitstream bitstream = (Bitstream) dso;
             List<Bundle> bundles = bitstream.getBundles();
             for (Bundle bundle : bundles) {
+                owners.addBundle(bundle.getID());
                 List<Item> items = bundle.getItems();
                 for (Item item : items) {
-                    doc1.addField("owningItem", item.getID());
-                    storeParents(doc1, item);
+                    owners.addItem(item.getID());
+                    findParents(owners, item);
                 }
             }
         }
@@ -940,6 +967,52 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         return result;
     }
 
+    @Override
+    public Map<String, ObjectCount[]> queryFacetDate(String query,
+            String filterQuery, String facetField, List<String> facetValues,
+            String dateType, String dateStart, String dateEnd, boolean showTotal,
+            Context context) throws SolrServerException
+    {
+        Map<String, ObjectCount[]> result = new LinkedHashMap<String, ObjectCount[]>();
+        FacetDateRange range = FacetDateRange.create(dateType, dateStart, dateEnd, new Date());
+        if (range == null)
+        {
+            // Not a date range we can write out, so ask Solr to facet per value
+            for (String value : facetValues)
+            {
+                String valueQuery = facetField + ": " + ClientUtils.escapeQueryChars(value) + " AND " + query;
+                result.put(value, queryFacetDate(valueQuery, filterQuery, -1, dateType, dateStart, dateEnd, showTotal, context));
+            }
+            return result;
+        }
+
+        // Count every value in every date bucket with facet queries, in one request
+        List<String> facetQueries = new ArrayList<String>();
+        for (String value : facetValues)
+        {
+            facetQueries.addAll(range.getFacetQueries(facetField + ":" + ClientUtils.escapeQueryChars(value), showTotal));
+        }
+        Map<String, Integer> facetCounts = facetQueries.isEmpty() ? null : queryFacetQuery(query, filterQuery, facetQueries);
+        for (String value : facetValues)
+        {
+            if (facetCounts == null)
+            {
+                result.put(value, new ObjectCount[0]);
+                continue;
+            }
+            ObjectCount[] counts = range.getCounts(facetField + ":" + ClientUtils.escapeQueryChars(value), facetCounts, showTotal);
+            for (ObjectCount count : counts)
+            {
+                if (!"total".equals(count.getValue()))
+                {
+                    count.setValue(getDateView(count.getValue(), dateType, context));
+                }
+            }
+            result.put(value, counts);
+        }
+        return result;
+    }
+
     @Override
     public Map<String, Integer> queryFacetQuery(String query,
             String filterQuery, List<String> facetQueries)
@@ -947,6 +1020,10 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
     {
         QueryResponse response = query(query, filterQuery, null,0, 1, null, null,
                 null, facetQueries, null, false);
+        if (response == null)
+        {
+            return null;
+        }
         return response.getFacetQuery();
     }
 
@@ -962,6 +1039,188 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         return objCount;
     }
 
+    /**
+     * @return whether the usage statistics rollups may be used to answer queries
+     */
+    protected boolean isRollupEnabled()
+    {
+        return configurationService.getBooleanProperty("solr-statistics.rollup.enabled", false);
+    }
+
+    /**
+     * @return whether the rollups of views by bots are counted, i.e. whether
+     *         the queries of the statistics core count views by bots
+     */
+    protected boolean isRollupIncludingBots()
+    {
+        return !configurationService.getBooleanProperty("solr-statistics.query.filter.isBot", true);
+    }
+
+    /**
+     * @return a filter query leaving out all usage events but views, and
+     *         keeping the events logged before they had a statistics type
+     */
+    protected String getViewFilterQuery()
+    {
+        //Solr doesn't explicitly apply boolean logic, so this query cannot be simplified to an OR query
+        return "-(statistics_type:[* TO *] AND -statistics_type:" + StatisticsType.VIEW.text() + ")";
+    }
+
+    /**
+     * @param dso an object
+     * @return the ids of the object in the statistics core: its UUID and, if any, its legacy id
+     */
+    protected List<String> getStatisticsIds(DSpaceObject dso)
+    {
+        List<String> objectIds = new ArrayList<String>();
+        objectIds.add(dso.getID().toString());
+        if (dso instanceof DSpaceObjectLegacySupport && ((DSpaceObjectLegacySupport) dso).getLegacyId() != null)
+        {
+            objectIds.add(((DSpaceObjectLegacySupport) dso).getLegacyId().toString());
+        }
+        return objectIds;
+    }
+
+    /**
+     * @param dsoType type of an object
+     * @param objectIds ids of the object in the statistics core
+     * @return a query for the usage events of the object
+     */
+    protected String getObjectQuery(int dsoType, List<String> objectIds)
+    {
+        StringBuilder query = new StringBuilder("type:").append(dsoType).append(" AND id:(");
+        for (int i = 0; i < objectIds.size(); i++)
+        {
+            if (0 < i)
+            {
+                query.append(" OR ");
+            }
+            query.append(ClientUtils.escapeQueryChars(objectIds.get(i)));
+        }
+        return query.append(")").toString();
+    }
+
+    @Override
+    public ObjectCount[] queryRollupFacetDate(Context context, DSpaceObject dso,
+            String dateType, String dateStart, String dateEnd, boolean showTotal)
+            throws SolrServerException, SQLException
+    {
+        String periodType;
+        if ("DAY".equalsIgnoreCase(dateType))
+        {
+            periodType = UsageRollup.DAY;
+        }
+        else if ("MONTH".equalsIgnoreCase(dateType) || "YEAR".equalsIgnoreCase(dateType))
+        {
+            periodType = UsageRollup.MONTH;
+        }
+        else
+        {
+            return null;
+        }
+        if (!isRollupEnabled())
+        {
+            return null;
+        }
+        int dsoType = dso.getType();
+        List<String> objectIds = getStatisticsIds(dso);
+        FacetDateRange range = FacetDateRange.create(dateType, dateStart, dateEnd, new Date());
+        Date mark = usageRollupService.getHighWaterMark(context);
+        if (range == null || range.size() == 0 || mark == null)
+        {
+            return null;
+        }
+
+        // The views up to the mark, from the rollups of whole days or months
+        long[] counts = new long[range.size()];
+        Map<Date, Long> periods = usageRollupService.countByPeriod(context, periodType, dsoType, objectIds,
+                range.getStart(0), range.getEnd(range.size() - 1), isRollupIncludingBots());
+        for (Map.Entry<Date, Long> period : periods.entrySet())
+        {
+            int bucket = range.getBucket(period.getKey());
+            if (0 <= bucket)
+            {
+                counts[bucket] += period.getValue();
+            }
+        }
+
+        // The views since the mark, from the statistics core
+        String objectQuery = getObjectQuery(dsoType, objectIds);
+        List<String> tailQueries = new ArrayList<String>();
+        Map<Integer, String> tailBuckets = new HashMap<Integer, String>();
+        for (int i = 0; i < range.size(); i++)
+        {
+            if (range.getEnd(i).after(mark))
+            {
+                Date low = range.getStart(i).before(mark) ? mark : range.getStart(i);
+                String tailQuery = "time:[" + DateFormatUtils.formatUTC(low, DATE_FORMAT_8601) + " TO "
+                        + DateFormatUtils.formatUTC(range.getEnd(i), DATE_FORMAT_8601) + "}";
+                tailQueries.add(tailQuery);
+                tailBuckets.put(i, tailQuery);
+            }
+        }
+        if (!tailQueries.isEmpty())
+        {
+            Map<String, Integer> tailCounts = queryFacetQuery(objectQuery, getViewFilterQuery(), tailQueries);
+            if (tailCounts == null)
+            {
+                return null;
+            }
+            for (Map.Entry<Integer, String> tailBucket : tailBuckets.entrySet())
+            {
+                Integer count = tailCounts.get(tailBucket.getValue());
+                if (count != null)
+                {
+                    counts[tailBucket.getKey()] += count;
+                }
+            }
+        }
+
+        List<ObjectCount> result = new ArrayList<ObjectCount>();
+        long total = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            total += counts[i];
+            if (0 < counts[i])
+            {
+                ObjectCount objectCount = new ObjectCount();
+                objectCount.setValue(getDateView(range.getLabel(i), dateType, context));
+                objectCount.setCount(counts[i]);
+                result.add(objectCount);
+            }
+        }
+        if (showTotal)
+        {
+            ObjectCount objectCount = new ObjectCount();
+            objectCount.setValue("total");
+            objectCount.setCount(total);
+            result.add(objectCount);
+        }
+        return result.toArray(new ObjectCount[result.size()]);
+    }
+
+    @Override
+    public ObjectCount queryRollupTotal(Context context, DSpaceObject dso)
+            throws SolrServerException, SQLException
+    {
+        if (!isRollupEnabled())
+        {
+            return null;
+        }
+        int dsoType = dso.getType();
+        List<String> objectIds = getStatisticsIds(dso);
+        Date mark = usageRollupService.getHighWaterMark(context);
+        if (mark == null)
+        {
+            return null;
+        }
+        ObjectCount objectCount = queryTotal(getObjectQuery(dsoType, objectIds), getViewFilterQuery()
+                + " AND time:[" + DateFormatUtils.formatUTC(mark, DATE_FORMAT_8601) + " TO *]");
+        objectCount.setCount(objectCount.getCount()
+                + usageRollupService.countTotal(context, dsoType, objectIds, isRollupIncludingBots()));
+        return objectCount;
+    }
+
     protected String getDateView(String name, String type, Context context)
     {
         if (name != null && name.matches("^[0-9]{4}\\-[0-9]{2}.*"))
@@ -1097,6 +1356,53 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
             solrQuery.setSortField(sort, (ascending ? SolrQuery.ORDER.asc : SolrQuery.ORDER.desc));
         }
 
+        String bundleQuery = getBundleFilterQuery();
+        if (bundleQuery != null)
+        {
+            solrQuery.addFilterQuery(bundleQuery);
+        }
+
+        if (filterQuery != null)
+        {
+            solrQuery.addFilterQuery(filterQuery);
+        }
+
+        QueryResponse response;
+        try
+        {
+            // solr.set
+            response = solr.query(solrQuery, getRequestMethod(solrQuery));
+        }
+        catch (SolrServerException e)
+        {
+            System.err.println("Error using query " + query);
+            throw e;
+        }
+        return response;
+    }
+
+    /**
+     * Choose how to send a query: the facet queries of the statistics tables
+     * (one per object and date bucket) and the year shards can make the URL
+     * of a GET longer than servlet containers accept (8 KB by default), so
+     * long queries are sent with POST.
+     *
+     * @param params parameters of the query
+     * @return POST if the parameters would make a long URL, GET otherwise
+     */
+    protected static SolrRequest.METHOD getRequestMethod(SolrParams params)
+    {
+        return ClientUtils.toQueryString(params, false).length() > MAX_GET_QUERY_LENGTH
+                ? SolrRequest.METHOD.POST : SolrRequest.METHOD.GET;
+    }
+
+    /**
+     * @return a filter query leaving out the views of bitstreams in bundles
+     *         other than those of <code>solr-statistics.query.filter.bundles</code>,
+     *         or null if all bundles are counted
+     */
+    protected String getBundleFilterQuery()
+    {
         String[] bundles = configurationService.getArrayProperty("solr-statistics.query.filter.bundles");
         if(bundles != null && bundles.length > 0){
 
@@ -1116,30 +1422,11 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
             }
             bundleQuery.append(")");
 
-
-            solrQuery.addFilterQuery(bundleQuery.toString());
+            return bundleQuery.toString();
         }
-
-        if (filterQuery != null)
-        {
-            solrQuery.addFilterQuery(filterQuery);
-        }
-
-        QueryResponse response;
-        try
-        {
-            // solr.set
-            response = solr.query(solrQuery);
-        }
-        catch (SolrServerException e)
-        {
-            System.err.println("Error using query " + query);
-            throw e;
-        }
-        return response;
+        return null;
     }
 
-
     /** String of IP and Ranges in IPTable as a Solr Query */
     protected String filterQuery = null;
 
@@ -1180,6 +1467,121 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         }
     }
 
+    @Override
+    public void updateRollups(Context context, boolean rebuild) throws SQLException, SolrServerException
+    {
+        // Leave out the latest views, which may not be committed to the statistics core yet
+        int lag = configurationService.getIntProperty("solr-statistics.rollup.lag", 30);
+        Date upper = new Date(System.currentTimeMillis() - lag * 60000L);
+
+        Date mark = null;
+        if (rebuild)
+        {
+            usageRollupService.clear(context);
+        }
+        else
+        {
+            mark = usageRollupService.getHighWaterMark(context);
+        }
+        if (mark == null)
+        {
+            // Start at the first view. The mark is set before any rollup is
+            // added, so that queries count the views after it in the
+            // statistics core meanwhile.
+            mark = getFirstViewTime();
+            if (mark == null || !mark.before(upper))
+            {
+                mark = upper;
+            }
+            usageRollupService.setHighWaterMark(context, mark);
+            context.commit();
+        }
+
+        Calendar day = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ROOT);
+        day.setTime(mark);
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        long total = 0;
+        while (mark.before(upper))
+        {
+            Calendar nextDay = (Calendar) day.clone();
+            nextDay.add(Calendar.DATE, 1);
+            Date end = nextDay.getTime().before(upper) ? nextDay.getTime() : upper;
+
+            // Add the views of the day up to the new mark at once, so that
+            // the rollups always hold the views before the mark exactly
+            UsageRollupCounts counts = countViews(mark, end);
+            usageRollupService.addHits(context, day.getTime(), counts);
+            usageRollupService.setHighWaterMark(context, end);
+            context.commit();
+            total += counts.getTotal();
+            log.debug("Rolled up " + counts.getTotal() + " views up to " + end);
+
+            mark = end;
+            day = nextDay;
+        }
+        log.info("Rolled up " + total + " views, up to " + mark);
+    }
+
+    /**
+     * @return the time of the first view in the statistics cores, or null if there is none
+     * @throws SolrServerException if Solr error
+     */
+    protected Date getFirstViewTime() throws SolrServerException
+    {
+        SolrQuery solrQuery = new SolrQuery("*:*").setRows(1).setFields("time")
+                .setSortField("time", SolrQuery.ORDER.asc);
+        solrQuery.addFilterQuery(getViewFilterQuery());
+        addAdditionalSolrYearCores(solrQuery);
+        SolrDocumentList docs = solr.query(solrQuery).getResults();
+        if (docs.isEmpty())
+        {
+            return null;
+        }
+        return (Date) docs.get(0).getFieldValue("time");
+    }
+
+    /**
+     * Count the views in a period per object, country and bot flag, with
+     * pivot facets. The filters on spider IP addresses and bundles are
+     * applied as by {@link #query}, the filter on bots is left to the
+     * queries of the rollups.
+     *
+     * @param from start of the period
+     * @param to end of the period, exclusive
+     * @return the views
+     * @throws SolrServerException if Solr error
+     */
+    protected UsageRollupCounts countViews(Date from, Date to) throws SolrServerException
+    {
+        SolrQuery solrQuery = new SolrQuery("*:*").setRows(0).setFacet(true).setFacetLimit(-1)
+                .setFacetMinCount(1);
+        solrQuery.addFacetPivotField(UsageRollupCounts.PIVOT, UsageRollupCounts.BOT_PIVOT);
+        addAdditionalSolrYearCores(solrQuery);
+        solrQuery.addFilterQuery("time:[" + DateFormatUtils.formatUTC(from, DATE_FORMAT_8601) + " TO "
+                + DateFormatUtils.formatUTC(to, DATE_FORMAT_8601) + "}");
+        solrQuery.addFilterQuery(getViewFilterQuery());
+        if (configurationService.getBooleanProperty("solr-statistics.query.filter.spiderIp", false))
+        {
+            solrQuery.addFilterQuery(getIgnoreSpiderIPs());
+        }
+        String bundleQuery = getBundleFilterQuery();
+        if (bundleQuery != null)
+        {
+            solrQuery.addFilterQuery(bundleQuery);
+        }
+
+        UsageRollupCounts counts = new UsageRollupCounts();
+        NamedList<List<PivotField>> pivots = solr.query(solrQuery).getFacetPivot();
+        if (pivots != null)
+        {
+            counts.addPivots(pivots.get(UsageRollupCounts.PIVOT), pivots.get(UsageRollupCounts.BOT_PIVOT));
+        }
+        return counts;
+    }
+
     @Override
     public void shardSolrIndex() throws IOException, SolrServerException {
         /*
@@ -1198,219 +1600,270 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         yearRangeQuery.add(FacetParams.FACET_RANGE_GAP, "+1YEAR");
         yearRangeQuery.add(FacetParams.FACET_MINCOUNT, String.valueOf(1));
 
-        //Create a temp directory to store our files in !
-        File tempDirectory = new File(configurationService.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
-        tempDirectory.mkdirs();
-
+        //Checkpoints of the years being moved, to resume an interrupted run
+        final ShardProgress progress = new ShardProgress(new File(configurationService.getProperty("dspace.dir")
+                + File.separator + "temp" + File.separator + "statistics-shard.progress"));
 
         QueryResponse queryResponse = solr.query(yearRangeQuery);
         //We only have one range query !
         List<RangeFacet.Count> yearResults = queryResponse.getFacetRanges().get(0).getCounts();
-        for (RangeFacet.Count count : yearResults) {
-            long totalRecords = count.getCount();
-
-            //Create a range query from this !
-            //We start with out current year
-            DCDate dcStart = new DCDate(count.getValue());
-            Calendar endDate = Calendar.getInstance();
-            //Advance one year for the start of the next one !
-            endDate.setTime(dcStart.toDate());
-            endDate.add(Calendar.YEAR, 1);
-            DCDate dcEndDate = new DCDate(endDate.getTime());
-
-
-            StringBuilder filterQuery = new StringBuilder();
-            filterQuery.append("time:([");
-            filterQuery.append(ClientUtils.escapeQueryChars(dcStart.toString()));
-            filterQuery.append(" TO ");
-            filterQuery.append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
-            filterQuery.append("]");
-            //The next part of the filter query excludes the content from midnight of the next year !
-            filterQuery.append(" NOT ").append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
-            filterQuery.append(")");
-
-
-            Map<String, String> yearQueryParams = new HashMap<String, String>();
-            yearQueryParams.put(CommonParams.Q, "*:*");
-            yearQueryParams.put(CommonParams.ROWS, String.valueOf(10000));
-            yearQueryParams.put(CommonParams.FQ, filterQuery.toString());
-            yearQueryParams.put(CommonParams.WT, "csv");
-
-            //Start by creating a new core
-            String coreName = "statistics-" + dcStart.getYear();
-            HttpSolrServer statisticsYearServer = createCore(solr, coreName);
-
-            System.out.println("Moving: " + totalRecords + " into core " + coreName);
-            log.info("Moving: " + totalRecords + " records into core " + coreName);
-
-            List<File> filesToUpload = new ArrayList<File>();
-            for(int i = 0; i < totalRecords; i+=10000){
-                String solrRequestUrl = solr.getBaseURL() + "/select";
-                solrRequestUrl = generateURL(solrRequestUrl, yearQueryParams);
-
-                HttpGet get = new HttpGet(solrRequestUrl);
-                HttpResponse response = new DefaultHttpClient().execute(get);
-                InputStream csvInputstream = response.getEntity().getContent();
-                //Write the csv ouput to a file !
-                File csvFile = new File(tempDirectory.getPath() + File.separatorChar + "temp." + dcStart.getYear() + "." + i + ".csv");
-                FileUtils.copyInputStreamToFile(csvInputstream, csvFile);
-                filesToUpload.add(csvFile);
-
-                //Add 10000 & start over again
-                yearQueryParams.put(CommonParams.START, String.valueOf((i + 10000)));
-            }
-
-            for (File tempCsv : filesToUpload) {
-                //Upload the data in the csv files to our new solr core
-                ContentStreamUpdateRequest contentStreamUpdateRequest = new ContentStreamUpdateRequest("/update/csv");
-                contentStreamUpdateRequest.setParam("stream.contentType", "text/plain;charset=utf-8");
-	            contentStreamUpdateRequest.setParam("skip", "_version_");
-                contentStreamUpdateRequest.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
-                contentStreamUpdateRequest.addFile(tempCsv, "text/plain;charset=utf-8");
-
-                statisticsYearServer.request(contentStreamUpdateRequest);
+
+        //Years are moved in parallel, each streaming its usage events straight into its own core
+        ExecutorService executor = Executors.newFixedThreadPool(getMaintenanceThreads());
+        List<Future<Long>> moves = new ArrayList<Future<Long>>();
+        try {
+            for (RangeFacet.Count count : yearResults) {
+                final long totalRecords = count.getCount();
+
+                //Create a range query from this !
+                //We start with out current year
+                DCDate dcStart = new DCDate(count.getValue());
+                Calendar endDate = Calendar.getInstance();
+                //Advance one year for the start of the next one !
+                endDate.setTime(dcStart.toDate());
+                endDate.add(Calendar.YEAR, 1);
+                DCDate dcEndDate = new DCDate(endDate.getTime());
+
+
+                StringBuilder filterQuery = new StringBuilder();
+                filterQuery.append("time:([");
+                filterQuery.append(ClientUtils.escapeQueryChars(dcStart.toString()));
+                filterQuery.append(" TO ");
+                filterQuery.append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
+                filterQuery.append("]");
+                //The next part of the filter query excludes the content from midnight of the next year !
+                filterQuery.append(" NOT ").append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
+                filterQuery.append(")");
+                final String yearFilterQuery = filterQuery.toString();
+
+                //Start by creating a new core
+                final String coreName = "statistics-" + dcStart.getYear();
+                final HttpSolrServer statisticsYearServer = createCore(solr, coreName);
+
+                moves.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        moveToCore(statisticsYearServer, coreName, yearFilterQuery, totalRecords, progress);
+                        return totalRecords;
+                    }
+                }));
             }
-            statisticsYearServer.commit(true, true);
+            executor.shutdown();
+
+            //Wait for all years, so that an error in one does not interrupt the others
+            Throwable failure = null;
+            for (Future<Long> move : moves) {
+                try {
+                    move.get();
+                } catch (ExecutionException e) {
+                    log.error("Error while moving usage events into a year core", e.getCause());
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+            if (failure instanceof SolrServerException) {
+                throw (SolrServerException) failure;
+            } else if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure != null) {
+                throw new IOException(failure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while moving usage events into the year cores", e);
+        } finally {
+            executor.shutdownNow();
+        }
 
+        progress.delete();
+    }
 
-            //Delete contents of this year from our year query !
-            solr.deleteByQuery(filterQuery.toString());
-            solr.commit(true, true);
+    /**
+     * Move the usage events of a year from the statistics core into its year
+     * core, streaming them in batches and checkpointing the cursor mark after
+     * each batch.
+     *
+     * @param statisticsYearServer the year core
+     * @param coreName the name of the year core
+     * @param filterQuery query matching the usage events of the year
+     * @param totalRecords the number of usage events of the year
+     * @param progress the checkpoints of the run
+     * @throws Exception if an error occurs
+     */
+    protected void moveToCore(final HttpSolrServer statisticsYearServer, final String coreName, String filterQuery,
+                              long totalRecords, final ShardProgress progress) throws Exception {
+        if (!progress.isCopied(coreName)) {
+            String cursorMark = progress.getCursorMark(coreName);
+            if (cursorMark == null) {
+                System.out.println("Moving: " + totalRecords + " into core " + coreName);
+                log.info("Moving: " + totalRecords + " records into core " + coreName);
+            } else {
+                System.out.println("Resuming move of: " + totalRecords + " into core " + coreName);
+                log.info("Resuming move of: " + totalRecords + " records into core " + coreName);
+            }
 
-            log.info("Moved " + totalRecords + " records into core: " + coreName);
+            SolrQuery yearQuery = new SolrQuery("*:*");
+            yearQuery.addFilterQuery(filterQuery);
+            streamDocuments(solr, yearQuery, cursorMark, new DocumentBatchHandler() {
+                @Override
+                public void handle(SolrDocumentList docs, String nextCursorMark) throws Exception {
+                    statisticsYearServer.add(toInputDocuments(docs));
+                    //The update log of the year core keeps the added batch, even before it is committed
+                    progress.setCursorMark(coreName, nextCursorMark);
+                }
+            });
+            statisticsYearServer.commit(true, true);
+            progress.setCopied(coreName);
         }
 
-        FileUtils.deleteDirectory(tempDirectory);
+        //Delete contents of this year from our year query !
+        solr.deleteByQuery(filterQuery);
+        solr.commit(true, true);
+        progress.remove(coreName);
+
+        log.info("Moved " + totalRecords + " records into core: " + coreName);
     }
 
     protected HttpSolrServer createCore(HttpSolrServer solr, String coreName) throws IOException, SolrServerException {
         String solrDir = configurationService.getProperty("dspace.dir") + File.separator + "solr" +File.separator;
         String baseSolrUrl = solr.getBaseURL().replace("statistics", "");
-        CoreAdminRequest.Create create = new CoreAdminRequest.Create();
-        create.setCoreName(coreName);
-        create.setInstanceDir("statistics");
-        create.setDataDir(solrDir + coreName + File.separator + "data");
-        HttpSolrServer solrServer = new HttpSolrServer(baseSolrUrl);
-        create.process(solrServer);
-        log.info("Created core with name: " + coreName);
-        return new HttpSolrServer(baseSolrUrl + "/" + coreName);
+        //Share the pooled connections of the statistics core
+        HttpSolrServer solrServer = new HttpSolrServer(baseSolrUrl, solr.getHttpClient());
+        //A core left by an interrupted run of the sharding is already loaded
+        if (CoreAdminRequest.getStatus(coreName, solrServer).getCoreStatus(coreName).size() == 0) {
+            CoreAdminRequest.Create create = new CoreAdminRequest.Create();
+            create.setCoreName(coreName);
+            create.setInstanceDir("statistics");
+            create.setDataDir(solrDir + coreName + File.separator + "data");
+            create.process(solrServer);
+            log.info("Created core with name: " + coreName);
+        }
+        return new HttpSolrServer(baseSolrUrl + "/" + coreName, solr.getHttpClient());
+    }
+
+    /**
+     * Receives the documents read by {@link #streamDocuments}, one batch at a time.
+     */
+    protected interface DocumentBatchHandler {
+
+        /**
+         * @param docs the next batch of documents
+         * @param nextCursorMark the cursor mark to read the batches after this one from
+         * @throws Exception if an error occurs
+         */
+        public void handle(SolrDocumentList docs, String nextCursorMark) throws Exception;
+    }
+
+    /**
+     * Read all documents matching a query with a cursor, in batches of
+     * <code>solr-statistics.maintenance.rows</code> documents. Unlike paging
+     * with a start offset, reading each batch takes the same time however
+     * deep into the results it is, and documents changed while reading
+     * neither shift the batches nor are read twice.
+     *
+     * @param server the core to read from
+     * @param query the query; its rows, sort and cursor mark are overwritten
+     * @param cursorMark the cursor mark to start from, or null to start from the beginning
+     * @param handler receives the batches
+     * @return the number of documents read
+     * @throws Exception if an error occurs
+     */
+    protected long streamDocuments(HttpSolrServer server, SolrQuery query, String cursorMark,
+                                   DocumentBatchHandler handler) throws Exception {
+        query.setRows(configurationService.getIntProperty("solr-statistics.maintenance.rows", 10000));
+        //A cursor needs a sort on the unique key
+        query.setSort("uid", SolrQuery.ORDER.asc);
+        String current = cursorMark == null ? CursorMarkParams.CURSOR_MARK_START : cursorMark;
+        long read = 0;
+        while (true) {
+            query.set(CursorMarkParams.CURSOR_MARK_PARAM, current);
+            QueryResponse response = server.query(query);
+            String next = response.getNextCursorMark();
+            SolrDocumentList docs = response.getResults();
+            if (!docs.isEmpty()) {
+                handler.handle(docs, next);
+                read += docs.size();
+            }
+            //The cursor mark stays the same once all documents were read
+            if (next == null || next.equals(current)) {
+                return read;
+            }
+            current = next;
+        }
+    }
+
+    /**
+     * @param docs usage events read from a core
+     * @return the usage events to add them to a core again
+     */
+    protected List<SolrInputDocument> toInputDocuments(SolrDocumentList docs) {
+        List<SolrInputDocument> inputDocs = new ArrayList<SolrInputDocument>(docs.size());
+        for (SolrDocument doc : docs) {
+            SolrInputDocument inputDoc = ClientUtils.toSolrInputDocument(doc);
+            //The version of the document in the core it was read from would fail the optimistic concurrency check
+            inputDoc.removeField("_version_");
+            inputDocs.add(inputDoc);
+        }
+        return inputDocs;
+    }
+
+    /**
+     * @return the number of years moved in parallel by {@link #shardSolrIndex}
+     */
+    protected int getMaintenanceThreads() {
+        return Math.max(1, configurationService.getIntProperty("solr-statistics.maintenance.threads", 2));
     }
 
 
     @Override
-    public void reindexBitstreamHits(boolean removeDeletedBitstreams) throws Exception {
-        Context context = new Context();
+    public void reindexBitstreamHits(final boolean removeDeletedBitstreams) throws Exception {
+        final Context context = new Context();
 
         try {
-            //First of all retrieve the total number of records to be updated
+            context.enableBatchMode(true);
             SolrQuery query = new SolrQuery();
             query.setQuery("*:*");
             query.addFilterQuery("type:" + Constants.BITSTREAM);
             //Only retrieve records which do not have a bundle name
             query.addFilterQuery("-bundleName:[* TO *]");
-            query.setRows(0);
-            addAdditionalSolrYearCores(query);
-            long totalRecords = solr.query(query).getResults().getNumFound();
 
-            File tempDirectory = new File(configurationService.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
-            tempDirectory.mkdirs();
-            List<File> tempCsvFiles = new ArrayList<File>();
-            for(int i = 0; i < totalRecords; i+=10000){
-                Map<String, String> params = new HashMap<String, String>();
-                params.put(CommonParams.Q, "*:*");
-                params.put(CommonParams.FQ, "-bundleName:[* TO *] AND type:" + Constants.BITSTREAM);
-                params.put(CommonParams.WT, "csv");
-                params.put(CommonParams.ROWS, String.valueOf(10000));
-                params.put(CommonParams.START, String.valueOf(i));
-
-                String solrRequestUrl = solr.getBaseURL() + "/select";
-                solrRequestUrl = generateURL(solrRequestUrl, params);
-
-                HttpGet get = new HttpGet(solrRequestUrl);
-                HttpResponse response = new DefaultHttpClient().execute(get);
-
-                InputStream  csvOutput = response.getEntity().getContent();
-                Reader csvReader = new InputStreamReader(csvOutput);
-                List<String[]> rows = new CSVReader(csvReader).readAll();
-                String[][] csvParsed = rows.toArray(new String[rows.size()][]);
-                String[] header = csvParsed[0];
-                //Attempt to find the bitstream id index !
-                int idIndex = 0;
-                for (int j = 0; j < header.length; j++) {
-                    if(header[j].equals("id")){
-                        idIndex = j;
-                    }
-                }
-
-                File tempCsv = new File(tempDirectory.getPath() + File.separatorChar + "temp." + i + ".csv");
-                tempCsvFiles.add(tempCsv);
-                CSVWriter csvp = new CSVWriter(new FileWriter(tempCsv));
-                //csvp.setAlwaysQuote(false);
-
-                //Write the header !
-                csvp.writeNext((String[]) ArrayUtils.add(header, "bundleName"));
-                Map<String, String> bitBundleCache = new HashMap<>();
-                //Loop over each line (skip the headers though)!
-                for (int j = 1; j < csvParsed.length; j++){
-                    String[] csvLine = csvParsed[j];
-                    //Write the default line !
-                    String bitstreamId = csvLine[idIndex];
-                    //Attempt to retrieve our bundle name from the cache !
-                    String bundleName = bitBundleCache.get(bitstreamId);
-                    if(bundleName == null){
-                        //Nothing found retrieve the bitstream
-                        Bitstream bitstream = bitstreamService.findByIdOrLegacyId(context, bitstreamId);
-                        //Attempt to retrieve our bitstream !
-                        if (bitstream != null){
-                            List<Bundle> bundles = bitstream.getBundles();
-                            if(bundles != null && 0 < bundles.size()){
-                                Bundle bundle = bundles.get(0);
-                                bundleName = bundle.getName();
-                            }else{
-                                //No bundle found, we are either a collection or a community logo, check for it !
-                                DSpaceObject parentObject = bitstreamService.getParentObject(context, bitstream);
-                                if(parentObject instanceof Collection){
-                                    bundleName = "LOGO-COLLECTION";
-                                }else
-                                if(parentObject instanceof Community){
-                                    bundleName = "LOGO-COMMUNITY";
-                                }
-
-                            }
-                            //Cache the bundle name
-                            bitBundleCache.put(bitstream.getID().toString(), bundleName);
-                            //Remove the bitstream from cache
+            //Reindexed records get a bundle name, so an interrupted run simply resumes with the records left
+            final Map<String, String> bitBundleCache = new HashMap<>();
+            streamDocuments(solr, query, null, new DocumentBatchHandler() {
+                @Override
+                public void handle(SolrDocumentList docs, String nextCursorMark) throws Exception {
+                    List<SolrInputDocument> reindexed = new ArrayList<SolrInputDocument>(docs.size());
+                    for (SolrInputDocument doc : toInputDocuments(docs)) {
+                        String bitstreamId = String.valueOf(doc.getFieldValue("id"));
+                        //Attempt to retrieve our bundle name from the cache !
+                        if (!bitBundleCache.containsKey(bitstreamId)) {
+                            bitBundleCache.put(bitstreamId, findBundleName(context, bitstreamId));
                         }
+                        String bundleName = bitBundleCache.get(bitstreamId);
                         //Check if we don't have a bundlename
                         //If we don't have one & we do not need to delete the deleted bitstreams ensure that a BITSTREAM_DELETED bundle name is given !
-                        if(bundleName == null && !removeDeletedBitstreams){
+                        if (bundleName == null && !removeDeletedBitstreams) {
                             bundleName = "BITSTREAM_DELETED";
                         }
+                        //Records left without a bundle name are deleted below
+                        if (bundleName != null) {
+                            doc.setField("bundleName", bundleName);
+                            reindexed.add(doc);
+                        }
+                    }
+                    if (!reindexed.isEmpty()) {
+                        solr.add(reindexed);
                     }
-                    csvp.writeNext((String[]) ArrayUtils.add(csvLine, bundleName));
+                    //The bitstreams are cached by name, free up the memory of the entities
+                    context.clearCache();
                 }
-
-                //Loop over our parsed csv
-                csvp.flush();
-                csvp.close();
-            }
-
-            //Add all the separate csv files
-            for (File tempCsv : tempCsvFiles) {
-                ContentStreamUpdateRequest contentStreamUpdateRequest = new ContentStreamUpdateRequest("/update/csv");
-                contentStreamUpdateRequest.setParam("stream.contentType", "text/plain;charset=utf-8");
-                contentStreamUpdateRequest.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
-                contentStreamUpdateRequest.addFile(tempCsv, "text/plain;charset=utf-8");
-
-                solr.request(contentStreamUpdateRequest);
-            }
+            });
 
             //Now that all our new bitstream stats are in place, delete all the old ones !
             solr.deleteByQuery("-bundleName:[* TO *] AND type:" + Constants.BITSTREAM);
             //Commit everything to wrap up
             solr.commit(true, true);
-            //Clean up our directory !
-            FileUtils.deleteDirectory(tempDirectory);
         } catch (Exception e) {
             log.error("Error while updating the bitstream statistics", e);
             throw e;
@@ -1419,40 +1872,67 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         }
     }
 
+    /**
+     * @param context the DSpace context
+     * @param bitstreamId the id of a bitstream in the statistics core
+     * @return the name of the bundle of the bitstream, LOGO-COLLECTION or
+     *         LOGO-COMMUNITY for a logo, or null if the bitstream was deleted
+     * @throws SQLException if database error
+     */
+    protected String findBundleName(Context context, String bitstreamId) throws SQLException {
+        Bitstream bitstream = bitstreamService.findByIdOrLegacyId(context, bitstreamId);
+        //Attempt to retrieve our bitstream !
+        if (bitstream == null) {
+            return null;
+        }
+        List<Bundle> bundles = bitstream.getBundles();
+        if (bundles != null && 0 < bundles.size()) {
+            return bundles.get(0).getName();
+        }
+        //No bundle found, we are either a collection or a community logo, check for it !
+        DSpaceObject parentObject = bitstreamService.getParentObject(context, bitstream);
+        if (parentObject instanceof Collection) {
+            return "LOGO-COLLECTION";
+        } else if (parentObject instanceof Community) {
+            return "LOGO-COMMUNITY";
+        }
+        return null;
+    }
+
 
     @Override
     public void exportHits() throws Exception {
-        Context context = new Context();
+        final Context context = new Context();
 
-        File tempDirectory = new File(configurationService.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
+        final File tempDirectory = new File(configurationService.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
         tempDirectory.mkdirs();
 
         try {
-            //First of all retrieve the total number of records to be updated
-            SolrQuery query = new SolrQuery();
-            query.setQuery("*:*");
-
-            ModifiableSolrParams solrParams = new ModifiableSolrParams();
-            solrParams.set(CommonParams.Q, "statistics_type:view OR (*:* AND -statistics_type:*)");
-            solrParams.set(CommonParams.WT, "javabin");
-            solrParams.set(CommonParams.ROWS, String.valueOf(10000));
-
+            context.enableBatchMode(true);
+            SolrQuery query = new SolrQuery("statistics_type:view OR (*:* AND -statistics_type:*)");
+            //Export the usage events of the year cores too
             addAdditionalSolrYearCores(query);
+
+            //First of all retrieve the total number of records to be exported
+            query.setRows(0);
             long totalRecords = solr.query(query).getResults().getNumFound();
             System.out.println("There are " + totalRecords + " usage events in SOLR for download/view.");
 
-            for(int i = 0; i < totalRecords; i+=10000){
-                solrParams.set(CommonParams.START, String.valueOf(i));
-                QueryResponse queryResponse = solr.query(solrParams);
-                SolrDocumentList docs = queryResponse.getResults();
-
-                File exportOutput = new File(tempDirectory.getPath() + File.separatorChar + "usagestats_" + i + ".csv");
-                exportOutput.delete();
-
-                //export docs
-                addDocumentsToFile(context, docs, exportOutput);
-                System.out.println("Export hits [" + i + " - " + String.valueOf(i+9999) + "] to " + exportOutput.getCanonicalPath());
-            }
+            final long[] exported = {0};
+            streamDocuments(solr, query, null, new DocumentBatchHandler() {
+                @Override
+                public void handle(SolrDocumentList docs, String nextCursorMark) throws Exception {
+                    long i = exported[0];
+                    File exportOutput = new File(tempDirectory.getPath() + File.separatorChar + "usagestats_" + i + ".csv");
+                    exportOutput.delete();
+
+                    //export docs
+                    addDocumentsToFile(context, docs, exportOutput);
+                    System.out.println("Export hits [" + i + " - " + String.valueOf(i + docs.size() - 1) + "] to " + exportOutput.getCanonicalPath());
+                    exported[0] += docs.size();
+                    context.clearCache();
+                }
+            });
         } catch (Exception e) {
             log.error("Error while exporting SOLR data", e);
             throw e;
@@ -1462,56 +1942,35 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
     }
 
     protected void addDocumentsToFile(Context context, SolrDocumentList docs, File exportOutput) throws SQLException, ParseException, IOException {
-        for(SolrDocument doc : docs) {
-            String ip = doc.get("ip").toString();
-            if(ip.equals("::1")) {
-                ip = "127.0.0.1";
-            }
-
-            String id = doc.get("id").toString();
-            String type = doc.get("type").toString();
-            String time = doc.get("time").toString();
-
-            //20140527162409835,view_bitstream,1292,2014-05-27T16:24:09,anonymous,127.0.0.1
-            DSpaceObjectLegacySupportService dsoService = contentServiceFactory.getDSpaceLegacyObjectService(Integer.parseInt(type));
-            DSpaceObject dso = dsoService.findByIdOrLegacyId(context, id);
-            if(dso == null) {
-                log.debug("Document no longer exists in DB. type:" + type + " id:" + id);
-                continue;
-            }
-
-            //InputFormat: Mon May 19 07:21:27 EDT 2014
-            DateFormat inputDateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss z yyyy");
-            Date solrDate = inputDateFormat.parse(time);
+        //InputFormat: Mon May 19 07:21:27 EDT 2014
+        DateFormat inputDateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss z yyyy");
+        //OutputFormat: 2014-05-27T16:24:09
+        DateFormat outputDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(exportOutput, true), "UTF-8"))) {
+            for (SolrDocument doc : docs) {
+                String ip = doc.get("ip").toString();
+                if (ip.equals("::1")) {
+                    ip = "127.0.0.1";
+                }
 
-            //OutputFormat: 2014-05-27T16:24:09
-            DateFormat outputDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+                String id = doc.get("id").toString();
+                String type = doc.get("type").toString();
+                String time = doc.get("time").toString();
 
-            String out = time + "," + "view_" + contentServiceFactory.getDSpaceObjectService(dso).getTypeText(dso).toLowerCase() + "," + id + ","  + outputDateFormat.format(solrDate) + ",anonymous," + ip + "\n";
-            FileUtils.writeStringToFile(exportOutput, out, true);
+                //20140527162409835,view_bitstream,1292,2014-05-27T16:24:09,anonymous,127.0.0.1
+                DSpaceObjectLegacySupportService dsoService = contentServiceFactory.getDSpaceLegacyObjectService(Integer.parseInt(type));
+                DSpaceObject dso = dsoService.findByIdOrLegacyId(context, id);
+                if (dso == null) {
+                    log.debug("Document no longer exists in DB. type:" + type + " id:" + id);
+                    continue;
+                }
 
-        }
-    }
+                Date solrDate = doc.get("time") instanceof Date ? (Date) doc.get("time") : inputDateFormat.parse(time);
 
-    protected String generateURL(String baseURL, Map<String, String> parameters) throws UnsupportedEncodingException {
-        boolean first = true;
-        StringBuilder result = new StringBuilder(baseURL);
-        for (String key : parameters.keySet())
-        {
-            if (first)
-            {
-                result.append("?");
-                first = false;
+                out.write(time + "," + "view_" + contentServiceFactory.getDSpaceObjectService(dso).getTypeText(dso).toLowerCase() + "," + id + "," + outputDateFormat.format(solrDate) + ",anonymous," + ip + "\n");
             }
-            else
-            {
-                result.append("&");
-            }
-
-            result.append(key).append("=").append(URLEncoder.encode(parameters.get(key), "UTF-8"));
         }
-
-        return result.toString();
     }
 
     protected void addAdditionalSolrYearCores(SolrQuery solrQuery){
@@ -0,0 +1,130 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.util.Date;
+import javax.persistence.*;
+
+import org.dspace.core.Context;
+import org.dspace.core.ReloadableEntity;
+
+/**
+ * The number of views of one object in one day or month, from one country,
+ * by either bots or other visitors: a row of the usage statistics rollups
+ * kept by the {@link org.dspace.statistics.service.UsageRollupService}.
+ * <p>
+ * The object is identified as in the <code>id</code> field of the statistics
+ * core, which holds the UUID of the object or, for usage events logged before
+ * DSpace 6, its legacy id.
+ */
+@Entity
+@Table(name = "statistics_rollup")
+public class UsageRollup implements ReloadableEntity<Integer>
+{
+    /** Period type of daily rollups */
+    public static final String DAY = "DAY";
+
+    /** Period type of monthly rollups */
+    public static final String MONTH = "MONTH";
+
+    /** Country code of views whose country is not known */
+    public static final String UNKNOWN_COUNTRY = "--";
+
+    @Id
+    @Column(name = "rollup_id")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "statistics_rollup_seq")
+    @SequenceGenerator(name = "statistics_rollup_seq", sequenceName = "statistics_rollup_seq", allocationSize = 1)
+    private Integer id;
+
+    @Column(name = "period_type", length = 8, nullable = false)
+    private String periodType;
+
+    @Column(name = "period_start", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date periodStart;
+
+    @Column(name = "object_id", length = 64, nullable = false)
+    private String objectId;
+
+    @Column(name = "dso_type", nullable = false)
+    private int dsoType;
+
+    @Column(name = "country_code", length = 8, nullable = false)
+    private String countryCode;
+
+    @Column(name = "is_bot", nullable = false)
+    private boolean bot;
+
+    @Column(name = "hits", nullable = false)
+    private long hits;
+
+    /**
+     * Protected constructor, create object using:
+     * {@link org.dspace.statistics.service.UsageRollupService#addHits(Context, String, Date, String, int, String, boolean, long)}
+     */
+    protected UsageRollup()
+    {
+    }
+
+    void setKey(String periodType, Date periodStart, String objectId, int dsoType, String countryCode,
+                boolean bot)
+    {
+        this.periodType = periodType;
+        this.periodStart = periodStart;
+        this.objectId = objectId;
+        this.dsoType = dsoType;
+        this.countryCode = countryCode;
+        this.bot = bot;
+    }
+
+    void setHits(long hits)
+    {
+        this.hits = hits;
+    }
+
+    @Override
+    public Integer getID()
+    {
+        return id;
+    }
+
+    public String getPeriodType()
+    {
+        return periodType;
+    }
+
+    public Date getPeriodStart()
+    {
+        return periodStart;
+    }
+
+    public String getObjectId()
+    {
+        return objectId;
+    }
+
+    public int getDsoType()
+    {
+        return dsoType;
+    }
+
+    public String getCountryCode()
+    {
+        return countryCode;
+    }
+
+    public boolean isBot()
+    {
+        return bot;
+    }
+
+    public long getHits()
+    {
+        return hits;
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.solr.client.solrj.response.PivotField;
+
+/**
+ * The views of a period, counted per object, country and bot flag, to be
+ * added to the usage statistics rollups.
+ * <p>
+ * The counts are read from the Solr pivot facets {@link #PIVOT} and
+ * {@link #BOT_PIVOT}. Views without a country code are counted as
+ * {@link UsageRollup#UNKNOWN_COUNTRY}, views without a bot flag as views by
+ * visitors other than bots, as the statistics queries filtering out bots do.
+ */
+public class UsageRollupCounts
+{
+    /** The pivot facet counting the views per object, country and bot flag */
+    public static final String PIVOT = "type,id,countryCode,isBot";
+
+    /** The pivot facet counting the views per object and bot flag */
+    public static final String BOT_PIVOT = "type,id,isBot";
+
+    private final Map<Key, Long> counts = new LinkedHashMap<>();
+
+    private long total = 0;
+
+    /**
+     * @param objectId id of the object in the statistics core
+     * @param dsoType type of the object
+     * @param countryCode country code of the views
+     * @param bot whether the views are by bots
+     * @param hits number of views
+     */
+    public void add(String objectId, int dsoType, String countryCode, boolean bot, long hits)
+    {
+        if (hits <= 0)
+        {
+            return;
+        }
+        Key key = new Key(objectId, dsoType, StringUtils.isBlank(countryCode) ? UsageRollup.UNKNOWN_COUNTRY
+                : countryCode, bot);
+        Long count = counts.get(key);
+        counts.put(key, count == null ? hits : count + hits);
+        total += hits;
+    }
+
+    /**
+     * Count the views of the {@link #PIVOT} and {@link #BOT_PIVOT} facets of
+     * the same views.
+     * Solr only returns the values present at each level of a pivot, so the
+     * views without a value are the count of the parent less the counts of
+     * its values. The bot flag of the views without a country is only known
+     * per object, from the {@link #BOT_PIVOT} facet.
+     *
+     * @param typePivots the values of the <code>type</code> field in the {@link #PIVOT} facet
+     * @param botTypePivots the values of the <code>type</code> field in the {@link #BOT_PIVOT} facet
+     */
+    public void addPivots(List<PivotField> typePivots, List<PivotField> botTypePivots)
+    {
+        if (typePivots == null)
+        {
+            return;
+        }
+        // The views by bots of each object
+        Map<String, Long> objectBots = new HashMap<>();
+        if (botTypePivots != null)
+        {
+            for (PivotField typePivot : botTypePivots)
+            {
+                if (typePivot.getPivot() == null)
+                {
+                    continue;
+                }
+                for (PivotField idPivot : typePivot.getPivot())
+                {
+                    long bots = 0;
+                    if (idPivot.getPivot() != null)
+                    {
+                        for (PivotField botPivot : idPivot.getPivot())
+                        {
+                            if (isBot(botPivot))
+                            {
+                                bots += botPivot.getCount();
+                            }
+                        }
+                    }
+                    objectBots.put(getObjectKey(typePivot, idPivot), bots);
+                }
+            }
+        }
+
+        for (PivotField typePivot : typePivots)
+        {
+            int dsoType;
+            try
+            {
+                dsoType = Integer.parseInt(String.valueOf(typePivot.getValue()));
+            }
+            catch (NumberFormatException e)
+            {
+                continue;
+            }
+            if (typePivot.getPivot() == null)
+            {
+                continue;
+            }
+            for (PivotField idPivot : typePivot.getPivot())
+            {
+                String objectId = String.valueOf(idPivot.getValue());
+                long countryHits = 0;
+                long countryBots = 0;
+                if (idPivot.getPivot() != null)
+                {
+                    for (PivotField countryPivot : idPivot.getPivot())
+                    {
+                        countryBots += addBotPivots(objectId, dsoType, String.valueOf(countryPivot.getValue()),
+                                countryPivot.getCount(), countryPivot.getPivot());
+                        countryHits += countryPivot.getCount();
+                    }
+                }
+                Long bots = objectBots.get(getObjectKey(typePivot, idPivot));
+                long unknownBots = bots == null ? 0 : bots - countryBots;
+                add(objectId, dsoType, UsageRollup.UNKNOWN_COUNTRY, true, unknownBots);
+                add(objectId, dsoType, UsageRollup.UNKNOWN_COUNTRY, false, idPivot.getCount() - countryHits
+                        - unknownBots);
+            }
+        }
+    }
+
+    private static String getObjectKey(PivotField typePivot, PivotField idPivot)
+    {
+        return typePivot.getValue() + "/" + idPivot.getValue();
+    }
+
+    private static boolean isBot(PivotField botPivot)
+    {
+        return Boolean.parseBoolean(String.valueOf(botPivot.getValue()));
+    }
+
+    /**
+     * @return the number of views by bots added
+     */
+    private long addBotPivots(String objectId, int dsoType, String countryCode, long hits,
+                              List<PivotField> botPivots)
+    {
+        long flagged = 0;
+        long bots = 0;
+        if (botPivots != null)
+        {
+            for (PivotField botPivot : botPivots)
+            {
+                boolean bot = isBot(botPivot);
+                add(objectId, dsoType, countryCode, bot, botPivot.getCount());
+                flagged += botPivot.getCount();
+                if (bot)
+                {
+                    bots += botPivot.getCount();
+                }
+            }
+        }
+        add(objectId, dsoType, countryCode, false, hits - flagged);
+        return bots;
+    }
+
+    /**
+     * @return the number of views, by object, country and bot flag
+     */
+    public Map<Key, Long> getCounts()
+    {
+        return counts;
+    }
+
+    /**
+     * @return the number of views counted
+     */
+    public long getTotal()
+    {
+        return total;
+    }
+
+    /**
+     * The object, country and bot flag of a count.
+     */
+    public static class Key
+    {
+        private final String objectId;
+        private final int dsoType;
+        private final String countryCode;
+        private final boolean bot;
+
+        public Key(String objectId, int dsoType, String countryCode, boolean bot)
+        {
+            this.objectId = objectId;
+            this.dsoType = dsoType;
+            this.countryCode = countryCode;
+            this.bot = bot;
+        }
+
+        public String getObjectId()
+        {
+            return objectId;
+        }
+
+        public int getDsoType()
+        {
+            return dsoType;
+        }
+
+        public String getCountryCode()
+        {
+            return countryCode;
+        }
+
+        public boolean isBot()
+        {
+            return bot;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) o;
+            return dsoType == other.dsoType && bot == other.bot && objectId.equals(other.objectId)
+                    && countryCode.equals(other.countryCode);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return ((objectId.hashCode() * 31 + dsoType) * 31 + countryCode.hashCode()) * 31 + (bot ? 1 : 0);
+        }
+
+        @Override
+        public String toString()
+        {
+            return dsoType + "/" + objectId + "/" + countryCode + (bot ? "/bot" : "");
+        }
+    }
+}
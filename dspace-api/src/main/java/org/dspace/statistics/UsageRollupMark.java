@@ -0,0 +1,59 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.util.Date;
+import javax.persistence.*;
+
+import org.dspace.core.ReloadableEntity;
+
+/**
+ * The high-water mark of the usage statistics rollups: every view logged
+ * before the mark is counted in the rollups, and none logged after it.
+ */
+@Entity
+@Table(name = "statistics_rollup_mark")
+public class UsageRollupMark implements ReloadableEntity<String>
+{
+    @Id
+    @Column(name = "mark_name", length = 64)
+    private String name;
+
+    @Column(name = "mark_time")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date time;
+
+    /**
+     * Protected constructor, create object using:
+     * {@link org.dspace.statistics.service.UsageRollupService#setHighWaterMark(org.dspace.core.Context, Date)}
+     */
+    protected UsageRollupMark()
+    {
+    }
+
+    UsageRollupMark(String name)
+    {
+        this.name = name;
+    }
+
+    @Override
+    public String getID()
+    {
+        return name;
+    }
+
+    public Date getTime()
+    {
+        return time;
+    }
+
+    void setTime(Date time)
+    {
+        this.time = time;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.dspace.core.Context;
+import org.dspace.statistics.dao.UsageRollupDAO;
+import org.dspace.statistics.dao.UsageRollupMarkDAO;
+import org.dspace.statistics.service.UsageRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Service implementation for the usage statistics rollups.
+ * This class is responsible for all business logic calls for the UsageRollup object and is autowired by spring.
+ * This class should never be accessed directly.
+ */
+public class UsageRollupServiceImpl implements UsageRollupService
+{
+    /** Name of the high-water mark of the rollups */
+    protected static final String MARK_NAME = "statistics";
+
+    @Autowired(required = true)
+    protected UsageRollupDAO usageRollupDAO;
+
+    @Autowired(required = true)
+    protected UsageRollupMarkDAO usageRollupMarkDAO;
+
+    protected UsageRollupServiceImpl()
+    {
+
+    }
+
+    @Override
+    public Date getHighWaterMark(Context context) throws SQLException
+    {
+        UsageRollupMark mark = usageRollupMarkDAO.findByName(context, MARK_NAME);
+        return mark == null ? null : mark.getTime();
+    }
+
+    @Override
+    public void setHighWaterMark(Context context, Date time) throws SQLException
+    {
+        UsageRollupMark mark = usageRollupMarkDAO.findByName(context, MARK_NAME);
+        if (mark == null)
+        {
+            mark = usageRollupMarkDAO.create(context, new UsageRollupMark(MARK_NAME));
+        }
+        mark.setTime(time);
+        usageRollupMarkDAO.save(context, mark);
+    }
+
+    @Override
+    public void addHits(Context context, String periodType, Date periodStart, String objectId, int dsoType,
+                        String countryCode, boolean bot, long hits) throws SQLException
+    {
+        // The rollup job is the only writer, so the rollup cannot be
+        // created by someone else between the update and the insert
+        if (!usageRollupDAO.addHits(context, periodType, periodStart, objectId, dsoType, countryCode, bot, hits))
+        {
+            UsageRollup rollup = new UsageRollup();
+            rollup.setKey(periodType, periodStart, objectId, dsoType, countryCode, bot);
+            rollup.setHits(hits);
+            usageRollupDAO.create(context, rollup);
+        }
+    }
+
+    @Override
+    public void addHits(Context context, Date day, UsageRollupCounts counts) throws SQLException
+    {
+        Calendar month = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ROOT);
+        month.setTime(day);
+        month.set(Calendar.DAY_OF_MONTH, 1);
+        for (Map.Entry<UsageRollupCounts.Key, Long> count : counts.getCounts().entrySet())
+        {
+            UsageRollupCounts.Key key = count.getKey();
+            addHits(context, UsageRollup.DAY, day, key.getObjectId(), key.getDsoType(), key.getCountryCode(),
+                    key.isBot(), count.getValue());
+            addHits(context, UsageRollup.MONTH, month.getTime(), key.getObjectId(), key.getDsoType(),
+                    key.getCountryCode(), key.isBot(), count.getValue());
+        }
+    }
+
+    @Override
+    public Map<Date, Long> countByPeriod(Context context, String periodType, int dsoType, List<String> objectIds,
+                                         Date from, Date to, boolean includeBots) throws SQLException
+    {
+        Map<Date, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : usageRollupDAO.sumByPeriod(context, periodType, dsoType, objectIds, from, to,
+                includeBots))
+        {
+            counts.put(new Date(((Date) row[0]).getTime()), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    @Override
+    public long countTotal(Context context, int dsoType, List<String> objectIds, boolean includeBots)
+            throws SQLException
+    {
+        return usageRollupDAO.sum(context, UsageRollup.MONTH, dsoType, objectIds, includeBots);
+    }
+
+    @Override
+    public void clear(Context context) throws SQLException
+    {
+        usageRollupDAO.deleteAll(context);
+        UsageRollupMark mark = usageRollupMarkDAO.findByName(context, MARK_NAME);
+        if (mark != null)
+        {
+            usageRollupMarkDAO.delete(context, mark);
+        }
+    }
+}
@@ -144,6 +144,9 @@ public class StatisticsDataVisits extends StatisticsData
             showTotal = true;
         }
 
+        // The usage statistics rollups only count views, regardless of any other filter
+        boolean unfiltered = getFilters().isEmpty();
+
         if (dateFacet != null && dateFacet.getActualStartDate() != null
                 && dateFacet.getActualEndDate() != null)
         {
@@ -199,7 +202,15 @@ public class StatisticsDataVisits extends StatisticsData
                     String query = dataSetQuery.getQueries().get(0).getQuery();
                     if(dataSetQuery.getMax() == -1){
                         // We are asking from our current query all the visits faceted by date
-                        ObjectCount[] results = solrLoggerService.queryFacetDate(query, filterQuery, dataSetQuery.getMax(), dateFacet.getDateType(), dateFacet.getStartDate(), dateFacet.getEndDate(), showTotal, context);
+                        ObjectCount[] results = null;
+                        if (unfiltered)
+                        {
+                            results = queryRollupFacetDate(context, dataSetQuery.getQueries().get(0), dateFacet, showTotal);
+                        }
+                        if (results == null)
+                        {
+                            results = solrLoggerService.queryFacetDate(query, filterQuery, dataSetQuery.getMax(), dateFacet.getDateType(), dateFacet.getStartDate(), dateFacet.getEndDate(), showTotal, context);
+                        }
                         dataset = new Dataset(1, results.length);
                         // Now that we have our results put em in a matrix
                         for(int j = 0; j < results.length; j++){
@@ -213,10 +224,15 @@ public class StatisticsDataVisits extends StatisticsData
                     }else{
                         // We need to get the max objects and the next part of the query on them (next part beeing the datasettimequery
                         ObjectCount[] maxObjectCounts = solrLoggerService.queryFacetField(query, filterQuery, dataSetQuery.getFacetField(), dataSetQuery.getMax(), false, null);
+                        // Get the date facets of all max objects in one go
+                        List<String> maxObjects = new ArrayList<String>();
+                        for (ObjectCount maxObjectCount : maxObjectCounts) {
+                            maxObjects.add(maxObjectCount.getValue());
+                        }
+                        Map<String, ObjectCount[]> dateFacetCounts = solrLoggerService.queryFacetDate(query, filterQuery, dataSetQuery.getFacetField(), maxObjects, dateFacet.getDateType(), dateFacet.getStartDate(), dateFacet.getEndDate(), showTotal, context);
                         for (int j = 0; j < maxObjectCounts.length; j++) {
                             ObjectCount firstCount = maxObjectCounts[j];
-                            String newQuery = dataSetQuery.getFacetField() + ": " + ClientUtils.escapeQueryChars(firstCount.getValue()) + " AND " + query;
-                            ObjectCount[] maxDateFacetCounts = solrLoggerService.queryFacetDate(newQuery, filterQuery, dataSetQuery.getMax(), dateFacet.getDateType(), dateFacet.getStartDate(), dateFacet.getEndDate(), showTotal, context);
+                            ObjectCount[] maxDateFacetCounts = dateFacetCounts.get(firstCount.getValue());
 
 
                             // Make sure we have a dataSet
@@ -263,8 +279,15 @@ public class StatisticsDataVisits extends StatisticsData
             //Do the first query
 
             ObjectCount[] topCounts1 = null;
+            if (unfiltered && datasetQueries.size() == 1)
+            {
+                topCounts1 = queryRollupTotal(context, firsDataset);
+            }
 //            if(firsDataset.getQueries().size() == 1){
-            topCounts1 = queryFacetField(firsDataset, firsDataset.getQueries().get(0).getQuery(), filterQuery);
+            if (topCounts1 == null)
+            {
+                topCounts1 = queryFacetField(firsDataset, firsDataset.getQueries().get(0).getQuery(), filterQuery);
+            }
 //            }else{
 //                TODO: do this
 //            }
@@ -276,18 +299,20 @@ public class StatisticsDataVisits extends StatisticsData
                 // Now that have results for both of them lets do x.y queries
                 List<String> facetQueries = new ArrayList<String>();
                 for (ObjectCount count2 : topCounts2) {
-                    String facetQuery = secondDataSet.getFacetField() + ":" + ClientUtils.escapeQueryChars(count2.getValue());
-                    // Check if we also have a type present (if so this should be put into the query)
-                    if ("id".equals(secondDataSet.getFacetField()) && secondDataSet.getQueries().get(0).getDsoType() != -1)
-                    {
-                        facetQuery += " AND type:" + secondDataSet.getQueries().get(0).getDsoType();
+                    facetQueries.add(getFacetQuery(secondDataSet, count2.getValue()));
+                }
+                // Count every combination of the two top lists in a single request
+                List<String> cellQueries = new ArrayList<String>();
+                for (ObjectCount count1 : topCounts1) {
+                    String query = getFacetQuery(firsDataset, count1.getValue());
+                    for (String facetQuery : facetQueries) {
+                        cellQueries.add("(" + query + ") AND (" + facetQuery + ")");
                     }
-
-                    facetQueries.add(facetQuery);
                 }
+                Map<String, Integer> cellCounts = cellQueries.isEmpty() ? null : solrLoggerService.queryFacetQuery("*:*", filterQuery, cellQueries);
+
                 for (int i = 0; i < topCounts1.length; i++){
                     ObjectCount count1 = topCounts1[i];
-                    ObjectCount[] currentResult = new ObjectCount[topCounts2.length];
 
                     // Make sure we have a dataSet
                     if(dataset == null)
@@ -297,16 +322,8 @@ public class StatisticsDataVisits extends StatisticsData
                     dataset.setColLabel(i, getResultName(count1.getValue(), firsDataset, context));
                     dataset.setColLabelAttr(i, getAttributes(count1.getValue(), firsDataset, context));
 
-                    String query = firsDataset.getFacetField() + ":" + ClientUtils.escapeQueryChars(count1.getValue());
-                    // Check if we also have a type present (if so this should be put into the query)
-                    if("id".equals(firsDataset.getFacetField()) && firsDataset.getQueries().get(0).getDsoType() != -1)
-                    {
-                        query += " AND type:" + firsDataset.getQueries().get(0).getDsoType();
-                    }
+                    String query = getFacetQuery(firsDataset, count1.getValue());
 
-                    Map<String, Integer> facetResult = solrLoggerService.queryFacetQuery(query, filterQuery, facetQueries);
-                    
-                    
                     // TODO: the show total
                     // No need to add this many times
                     // TODO: dit vervangen door te displayen value
@@ -318,15 +335,11 @@ public class StatisticsDataVisits extends StatisticsData
 
                         }
                         // Get our value the value is the same as the query
-                        String facetQuery = secondDataSet.getFacetField() + ":" + ClientUtils.escapeQueryChars(count2.getValue());
-                        // Check if we also have a type present (if so this should be put into the query
-                        if ("id".equals(secondDataSet.getFacetField()) && secondDataSet.getQueries().get(0).getDsoType() != -1)
-                        {
-                            facetQuery += " AND type:" + secondDataSet.getQueries().get(0).getDsoType();
-                        }
+                        String facetQuery = getFacetQuery(secondDataSet, count2.getValue());
 
                         // We got our query so now get the value
-                        dataset.addValueToMatrix(j, i, facetResult.get(facetQuery));
+                        Integer count = cellCounts == null ? null : cellCounts.get("(" + query + ") AND (" + facetQuery + ")");
+                        dataset.addValueToMatrix(j, i, count == null ? 0 : count);
                     }
 
                     /*
@@ -382,6 +395,86 @@ public class StatisticsDataVisits extends StatisticsData
         return dataset;
     }
 
+    /**
+     * Count the views of the object of a query per date from the usage
+     * statistics rollups.
+     *
+     * @param context the DSpace context
+     * @param query the query
+     * @param dateFacet the date axis
+     * @param showTotal whether to add the total
+     * @return the counts, or null if the query is not for the views of a
+     *         single object or the rollups cannot give them
+     * @throws SolrServerException if Solr error
+     * @throws SQLException if database error
+     */
+    protected ObjectCount[] queryRollupFacetDate(Context context, Query query, DatasetTimeGenerator dateFacet,
+            boolean showTotal) throws SolrServerException, SQLException
+    {
+        if (query.getDso() == null || query.getDsoType() != query.getDso().getType()
+                || (query.getOwningDso() != null && currentDso != null))
+        {
+            return null;
+        }
+        return solrLoggerService.queryRollupFacetDate(context, query.getDso(), dateFacet.getDateType(),
+                dateFacet.getStartDate(), dateFacet.getEndDate(), showTotal);
+    }
+
+    /**
+     * Count all views of the object of an axis from the usage statistics
+     * rollups.
+     *
+     * @param context the DSpace context
+     * @param datasetQuery the query of the axis
+     * @return the count of the object, as the facet on its id would give it,
+     *         or null if the axis is not for the views of a single object or
+     *         the rollups cannot give them
+     * @throws SolrServerException if Solr error
+     * @throws SQLException if database error
+     */
+    protected ObjectCount[] queryRollupTotal(Context context, DatasetQuery datasetQuery)
+            throws SolrServerException, SQLException
+    {
+        if (datasetQuery.getQueries().size() != 1
+                || (datasetQuery.getFacetField() != null && !"id".equals(datasetQuery.getFacetField())))
+        {
+            return null;
+        }
+        Query query = datasetQuery.getQueries().get(0);
+        if (query.getDso() == null || query.getDsoType() != query.getDso().getType()
+                || (query.getOwningDso() != null && currentDso != null))
+        {
+            return null;
+        }
+        ObjectCount total = solrLoggerService.queryRollupTotal(context, query.getDso());
+        if (total == null)
+        {
+            return null;
+        }
+        if (total.getCount() == 0)
+        {
+            return new ObjectCount[0];
+        }
+        total.setValue(query.getDso().getID().toString());
+        return new ObjectCount[] { total };
+    }
+
+    /**
+     * @param datasetQuery the query of an axis
+     * @param value a value of the facet field of the axis
+     * @return a query selecting the value, and the type of the objects of the axis if it is faceted by id
+     */
+    protected String getFacetQuery(DatasetQuery datasetQuery, String value)
+    {
+        String facetQuery = datasetQuery.getFacetField() + ":" + ClientUtils.escapeQueryChars(value);
+        // Check if we also have a type present (if so this should be put into the query)
+        if ("id".equals(datasetQuery.getFacetField()) && datasetQuery.getQueries().get(0).getDsoType() != -1)
+        {
+            facetQuery += " AND type:" + datasetQuery.getQueries().get(0).getDsoType();
+        }
+        return facetQuery;
+    }
+
     protected void processAxis(Context context, DatasetGenerator datasetGenerator, List<DatasetQuery> queries) throws SQLException {
         if(datasetGenerator instanceof DatasetDSpaceObjectGenerator){
             DatasetDSpaceObjectGenerator dspaceObjAxis = (DatasetDSpaceObjectGenerator) datasetGenerator;
@@ -760,6 +853,10 @@ public class StatisticsDataVisits extends StatisticsData
                 this.owningDso = owningDso;
             }
 
+            public DSpaceObject getOwningDso() {
+                return owningDso;
+            }
+
             public void setDso(DSpaceObject dso, int dsoType){
                 this.dso = dso;
                 this.dsoType = dsoType;
@@ -0,0 +1,73 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.dao;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+
+import org.dspace.core.Context;
+import org.dspace.core.GenericDAO;
+import org.dspace.statistics.UsageRollup;
+
+/**
+ * Database Access Object interface class for the UsageRollup object.
+ * The implementation of this class is responsible for all database calls for the UsageRollup object and is autowired by spring
+ * This class should only be accessed from a single service and should never be exposed outside of the API
+ */
+public interface UsageRollupDAO extends GenericDAO<UsageRollup>
+{
+    /**
+     * Add hits to an existing rollup.
+     *
+     * @param context DSpace context
+     * @param periodType DAY or MONTH
+     * @param periodStart start of the day or month
+     * @param objectId id of the object in the statistics core
+     * @param dsoType type of the object
+     * @param countryCode country code of the views
+     * @param bot whether the views are by bots
+     * @param hits number of views to add
+     * @return true if the rollup exists and was updated
+     * @throws SQLException if database error
+     */
+    public boolean addHits(Context context, String periodType, Date periodStart, String objectId, int dsoType,
+                           String countryCode, boolean bot, long hits) throws SQLException;
+
+    /**
+     * Sum the views of objects per period.
+     *
+     * @param context DSpace context
+     * @param periodType DAY or MONTH
+     * @param dsoType type of the objects
+     * @param objectIds ids of the objects in the statistics core
+     * @param from start of the first period counted
+     * @param to end of the periods counted, exclusive
+     * @param includeBots whether to count the views by bots
+     * @return rows of period start and number of views, for the periods with views
+     * @throws SQLException if database error
+     */
+    public List<Object[]> sumByPeriod(Context context, String periodType, int dsoType, List<String> objectIds,
+                                      Date from, Date to, boolean includeBots) throws SQLException;
+
+    /**
+     * Sum all views of objects.
+     *
+     * @param context DSpace context
+     * @param periodType the rollups to sum, DAY or MONTH
+     * @param dsoType type of the objects
+     * @param objectIds ids of the objects in the statistics core
+     * @param includeBots whether to count the views by bots
+     * @return the number of views
+     * @throws SQLException if database error
+     */
+    public long sum(Context context, String periodType, int dsoType, List<String> objectIds, boolean includeBots)
+            throws SQLException;
+
+    public int deleteAll(Context context) throws SQLException;
+}
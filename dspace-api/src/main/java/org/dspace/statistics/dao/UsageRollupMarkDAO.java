@@ -0,0 +1,24 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.dao;
+
+import java.sql.SQLException;
+
+import org.dspace.core.Context;
+import org.dspace.core.GenericDAO;
+import org.dspace.statistics.UsageRollupMark;
+
+/**
+ * Database Access Object interface class for the UsageRollupMark object.
+ * The implementation of this class is responsible for all database calls for the UsageRollupMark object and is autowired by spring
+ * This class should only be accessed from a single service and should never be exposed outside of the API
+ */
+public interface UsageRollupMarkDAO extends GenericDAO<UsageRollupMark>
+{
+    public UsageRollupMark findByName(Context context, String name) throws SQLException;
+}
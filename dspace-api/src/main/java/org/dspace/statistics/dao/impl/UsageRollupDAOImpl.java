@@ -0,0 +1,87 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.dao.impl;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+
+import org.dspace.core.AbstractHibernateDAO;
+import org.dspace.core.Context;
+import org.dspace.statistics.UsageRollup;
+import org.dspace.statistics.dao.UsageRollupDAO;
+import org.hibernate.Query;
+
+/**
+ * Hibernate implementation of the Database Access Object interface class for the UsageRollup object.
+ * This class is responsible for all database calls for the UsageRollup object and is autowired by spring
+ * This class should never be accessed directly.
+ */
+public class UsageRollupDAOImpl extends AbstractHibernateDAO<UsageRollup> implements UsageRollupDAO
+{
+    protected UsageRollupDAOImpl()
+    {
+        super();
+    }
+
+    @Override
+    public boolean addHits(Context context, String periodType, Date periodStart, String objectId, int dsoType,
+                           String countryCode, boolean bot, long hits) throws SQLException
+    {
+        Query query = createQuery(context, "UPDATE UsageRollup SET hits = hits + :hits"
+                + " WHERE objectId = :objectId AND dsoType = :dsoType AND periodType = :periodType"
+                + " AND periodStart = :periodStart AND countryCode = :countryCode AND bot = :bot");
+        query.setLong("hits", hits);
+        query.setParameter("objectId", objectId);
+        query.setInteger("dsoType", dsoType);
+        query.setParameter("periodType", periodType);
+        query.setTimestamp("periodStart", periodStart);
+        query.setParameter("countryCode", countryCode);
+        query.setBoolean("bot", bot);
+        return query.executeUpdate() == 1;
+    }
+
+    @Override
+    public List<Object[]> sumByPeriod(Context context, String periodType, int dsoType, List<String> objectIds,
+                                      Date from, Date to, boolean includeBots) throws SQLException
+    {
+        Query query = createQuery(context, "SELECT periodStart, SUM(hits) FROM UsageRollup"
+                + " WHERE objectId IN (:objectIds) AND dsoType = :dsoType AND periodType = :periodType"
+                + " AND periodStart >= :from AND periodStart < :to"
+                + (includeBots ? "" : " AND bot = false")
+                + " GROUP BY periodStart");
+        query.setParameterList("objectIds", objectIds);
+        query.setInteger("dsoType", dsoType);
+        query.setParameter("periodType", periodType);
+        query.setTimestamp("from", from);
+        query.setTimestamp("to", to);
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.list();
+        return rows;
+    }
+
+    @Override
+    public long sum(Context context, String periodType, int dsoType, List<String> objectIds, boolean includeBots)
+            throws SQLException
+    {
+        Query query = createQuery(context, "SELECT SUM(hits) FROM UsageRollup"
+                + " WHERE objectId IN (:objectIds) AND dsoType = :dsoType AND periodType = :periodType"
+                + (includeBots ? "" : " AND bot = false"));
+        query.setParameterList("objectIds", objectIds);
+        query.setInteger("dsoType", dsoType);
+        query.setParameter("periodType", periodType);
+        Number sum = (Number) query.uniqueResult();
+        return sum == null ? 0 : sum.longValue();
+    }
+
+    @Override
+    public int deleteAll(Context context) throws SQLException
+    {
+        return createQuery(context, "DELETE FROM UsageRollup").executeUpdate();
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.dao.impl;
+
+import java.sql.SQLException;
+
+import org.dspace.core.AbstractHibernateDAO;
+import org.dspace.core.Context;
+import org.dspace.statistics.UsageRollupMark;
+import org.dspace.statistics.dao.UsageRollupMarkDAO;
+import org.hibernate.Criteria;
+import org.hibernate.criterion.Restrictions;
+
+/**
+ * Hibernate implementation of the Database Access Object interface class for the UsageRollupMark object.
+ * This class is responsible for all database calls for the UsageRollupMark object and is autowired by spring
+ * This class should never be accessed directly.
+ */
+public class UsageRollupMarkDAOImpl extends AbstractHibernateDAO<UsageRollupMark> implements UsageRollupMarkDAO
+{
+    protected UsageRollupMarkDAOImpl()
+    {
+        super();
+    }
+
+    @Override
+    public UsageRollupMark findByName(Context context, String name) throws SQLException
+    {
+        Criteria criteria = createCriteria(context, UsageRollupMark.class);
+        criteria.add(Restrictions.eq("name", name));
+        return uniqueResult(criteria);
+    }
+}
@@ -10,6 +10,7 @@ package org.dspace.statistics.factory;
 import org.dspace.services.factory.DSpaceServicesFactory;
 import org.dspace.statistics.service.ElasticSearchLoggerService;
 import org.dspace.statistics.service.SolrLoggerService;
+import org.dspace.statistics.service.UsageRollupService;
 
 /**
  * Abstract factory to get services for the statistics package, use StatisticsServiceFactory.getInstance() to retrieve an implementation
@@ -22,6 +23,8 @@ public abstract class StatisticsServiceFactory {
 
     public abstract ElasticSearchLoggerService getElasticSearchLoggerService();
 
+    public abstract UsageRollupService getUsageRollupService();
+
     public static StatisticsServiceFactory getInstance()
     {
         return DSpaceServicesFactory.getInstance().getServiceManager().getServiceByName("statisticsServiceFactory", StatisticsServiceFactory.class);
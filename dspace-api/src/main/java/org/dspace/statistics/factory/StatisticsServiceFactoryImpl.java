@@ -10,6 +10,8 @@ package org.dspace.statistics.factory;
 import org.dspace.services.factory.DSpaceServicesFactory;
 import org.dspace.statistics.service.ElasticSearchLoggerService;
 import org.dspace.statistics.service.SolrLoggerService;
+import org.dspace.statistics.service.UsageRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Factory implementation to get services for the statistics package, use StatisticsServiceFactory.getInstance() to retrieve an implementation
@@ -18,6 +20,9 @@ import org.dspace.statistics.service.SolrLoggerService;
  */
 public class StatisticsServiceFactoryImpl extends StatisticsServiceFactory {
 
+    @Autowired(required = true)
+    private UsageRollupService usageRollupService;
+
     @Override
     public SolrLoggerService getSolrLoggerService() {
         // In order to lazy load, we cannot autowire it and instead load it by name
@@ -29,4 +34,9 @@ public class StatisticsServiceFactoryImpl extends StatisticsServiceFactory {
         // In order to lazy load, we cannot autowire it and instead load it by name
         return DSpaceServicesFactory.getInstance().getServiceManager().getServiceByName("elasticSearchLoggerService", ElasticSearchLoggerService.class);
     }
+
+    @Override
+    public UsageRollupService getUsageRollupService() {
+        return usageRollupService;
+    }
 }
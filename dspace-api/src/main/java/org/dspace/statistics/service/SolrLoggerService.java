@@ -167,6 +167,43 @@ public interface SolrLoggerService {
             String filterQuery, int max, String dateType, String dateStart,
             String dateEnd, boolean showTotal, Context context) throws SolrServerException;
 
+    /**
+     * Query used to get values grouped by the date, for several values of a
+     * field at once. The result for each value is the result of
+     * {@link #queryFacetDate(String, String, int, String, String, String, boolean, Context)}
+     * for the query <code>facetField: value AND query</code>, but all values
+     * are counted in a single request.
+     *
+     * @param query
+     *            the query to be used
+     * @param filterQuery
+     *            the filter query
+     * @param facetField
+     *            the field the values belong to
+     * @param facetValues
+     *            the values, e.g. the top values of a previous facet query
+     * @param dateType
+     *            the type to be used (example: DAY, MONTH, YEAR)
+     * @param dateStart
+     *            the start date Format:(-3, -2, ..) the date is calculated
+     *            relatively on today
+     * @param dateEnd
+     *            the end date stop Format (-2, +1, ..) the date is calculated
+     *            relatively on today
+     * @param showTotal
+     *            a boolean determining whether the total amount should be given
+     *            back as the last element of each array
+     * @param context
+     *            The relevant DSpace Context.
+     * @return the results of each value, in the order of the values
+     * @throws SolrServerException
+     *             ...
+     */
+    public Map<String, ObjectCount[]> queryFacetDate(String query,
+            String filterQuery, String facetField, List<String> facetValues,
+            String dateType, String dateStart, String dateEnd, boolean showTotal,
+            Context context) throws SolrServerException;
+
     public Map<String, Integer> queryFacetQuery(String query,
             String filterQuery, List<String> facetQueries)
             throws SolrServerException;
@@ -174,6 +211,52 @@ public interface SolrLoggerService {
     public ObjectCount queryTotal(String query, String filterQuery)
             throws SolrServerException;
 
+    /**
+     * Count the views of an object per date from the usage statistics
+     * rollups, as {@link #queryFacetDate(String, String, int, String, String, String, boolean, Context)}
+     * counts them from the statistics core. The views since the high-water
+     * mark of the rollups are counted in the statistics core.
+     *
+     * @param context
+     *            The relevant DSpace Context.
+     * @param dso
+     *            the object
+     * @param dateType
+     *            the type to be used: DAY, MONTH or YEAR
+     * @param dateStart
+     *            the start date Format:(-3, -2, ..) the date is calculated
+     *            relatively on today
+     * @param dateEnd
+     *            the end date stop Format (-2, +1, ..) the date is calculated
+     *            relatively on today
+     * @param showTotal
+     *            a boolean determining whether the total amount should be given
+     *            back as the last element of the array
+     * @return the counts, or null if the rollups are disabled or cannot give them
+     * @throws SolrServerException
+     *             ...
+     * @throws SQLException if database error
+     */
+    public ObjectCount[] queryRollupFacetDate(Context context, DSpaceObject dso,
+            String dateType, String dateStart, String dateEnd, boolean showTotal)
+            throws SolrServerException, SQLException;
+
+    /**
+     * Count all views of an object from the usage statistics rollups, and
+     * the views since their high-water mark from the statistics core.
+     *
+     * @param context
+     *            The relevant DSpace Context.
+     * @param dso
+     *            the object
+     * @return the count, or null if the rollups are disabled or empty
+     * @throws SolrServerException
+     *             ...
+     * @throws SQLException if database error
+     */
+    public ObjectCount queryRollupTotal(Context context, DSpaceObject dso)
+            throws SolrServerException, SQLException;
+
     public QueryResponse query(String query, String filterQuery,
             String facetField, int rows, int max, String dateType, String dateStart,
             String dateEnd, List<String> facetQueries, String sort, boolean ascending)
@@ -192,10 +275,41 @@ public interface SolrLoggerService {
      */
     public void optimizeSOLR();
 
+    /**
+     * Move the usage events of each year before the current one into a
+     * separate "statistics-YEAR" core. Years are moved in parallel, and an
+     * interrupted run resumes where it stopped.
+     *
+     * @throws IOException if IO error
+     * @throws SolrServerException if Solr error
+     */
     public void shardSolrIndex() throws IOException, SolrServerException;
 
+    /**
+     * Add the bundle name to the usage events of bitstreams without one.
+     *
+     * @param removeDeletedBitstreams
+     *            whether to delete the usage events of deleted bitstreams,
+     *            instead of giving them the BITSTREAM_DELETED bundle name
+     * @throws Exception if error
+     */
     public void reindexBitstreamHits(boolean removeDeletedBitstreams) throws Exception;
 
+    /**
+     * Add the views logged since the high-water mark of the usage statistics
+     * rollups to the rollups, day by day, and move the mark forward.
+     * Views of the last <code>solr-statistics.rollup.lag</code> minutes are
+     * left for the next run, as they may not be committed yet.
+     *
+     * @param context
+     *            The relevant DSpace Context.
+     * @param rebuild
+     *            whether to delete the rollups and count all views again
+     * @throws SQLException if database error
+     * @throws SolrServerException if Solr error
+     */
+    public void updateRollups(Context context, boolean rebuild) throws SQLException, SolrServerException;
+
     /**
      * Export all SOLR usage statistics for viewing/downloading content to a flat text file.
      * The file goes to a series
@@ -0,0 +1,99 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.service;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.dspace.core.Context;
+import org.dspace.statistics.UsageRollupCounts;
+
+/**
+ * Service interface class for the usage statistics rollups: the number of
+ * views of each object per day and per month, by country and bot flag,
+ * pre-aggregated from the statistics core up to a high-water mark.
+ * The implementation of this class is responsible for all business logic calls for the UsageRollup object and is autowired by spring
+ *
+ * @see org.dspace.statistics.service.SolrLoggerService#updateRollups(Context, boolean)
+ */
+public interface UsageRollupService
+{
+    /**
+     * @param context DSpace context
+     * @return the time up to which views are counted in the rollups, or null if no views are counted yet
+     * @throws SQLException if database error
+     */
+    public Date getHighWaterMark(Context context) throws SQLException;
+
+    public void setHighWaterMark(Context context, Date mark) throws SQLException;
+
+    /**
+     * Add views to the rollup of a period.
+     *
+     * @param context DSpace context
+     * @param periodType {@link org.dspace.statistics.UsageRollup#DAY} or {@link org.dspace.statistics.UsageRollup#MONTH}
+     * @param periodStart start of the day or month, in UTC
+     * @param objectId id of the object in the statistics core
+     * @param dsoType type of the object
+     * @param countryCode country code of the views
+     * @param bot whether the views are by bots
+     * @param hits number of views
+     * @throws SQLException if database error
+     */
+    public void addHits(Context context, String periodType, Date periodStart, String objectId, int dsoType,
+                        String countryCode, boolean bot, long hits) throws SQLException;
+
+    /**
+     * Add the views of (part of) a day to the rollups of the day and of its month.
+     *
+     * @param context DSpace context
+     * @param day start of the day, in UTC
+     * @param counts the views
+     * @throws SQLException if database error
+     */
+    public void addHits(Context context, Date day, UsageRollupCounts counts) throws SQLException;
+
+    /**
+     * Count the views of an object per day or month.
+     *
+     * @param context DSpace context
+     * @param periodType {@link org.dspace.statistics.UsageRollup#DAY} or {@link org.dspace.statistics.UsageRollup#MONTH}
+     * @param dsoType type of the object
+     * @param objectIds ids of the object in the statistics core: its UUID and, if any, its legacy id
+     * @param from start of the first period counted
+     * @param to end of the periods counted, exclusive
+     * @param includeBots whether to count views by bots
+     * @return the number of views by period start, for the periods with views
+     * @throws SQLException if database error
+     */
+    public Map<Date, Long> countByPeriod(Context context, String periodType, int dsoType, List<String> objectIds,
+                                         Date from, Date to, boolean includeBots) throws SQLException;
+
+    /**
+     * Count all views of an object counted in the rollups.
+     *
+     * @param context DSpace context
+     * @param dsoType type of the object
+     * @param objectIds ids of the object in the statistics core: its UUID and, if any, its legacy id
+     * @param includeBots whether to count views by bots
+     * @return the number of views
+     * @throws SQLException if database error
+     */
+    public long countTotal(Context context, int dsoType, List<String> objectIds, boolean includeBots)
+            throws SQLException;
+
+    /**
+     * Delete all rollups and the high-water mark.
+     *
+     * @param context DSpace context
+     * @throws SQLException if database error
+     */
+    public void clear(Context context) throws SQLException;
+}
@@ -10,6 +10,7 @@ package org.dspace.statistics.util;
 import org.apache.commons.cli.*;
 import org.apache.log4j.Logger;
 import org.apache.tools.ant.taskdefs.Get;
+import org.dspace.core.Context;
 import org.dspace.statistics.factory.StatisticsServiceFactory;
 import org.dspace.statistics.service.SolrLoggerService;
 
@@ -64,6 +65,8 @@ public class StatisticsClient
         options.addOption("e", "export", false, "Export SOLR view statistics data to usage-statistics-intermediate-format");
         options.addOption("r", "remove-deleted-bitstreams", false, "While indexing the bundle names remove the statistics about deleted bitstreams");
         options.addOption("s", "shard-solr-index", false, "Split the data from the main Solr core into separate Solr cores per year");
+        options.addOption("a", "update-rollups", false, "Add the views logged since the last run to the usage statistics rollups");
+        options.addOption("A", "rebuild-rollups", false, "Delete the usage statistics rollups and count all views again");
         options.addOption("h", "help", false, "help");
 
 		CommandLine line = parser.parse(options, args);
@@ -107,6 +110,23 @@ public class StatisticsClient
         {
             solrLoggerService.shardSolrIndex();
         }
+        else if(line.hasOption('a') || line.hasOption('A'))
+        {
+            Context context = new Context();
+            try
+            {
+                context.enableBatchMode(true);
+                solrLoggerService.updateRollups(context, line.hasOption('A'));
+                context.complete();
+            }
+            finally
+            {
+                if (context.isValid())
+                {
+                    context.abort();
+                }
+            }
+        }
         else
         {
             printHelp(options, 0);
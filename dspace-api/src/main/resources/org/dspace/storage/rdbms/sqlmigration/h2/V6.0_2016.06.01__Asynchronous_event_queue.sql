@@ -0,0 +1,42 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+-- ===============================================================
+-- WARNING WARNING WARNING WARNING WARNING WARNING WARNING WARNING
+--
+-- DO NOT MANUALLY RUN THIS DATABASE MIGRATION. IT WILL BE EXECUTED
+-- AUTOMATICALLY (IF NEEDED) BY "FLYWAY" WHEN YOU STARTUP DSPACE.
+-- http://flywaydb.org/
+-- ===============================================================
+
+------------------------------------------------------
+-- Persistent queue for asynchronous event consumers
+------------------------------------------------------
+
+CREATE SEQUENCE eventqueue_seq;
+
+CREATE TABLE eventqueue
+(
+    queue_id        INTEGER PRIMARY KEY,
+    consumer        VARCHAR(64) NOT NULL,
+    event_type      INTEGER NOT NULL,
+    subject_type    INTEGER NOT NULL,
+    subject_id      UUID,
+    object_type     INTEGER,
+    object_id       UUID,
+    detail          CLOB,
+    identifiers     CLOB,
+    transaction_id  VARCHAR(64),
+    status          INTEGER NOT NULL,
+    attempts        INTEGER NOT NULL,
+    queued          TIMESTAMP,
+    next_attempt    TIMESTAMP,
+    last_error      CLOB
+);
+
+CREATE INDEX eventqueue_consumer_status_idx ON eventqueue(consumer, status, queue_id);
@@ -0,0 +1,41 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+-- ===============================================================
+-- WARNING WARNING WARNING WARNING WARNING WARNING WARNING WARNING
+--
+-- DO NOT MANUALLY RUN THIS DATABASE MIGRATION. IT WILL BE EXECUTED
+-- AUTOMATICALLY (IF NEEDED) BY "FLYWAY" WHEN YOU STARTUP DSPACE.
+-- http://flywaydb.org/
+-- ===============================================================
+
+------------------------------------------------------
+-- Pre-aggregated usage statistics (statistics rollups)
+------------------------------------------------------
+
+CREATE SEQUENCE statistics_rollup_seq;
+
+CREATE TABLE statistics_rollup
+(
+    rollup_id       INTEGER PRIMARY KEY,
+    period_type     VARCHAR(8) NOT NULL,
+    period_start    TIMESTAMP NOT NULL,
+    object_id       VARCHAR(64) NOT NULL,
+    dso_type        INTEGER NOT NULL,
+    country_code    VARCHAR(8) NOT NULL,
+    is_bot          BOOLEAN NOT NULL,
+    hits            BIGINT NOT NULL
+);
+
+CREATE UNIQUE INDEX statistics_rollup_key_idx ON statistics_rollup(object_id, dso_type, period_type, period_start, country_code, is_bot);
+
+CREATE TABLE statistics_rollup_mark
+(
+    mark_name       VARCHAR(64) PRIMARY KEY,
+    mark_time       TIMESTAMP
+);
@@ -0,0 +1,38 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+-- ===============================================================
+-- WARNING WARNING WARNING WARNING WARNING WARNING WARNING WARNING
+--
+-- DO NOT MANUALLY RUN THIS DATABASE MIGRATION. IT WILL BE EXECUTED
+-- AUTOMATICALLY (IF NEEDED) BY "FLYWAY" WHEN YOU STARTUP DSPACE.
+-- http://flywaydb.org/
+-- ===============================================================
+
+------------------------------------------------------
+-- Database-backed curation task queues (DBTaskQueue)
+------------------------------------------------------
+
+CREATE SEQUENCE curation_task_queue_seq;
+
+CREATE TABLE curation_task_queue
+(
+    task_id         INTEGER PRIMARY KEY,
+    queue_name      VARCHAR2(64) NOT NULL,
+    priority        INTEGER NOT NULL,
+    eperson         VARCHAR2(256),
+    submit_time     NUMBER(19,0) NOT NULL,
+    tasks           VARCHAR2(2000) NOT NULL,
+    object_id       VARCHAR2(256) NOT NULL,
+    claimed_by      VARCHAR2(128),
+    claim_expires   TIMESTAMP,
+    attempts        INTEGER NOT NULL
+);
+
+CREATE INDEX curation_task_queue_name_idx ON curation_task_queue(queue_name, priority, task_id);
+CREATE INDEX curation_task_queue_owner_idx ON curation_task_queue(claimed_by);
@@ -143,4 +143,69 @@ public class DSpaceCSVTest extends AbstractUnitTest
             fail("IO Error while creating test CSV file");
         }
     }
+
+    /**
+     * Test that reading a CSV file line by line gives the same lines as
+     * reading it at once, and that lines can be skipped
+     */
+    @Test
+    public void testDSpaceCSVReader() throws Exception
+    {
+        String[] csv = {"id,collection,\"dc.title[en]\",dc.contributor.author,dc.description.abstract",
+                        "+,56599ad5-c7d2-4ac3-8354-a1f277d5a31f,Easy line,\"Lewis, Stuart\",A nice short abstract",
+                        "+,56599ad5-c7d2-4ac3-8354-a1f277d5a31f,Two authors,\"Lewis, Stuart||Bloggs, Joe\",Two people wrote this item",
+                        "+,56599ad5-c7d2-4ac3-8354-a1f277d5a31f,\"Two line\ntitle\",\"Lewis, Stuart\",abstract",
+                        "+,56599ad5-c7d2-4ac3-8354-a1f277d5a31f,\"\"\"Embedded quotes\"\" here\",\"Lewis, Stuart\",\"Abstract with\ntwo\nnew lines\"",};
+        File file = File.createTempFile("test-reader", ".csv");
+        try
+        {
+            BufferedWriter out = new BufferedWriter(
+                                 new OutputStreamWriter(
+                                 new FileOutputStream(file), "UTF-8"));
+            for (String csvLine : csv) {
+                out.write(csvLine + "\n");
+            }
+            out.close();
+
+            List<DSpaceCSVLine> expected = new DSpaceCSV(file, context).getCSVLines();
+
+            DSpaceCSVReader reader = new DSpaceCSVReader(file, context);
+            try
+            {
+                assertThat("testDSpaceCSVReader headings", reader.getHeadings().size(), equalTo(4));
+                for (int i = 0; i < expected.size(); i++)
+                {
+                    DSpaceCSVLine line = reader.readLine();
+                    assertThat("testDSpaceCSVReader line " + i, line.toCSV(reader.getHeadings(), ","),
+                               equalTo(expected.get(i).toCSV(reader.getHeadings(), ",")));
+                    assertThat("testDSpaceCSVReader row number", reader.getRowNumber(), equalTo(i + 1));
+                }
+                assertThat("testDSpaceCSVReader end", reader.readLine(), nullValue());
+                assertThat("testDSpaceCSVReader lines not kept", reader.getCSVLines().size(), equalTo(0));
+            }
+            finally
+            {
+                reader.close();
+            }
+
+            // Skip the first lines, e.g. to resume an import
+            reader = new DSpaceCSVReader(file, context);
+            try
+            {
+                assertThat("testDSpaceCSVReader skip", reader.skip(2), equalTo(2));
+                assertThat("testDSpaceCSVReader after skip", reader.readLine().get("dc.title[en]").get(0),
+                           equalTo("Two line\ntitle"));
+                assertThat("testDSpaceCSVReader skip past end", reader.skip(5), equalTo(1));
+                assertThat("testDSpaceCSVReader row number", reader.getRowNumber(), equalTo(4));
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
 }
@@ -0,0 +1,111 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.itemexport;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for ZipExportWriter.
+ */
+public class ZipExportWriterTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Without a part size, everything goes into one zip file, which only
+     * appears under its final name when it is complete.
+     */
+    @Test
+    public void testSingleZip() throws Exception
+    {
+        File dir = folder.getRoot();
+        ZipExportWriter zip = new ZipExportWriter(dir, "item_export_1", "_user.zip", 0,
+                Collections.<String>emptyList());
+        zip.putEntry("collection_1/1/contents", "file.txt\tbundle:ORIGINAL\n".getBytes("UTF-8"));
+        zip.putEntry("collection_1/1/file.txt", new ByteArrayInputStream(new byte[100000]));
+        assertNull(zip.endItem());
+        assertFalse(new File(dir, "item_export_1_user.zip").exists());
+
+        assertEquals("item_export_1_user.zip", zip.finish());
+        zip.close();
+
+        try (ZipFile result = new ZipFile(new File(dir, "item_export_1_user.zip")))
+        {
+            assertEquals(2, result.size());
+            ZipEntry entry = result.getEntry("collection_1/1/file.txt");
+            assertEquals(100000, entry.getSize());
+            assertTrue(entry.getCompressedSize() < 1000);
+        }
+        assertEquals(1, dir.list().length);
+    }
+
+    /**
+     * A new part is started at the end of an item once the size is reached,
+     * and already compressed files are not compressed again.
+     */
+    @Test
+    public void testParts() throws Exception
+    {
+        File dir = folder.getRoot();
+        byte[] random = new byte[50000];
+        new Random(42).nextBytes(random);
+        ZipExportWriter zip = new ZipExportWriter(dir, "export", ".zip", 60000, Arrays.asList("jpg", " PNG"));
+
+        zip.putEntry("1/a.jpg", new ByteArrayInputStream(random));
+        assertNull(zip.endItem());
+        zip.putEntry("2/b.PNG", new ByteArrayInputStream(random));
+        assertEquals("export.zip", zip.endItem());
+        zip.putEntry("3/c.txt", new ByteArrayInputStream(new byte[1000]));
+        assertNull(zip.endItem());
+        assertEquals("export-part2.zip", zip.finish());
+        assertNull(zip.finish());
+        zip.close();
+
+        assertEquals(Arrays.asList("export.zip", "export-part2.zip"), zip.getFileNames());
+        try (ZipFile first = new ZipFile(new File(dir, "export.zip")))
+        {
+            assertEquals(2, first.size());
+            assertNotNull(first.getEntry("2/b.PNG"));
+            assertTrue(first.getEntry("1/a.jpg").getCompressedSize() >= 50000);
+        }
+        try (ZipFile second = new ZipFile(new File(dir, "export-part2.zip")))
+        {
+            assertEquals(1, second.size());
+        }
+    }
+
+    /**
+     * Closing the writer without finishing removes the incomplete part.
+     */
+    @Test
+    public void testAbandon() throws Exception
+    {
+        File dir = folder.getRoot();
+        ZipExportWriter zip = new ZipExportWriter(dir, "export", ".zip", 0, Collections.<String>emptyList());
+        zip.putEntry("1/contents", new byte[10]);
+        zip.close();
+        assertEquals(0, dir.list().length);
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.itemimport;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.app.itemimport.factory.ItemImportServiceFactory;
+import org.dspace.app.itemimport.service.ItemImportService;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.ItemService;
+import org.dspace.handle.factory.HandleServiceFactory;
+import org.dspace.handle.service.HandleService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the import of a Simple Archive Format directory by
+ * several workers.
+ */
+public class ItemImportTest extends AbstractUnitTest
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(ItemImportTest.class);
+
+    private static final int ITEMS = 7;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected ItemImportService itemImportService = ItemImportServiceFactory.getInstance().getItemImportService();
+    protected CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    protected CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
+    protected ItemService itemService = ContentServiceFactory.getInstance().getItemService();
+    protected HandleService handleService = HandleServiceFactory.getInstance().getHandleService();
+
+    private Collection collection;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            Community community = communityService.create(null, context);
+            collection = collectionService.create(context, community);
+            // the workers find the collection with contexts of their own
+            context.commit();
+        }
+        catch (Exception ex)
+        {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        // the service is shared
+        itemImportService.setWorkers(0);
+        itemImportService.setBatchSize(100);
+        context.restoreAuthSystemState();
+        super.destroy();
+    }
+
+    /**
+     * Two workers committing every two items import every item once, and
+     * write a map file line for each of them.
+     */
+    @Test
+    public void testParallelImport() throws Exception
+    {
+        File sourceDir = folder.newFolder("saf");
+        for (int i = 0; i < ITEMS; i++)
+        {
+            File itemDir = new File(sourceDir, "item_" + i);
+            FileUtils.writeStringToFile(new File(itemDir, "dublin_core.xml"),
+                    "<dublin_core><dcvalue element=\"title\" qualifier=\"none\">Item " + i
+                            + "</dcvalue></dublin_core>", "UTF-8");
+            FileUtils.writeStringToFile(new File(itemDir, "contents"), "file.txt\n", "UTF-8");
+            FileUtils.writeStringToFile(new File(itemDir, "file.txt"), "content of item " + i, "UTF-8");
+        }
+        File mapFile = new File(folder.getRoot(), "mapfile");
+
+        itemImportService.setWorkers(2);
+        itemImportService.setBatchSize(2);
+        itemImportService.addItems(context, Collections.singletonList(collection),
+                sourceDir.getAbsolutePath(), mapFile.getAbsolutePath(), false);
+
+        assertEquals("every item is imported", ITEMS, itemService.countItems(context, collection));
+
+        List<String> lines = FileUtils.readLines(mapFile, "UTF-8");
+        assertEquals("a map file line per item", ITEMS, lines.size());
+        Set<String> itemNames = new HashSet<String>();
+        Set<String> handles = new HashSet<String>();
+        for (String line : lines)
+        {
+            String[] tokens = line.split(" ");
+            assertEquals(line, 2, tokens.length);
+            itemNames.add(tokens[0]);
+            handles.add(tokens[1]);
+
+            DSpaceObject dso = handleService.resolveToObject(context, tokens[1]);
+            assertTrue(line + " maps to an item", dso instanceof Item);
+            Item item = (Item) dso;
+            String number = tokens[0].substring("item_".length());
+            assertEquals("Item " + number, itemService.getName(item));
+            assertEquals(1, itemService.getBundles(item, "ORIGINAL").size());
+        }
+        assertEquals("every directory is mapped once", ITEMS, itemNames.size());
+        assertEquals("every item has a handle of its own", ITEMS, handles.size());
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.statistics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+import org.dspace.AbstractUnitTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the parallel analysis of log files by the LogAnalyser: it
+ * must aggregate the same results, in the same order, whatever the number
+ * of threads and the size of the parts the files are split into.
+ */
+public class LogAnalyserTest extends AbstractUnitTest
+{
+    private File dir;
+
+    private File[] logFiles;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            dir = File.createTempFile("loganalyser", "");
+            dir.delete();
+            dir.mkdirs();
+
+            File config = new File(dir, "dstat.cfg");
+            write(config, "# test configuration\n"
+                    + "general.summary = view_item\n"
+                    + "exclude.word = the\n"
+                    + "exclude.type = author:\n"
+                    + "exclude.character = \"\n"
+                    + "user.email = on\n");
+            LogAnalyser.readConfig(config.getPath());
+            LogAnalyser.setRegex("dspace\\.log.*");
+
+            logFiles = new File[] {
+                    writeLog(new File(dir, "dspace.log.2016-01-01"), "2016-01-01", "\n"),
+                    writeLog(new File(dir, "dspace.log.2016-01-02"), "2016-01-02", "\r\n"),
+                    new File(dir, "dstat.cfg"),
+            };
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        for (File file : dir.listFiles())
+        {
+            file.delete();
+        }
+        dir.delete();
+        super.destroy();
+    }
+
+    @Test
+    public void testAnalyseLogs() throws IOException
+    {
+        LogAnalyser.Aggregation aggregation = LogAnalyser.analyseLogs(logFiles, 1, Long.MAX_VALUE);
+        // 200 log lines per file, the stack traces and the configuration are skipped
+        assertEquals(400, aggregation.lines);
+        assertEquals(2 * 20, aggregation.warnings);
+        assertEquals(2 * 10, aggregation.exceptions);
+        assertEquals(Integer.valueOf(2 * 50), aggregation.actions.get("view_item"));
+        assertEquals(Integer.valueOf(2 * 50), aggregation.actions.get("search"));
+        assertEquals(Integer.valueOf(2 * 50), aggregation.searches.get("cats"));
+        assertEquals(Integer.valueOf(2 * 25), aggregation.users.get("user1@example.com"));
+        assertEquals(Integer.valueOf(2 * 25), aggregation.users.get("user2@example.com"));
+        assertEquals(Integer.valueOf(2 * 50 / 5), aggregation.items.get("123456789/3"));
+        assertEquals(LogAnalyser.parseDate("2016-01-01"), aggregation.first);
+        assertEquals(LogAnalyser.parseDate("2016-01-02"), aggregation.last);
+    }
+
+    @Test
+    public void testParallelAnalysis() throws IOException
+    {
+        LogAnalyser.Aggregation expected = LogAnalyser.analyseLogs(logFiles, 1, Long.MAX_VALUE);
+        LogAnalyser.Aggregation parallel = LogAnalyser.analyseLogs(logFiles, 4, 500);
+
+        assertEquals(expected.lines, parallel.lines);
+        assertEquals(expected.warnings, parallel.warnings);
+        assertEquals(expected.exceptions, parallel.exceptions);
+        assertEquals(expected.first, parallel.first);
+        assertEquals(expected.last, parallel.last);
+        // same counts, first found in the same order
+        assertEquals(new ArrayList<>(expected.actions.entrySet()), new ArrayList<>(parallel.actions.entrySet()));
+        assertEquals(new ArrayList<>(expected.searches.entrySet()), new ArrayList<>(parallel.searches.entrySet()));
+        assertEquals(new ArrayList<>(expected.users.entrySet()), new ArrayList<>(parallel.users.entrySet()));
+        assertEquals(new ArrayList<>(expected.items.entrySet()), new ArrayList<>(parallel.items.entrySet()));
+    }
+
+    /**
+     * Write 200 log lines: 50 item views, searches, logins and other
+     * actions, 20 of them warnings and 10 errors followed by a stack trace.
+     */
+    private File writeLog(File file, String date, String newLine) throws IOException
+    {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 200; i++)
+        {
+            String level = i % 10 == 3 ? "WARN" : (i % 20 == 7 ? "ERROR" : "INFO");
+            String time = String.format("%02d:%02d:%02d,%03d", i / 60 % 24, i % 60, i % 60, i);
+            log.append(date).append(' ').append(time).append(' ').append(level)
+                    .append("  org.dspace.app.webui.servlet.TestServlet @ ");
+            switch (i % 4)
+            {
+                case 0:
+                    log.append("anonymous:session_id=ABC").append(i)
+                            .append(":ip_addr=127.0.0.1:view_item:handle=123456789/").append(i % 5);
+                    break;
+                case 1:
+                    log.append("anonymous:session_id=ABC").append(i)
+                            .append(":ip_addr=127.0.0.1:search:query=cats and dogs ").append(i % 3)
+                            .append(",results=(0,0,1)");
+                    break;
+                case 2:
+                    log.append("user").append(i % 8 / 4 + 1).append("@example.com:session_id=ABC").append(i)
+                            .append(":ip_addr=127.0.0.1:login:type=explicit");
+                    break;
+                default:
+                    log.append("anonymous:session_id=ABC").append(i)
+                            .append(":ip_addr=127.0.0.1:browse:type=title");
+                    break;
+            }
+            log.append(newLine);
+            if ("ERROR".equals(level))
+            {
+                log.append("java.lang.IllegalStateException: test").append(newLine)
+                        .append("\tat org.dspace.app.webui.servlet.TestServlet.doGet(TestServlet.java:42)")
+                        .append(newLine);
+            }
+        }
+        write(file, log.toString());
+        return file;
+    }
+
+    private void write(File file, String content) throws IOException
+    {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), Charset.defaultCharset()))
+        {
+            out.write(content);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.browse;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the refresh of the ItemCountCache, with a stub instead of
+ * the Discovery query.
+ */
+public class ItemCountCacheTest
+{
+    private static final long REFRESH_DELAY = 100;
+    private static final long MAX_AGE = 500;
+
+    /**
+     * An ItemCountCache counting its loads, with short delays.
+     */
+    private static class StubCache extends ItemCountCache
+    {
+        final AtomicInteger loads = new AtomicInteger();
+
+        @Override
+        protected ItemCountSnapshot loadAnonymous()
+        {
+            loads.incrementAndGet();
+            return new ItemCountSnapshot(Collections.<String, Long>emptyMap(), Collections.<String, Long>emptyMap());
+        }
+
+        @Override
+        protected long getRefreshDelay()
+        {
+            return REFRESH_DELAY;
+        }
+
+        @Override
+        protected long getMaxAge()
+        {
+            return MAX_AGE;
+        }
+    }
+
+    /**
+     * A batch of changes causes a single refresh once it stops.
+     */
+    @Test
+    public void testRefreshAfterChanges() throws Exception
+    {
+        StubCache cache = new StubCache();
+        ItemCountSnapshot first = cache.getSnapshot(null);
+        assertEquals(1, cache.loads.get());
+
+        for (int i = 0; i < 5; i++)
+        {
+            cache.invalidate();
+            Thread.sleep(10);
+        }
+        Thread.sleep(REFRESH_DELAY * 3);
+        assertEquals(2, cache.loads.get());
+        assertTrue(cache.getSnapshot(null) != first);
+    }
+
+    /**
+     * Changes arriving more often than the refresh delay do not postpone the
+     * refresh beyond the maximum age of the counts.
+     */
+    @Test
+    public void testSteadyChangesRefreshWithinMaxAge() throws Exception
+    {
+        StubCache cache = new StubCache();
+        ItemCountSnapshot first = cache.getSnapshot(null);
+
+        long start = System.currentTimeMillis();
+        long refreshed = -1;
+        while (System.currentTimeMillis() - start < MAX_AGE * 4)
+        {
+            cache.invalidate();
+            if (refreshed < 0 && cache.getSnapshot(null) != first)
+            {
+                refreshed = System.currentTimeMillis() - first.getCreated();
+            }
+            Thread.sleep(REFRESH_DELAY / 5);
+        }
+        assertTrue("no refresh while changes kept arriving", refreshed > 0);
+        assertTrue("refreshed after " + refreshed + " ms", refreshed < MAX_AGE + REFRESH_DELAY * 2);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.browse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for ItemCountSnapshot.
+ */
+public class ItemCountSnapshotTest
+{
+    /**
+     * Every counted container is found; unknown containers have no items.
+     */
+    @Test
+    public void testLookup()
+    {
+        Map<String, Long> communities = new HashMap<String, Long>();
+        Map<String, Long> collections = new HashMap<String, Long>();
+        UUID[] ids = new UUID[200];
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = UUID.randomUUID();
+            collections.put(ids[i].toString(), (long) i + 1);
+        }
+        UUID community = UUID.randomUUID();
+        communities.put(community.toString(), 4711L);
+
+        ItemCountSnapshot snapshot = new ItemCountSnapshot(communities, collections);
+
+        assertEquals(201, snapshot.size());
+        for (int i = 0; i < ids.length; i++)
+        {
+            assertEquals(i + 1, snapshot.getCollectionCount(ids[i]));
+            assertEquals(0, snapshot.getCommunityCount(ids[i]));
+        }
+        assertEquals(4711, snapshot.getCommunityCount(community));
+        assertEquals(0, snapshot.getCollectionCount(community));
+        assertEquals(0, snapshot.getCollectionCount(UUID.randomUUID()));
+        assertEquals(0, snapshot.getCollectionCount(null));
+    }
+
+    /**
+     * Facet values which are not UUIDs are ignored.
+     */
+    @Test
+    public void testIgnoreInvalidKeys()
+    {
+        Map<String, Long> communities = new HashMap<String, Long>();
+        communities.put("not-a-uuid", 3L);
+        UUID community = UUID.randomUUID();
+        communities.put(community.toString(), 2L);
+
+        ItemCountSnapshot snapshot = new ItemCountSnapshot(communities, new HashMap<String, Long>());
+
+        assertEquals(1, snapshot.size());
+        assertEquals(2, snapshot.getCommunityCount(community));
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.io.ByteArrayInputStream;
+
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.BitstreamService;
+import org.dspace.content.service.BundleService;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.InstallItemService;
+import org.dspace.content.service.WorkspaceItemService;
+import org.dspace.core.Constants;
+import org.dspace.event.Event;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the DSpaceObjectStampConsumer: the owners of a changed
+ * Bundle or Bitstream get new stamps, once the change is committed.
+ */
+public class DSpaceObjectStampConsumerTest extends AbstractUnitTest
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(DSpaceObjectStampConsumerTest.class);
+
+    protected CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    protected CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
+    protected WorkspaceItemService workspaceItemService = ContentServiceFactory.getInstance().getWorkspaceItemService();
+    protected InstallItemService installItemService = ContentServiceFactory.getInstance().getInstallItemService();
+    protected BundleService bundleService = ContentServiceFactory.getInstance().getBundleService();
+    protected BitstreamService bitstreamService = ContentServiceFactory.getInstance().getBitstreamService();
+
+    private Collection collection;
+    private Item item;
+    private Bundle bundle;
+    private Bitstream bitstream;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            Community community = communityService.create(null, context);
+            collection = collectionService.create(context, community);
+            WorkspaceItem workspaceItem = workspaceItemService.create(context, collection, false);
+            item = installItemService.installItem(context, workspaceItem);
+            bundle = bundleService.create(context, item, "ORIGINAL");
+            bitstream = bitstreamService.create(context, bundle, new ByteArrayInputStream("stamp".getBytes()));
+            context.restoreAuthSystemState();
+            context.commit();
+        }
+        catch (Exception ex)
+        {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * A changed Bitstream renews the stamps of its Bundle and Item after the
+     * commit, and not those of the Collection.
+     */
+    @Test
+    public void testOwnersTouchedAfterCommit() throws Exception
+    {
+        long itemStamp = DSpaceObjectStamps.get(item.getID());
+        long bundleStamp = DSpaceObjectStamps.get(bundle.getID());
+        long bitstreamStamp = DSpaceObjectStamps.get(bitstream.getID());
+        long collectionStamp = DSpaceObjectStamps.get(collection.getID());
+
+        DSpaceObjectStampConsumer consumer = new DSpaceObjectStampConsumer();
+        consumer.initialize();
+        consumer.consume(context, new Event(Event.MODIFY, Constants.BITSTREAM, bitstream.getID(), null));
+        consumer.end(context);
+
+        // not before the change is committed
+        assertEquals(itemStamp, DSpaceObjectStamps.get(item.getID()));
+        assertEquals(bitstreamStamp, DSpaceObjectStamps.get(bitstream.getID()));
+
+        context.commit();
+        assertNotEquals(bitstreamStamp, DSpaceObjectStamps.get(bitstream.getID()));
+        assertNotEquals(bundleStamp, DSpaceObjectStamps.get(bundle.getID()));
+        assertNotEquals(itemStamp, DSpaceObjectStamps.get(item.getID()));
+        assertEquals(collectionStamp, DSpaceObjectStamps.get(collection.getID()));
+    }
+
+    /**
+     * No stamp is renewed when the change is rolled back.
+     */
+    @Test
+    public void testRollback() throws Exception
+    {
+        long itemStamp = DSpaceObjectStamps.get(item.getID());
+        long bundleStamp = DSpaceObjectStamps.get(bundle.getID());
+
+        DSpaceObjectStampConsumer consumer = new DSpaceObjectStampConsumer();
+        consumer.initialize();
+        consumer.consume(context, new Event(Event.MODIFY, Constants.BUNDLE, bundle.getID(), null));
+        consumer.end(context);
+        context.abort();
+
+        assertEquals(bundleStamp, DSpaceObjectStamps.get(bundle.getID()));
+        assertEquals(itemStamp, DSpaceObjectStamps.get(item.getID()));
+    }
+}
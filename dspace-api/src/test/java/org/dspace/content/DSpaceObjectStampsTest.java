@@ -0,0 +1,95 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.UUID;
+
+import org.dspace.AbstractDSpaceTest;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Unit tests for the DSpaceObjectStamps.
+ */
+public class DSpaceObjectStampsTest extends AbstractDSpaceTest
+{
+    protected ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+
+    @After
+    public void destroy()
+    {
+        configurationService.setProperty("cache.stamps.ttl", null);
+        configurationService.setProperty("cache.stamps.size", null);
+        DSpaceObjectStamps.clear();
+    }
+
+    /**
+     * A stamp stays the same until the object is touched.
+     */
+    @Test
+    public void testGetAndTouch()
+    {
+        UUID id = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        long stamp = DSpaceObjectStamps.get(id);
+        assertEquals(stamp, DSpaceObjectStamps.get(id));
+        assertNotEquals(stamp, DSpaceObjectStamps.get(other));
+
+        long otherStamp = DSpaceObjectStamps.get(other);
+        DSpaceObjectStamps.touch(id);
+        DSpaceObjectStamps.touch(null);
+        long touched = DSpaceObjectStamps.get(id);
+        assertNotEquals(stamp, touched);
+        assertEquals(touched, DSpaceObjectStamps.get(id));
+        assertEquals(otherStamp, DSpaceObjectStamps.get(other));
+    }
+
+    /**
+     * A stamp is replaced after the TTL.
+     */
+    @Test
+    public void testTtl() throws Exception
+    {
+        configurationService.setProperty("cache.stamps.ttl", "1");
+        DSpaceObjectStamps.clear();
+
+        UUID id = UUID.randomUUID();
+        long stamp = DSpaceObjectStamps.get(id);
+        assertEquals(stamp, DSpaceObjectStamps.get(id));
+        Thread.sleep(1100);
+        assertNotEquals(stamp, DSpaceObjectStamps.get(id));
+    }
+
+    /**
+     * The least recently used stamps are dropped, and their objects get new ones.
+     */
+    @Test
+    public void testSizeBound()
+    {
+        configurationService.setProperty("cache.stamps.size", "3");
+        DSpaceObjectStamps.clear();
+
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        long stampA = DSpaceObjectStamps.get(a);
+        long stampB = DSpaceObjectStamps.get(b);
+        long stampC = DSpaceObjectStamps.get(c);
+        DSpaceObjectStamps.get(a);
+        DSpaceObjectStamps.get(UUID.randomUUID());
+
+        assertEquals(stampA, DSpaceObjectStamps.get(a));
+        assertEquals(stampC, DSpaceObjectStamps.get(c));
+        assertNotEquals(stampB, DSpaceObjectStamps.get(b));
+    }
+}
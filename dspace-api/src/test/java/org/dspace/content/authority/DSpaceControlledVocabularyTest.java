@@ -114,23 +114,48 @@ public class DSpaceControlledVocabularyTest extends AbstractDSpaceTest
     }
 */
 
+    /**
+     * Test of getMatches method, of class DSpaceControlledVocabulary, with
+     * text matching the middle of several labels.
+     */
+    @Test
+    public void testGetMatchesSubstring() throws ClassNotFoundException
+    {
+        System.out.println("getMatches (substring)");
+
+        final String PLUGIN_INTERFACE = "org.dspace.content.authority.ChoiceAuthority";
+
+        DSpaceControlledVocabulary instance = (DSpaceControlledVocabulary)
+                CoreServiceFactory.getInstance().getPluginService().getNamedPlugin(Class.forName(PLUGIN_INTERFACE), "farm");
+        assertNotNull(instance);
+        Choices result = instance.getMatches(null, "TH 4", null, 0, 0, null);
+        assertEquals(2, result.values.length);
+        assertEquals("the farm::north 40", result.values[0].value);
+        assertEquals("the farm::south 40", result.values[1].value);
+        assertEquals("s40", result.values[1].authority);
+
+        result = instance.getMatches(null, "TH 4", null, 1, 0, null);
+        assertEquals(1, result.values.length);
+        assertEquals("the farm::south 40", result.values[0].value);
+
+        result = instance.getMatches(null, "east", null, 0, 0, null);
+        assertEquals(0, result.values.length);
+    }
+
     /**
      * Test of getLabel method, of class DSpaceControlledVocabulary.
      */
-/*
     @Test
-    public void testGetLabel()
+    public void testGetLabel() throws ClassNotFoundException
     {
         System.out.println("getLabel");
-        String field = "";
-        String key = "";
-        String locale = "";
-        DSpaceControlledVocabulary instance = new DSpaceControlledVocabulary();
-        String expResult = "";
-        String result = instance.getLabel(field, key, locale);
-        assertEquals(expResult, result);
-        // TODO review the generated test code and remove the default call to fail.
-        fail("The test case is a prototype.");
+
+        final String PLUGIN_INTERFACE = "org.dspace.content.authority.ChoiceAuthority";
+
+        DSpaceControlledVocabulary instance = (DSpaceControlledVocabulary)
+                CoreServiceFactory.getInstance().getPluginService().getNamedPlugin(Class.forName(PLUGIN_INTERFACE), "farm");
+        assertNotNull(instance);
+        assertEquals("south 40", instance.getLabel(null, "s40", null));
+        assertEquals("", instance.getLabel(null, "unknown", null));
     }
-*/
 }
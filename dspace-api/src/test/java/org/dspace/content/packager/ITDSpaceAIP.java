@@ -10,15 +10,23 @@ package org.dspace.content.packager;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import mockit.NonStrictExpectations;
 import org.apache.log4j.Logger;
 import org.dspace.AbstractUnitTest;
 import org.dspace.authorize.AuthorizeException;
+import org.dspace.authorize.ResourcePolicy;
 import org.dspace.content.*;
 import org.dspace.content.crosswalk.CrosswalkException;
 import org.dspace.content.factory.ContentServiceFactory;
@@ -42,6 +50,7 @@ import org.junit.*;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import org.junit.rules.TemporaryFolder;
@@ -778,6 +787,160 @@ public class ITDSpaceAIP extends AbstractUnitTest
         log.info("testRestoreMappedItem() - END");
     }
     
+    /**
+     * Test backup and restoration of an entire Community Hierarchy on worker
+     * threads (Packager -P), which must produce the same packages, objects,
+     * Item mappings and policies as the serial disseminateAll / ingestAll.
+     */
+    @Test
+    public void testParallelRestoreCommunityHierarchy() throws Exception
+    {
+        new NonStrictExpectations(authorizeService.getClass())
+        {{
+            // Allow Full Admin permissions. Since we are working with an object
+            // hierarchy you really need full admin rights
+            authorizeService.isAdmin((Context) any); result = true;
+        }};
+
+        log.info("testParallelRestoreCommunityHierarchy() - BEGIN");
+
+        // Locate the top level community (from our test data)
+        Community topCommunity = (Community) handleService.resolveToObject(context, topCommunityHandle);
+        DSpaceObject parent = communityService.getParentObject(context, topCommunity);
+        HashMap<String,String> infoMap = new HashMap<String,String>();
+        saveObjectInfo(topCommunity, infoMap);
+
+        // Export the hierarchy both serially and in parallel, each to its own folder
+        log.info("testParallelRestoreCommunityHierarchy() - CREATE AIPs");
+        PackageDisseminator dip = (PackageDisseminator) pluginService
+                    .getNamedPlugin(PackageDisseminator.class, "AIP");
+        String aipName = PackageUtils.getPackageName(topCommunity, "zip");
+        File serialAIPFile = new File(testFolder.newFolder("serial-aips"), aipName);
+        List<File> serialFiles = dip.disseminateAll(context, topCommunity, new PackageParameters(), serialAIPFile);
+        File parallelAIPFile = new File(testFolder.newFolder("parallel-aips"), aipName);
+        File manifest = new File(parallelAIPFile.getPath() + ".progress");
+        List<File> parallelFiles = new ParallelPackager(2, manifest, false)
+                .disseminateAll(context, dip, topCommunity, new PackageParameters(), parallelAIPFile);
+        assertEquals("testParallelRestoreCommunityHierarchy() - same packages",
+                getFileNames(serialFiles), getFileNames(parallelFiles));
+
+        // Restore serially, to know what the serial path restores
+        log.info("testParallelRestoreCommunityHierarchy() - RESTORE Community Hierarchy serially");
+        communityService.delete(context, topCommunity);
+        assertObjectsNotExist(infoMap);
+        PackageParameters pkgParams = new PackageParameters();
+        pkgParams.addProperty("skipIfParentMissing", "true");
+        restoreFromAIP(parent, serialAIPFile, pkgParams, true);
+        assertObjectsExist(infoMap);
+        HashMap<String,String> serialPolicies = new HashMap<String,String>();
+        savePolicyInfo(infoMap, serialPolicies);
+
+        // Then restore again from the parallel AIPs, on worker threads
+        log.info("testParallelRestoreCommunityHierarchy() - RESTORE Community Hierarchy in parallel");
+        communityService.delete(context, (Community) handleService.resolveToObject(context, topCommunityHandle));
+        assertObjectsNotExist(infoMap);
+        pkgParams = new PackageParameters();
+        pkgParams.addProperty("skipIfParentMissing", "true");
+        pkgParams.setRestoreModeEnabled(true);
+        PackageIngester sip = (PackageIngester) pluginService
+                    .getNamedPlugin(PackageIngester.class, "AIP");
+        List<String> handles = new ParallelPackager(2, manifest, false)
+                .ingestAll(context, sip, parent, parallelAIPFile, pkgParams);
+
+        // Assert the same objects, mappings and policies exist again
+        assertEquals("testParallelRestoreCommunityHierarchy() - objects ingested",
+                infoMap.keySet(), new HashSet<String>(handles));
+        assertObjectsExist(infoMap);
+        Item mappedItem = (Item) handleService.resolveToObject(context, testMappedItemHandle);
+        assertEquals("testParallelRestoreCommunityHierarchy() - Mapped Item's Collection mappings restored", 2, mappedItem.getCollections().size());
+        HashMap<String,String> parallelPolicies = new HashMap<String,String>();
+        savePolicyInfo(infoMap, parallelPolicies);
+        assertEquals("testParallelRestoreCommunityHierarchy() - policies restored", serialPolicies, parallelPolicies);
+
+        log.info("testParallelRestoreCommunityHierarchy() - END");
+    }
+
+    /**
+     * Test resuming interrupted parallel backups and restores (Packager -P -R):
+     * packages listed in the progress manifest are skipped, the others are
+     * disseminated or ingested.
+     */
+    @Test
+    public void testParallelResume() throws Exception
+    {
+        new NonStrictExpectations(authorizeService.getClass())
+        {{
+            // Allow Full Admin permissions. Since we are working with an object
+            // hierarchy you really need full admin rights
+            authorizeService.isAdmin((Context) any); result = true;
+        }};
+
+        log.info("testParallelResume() - BEGIN");
+
+        Community topCommunity = (Community) handleService.resolveToObject(context, topCommunityHandle);
+        DSpaceObject parent = communityService.getParentObject(context, topCommunity);
+        HashMap<String,String> infoMap = new HashMap<String,String>();
+        saveObjectInfo(topCommunity, infoMap);
+        Item item = (Item) handleService.resolveToObject(context, testItemHandle);
+        Collection collection = item.getOwningCollection();
+        Community childCommunity = (Community) collectionService.getParentObject(context, collection);
+        String itemAIPName = PackageUtils.getPackageName(item, "zip");
+
+        log.info("testParallelResume() - CREATE AIPs");
+        PackageDisseminator dip = (PackageDisseminator) pluginService
+                    .getNamedPlugin(PackageDisseminator.class, "AIP");
+        File aipFile = new File(testFolder.newFolder("resumed-aips"), PackageUtils.getPackageName(topCommunity, "zip"));
+        File manifest = new File(aipFile.getPath() + ".progress");
+        List<File> written = new ParallelPackager(2, manifest, false)
+                .disseminateAll(context, dip, topCommunity, new PackageParameters(), aipFile);
+        assertTrue("testParallelResume() - packages written", written.size() > 4);
+
+        // Simulate a backup interrupted before our Item was written: a parent is
+        // only written after its children, so its ancestors are missing as well
+        Set<String> missing = new HashSet<String>(Arrays.asList(
+                itemAIPName,
+                PackageUtils.getPackageName(collection, "zip"),
+                PackageUtils.getPackageName(childCommunity, "zip"),
+                PackageUtils.getPackageName(topCommunity, "zip")));
+        for (String name : missing)
+        {
+            assertTrue("testParallelResume() - delete " + name, new File(aipFile.getParentFile(), name).delete());
+        }
+        removeFromManifest(manifest, missing);
+
+        log.info("testParallelResume() - RESUME AIP creation");
+        ParallelPackager resumed = new ParallelPackager(2, manifest, true);
+        List<File> rewritten = resumed.disseminateAll(context, dip, topCommunity, new PackageParameters(), aipFile);
+        assertEquals("testParallelResume() - missing packages written", missing, getFileNames(rewritten));
+        // the Grandchild Community (with everything below it) and the Mapped Item
+        assertEquals("testParallelResume() - completed packages skipped", 2, resumed.getSkippedCount());
+
+        // Restore the hierarchy, then simulate a restore interrupted before our Item was ingested
+        log.info("testParallelResume() - RESTORE Community Hierarchy");
+        communityService.delete(context, topCommunity);
+        PackageParameters pkgParams = new PackageParameters();
+        pkgParams.addProperty("skipIfParentMissing", "true");
+        pkgParams.setRestoreModeEnabled(true);
+        PackageIngester sip = (PackageIngester) pluginService
+                    .getNamedPlugin(PackageIngester.class, "AIP");
+        new ParallelPackager(2, manifest, false).ingestAll(context, sip, parent, aipFile, pkgParams);
+        assertObjectsExist(infoMap);
+
+        itemService.delete(context, (Item) handleService.resolveToObject(context, testItemHandle));
+        context.commit();
+        removeFromManifest(manifest, Collections.singleton(itemAIPName));
+
+        // Resuming ingests the Item only: re-ingesting anything else would fail, as its handle is in use
+        log.info("testParallelResume() - RESUME restore");
+        resumed = new ParallelPackager(2, manifest, true);
+        List<String> handles = resumed.ingestAll(context, sip, parent, aipFile, pkgParams);
+        assertEquals("testParallelResume() - missing Item ingested", Collections.singletonList(testItemHandle), handles);
+        assertEquals("testParallelResume() - completed packages skipped", infoMap.size() - 1, resumed.getSkippedCount());
+        assertObjectsExist(infoMap);
+
+        log.info("testParallelResume() - END");
+    }
+
     /**
      * Create AIP(s) based on a given DSpaceObject. This is a simple utility method
      * to avoid having to rewrite this code into several tests.
@@ -892,6 +1055,72 @@ public class ITDSpaceAIP extends AbstractUnitTest
             sip.replace(context, dso, aipFile, pkgParams);
     }
     
+    /**
+     * Save the policies of the objects of an infoMap to the given HashMap.
+     * <P>
+     * In HashMap, Key is the object handle, and Value is the sorted list of its
+     * policies, as "[action] [rptype] [group or eperson]", separated by "::".
+     * @param infoMap HashMap of objects, as filled by saveObjectInfo()
+     * @param policyMap HashMap
+     * @throws SQLException if database error
+     */
+    private void savePolicyInfo(HashMap<String,String> infoMap, HashMap<String,String> policyMap)
+            throws SQLException
+    {
+        for(String handle : infoMap.keySet())
+        {
+            DSpaceObject dso = handleService.resolveToObject(context, handle);
+            List<String> policies = new ArrayList<String>();
+            for(ResourcePolicy policy : authorizeService.getPolicies(context, dso))
+            {
+                policies.add(Constants.actionText[policy.getAction()] + " " + policy.getRpType() + " "
+                        + (policy.getGroup() != null ? policy.getGroup().getName() : policy.getEPerson().getEmail()));
+            }
+            Collections.sort(policies);
+            StringBuilder value = new StringBuilder();
+            for(String policy : policies)
+            {
+                value.append(policy).append(valueseparator);
+            }
+            policyMap.put(handle, value.toString());
+        }
+    }
+
+    /**
+     * @param files package files
+     * @return the names of the files
+     */
+    private Set<String> getFileNames(List<File> files)
+    {
+        Set<String> names = new HashSet<String>();
+        for(File file : files)
+        {
+            names.add(file.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Remove packages from the progress manifest of a ParallelPackager, as if
+     * the run had been interrupted before they were completed.
+     * @param manifest manifest file
+     * @param names file names of the packages to remove
+     * @throws IOException if IO error
+     */
+    private void removeFromManifest(File manifest, Set<String> names)
+            throws IOException
+    {
+        List<String> kept = new ArrayList<String>();
+        for(String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8))
+        {
+            if(!names.contains(new File(line.split("\t")[0]).getName()))
+            {
+                kept.add(line);
+            }
+        }
+        Files.write(manifest.toPath(), kept, StandardCharsets.UTF_8);
+    }
+
     /**
      * Save Object hierarchy info to the given HashMap. This utility method can
      * be used in conjunction with "assertObjectsExist" and "assertObjectsNotExist"
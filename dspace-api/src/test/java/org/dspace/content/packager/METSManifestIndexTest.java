@@ -0,0 +1,96 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.packager;
+
+import java.io.StringReader;
+
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.input.SAXBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for METSManifestIndex.
+ */
+public class METSManifestIndexTest
+{
+    private static final Namespace METS_NS = Namespace.getNamespace("http://www.loc.gov/METS/");
+    private static final Namespace XLINK_NS = Namespace.getNamespace("http://www.w3.org/1999/xlink");
+
+    private static final String METS =
+        "<mets xmlns=\"http://www.loc.gov/METS/\" xmlns:xlink=\"http://www.w3.org/1999/xlink\">"
+        + "<dmdSec ID=\"dmd_1\"><mdWrap MDTYPE=\"MODS\"><xmlData/></mdWrap></dmdSec>"
+        + "<dmdSec ID=\"dmd_2\"><mdRef LOCTYPE=\"URL\" xlink:href=\"dmd2.xml\"/></dmdSec>"
+        + "<amdSec ID=\"amd_1\"><techMD ID=\"tech_1\"/></amdSec>"
+        + "<amdSec ID=\"amd_2\"><rightsMD ID=\"rights_1\">"
+        + "<mdRef LOCTYPE=\"URL\" xlink:href=\"rights.xml\"/></rightsMD></amdSec>"
+        + "<fileSec>"
+        + "<fileGrp USE=\"CONTENT\" ADMID=\"amd_bundle\">"
+        + "<file ID=\"file_1\" GROUPID=\"group_1\"><FLocat LOCTYPE=\"URL\" xlink:href=\"a.pdf\"/></file>"
+        + "<file ID=\"file_2\" GROUPID=\"group_2\"><FLocat LOCTYPE=\"URL\" xlink:href=\"b.pdf\"/></file>"
+        + "</fileGrp>"
+        + "<fileGrp USE=\"THUMBNAIL\">"
+        + "<file ID=\"file_3\" GROUPID=\"group_1\"><FLocat LOCTYPE=\"URL\" xlink:href=\"a.jpg\"/></file>"
+        + "<file ID=\"file_1\" GROUPID=\"group_9\"/>"
+        + "</fileGrp>"
+        + "</fileSec>"
+        + "<structMap LABEL=\"DSpace Object\"><div DMDID=\"dmd_1 dmd_2\" ADMID=\"amd_1\"/></structMap>"
+        + "<structMap LABEL=\"Parent\"><div/></structMap>"
+        + "</mets>";
+
+    private METSManifestIndex index;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Element mets = new SAXBuilder().build(new StringReader(METS)).getRootElement();
+        index = new METSManifestIndex(mets);
+    }
+
+    /**
+     * Files are found by ID anywhere in the fileSec; the first one wins.
+     */
+    @Test
+    public void testFiles()
+    {
+        assertEquals("THUMBNAIL", index.getFile("file_3").getParentElement().getAttributeValue("USE"));
+        assertEquals("group_1", index.getFile("file_1").getAttributeValue("GROUPID"));
+        assertNull(index.getFile("file_4"));
+    }
+
+    /**
+     * Derived files find their original in the CONTENT file group only.
+     */
+    @Test
+    public void testContentFilesByGroupId()
+    {
+        assertEquals("file_1", index.getContentFileByGroupId("group_1").getAttributeValue("ID"));
+        assertNull(index.getContentFileByGroupId("group_9"));
+    }
+
+    /**
+     * Metadata sections, file groups, structMaps and mdRefs are indexed.
+     */
+    @Test
+    public void testSections()
+    {
+        assertEquals("MODS", index.getDmdSec("dmd_1").getChild("mdWrap", METS_NS)
+                .getAttributeValue("MDTYPE"));
+        assertEquals("amd_2", index.getAmdSec("amd_2").getAttributeValue("ID"));
+        assertNull(index.getAmdSec("amd_3"));
+        assertEquals("CONTENT", index.getFileGrpByAdmId("amd_bundle").getAttributeValue("USE"));
+        assertEquals(2, index.getStructMaps().size());
+        assertEquals("Parent", index.getStructMaps().get(1).getAttributeValue("LABEL"));
+        assertEquals(2, index.getMdRefs().size());
+        assertEquals("dmd2.xml", index.getMdRefs().get(0).getAttributeValue("href", XLINK_NS));
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.MetadataField;
+import org.dspace.content.MetadataSchema;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.MetadataFieldService;
+import org.dspace.event.Event;
+import org.dspace.handle.factory.HandleServiceFactory;
+import org.dspace.handle.service.HandleService;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit Tests for the regions of the Hibernate second level cache, their
+ * statistics and their eviction by the HibernateCacheConsumer.
+ */
+public class HibernateCacheTest extends AbstractUnitTest
+{
+    protected MetadataFieldService metadataFieldService = ContentServiceFactory.getInstance().getMetadataFieldService();
+
+    protected HandleService handleService = HandleServiceFactory.getInstance().getHandleService();
+
+    @Test
+    public void testRegistryQueriesAreCached() throws Exception
+    {
+        HibernateCache.evictAll(context);
+        assertTrue("testRegistryQueriesAreCached 0", HibernateCache.isStatisticsEnabled(context));
+        long hits = getRegion(HibernateCache.REGISTRY_QUERIES) == null ? 0
+                : getRegion(HibernateCache.REGISTRY_QUERIES).getHits();
+
+        MetadataField first = metadataFieldService.findByElement(context, MetadataSchema.DC_SCHEMA, "title", null);
+        MetadataField second = metadataFieldService.findByElement(context, MetadataSchema.DC_SCHEMA, "title", null);
+        assertNotNull("testRegistryQueriesAreCached 1", first);
+        assertEquals("testRegistryQueriesAreCached 2", first, second);
+
+        HibernateCache.RegionStatistics queries = getRegion(HibernateCache.REGISTRY_QUERIES);
+        assertNotNull("testRegistryQueriesAreCached 3", queries);
+        assertTrue("testRegistryQueriesAreCached 4", queries.getElements() > 0);
+        assertTrue("testRegistryQueriesAreCached 5", queries.getHits() > hits);
+        assertNotNull("testRegistryQueriesAreCached 6", getRegion(HibernateCache.REGISTRY));
+    }
+
+    @Test
+    public void testConsumerEvictsHandleQueries() throws Exception
+    {
+        assertNull("testConsumerEvictsHandleQueries 0", handleService.resolveToObject(context, "123456789/no-such-handle"));
+        assertTrue("testConsumerEvictsHandleQueries 1", getRegion(HibernateCache.HANDLE_QUERIES).getElements() > 0);
+
+        HibernateCacheConsumer consumer = new HibernateCacheConsumer();
+        consumer.initialize();
+        consumer.consume(context, new Event(Event.MODIFY, Constants.ITEM, UUID.randomUUID(), null));
+        consumer.end(context);
+        assertTrue("testConsumerEvictsHandleQueries 2", getRegion(HibernateCache.HANDLE_QUERIES).getElements() > 0);
+
+        consumer.consume(context, new Event(Event.DELETE, Constants.ITEM, UUID.randomUUID(), null));
+        consumer.end(context);
+        assertEquals("testConsumerEvictsHandleQueries 3", 0, getRegion(HibernateCache.HANDLE_QUERIES).getElements());
+    }
+
+    private HibernateCache.RegionStatistics getRegion(String name) throws SQLException
+    {
+        for (HibernateCache.RegionStatistics region : HibernateCache.getStatistics(context))
+        {
+            if (region.getName().equals(name))
+            {
+                return region;
+            }
+        }
+        return null;
+    }
+}
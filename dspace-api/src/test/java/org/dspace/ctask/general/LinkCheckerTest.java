@@ -0,0 +1,218 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.ctask.general;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the LinkChecker, against a local stub HTTP server.
+ */
+public class LinkCheckerTest
+{
+    @Rule
+    public final TemporaryFolder testFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String base;
+
+    /** Requests received, by method and path, e.g. "HEAD /ok". */
+    private final ConcurrentMap<String, AtomicInteger> received = new ConcurrentHashMap<>();
+
+    /** Highest number of requests handled at the same time. */
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private LinkChecker checker;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                String method = exchange.getRequestMethod();
+                String path = exchange.getRequestURI().getPath();
+                received.putIfAbsent(method + " " + path, new AtomicInteger());
+                received.get(method + " " + path).incrementAndGet();
+
+                int now = running.incrementAndGet();
+                maxRunning.set(Math.max(maxRunning.get(), now));
+                try
+                {
+                    int status;
+                    if (path.startsWith("/ok"))
+                    {
+                        status = 200;
+                    }
+                    else if (path.equals("/nohead"))
+                    {
+                        status = "HEAD".equals(method) ? 405 : 200;
+                    }
+                    else if (path.startsWith("/slow"))
+                    {
+                        Thread.sleep(200);
+                        status = 200;
+                    }
+                    else
+                    {
+                        status = 404;
+                    }
+                    exchange.sendResponseHeaders(status, -1);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                finally
+                {
+                    running.decrementAndGet();
+                    exchange.close();
+                }
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (checker != null)
+        {
+            checker.shutdown();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private int count(String request)
+    {
+        AtomicInteger count = received.get(request);
+        return (count == null) ? 0 : count.get();
+    }
+
+    /**
+     * HEAD is used first, GET only when HEAD is rejected.
+     */
+    @Test
+    public void testHeadThenGet()
+    {
+        checker = new LinkChecker(4, 2, 2000, 2000, 60000, 60000, null);
+        Map<String, Integer> statuses = checker.check(Arrays.asList(
+                base + "/ok", base + "/nohead", base + "/missing"));
+
+        assertEquals(Integer.valueOf(200), statuses.get(base + "/ok"));
+        assertEquals(Integer.valueOf(200), statuses.get(base + "/nohead"));
+        assertEquals(Integer.valueOf(404), statuses.get(base + "/missing"));
+        assertEquals(1, count("HEAD /ok"));
+        assertEquals(0, count("GET /ok"));
+        assertEquals(1, count("HEAD /nohead"));
+        assertEquals(1, count("GET /nohead"));
+    }
+
+    /**
+     * Repeated URLs are requested once; unreachable URLs give status 0.
+     */
+    @Test
+    public void testCacheAndErrors()
+    {
+        checker = new LinkChecker(4, 2, 2000, 2000, 60000, 60000, null);
+        checker.check(Arrays.asList(base + "/ok", base + "/ok"));
+        assertEquals(200, checker.check(base + "/ok"));
+        assertEquals(1, count("HEAD /ok"));
+        assertTrue(checker.getCacheHits() >= 1);
+
+        assertEquals(0, checker.check("not a url"));
+    }
+
+    /**
+     * No more than the configured number of requests go to one host at once.
+     */
+    @Test
+    public void testHostConcurrency()
+    {
+        checker = new LinkChecker(8, 2, 2000, 2000, 60000, 60000, null);
+        checker.check(Arrays.asList(base + "/slow1", base + "/slow2", base + "/slow3",
+                base + "/slow4", base + "/slow5", base + "/slow6"));
+        assertEquals(2, maxRunning.get());
+    }
+
+    /**
+     * URLs waiting for a busy host do not hold the threads checking the
+     * other hosts.
+     */
+    @Test
+    public void testBusyHostDoesNotHoldThreads() throws Exception
+    {
+        checker = new LinkChecker(2, 1, 2000, 2000, 60000, 60000, null);
+        List<Future<LinkChecker.Result>> slow = new ArrayList<>();
+        for (int i = 1; i <= 4; i++)
+        {
+            slow.add(checker.submit(base + "/slow" + i));
+        }
+        // same server, another host name
+        String other = base.replace("127.0.0.1", "localhost") + "/ok";
+        assertEquals(200, checker.await(other, checker.submit(other)));
+        assertFalse(slow.get(0).isDone());
+
+        for (Future<LinkChecker.Result> future : slow)
+        {
+            assertEquals(200, future.get().status);
+        }
+    }
+
+    /**
+     * Results survive in the cache file until they expire.
+     */
+    @Test
+    public void testPersistentCache() throws IOException
+    {
+        File cacheFile = new File(testFolder.getRoot(), "linkchecker.cache");
+        checker = new LinkChecker(2, 2, 2000, 2000, 60000, 0, cacheFile);
+        checker.check(Arrays.asList(base + "/ok", base + "/missing"));
+        checker.shutdown();
+
+        checker = new LinkChecker(2, 2, 2000, 2000, 60000, 0, cacheFile);
+        assertEquals(200, checker.check(base + "/ok"));
+        assertEquals(404, checker.check(base + "/missing"));
+        // the successful result came from the file, the failure had expired
+        assertEquals(1, count("HEAD /ok"));
+        assertEquals(2, count("HEAD /missing"));
+    }
+}
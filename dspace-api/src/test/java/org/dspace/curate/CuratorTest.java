@@ -0,0 +1,215 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.WorkspaceItem;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.InstallItemService;
+import org.dspace.content.service.WorkspaceItemService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the parallel performance of a task on the items of a
+ * container by the Curator.
+ */
+public class CuratorTest extends AbstractUnitTest
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(CuratorTest.class);
+
+    private static final String TASK_NAME = "paralleltest";
+
+    private static final int ITEMS = 10;
+
+    protected CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    protected CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
+    protected WorkspaceItemService workspaceItemService = ContentServiceFactory.getInstance().getWorkspaceItemService();
+    protected InstallItemService installItemService = ContentServiceFactory.getInstance().getInstallItemService();
+
+    private Collection collection;
+    private List<Item> items = new ArrayList<Item>();
+
+    private final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+    private final AppenderSkeleton appender = new AppenderSkeleton()
+    {
+        @Override
+        protected void append(LoggingEvent event)
+        {
+            messages.add(event.getRenderedMessage());
+        }
+
+        @Override
+        public void close()
+        {
+        }
+
+        @Override
+        public boolean requiresLayout()
+        {
+            return false;
+        }
+    };
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            Community community = communityService.create(null, context);
+            collection = collectionService.create(context, community);
+            for (int i = 0; i < ITEMS; i++)
+            {
+                WorkspaceItem workspaceItem = workspaceItemService.create(context, collection, false);
+                items.add(installItemService.installItem(context, workspaceItem));
+            }
+            context.restoreAuthSystemState();
+            // the workers read the items with contexts of their own
+            context.commit();
+        }
+        catch (Exception ex)
+        {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+        Logger.getLogger(Curator.class).addAppender(appender);
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        Logger.getLogger(Curator.class).removeAppender(appender);
+        super.destroy();
+    }
+
+    /**
+     * Every item of the collection is performed exactly once by the
+     * workers, and logged with its own result.
+     */
+    @Test
+    public void testParallelPerformance() throws Exception
+    {
+        CountingTask task = new CountingTask();
+        Curator curator = newCurator(task);
+        curator.setParallelism(3);
+        curator.curate(context, collection.getHandle());
+
+        assertEquals("every item is performed", ITEMS, task.performed.size());
+        for (Item item : items)
+        {
+            AtomicInteger count = task.performed.get(item.getID());
+            assertNotNull("item " + item.getHandle() + " is performed", count);
+            assertEquals("item " + item.getHandle() + " is performed once", 1, count.get());
+            assertTrue("result of " + item.getHandle() + " is logged",
+                    messages.contains("Curation task: " + TASK_NAME + " performed on: " + item.getHandle()
+                            + " with status: " + Curator.CURATE_SUCCESS
+                            + ". Result: 'performed " + item.getHandle() + "'"));
+        }
+        for (String thread : task.threads.keySet())
+        {
+            assertTrue("items are performed by the workers", thread.startsWith("curate-" + TASK_NAME + "-"));
+        }
+
+        assertEquals(Curator.CURATE_SUCCESS, curator.getStatus(TASK_NAME));
+        Map<Integer, Long> counts = curator.getStatusCounts(TASK_NAME);
+        assertEquals(Long.valueOf(ITEMS), counts.get(Curator.CURATE_SUCCESS));
+        assertEquals(Long.valueOf(0), counts.get(Curator.CURATE_ERROR));
+        assertEquals(ITEMS + " items: " + ITEMS + " success, 0 fail, 0 skip, 0 error",
+                curator.getResult(TASK_NAME));
+    }
+
+    /**
+     * Without parallelism, the items are performed on the calling thread.
+     */
+    @Test
+    public void testSerialPerformance() throws Exception
+    {
+        CountingTask task = new CountingTask();
+        Curator curator = newCurator(task);
+        curator.setParallelism(1);
+        curator.curate(context, collection.getHandle());
+
+        assertEquals(ITEMS, task.performed.size());
+        assertEquals(Collections.singleton(Thread.currentThread().getName()), task.threads.keySet());
+        assertNotEquals(Curator.CURATE_ERROR, curator.getStatus(TASK_NAME));
+    }
+
+    private Curator newCurator(final CountingTask task)
+    {
+        Curator curator = new Curator();
+        curator.resolver = new TaskResolver()
+        {
+            @Override
+            public ResolvedTask resolveTask(String taskName)
+            {
+                return new ResolvedTask(taskName, task);
+            }
+        };
+        curator.addTask(TASK_NAME);
+        return curator;
+    }
+
+    /**
+     * Counts its performances on each item, skipping the containers.
+     */
+    @Concurrent
+    protected static class CountingTask extends AbstractCurationTask
+    {
+        final ConcurrentMap<UUID, AtomicInteger> performed = new ConcurrentHashMap<UUID, AtomicInteger>();
+        final ConcurrentMap<String, Boolean> threads = new ConcurrentHashMap<String, Boolean>();
+
+        @Override
+        public int perform(DSpaceObject dso) throws IOException
+        {
+            if (!(dso instanceof Item))
+            {
+                return Curator.CURATE_SKIP;
+            }
+            AtomicInteger count = performed.putIfAbsent(dso.getID(), new AtomicInteger(1));
+            if (count != null)
+            {
+                count.incrementAndGet();
+            }
+            threads.put(Thread.currentThread().getName(), Boolean.TRUE);
+            setResult("performed " + dso.getHandle());
+            return Curator.CURATE_SUCCESS;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the database curation task queue.  The queue commits its
+ * operations in transactions of its own, so every test uses a queue of its
+ * own and leaves it empty.
+ */
+public class DBTaskQueueTest extends AbstractUnitTest
+{
+    protected ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+
+    private String queueName;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        queueName = "test-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        configurationService.setProperty("curate.taskqueue.db.batch-size", null);
+        super.destroy();
+    }
+
+    private TaskQueueEntry entry(String objId, int priority)
+    {
+        return new TaskQueueEntry("unknown", System.currentTimeMillis(),
+                Collections.singletonList("noop"), objId, priority);
+    }
+
+    private Set<String> objectIds(Set<TaskQueueEntry> entries)
+    {
+        Set<String> ids = new HashSet<String>();
+        for (TaskQueueEntry entry : entries)
+        {
+            ids.add(entry.getObjectId());
+        }
+        return ids;
+    }
+
+    /**
+     * Dequeued entries stay claimed until released, and are removed when
+     * released as done.
+     */
+    @Test
+    public void testEnqueueDequeueRelease() throws Exception
+    {
+        DBTaskQueue queue = new DBTaskQueue();
+        queue.enqueue(queueName, entry("123456789/1", 0));
+        queue.enqueue(queueName, new HashSet<TaskQueueEntry>(Arrays.asList(
+                entry("123456789/2", 0), entry("123456789/3", 0))));
+        assertTrue("queue is listed", Arrays.asList(queue.queueNames()).contains(queueName));
+
+        Set<TaskQueueEntry> entries = queue.dequeue(queueName, 1L);
+        assertEquals(new HashSet<String>(Arrays.asList("123456789/1", "123456789/2", "123456789/3")),
+                objectIds(entries));
+        assertEquals("unreleased ticket gets nothing", 0, queue.dequeue(queueName, 1L).size());
+        assertEquals("claimed entries are skipped", 0, queue.dequeue(queueName, 2L).size());
+
+        queue.release(queueName, 1L, false);
+        entries = queue.dequeue(queueName, 3L);
+        assertEquals("returned entries are available again", 3, entries.size());
+
+        queue.release(queueName, 3L, true);
+        assertEquals("completed entries are removed", 0, queue.dequeue(queueName, 4L).size());
+    }
+
+    /**
+     * Entries with a higher priority are dequeued first.
+     */
+    @Test
+    public void testPriority() throws Exception
+    {
+        configurationService.setProperty("curate.taskqueue.db.batch-size", 1);
+        DBTaskQueue queue = new DBTaskQueue();
+        queue.enqueue(queueName, entry("123456789/1", 0));
+        queue.enqueue(queueName, entry("123456789/2", 5));
+
+        assertEquals(Collections.singleton("123456789/2"), objectIds(queue.dequeue(queueName, 1L)));
+        queue.release(queueName, 1L, true);
+        assertEquals(Collections.singleton("123456789/1"), objectIds(queue.dequeue(queueName, 2L)));
+        queue.release(queueName, 2L, true);
+        assertEquals(0, queue.dequeue(queueName, 3L).size());
+    }
+
+    /**
+     * Concurrent readers claim disjoint batches, and together get every
+     * entry exactly once.
+     */
+    @Test
+    public void testConcurrentClaim() throws Exception
+    {
+        configurationService.setProperty("curate.taskqueue.db.batch-size", 2);
+        int count = 12;
+        Set<TaskQueueEntry> entries = new HashSet<TaskQueueEntry>();
+        for (int i = 0; i < count; i++)
+        {
+            entries.add(entry("123456789/" + i, 0));
+        }
+        new DBTaskQueue().enqueue(queueName, entries);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            List<Future<List<String>>> readers = new ArrayList<Future<List<String>>>();
+            for (int r = 0; r < 3; r++)
+            {
+                final DBTaskQueue queue = new DBTaskQueue();
+                final long firstTicket = r * 1000L;
+                readers.add(executor.submit(new Callable<List<String>>()
+                {
+                    @Override
+                    public List<String> call() throws Exception
+                    {
+                        List<String> ids = new ArrayList<String>();
+                        long ticket = firstTicket;
+                        Set<TaskQueueEntry> batch;
+                        while (!(batch = queue.dequeue(queueName, ticket)).isEmpty())
+                        {
+                            assertTrue("batch size is respected", batch.size() <= 2);
+                            ids.addAll(objectIds(batch));
+                            queue.release(queueName, ticket, true);
+                            ticket++;
+                        }
+                        return ids;
+                    }
+                }));
+            }
+
+            List<String> all = new ArrayList<String>();
+            for (Future<List<String>> reader : readers)
+            {
+                all.addAll(reader.get());
+            }
+            assertEquals("every entry is claimed once", count, all.size());
+            assertEquals("no entry is claimed twice", count, new HashSet<String>(all).size());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the FacetValueDecoder, which must give the same results as
+ * the regular expression based splitting it replaces.
+ */
+public class FacetValueDecoderTest
+{
+    private static final String SEP = SolrServiceImpl.FILTER_SEPARATOR;
+
+    private static final String[] FIELDS = { "author_filter", "subject_ac", "subject_acid", "dateIssued.year",
+            "title" };
+
+    private static final String[] VALUES = {
+        "smith, john" + SEP + "Smith, John",
+        "smith, john" + SEP + "Smith, John###rp00001",
+        "a" + SEP + "b" + SEP + "A" + SEP + "B###x",
+        "no separator",
+        "no separator###auth",
+        "",
+        SEP,
+        "trailing" + SEP,
+        "trailing" + SEP + SEP,
+        SEP + "leading",
+        "(bracketed)",
+        "(multi\nline)",
+        "()",
+        "(",
+        "x###y###z" + SEP + "X###Y###Z",
+    };
+
+    /**
+     * Every field & value decodes as the old transform methods did.
+     */
+    @Test
+    public void testSameAsRegex()
+    {
+        FacetValueDecoder decoder = new FacetValueDecoder(null);
+        for (String field : FIELDS)
+        {
+            for (String value : VALUES)
+            {
+                FacetValueDecoder.Decoded decoded = decoder.decode(field, value);
+                String message = field + " [" + value + "]";
+                assertEquals(message, regexDisplayed(SEP, field, value), decoded.getDisplayedValue());
+                assertEquals(message, regexAuthority(SEP, field, value), decoded.getAuthorityValue());
+                assertEquals(message, regexSort(SEP, field, value), decoded.getSortValue());
+            }
+        }
+    }
+
+    /**
+     * A configured separator is used as a plain string, even if it contains
+     * regular expression characters.
+     */
+    @Test
+    public void testConfiguredSeparator()
+    {
+        FacetValueDecoder decoder = new FacetValueDecoder("|.|");
+        FacetValueDecoder.Decoded decoded = decoder.decode("author_filter", "doe|.|Doe###a1");
+        assertEquals("Doe", decoded.getDisplayedValue());
+        assertEquals("a1", decoded.getAuthorityValue());
+        assertEquals("doe", decoded.getSortValue());
+        assertEquals(regexDisplayed("|.|", "author_filter", "doe|.|Doe###a1"), decoded.getDisplayedValue());
+    }
+
+    /**
+     * Location values are left for the caller to look up.
+     */
+    @Test
+    public void testLocation()
+    {
+        FacetValueDecoder.Decoded decoded = new FacetValueDecoder(null).decode("location.coll", "(uuid)");
+        assertEquals("(uuid)", decoded.getDisplayedValue());
+        assertEquals("(uuid)", decoded.getAuthorityValue());
+        assertTrue(FacetValueDecoder.isLocationField("location.comm"));
+        assertFalse(FacetValueDecoder.isLocationField("location"));
+    }
+
+    @Test
+    public void testNoAuthority()
+    {
+        assertNull(new FacetValueDecoder(null).decode("author_filter", "a" + SEP + "A").getAuthorityValue());
+    }
+
+    // The regular expression based implementation of SolrServiceImpl, for comparison
+
+    private static String regexDisplayed(String separator, String field, String value)
+    {
+        if (FacetValueDecoder.isSplitField(field))
+        {
+            String[] fqParts = value.split(Pattern.quote(separator));
+            StringBuilder valueBuffer = new StringBuilder();
+            for (int i = fqParts.length / 2; i < fqParts.length; i++)
+            {
+                valueBuffer.append(fqParts[i].split(SolrServiceImpl.AUTHORITY_SEPARATOR, 2)[0]);
+            }
+            return valueBuffer.toString();
+        }
+        else if (value.matches("\\((.*?)\\)"))
+        {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static String regexAuthority(String separator, String field, String value)
+    {
+        if (FacetValueDecoder.isSplitField(field))
+        {
+            String[] fqParts = value.split(Pattern.quote(separator));
+            StringBuilder authorityBuffer = new StringBuilder();
+            for (int i = fqParts.length / 2; i < fqParts.length; i++)
+            {
+                String[] split = fqParts[i].split(SolrServiceImpl.AUTHORITY_SEPARATOR, 2);
+                if (split.length == 2)
+                {
+                    authorityBuffer.append(split[1]);
+                }
+            }
+            if (authorityBuffer.length() > 0)
+            {
+                return authorityBuffer.toString();
+            }
+        }
+        return null;
+    }
+
+    private static String regexSort(String separator, String field, String value)
+    {
+        if (FacetValueDecoder.isSplitField(field))
+        {
+            String[] fqParts = value.split(Pattern.quote(separator));
+            StringBuilder valueBuffer = new StringBuilder();
+            for (int i = 0; i < fqParts.length / 2; i++)
+            {
+                valueBuffer.append(fqParts[i]);
+            }
+            return valueBuffer.toString();
+        }
+        else if (value.matches("\\((.*?)\\)"))
+        {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+}
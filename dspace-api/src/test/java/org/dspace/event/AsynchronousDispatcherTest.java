@@ -0,0 +1,141 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.factory.EventServiceFactory;
+import org.dspace.event.service.EventQueueService;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the delivery of events to an asynchronous consumer through
+ * the AsynchronousDispatcher, the event queue and the EventQueueProcessor.
+ */
+public class AsynchronousDispatcherTest extends AbstractUnitTest
+{
+    private static final String CONSUMER = "asynctest";
+
+    protected EventQueueService eventQueueService = EventServiceFactory.getInstance().getEventQueueService();
+
+    protected ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+
+    /**
+     * Consumer recording what it is called with.
+     */
+    public static class RecordingConsumer implements Consumer
+    {
+        static final List<UUID> consumed = Collections.synchronizedList(new ArrayList<UUID>());
+        static volatile int ends = 0;
+        static volatile int finishes = 0;
+
+        @Override
+        public void initialize() throws Exception
+        {
+        }
+
+        @Override
+        public void consume(Context ctx, Event event) throws Exception
+        {
+            consumed.add(event.getSubjectID());
+        }
+
+        @Override
+        public void end(Context ctx) throws Exception
+        {
+            ends++;
+        }
+
+        @Override
+        public void finish(Context ctx) throws Exception
+        {
+            finishes++;
+        }
+    }
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        configurationService.setProperty("event.consumer." + CONSUMER + ".class", RecordingConsumer.class.getName());
+        configurationService.setProperty("event.consumer." + CONSUMER + ".filters", "Item+Modify");
+        configurationService.setProperty("event.consumer." + CONSUMER + ".async", "true");
+        // deliver on the test thread only
+        configurationService.setProperty("event.queue.workers.enabled", "false");
+        RecordingConsumer.consumed.clear();
+        RecordingConsumer.ends = 0;
+        RecordingConsumer.finishes = 0;
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        configurationService.setProperty("event.consumer." + CONSUMER + ".class", null);
+        configurationService.setProperty("event.consumer." + CONSUMER + ".filters", null);
+        configurationService.setProperty("event.consumer." + CONSUMER + ".async", null);
+        configurationService.setProperty("event.queue.workers.enabled", null);
+        super.destroy();
+    }
+
+    /**
+     * Events passing the consumer's filters are queued in the transaction of
+     * the change, and delivered in order by the processor, which finishes the
+     * consumer when it is done.
+     */
+    @Test
+    public void testQueuedDelivery() throws Exception
+    {
+        AsynchronousDispatcher dispatcher = new AsynchronousDispatcher("asynctest");
+        dispatcher.addConsumerProfile(ConsumerProfile.makeConsumerProfile(CONSUMER));
+        assertTrue(AsynchronousDispatcher.isAsynchronous(CONSUMER));
+
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        context.addEvent(new Event(Event.MODIFY, Constants.ITEM, first, null));
+        context.addEvent(new Event(Event.CREATE, Constants.ITEM, UUID.randomUUID(), null));
+        context.addEvent(new Event(Event.MODIFY, Constants.ITEM, second, null));
+        dispatcher.dispatch(context);
+        // not dispatched again by the default dispatcher on commit
+        while (context.hasEvents())
+        {
+            context.pollEvent();
+        }
+
+        // not delivered before the commit, nor on the committing thread
+        assertEquals(0, RecordingConsumer.consumed.size());
+        assertEquals(2, eventQueueService.countPending(context, CONSUMER));
+        context.commit();
+
+        assertEquals(2, EventQueueProcessor.getInstance().processPending(CONSUMER));
+        assertEquals(2, RecordingConsumer.consumed.size());
+        assertEquals(first, RecordingConsumer.consumed.get(0));
+        assertEquals(second, RecordingConsumer.consumed.get(1));
+        assertEquals(1, RecordingConsumer.ends);
+        assertEquals(1, RecordingConsumer.finishes);
+        assertEquals(0, eventQueueService.countPending(context, CONSUMER));
+
+        // nothing left to deliver
+        assertEquals(0, EventQueueProcessor.getInstance().processPending(CONSUMER));
+        assertEquals(2, RecordingConsumer.consumed.size());
+    }
+}
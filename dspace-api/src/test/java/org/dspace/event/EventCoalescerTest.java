@@ -0,0 +1,92 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.dspace.core.Constants;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for EventCoalescer.
+ */
+public class EventCoalescerTest
+{
+    private final UUID item = UUID.randomUUID();
+    private final UUID otherItem = UUID.randomUUID();
+    private final UUID bundle = UUID.randomUUID();
+
+    /**
+     * Repeated modifications of one item become one event per type, carrying
+     * all details, at the position of the last one.
+     */
+    @Test
+    public void testMergeModifications()
+    {
+        List<Event> events = new ArrayList<Event>();
+        events.add(new Event(Event.MODIFY_METADATA, Constants.ITEM, item, "dc.title"));
+        events.add(new Event(Event.MODIFY, Constants.ITEM, item, null));
+        events.add(new Event(Event.MODIFY_METADATA, Constants.ITEM, otherItem, "dc.title"));
+        events.add(new Event(Event.MODIFY_METADATA, Constants.ITEM, item, "dc.title, dc.subject"));
+        events.add(new Event(Event.MODIFY, Constants.ITEM, item, null));
+
+        List<Event> result = EventCoalescer.coalesce(events);
+
+        assertEquals(3, result.size());
+        assertEquals(otherItem, result.get(0).getSubjectID());
+        assertEquals(Event.MODIFY_METADATA, result.get(1).getEventType());
+        assertEquals(item, result.get(1).getSubjectID());
+        assertEquals("dc.title, dc.subject", result.get(1).getDetail());
+        assertEquals(Event.MODIFY, result.get(2).getEventType());
+        assertEquals(item, result.get(2).getSubjectID());
+    }
+
+    /**
+     * Modifications of an object deleted later in the transaction are
+     * dropped; the deletion is kept.
+     */
+    @Test
+    public void testDropModificationsBeforeDelete()
+    {
+        List<Event> events = new ArrayList<Event>();
+        events.add(new Event(Event.CREATE, Constants.ITEM, item, null));
+        events.add(new Event(Event.MODIFY_METADATA, Constants.ITEM, item, "dc.title"));
+        events.add(new Event(Event.DELETE, Constants.ITEM, item, "123456789/1"));
+
+        List<Event> result = EventCoalescer.coalesce(events);
+
+        assertEquals(2, result.size());
+        assertEquals(Event.CREATE, result.get(0).getEventType());
+        assertEquals(Event.DELETE, result.get(1).getEventType());
+    }
+
+    /**
+     * Membership changes keep their order; only exact repetitions are
+     * dropped.
+     */
+    @Test
+    public void testKeepAddRemoveOrder()
+    {
+        List<Event> events = new ArrayList<Event>();
+        events.add(new Event(Event.ADD, Constants.ITEM, item, Constants.BUNDLE, bundle, null));
+        events.add(new Event(Event.ADD, Constants.ITEM, item, Constants.BUNDLE, bundle, null));
+        events.add(new Event(Event.REMOVE, Constants.ITEM, item, Constants.BUNDLE, bundle, null));
+        events.add(new Event(Event.ADD, Constants.ITEM, item, Constants.BUNDLE, bundle, null));
+
+        List<Event> result = EventCoalescer.coalesce(events);
+
+        assertEquals(3, result.size());
+        assertEquals(Event.ADD, result.get(0).getEventType());
+        assertEquals(Event.REMOVE, result.get(1).getEventType());
+        assertEquals(Event.ADD, result.get(2).getEventType());
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.Constants;
+import org.dspace.event.factory.EventServiceFactory;
+import org.dspace.event.service.EventQueueService;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the persistent event queue of the asynchronous consumers.
+ * The queued entries are rolled back after every test.
+ */
+public class EventQueueServiceTest extends AbstractUnitTest
+{
+    private static final String CONSUMER = "queuetest";
+
+    protected EventQueueService eventQueueService = EventServiceFactory.getInstance().getEventQueueService();
+
+    protected ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+
+    @After
+    @Override
+    public void destroy()
+    {
+        context.abort();
+        super.destroy();
+    }
+
+    private Event enqueue(UUID id) throws SQLException
+    {
+        Event event = new Event(Event.MODIFY, Constants.ITEM, id, "detail");
+        eventQueueService.enqueue(context, CONSUMER, event);
+        return event;
+    }
+
+    /**
+     * Queued events are claimed in queue order, and removed once delivered.
+     */
+    @Test
+    public void testEnqueueClaimDeliver() throws Exception
+    {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        enqueue(first);
+        enqueue(second);
+        eventQueueService.enqueue(context, "othertest", new Event(Event.MODIFY, Constants.ITEM, first, null));
+
+        assertEquals(2, eventQueueService.countPending(context, CONSUMER));
+        assertTrue(eventQueueService.findConsumers(context).contains(CONSUMER));
+
+        List<QueuedEvent> claimed = eventQueueService.claim(context, CONSUMER, 10);
+        assertEquals(2, claimed.size());
+        assertEquals(first, claimed.get(0).getEvent().getSubjectID());
+        assertEquals(Event.MODIFY, claimed.get(0).getEvent().getEventType());
+        assertEquals("detail", claimed.get(0).getEvent().getDetail());
+        assertEquals(second, claimed.get(1).getEvent().getSubjectID());
+        assertEquals(1, eventQueueService.claim(context, CONSUMER, 1).size());
+
+        eventQueueService.delivered(context, claimed.get(0));
+        assertEquals(1, eventQueueService.countPending(context, CONSUMER));
+        assertEquals(second, eventQueueService.claim(context, CONSUMER, 10).get(0).getEvent().getSubjectID());
+        assertEquals(1, eventQueueService.countPending(context, "othertest"));
+    }
+
+    /**
+     * A failed entry is retried later, and holds back the entries queued
+     * after it meanwhile.
+     */
+    @Test
+    public void testRetry() throws Exception
+    {
+        enqueue(UUID.randomUUID());
+        enqueue(UUID.randomUUID());
+        QueuedEvent failed = eventQueueService.claim(context, CONSUMER, 10).get(0);
+
+        assertFalse(eventQueueService.failed(context, failed, new Exception("test failure")));
+        assertEquals(1, failed.getAttempts());
+        assertTrue(failed.getNextAttempt().after(new Date()));
+        assertTrue(failed.getLastError().contains("test failure"));
+
+        assertEquals(0, eventQueueService.claim(context, CONSUMER, 10).size());
+        assertEquals(2, eventQueueService.countPending(context, CONSUMER));
+        assertEquals(0, eventQueueService.countDead(context, CONSUMER));
+    }
+
+    /**
+     * An entry failing too often is dead-lettered, until it is requeued.
+     */
+    @Test
+    public void testDeadLetterAndRequeue() throws Exception
+    {
+        UUID id = UUID.randomUUID();
+        enqueue(id);
+        QueuedEvent failed = eventQueueService.claim(context, CONSUMER, 10).get(0);
+
+        int maxAttempts = configurationService.getIntProperty("event.queue.max-attempts", 5);
+        for (int i = 1; i < maxAttempts; i++)
+        {
+            assertFalse(eventQueueService.failed(context, failed, new Exception("test failure")));
+        }
+        assertTrue(eventQueueService.failed(context, failed, new Exception("test failure")));
+        assertEquals(QueuedEvent.STATUS_DEAD, failed.getStatus());
+        assertEquals(0, eventQueueService.countPending(context, CONSUMER));
+        assertEquals(1, eventQueueService.countDead(context, CONSUMER));
+        assertEquals(1, eventQueueService.findDead(context, CONSUMER).size());
+        assertEquals(0, eventQueueService.claim(context, CONSUMER, 10).size());
+
+        assertEquals(1, eventQueueService.requeueDead(context, CONSUMER));
+        assertEquals(0, eventQueueService.countDead(context, CONSUMER));
+        List<QueuedEvent> claimed = eventQueueService.claim(context, CONSUMER, 10);
+        assertEquals(1, claimed.size());
+        assertEquals(id, claimed.get(0).getEvent().getSubjectID());
+        assertEquals(0, claimed.get(0).getAttempts());
+    }
+}
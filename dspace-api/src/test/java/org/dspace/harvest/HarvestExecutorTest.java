@@ -0,0 +1,153 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.harvest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the HarvestExecutor.
+ */
+public class HarvestExecutorTest
+{
+    private HarvestExecutor executor;
+
+    /** Harvests running at the same time, by host, and their maximum */
+    private final ConcurrentMap<String, AtomicInteger> running = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> maxRunning = new ConcurrentHashMap<>();
+    private final AtomicInteger maxTotal = new AtomicInteger();
+    private final AtomicInteger total = new AtomicInteger();
+
+    @Before
+    public void setUp()
+    {
+        executor = new HarvestExecutor(3, 1);
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdown();
+    }
+
+    /**
+     * A harvest which holds its thread until the latch is released.
+     */
+    private Runnable harvest(final String host, final CountDownLatch release)
+    {
+        running.putIfAbsent(host, new AtomicInteger());
+        maxRunning.putIfAbsent(host, new AtomicInteger());
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                int now = running.get(host).incrementAndGet();
+                maxRunning.get(host).set(Math.max(maxRunning.get(host).get(), now));
+                int all = total.incrementAndGet();
+                maxTotal.set(Math.max(maxTotal.get(), all));
+                try
+                {
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                finally
+                {
+                    total.decrementAndGet();
+                    running.get(host).decrementAndGet();
+                }
+            }
+        };
+    }
+
+    /**
+     * Harvests from a busy host wait, while harvests from other hosts pass
+     * them, up to the total number of threads.
+     */
+    @Test
+    public void testPerHostLimit() throws InterruptedException
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(UUID.randomUUID(), "http://slow.example.org/oai", harvest("slow.example.org", release));
+        executor.submit(UUID.randomUUID(), "http://slow.example.org/oai2", harvest("slow.example.org", release));
+        executor.submit(UUID.randomUUID(), "http://a.example.org/oai", harvest("a.example.org", release));
+        executor.submit(UUID.randomUUID(), "http://b.example.org/oai", harvest("b.example.org", release));
+        executor.submit(UUID.randomUUID(), "http://c.example.org/oai", harvest("c.example.org", release));
+
+        assertEquals(3, executor.getActiveCount());
+        assertEquals(2, executor.getQueueDepth());
+
+        release.countDown();
+        assertTrue(executor.awaitIdle(10, TimeUnit.SECONDS));
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(5, executor.getCompletedCount());
+        assertEquals(1, maxRunning.get("slow.example.org").get());
+        assertEquals(3, maxTotal.get());
+    }
+
+    /**
+     * A collection is not queued again while it is queued or running, and
+     * its harvest duration is recorded when it completes.
+     */
+    @Test
+    public void testNoDuplicates() throws InterruptedException
+    {
+        UUID collection = UUID.randomUUID();
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(executor.submit(collection, "http://a.example.org/oai", harvest("a.example.org", release)));
+        assertFalse(executor.submit(collection, "http://a.example.org/oai", harvest("a.example.org", release)));
+        assertTrue(executor.contains(collection));
+
+        release.countDown();
+        assertTrue(executor.awaitIdle(10, TimeUnit.SECONDS));
+        assertFalse(executor.contains(collection));
+        Map<UUID, Long> durations = executor.getDurations();
+        assertTrue(durations.containsKey(collection));
+        assertTrue(executor.submit(collection, "http://a.example.org/oai", harvest("a.example.org", release)));
+    }
+
+    /**
+     * Paused executors start nothing; cancelled harvests never run.
+     */
+    @Test
+    public void testPauseAndCancel() throws InterruptedException
+    {
+        executor.setPaused(true);
+        UUID first = UUID.randomUUID();
+        CountDownLatch release = new CountDownLatch(0);
+        executor.submit(first, "http://a.example.org/oai", harvest("a.example.org", release));
+        executor.submit(UUID.randomUUID(), "http://b.example.org/oai", harvest("b.example.org", release));
+        assertEquals(0, executor.getActiveCount());
+        assertEquals(2, executor.getQueueDepth());
+        assertTrue(executor.awaitIdle(1, TimeUnit.SECONDS));
+
+        List<UUID> cancelled = executor.cancelPending();
+        assertEquals(2, cancelled.size());
+        assertEquals(first, cancelled.get(0));
+        executor.setPaused(false);
+        assertTrue(executor.awaitIdle(10, TimeUnit.SECONDS));
+        assertEquals(0, executor.getCompletedCount());
+    }
+}
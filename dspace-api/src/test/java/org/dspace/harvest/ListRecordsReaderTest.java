@@ -0,0 +1,175 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.harvest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the ListRecordsReader, against a local stub OAI-PMH endpoint.
+ */
+public class ListRecordsReaderTest
+{
+    private static final Namespace OAI_NS = Namespace.getNamespace("http://www.openarchives.org/OAI/2.0/");
+    private static final Namespace DC_NS = Namespace.getNamespace("http://purl.org/dc/elements/1.1/");
+
+    private HttpServer server;
+    private String base;
+
+    /** Query strings of the requests received, in order. */
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/oai", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                String query = exchange.getRequestURI().getRawQuery();
+                received.add(query);
+                String body;
+                if (query.contains("set=empty"))
+                {
+                    body = response("<error code=\"noRecordsMatch\">No matching records</error>");
+                }
+                else if (query.contains("resumptionToken=page%2F2"))
+                {
+                    body = response("<ListRecords>" + record("oai:test:3")
+                            + "<resumptionToken completeListSize=\"3\" cursor=\"2\"/></ListRecords>");
+                }
+                else
+                {
+                    body = response("<ListRecords>" + record("oai:test:1") + record("oai:test:2")
+                            + "<resumptionToken completeListSize=\"3\" cursor=\"0\">page/2</resumptionToken>"
+                            + "</ListRecords>");
+                }
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/xml; charset=UTF-8");
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody())
+                {
+                    out.write(bytes);
+                }
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort() + "/oai";
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    private static String response(String content)
+    {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<OAI-PMH xmlns=\"http://www.openarchives.org/OAI/2.0/\""
+                + " xmlns:dc=\"http://purl.org/dc/elements/1.1/\">"
+                + "<responseDate>2016-01-01T00:00:00Z</responseDate>"
+                + "<request verb=\"ListRecords\">http://example.org/oai</request>"
+                + content + "</OAI-PMH>";
+    }
+
+    private static String record(String identifier)
+    {
+        return "<record><header><identifier>" + identifier + "</identifier>"
+                + "<datestamp>2016-01-01</datestamp></header>"
+                + "<metadata><oai_dc:dc xmlns:oai_dc=\"http://www.openarchives.org/OAI/2.0/oai_dc/\">"
+                + "<dc:title xml:lang=\"en\">Title of " + identifier + "</dc:title>"
+                + "</oai_dc:dc></metadata></record>";
+    }
+
+    /**
+     * All pages are read by following the resumption token, and every record
+     * is a complete JDOM element.
+     */
+    @Test
+    public void testReadPages() throws IOException
+    {
+        try (ListRecordsReader reader = new ListRecordsReader(base, "2016-01-01", null, null, "oai_dc", 10000))
+        {
+            ListRecordsReader.Page page = reader.next();
+            assertTrue(page.getErrors().isEmpty());
+            assertEquals(2, page.getRecords().size());
+            assertEquals("page/2", page.getResumptionToken());
+            assertEquals(3, page.getCompleteListSize());
+
+            Element record = page.getRecords().get(0);
+            assertEquals("oai:test:1", record.getChild("header", OAI_NS).getChildText("identifier", OAI_NS));
+            Element dc = (Element) record.getChild("metadata", OAI_NS).getChildren().get(0);
+            Element title = dc.getChild("title", DC_NS);
+            assertEquals("Title of oai:test:1", title.getText());
+            assertEquals("en", title.getAttributeValue("lang", Namespace.XML_NAMESPACE));
+
+            page = reader.next();
+            assertEquals(1, page.getRecords().size());
+            assertEquals("oai:test:3", page.getRecords().get(0).getChild("header", OAI_NS)
+                    .getChildText("identifier", OAI_NS));
+            assertEquals("", page.getResumptionToken());
+
+            assertNull(reader.next());
+        }
+        assertEquals(2, received.size());
+        assertEquals("verb=ListRecords&from=2016-01-01&metadataPrefix=oai_dc", received.get(0));
+        assertEquals("verb=ListRecords&resumptionToken=page%2F2", received.get(1));
+    }
+
+    /**
+     * The next page is requested before the current one is asked for.
+     */
+    @Test
+    public void testPrefetch() throws Exception
+    {
+        try (ListRecordsReader reader = new ListRecordsReader(base, null, null, null, "oai_dc", 10000))
+        {
+            reader.next();
+            for (int i = 0; i < 100 && received.size() < 2; i++)
+            {
+                Thread.sleep(50);
+            }
+            assertEquals(2, received.size());
+        }
+    }
+
+    /**
+     * OAI-PMH errors are returned with the page, and end the response.
+     */
+    @Test
+    public void testErrors() throws IOException
+    {
+        try (ListRecordsReader reader = new ListRecordsReader(base, null, null, "empty", "oai_dc", 10000))
+        {
+            ListRecordsReader.Page page = reader.next();
+            assertTrue(page.getErrors().contains("noRecordsMatch"));
+            assertTrue(page.getRecords().isEmpty());
+            assertNull(reader.next());
+        }
+    }
+}
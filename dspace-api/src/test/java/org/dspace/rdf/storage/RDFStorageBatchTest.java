@@ -0,0 +1,173 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.rdf.storage;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.update.UpdateAction;
+import com.hp.hpl.jena.vocabulary.DCTerms;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the RDFStorageBatch, storing into an in-memory dataset
+ * with the SPARQL Update requests of the RDFStorageImpl, in place of a
+ * triple store.
+ */
+public class RDFStorageBatchTest
+{
+    private static final String BASE = "http://localhost/rdf/resource/123456789/";
+
+    private DatasetStorage storage;
+
+    @Before
+    public void setUp()
+    {
+        storage = new DatasetStorage();
+    }
+
+    @Test
+    public void testStoresFullBatches()
+    {
+        RDFStorageBatch batch = new RDFStorageBatch(storage, 2);
+        batch.add(BASE + "1", createModel("1", "First"));
+        assertEquals(0, storage.requests);
+        batch.add(BASE + "2", createModel("2", "Second"));
+        assertEquals(1, storage.requests);
+        batch.add(BASE + "3", createModel("3", "Third"));
+        assertEquals(1, storage.requests);
+        batch.flush();
+        assertEquals(2, storage.requests);
+        batch.flush();
+        assertEquals(2, storage.requests);
+
+        assertEquals(3, storage.getAllStoredGraphs().size());
+        assertTitle("2", "Second");
+        assertTitle("3", "Third");
+    }
+
+    @Test
+    public void testReplacesStoredGraphs()
+    {
+        storage.store(BASE + "1", createModel("1", "Old"));
+        storage.store(BASE + "2", createModel("2", "Untouched"));
+
+        RDFStorageBatch batch = new RDFStorageBatch(storage, 10);
+        batch.add(BASE + "1", createModel("1", "New"));
+        batch.flush();
+
+        Model stored = storage.load(BASE + "1");
+        assertNotNull(stored);
+        assertEquals(1, stored.size());
+        assertTitle("1", "New");
+        assertTitle("2", "Untouched");
+    }
+
+    @Test
+    public void testClosesStoredModels()
+    {
+        RDFStorageBatch batch = new RDFStorageBatch(storage, 10);
+        Model replaced = createModel("1", "Replaced");
+        Model model = createModel("1", "Stored");
+        batch.add(BASE + "1", replaced);
+        batch.add(BASE + "1", model);
+        assertTrue(replaced.isClosed());
+        assertFalse(model.isClosed());
+        batch.flush();
+        assertTrue(model.isClosed());
+        assertTitle("1", "Stored");
+    }
+
+    private Model createModel(String id, String title)
+    {
+        Model model = ModelFactory.createDefaultModel();
+        model.createResource(BASE + id).addProperty(DCTerms.title, title);
+        return model;
+    }
+
+    private void assertTitle(String id, String title)
+    {
+        Model stored = storage.load(BASE + id);
+        assertNotNull(stored);
+        Resource resource = stored.getResource(BASE + id);
+        assertTrue(stored.contains(resource, DCTerms.title, title));
+    }
+
+    /**
+     * RDFStorage keeping the graphs in an in-memory dataset, and storing
+     * batches with the SPARQL Update request sent by the RDFStorageImpl.
+     */
+    private static class DatasetStorage implements RDFStorage
+    {
+        private final Dataset dataset = DatasetFactory.createMem();
+        private int requests = 0;
+
+        @Override
+        public void store(String uri, Model model)
+        {
+            dataset.replaceNamedModel(uri, model);
+        }
+
+        @Override
+        public void store(Map<String, Model> graphs)
+        {
+            requests++;
+            UpdateAction.execute(new RDFStorageImpl().createUpdateRequest(graphs), dataset);
+        }
+
+        @Override
+        public Model load(String uri)
+        {
+            if (!dataset.containsNamedModel(uri))
+            {
+                return null;
+            }
+            return dataset.getNamedModel(uri);
+        }
+
+        @Override
+        public void delete(String uri)
+        {
+            dataset.removeNamedModel(uri);
+        }
+
+        @Override
+        public void deleteAll()
+        {
+            for (String uri : getAllStoredGraphs())
+            {
+                delete(uri);
+            }
+        }
+
+        @Override
+        public List<String> getAllStoredGraphs()
+        {
+            List<String> graphs = new ArrayList<>();
+            Iterator<String> names = dataset.listNames();
+            while (names.hasNext())
+            {
+                graphs.add(names.next());
+            }
+            return graphs;
+        }
+    }
+}
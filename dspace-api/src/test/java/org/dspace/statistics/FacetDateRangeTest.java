@@ -0,0 +1,400 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Regression tests for the statistics date facets: the counts read back from
+ * the facet queries of a {@link FacetDateRange} must be the matrix the
+ * per-object Solr date facet requests used to give, on the same visits.
+ */
+public class FacetDateRangeTest
+{
+    private static final String NOW = "2016-03-15T10:20:30Z";
+
+    /** Fixture visits: id, type, time */
+    private static final String[][] VISITS = {
+        { "a", "2", "2015-09-01T00:00:00Z" },
+        { "a", "2", "2015-09-30T23:59:59Z" },
+        { "a", "2", "2015-12-24T12:00:00Z" },
+        { "a", "2", "2016-03-15T09:00:00Z" },
+        { "a", "0", "2016-03-01T00:00:00Z" },
+        { "b", "2", "2015-08-31T23:59:59Z" },
+        { "b", "2", "2016-01-01T00:00:00Z" },
+        { "b", "2", "2016-01-31T23:59:59Z" },
+        { "b", "2", "2016-04-01T00:00:00Z" },
+        { "c:1", "2", "2014-06-01T00:00:00Z" },
+        { "c:1", "2", "2016-02-29T12:00:00Z" },
+    };
+
+    private List<Map<String, String>> visits;
+    private Date now;
+
+    @Before
+    public void setUp() throws ParseException
+    {
+        visits = new ArrayList<Map<String, String>>();
+        for (String[] visit : VISITS)
+        {
+            Map<String, String> doc = new HashMap<String, String>();
+            doc.put("id", visit[0]);
+            doc.put("type", visit[1]);
+            doc.put("time", visit[2]);
+            visits.add(doc);
+        }
+        now = utc("yyyy-MM-dd'T'HH:mm:ss'Z'").parse(NOW);
+    }
+
+    /**
+     * Monthly views of the top objects, over the last six months and the
+     * current one, as in the Item statistics pages.
+     */
+    @Test
+    public void testMonthly() throws ParseException
+    {
+        FacetDateRange range = FacetDateRange.create("MONTH", "-6", "+1", now);
+        assertEquals(7, range.size());
+        assertEquals("2015-09-01T00:00:00Z", range.getLabel(0));
+        assertEquals("time:[2016-03-01T00:00:00Z TO 2016-04-01T00:00:00Z}", range.getRangeQuery(6));
+        assertEquals(6, range.getBucket(now));
+        assertEquals(0, range.getBucket(range.getStart(0)));
+        assertEquals(-1, range.getBucket(range.getEnd(6)));
+        assertEquals(-1, range.getBucket(new Date(range.getStart(0).getTime() - 1)));
+
+        for (boolean showTotal : new boolean[] { false, true })
+        {
+            Map<String, ObjectCount[]> expected = new LinkedHashMap<String, ObjectCount[]>();
+            expected.put("a", counts(showTotal, 5, "2015-09-01T00:00:00Z", 2, "2015-12-01T00:00:00Z", 1,
+                    "2016-03-01T00:00:00Z", 2));
+            expected.put("b", counts(showTotal, 4, "2016-01-01T00:00:00Z", 2));
+            expected.put("c:1", counts(showTotal, 2, "2016-02-01T00:00:00Z", 1));
+            assertMatrix(expected, range, "*:*", showTotal);
+        }
+    }
+
+    /**
+     * The main query restricts the counts, as it did in the per-object requests.
+     */
+    @Test
+    public void testQueryRestricts() throws ParseException
+    {
+        FacetDateRange range = FacetDateRange.create("MONTH", "-6", "+1", now);
+        Map<String, ObjectCount[]> expected = new LinkedHashMap<String, ObjectCount[]>();
+        expected.put("a", counts(true, 4, "2015-09-01T00:00:00Z", 2, "2015-12-01T00:00:00Z", 1,
+                "2016-03-01T00:00:00Z", 1));
+        assertMatrix(expected, range, "type:2", true);
+    }
+
+    /**
+     * Yearly and daily ranges round "now" to the unit, in UTC.
+     */
+    @Test
+    public void testOtherUnits() throws ParseException
+    {
+        FacetDateRange years = FacetDateRange.create("YEAR", "-2", "+1", now);
+        assertEquals(3, years.size());
+        assertEquals("2014-01-01T00:00:00Z", years.getLabel(0));
+        Map<String, ObjectCount[]> expected = new LinkedHashMap<String, ObjectCount[]>();
+        expected.put("c:1", counts(false, 0, "2014-01-01T00:00:00Z", 1, "2016-01-01T00:00:00Z", 1));
+        assertMatrix(expected, years, "*:*", false);
+
+        FacetDateRange days = FacetDateRange.create("DAY", "-15", "+1", now);
+        assertEquals(16, days.size());
+        assertEquals("2016-02-29T00:00:00Z", days.getLabel(0));
+        assertEquals("2016-03-15T00:00:00Z", days.getLabel(15));
+
+        FacetDateRange hours = FacetDateRange.create("HOUR", "-1", "+1", now);
+        assertEquals("2016-03-15T09:00:00Z", hours.getLabel(0));
+        assertEquals("time:[2016-03-15T10:00:00Z TO 2016-03-15T11:00:00Z}", hours.getRangeQuery(1));
+    }
+
+    @Test
+    public void testNotWritable()
+    {
+        assertNull(FacetDateRange.create("WEEK", "-6", "+1", now));
+        assertNull(FacetDateRange.create("MONTH", "-6 MONTHS", "+1", now));
+        assertNull(FacetDateRange.create("MONTH", null, "+1", now));
+    }
+
+    /**
+     * Counting every pair of two top lists in one request gives the counts of
+     * the per-row requests.
+     */
+    @Test
+    public void testCells()
+    {
+        String[] ids = { "a", "b", "c:1" };
+        String[] types = { "type:2", "type:0" };
+        List<String> cellQueries = new ArrayList<String>();
+        for (String id : ids)
+        {
+            for (String type : types)
+            {
+                cellQueries.add("(" + idQuery(id) + ") AND (" + type + ")");
+            }
+        }
+        Map<String, Integer> cells = facetQuery("*:*", cellQueries);
+        for (String id : ids)
+        {
+            Map<String, Integer> row = facetQuery(idQuery(id), java.util.Arrays.asList(types));
+            for (String type : types)
+            {
+                assertEquals(row.get(type), cells.get("(" + idQuery(id) + ") AND (" + type + ")"));
+            }
+        }
+    }
+
+    /**
+     * The facet queries of a monthly table of the top ten items, or of a ten
+     * by ten table, do not fit in the URL of a GET: they must be posted.
+     */
+    @Test
+    public void testLongRequestsArePosted()
+    {
+        FacetDateRange range = FacetDateRange.create("MONTH", "-12", "+1", now);
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < 10; i++)
+        {
+            ids.add(UUID.randomUUID().toString());
+        }
+
+        SolrQuery monthly = new SolrQuery("*:*").setRows(0).setFacet(true);
+        for (String id : ids)
+        {
+            for (String facetQuery : range.getFacetQueries("id:" + id, true))
+            {
+                monthly.addFacetQuery(facetQuery);
+            }
+        }
+        assertEquals(10 * 14, monthly.getFacetQuery().length);
+        assertTrue(ClientUtils.toQueryString(monthly, false).length() > 8192);
+        assertEquals(SolrRequest.METHOD.POST, SolrLoggerServiceImpl.getRequestMethod(monthly));
+
+        SolrQuery cells = new SolrQuery("*:*").setRows(0).setFacet(true);
+        for (String id1 : ids)
+        {
+            for (String id2 : ids)
+            {
+                cells.addFacetQuery("(id:" + id1 + ") AND (owningColl:" + id2 + ")");
+            }
+        }
+        assertEquals(SolrRequest.METHOD.POST, SolrLoggerServiceImpl.getRequestMethod(cells));
+
+        SolrQuery single = new SolrQuery("id:" + ids.get(0)).setRows(0).setFacet(true);
+        single.addFacetQuery(range.getFacetQueries("id:" + ids.get(0), false).get(0));
+        assertEquals(SolrRequest.METHOD.GET, SolrLoggerServiceImpl.getRequestMethod(single));
+    }
+
+    /**
+     * Compare the expected per-object rows with those read back from the
+     * facet queries.
+     */
+    private void assertMatrix(Map<String, ObjectCount[]> expected, FacetDateRange range, String query,
+                              boolean showTotal) throws ParseException
+    {
+        for (Map.Entry<String, ObjectCount[]> entry : expected.entrySet())
+        {
+            // what the per-object date facet request counted
+            assertRows(entry.getValue(), legacyDateFacet(idQuery(entry.getKey()) + " AND " + query, range, showTotal));
+
+            List<String> facetQueries = range.getFacetQueries(idQuery(entry.getKey()), showTotal);
+            Map<String, Integer> facetCounts = facetQuery(query, facetQueries);
+            assertRows(entry.getValue(), range.getCounts(idQuery(entry.getKey()), facetCounts, showTotal));
+        }
+    }
+
+    private static void assertRows(ObjectCount[] expected, ObjectCount[] actual)
+    {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals(expected[i].getValue(), actual[i].getValue());
+            assertEquals(expected[i].getCount(), actual[i].getCount());
+        }
+    }
+
+    /**
+     * @param showTotal whether to add the total
+     * @param total the total
+     * @param labelsAndCounts label, count, label, count...
+     */
+    private static ObjectCount[] counts(boolean showTotal, int total, Object... labelsAndCounts)
+    {
+        List<ObjectCount> counts = new ArrayList<ObjectCount>();
+        for (int i = 0; i < labelsAndCounts.length; i += 2)
+        {
+            counts.add(count((String) labelsAndCounts[i], (Integer) labelsAndCounts[i + 1]));
+        }
+        if (showTotal)
+        {
+            counts.add(count("total", total));
+        }
+        return counts.toArray(new ObjectCount[counts.size()]);
+    }
+
+    private static ObjectCount count(String value, long count)
+    {
+        ObjectCount objectCount = new ObjectCount();
+        objectCount.setValue(value);
+        objectCount.setCount(count);
+        return objectCount;
+    }
+
+    private static String idQuery(String id)
+    {
+        return "id:" + id.replace(":", "\\:");
+    }
+
+    private static SimpleDateFormat utc(String pattern)
+    {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    /**
+     * The old per-object request: a Solr date facet over the visits matching
+     * the query, one bucket per unit, leaving out empty buckets.
+     */
+    private ObjectCount[] legacyDateFacet(String query, FacetDateRange range, boolean showTotal)
+            throws ParseException
+    {
+        SimpleDateFormat iso = utc("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        Date first = iso.parse(range.getLabel(0));
+        String end = range.getRangeQuery(range.size() - 1);
+        Date last = iso.parse(end.substring(end.indexOf(" TO ") + 4, end.length() - 1));
+
+        Map<String, Integer> buckets = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < range.size(); i++)
+        {
+            buckets.put(range.getLabel(i), 0);
+        }
+        int total = 0;
+        for (Map<String, String> visit : visits)
+        {
+            if (!matches(query, visit))
+            {
+                continue;
+            }
+            total++;
+            Date time = iso.parse(visit.get("time"));
+            if (time.before(first) || !time.before(last))
+            {
+                continue;
+            }
+            // the bucket is the last one starting at or before the visit
+            String bucket = null;
+            for (String label : buckets.keySet())
+            {
+                if (!iso.parse(label).after(time))
+                {
+                    bucket = label;
+                }
+            }
+            buckets.put(bucket, buckets.get(bucket) + 1);
+        }
+        List<ObjectCount> result = new ArrayList<ObjectCount>();
+        for (Map.Entry<String, Integer> bucket : buckets.entrySet())
+        {
+            if (0 < bucket.getValue())
+            {
+                result.add(count(bucket.getKey(), bucket.getValue()));
+            }
+        }
+        if (showTotal)
+        {
+            result.add(count("total", total));
+        }
+        return result.toArray(new ObjectCount[result.size()]);
+    }
+
+    /**
+     * Count the visits matching the main query and each facet query.
+     */
+    private Map<String, Integer> facetQuery(String query, List<String> facetQueries)
+    {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (String facetQuery : facetQueries)
+        {
+            int count = 0;
+            for (Map<String, String> visit : visits)
+            {
+                if (matches(query, visit) && matches(facetQuery, visit))
+                {
+                    count++;
+                }
+            }
+            counts.put(facetQuery, count);
+        }
+        return counts;
+    }
+
+    /**
+     * Evaluate the queries used here: conjunctions of field:value terms and
+     * time ranges, which may be bracketed.
+     */
+    private static boolean matches(String query, Map<String, String> visit)
+    {
+        for (String term : query.split(" AND "))
+        {
+            term = term.trim();
+            while (term.startsWith("("))
+            {
+                term = term.substring(1);
+            }
+            while (term.endsWith(")"))
+            {
+                term = term.substring(0, term.length() - 1);
+            }
+            if (term.equals("*:*"))
+            {
+                continue;
+            }
+            int colon = term.indexOf(':');
+            String field = term.substring(0, colon);
+            String value = term.substring(colon + 1).trim();
+            if (value.startsWith("["))
+            {
+                String low = value.substring(1, value.indexOf(" TO "));
+                String high = value.substring(value.indexOf(" TO ") + 4, value.length() - 1);
+                String time = visit.get(field);
+                // ISO dates in UTC compare as strings
+                if (time.compareTo(low) < 0 || time.compareTo(high) >= 0)
+                {
+                    return false;
+                }
+            }
+            else if (!value.replace("\\", "").equals(visit.get(field)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
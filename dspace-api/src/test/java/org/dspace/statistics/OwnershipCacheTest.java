@@ -0,0 +1,165 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.util.UUID;
+
+import org.dspace.AbstractDSpaceTest;
+import org.dspace.core.Constants;
+import org.dspace.event.Event;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for the OwnershipCache and the OwnershipCacheConsumer.
+ */
+public class OwnershipCacheTest extends AbstractDSpaceTest
+{
+    private UUID community;
+    private UUID collection;
+    private UUID item;
+    private UUID bundle;
+    private UUID bitstream;
+
+    @Before
+    public void setUp()
+    {
+        OwnershipCache.clear();
+        community = UUID.randomUUID();
+        collection = UUID.randomUUID();
+        item = UUID.randomUUID();
+        bundle = UUID.randomUUID();
+        bitstream = UUID.randomUUID();
+    }
+
+    /**
+     * @return the owners of the Bitstream, as SolrLoggerServiceImpl finds them
+     */
+    private OwnershipCache.Owners bitstreamOwners()
+    {
+        OwnershipCache.Owners owners = new OwnershipCache.Owners();
+        owners.addBundle(bundle);
+        owners.addItem(item);
+        owners.addCollection(collection);
+        owners.addCommunity(community);
+        return owners;
+    }
+
+    private OwnershipCache.Owners itemOwners()
+    {
+        OwnershipCache.Owners owners = new OwnershipCache.Owners();
+        owners.addCollection(collection);
+        owners.addCommunity(community);
+        return owners;
+    }
+
+    /**
+     * Cached owners are returned until an object of their chain is invalidated.
+     */
+    @Test
+    public void testGetPutInvalidate()
+    {
+        assertNull(OwnershipCache.get(bitstream));
+        OwnershipCache.Owners owners = bitstreamOwners();
+        OwnershipCache.put(bitstream, owners, OwnershipCache.getGeneration());
+        assertSame(owners, OwnershipCache.get(bitstream));
+        assertEquals(1, owners.getItems().size());
+        assertEquals(item, owners.getItems().get(0));
+
+        OwnershipCache.invalidate(UUID.randomUUID());
+        assertSame(owners, OwnershipCache.get(bitstream));
+
+        // the Bitstream is owned by the invalidated Item
+        OwnershipCache.invalidate(item);
+        assertNull(OwnershipCache.get(bitstream));
+    }
+
+    /**
+     * Owners looked up while their object was invalidated, or right after,
+     * are not cached; those of other objects are.
+     */
+    @Test
+    public void testInvalidationDuringLookup()
+    {
+        long generation = OwnershipCache.getGeneration();
+        OwnershipCache.invalidate(item);
+        OwnershipCache.put(bitstream, bitstreamOwners(), generation);
+        assertNull(OwnershipCache.get(bitstream));
+
+        // the change may not be committed yet
+        OwnershipCache.put(item, itemOwners(), OwnershipCache.getGeneration());
+        assertNull(OwnershipCache.get(item));
+
+        // an object outside of the invalidated chain is still cached
+        UUID otherItem = UUID.randomUUID();
+        OwnershipCache.put(otherItem, itemOwners(), generation);
+        assertNotNull(OwnershipCache.get(otherItem));
+    }
+
+    /**
+     * Owners looked up before the cache was cleared are not cached.
+     */
+    @Test
+    public void testClearDuringLookup()
+    {
+        long generation = OwnershipCache.getGeneration();
+        OwnershipCache.clear();
+        OwnershipCache.put(item, itemOwners(), generation);
+        assertNull(OwnershipCache.get(item));
+        OwnershipCache.put(item, itemOwners(), OwnershipCache.getGeneration());
+        assertNotNull(OwnershipCache.get(item));
+    }
+
+    /**
+     * Adding a new object leaves the cache as it is; adding, removing or
+     * deleting an object with cached owners forgets them.
+     */
+    @Test
+    public void testConsumer() throws Exception
+    {
+        OwnershipCacheConsumer consumer = new OwnershipCacheConsumer();
+        consumer.initialize();
+        OwnershipCache.put(item, itemOwners(), OwnershipCache.getGeneration());
+        OwnershipCache.put(bitstream, bitstreamOwners(), OwnershipCache.getGeneration());
+
+        // a new Bitstream added to a Bundle
+        UUID newBitstream = UUID.randomUUID();
+        consumer.consume(null, new Event(Event.ADD, Constants.BUNDLE, bundle, Constants.BITSTREAM, newBitstream, null));
+        OwnershipCache.put(newBitstream, bitstreamOwners(), OwnershipCache.getGeneration());
+        assertNotNull(OwnershipCache.get(newBitstream));
+        assertNotNull(OwnershipCache.get(item));
+
+        // the Item mapped into another Collection
+        consumer.consume(null, new Event(Event.ADD, Constants.COLLECTION, UUID.randomUUID(), Constants.ITEM, item, null));
+        assertNull(OwnershipCache.get(item));
+        assertNull(OwnershipCache.get(bitstream));
+        assertNull(OwnershipCache.get(newBitstream));
+
+        // a Collection removed from its Community
+        UUID otherItem = UUID.randomUUID();
+        OwnershipCache.put(otherItem, itemOwners(), OwnershipCache.getGeneration());
+        assertNotNull(OwnershipCache.get(otherItem));
+        consumer.consume(null, new Event(Event.REMOVE, Constants.COMMUNITY, community, Constants.COLLECTION, collection, null));
+        assertNull(OwnershipCache.get(otherItem));
+
+        // a deleted Community
+        UUID otherCollection = UUID.randomUUID();
+        OwnershipCache.Owners owners = new OwnershipCache.Owners();
+        owners.addCommunity(UUID.randomUUID());
+        OwnershipCache.put(otherCollection, owners, OwnershipCache.getGeneration());
+        assertNotNull(OwnershipCache.get(otherCollection));
+        consumer.consume(null, new Event(Event.DELETE, Constants.COMMUNITY, owners.getCommunities().get(0), null));
+        assertNull(OwnershipCache.get(otherCollection));
+        consumer.end(null);
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ShardProgress: checkpoints must survive a new run.
+ */
+public class ShardProgressTest
+{
+    private File file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("statistics-shard", ".progress");
+        file.delete();
+    }
+
+    @After
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void testResume() throws IOException
+    {
+        ShardProgress progress = new ShardProgress(file);
+        assertNull(progress.getCursorMark("statistics-2014"));
+        progress.setCursorMark("statistics-2014", "AoE/BTMx");
+        progress.setCursorMark("statistics-2015", "AoE/ABC=");
+        progress.setCopied("statistics-2015");
+        progress.setCursorMark("statistics-2016", "AoE/XYZ");
+        progress.remove("statistics-2016");
+
+        ShardProgress resumed = new ShardProgress(file);
+        assertEquals("AoE/BTMx", resumed.getCursorMark("statistics-2014"));
+        assertFalse(resumed.isCopied("statistics-2014"));
+        assertNull(resumed.getCursorMark("statistics-2015"));
+        assertTrue(resumed.isCopied("statistics-2015"));
+        assertNull(resumed.getCursorMark("statistics-2016"));
+        assertFalse(resumed.isCopied("statistics-2016"));
+    }
+
+    @Test
+    public void testDelete() throws IOException
+    {
+        ShardProgress progress = new ShardProgress(file);
+        progress.setCursorMark("statistics-2014", "AoE/BTMx");
+        assertTrue(file.exists());
+        progress.delete();
+        assertFalse(file.exists());
+        assertNull(new ShardProgress(file).getCursorMark("statistics-2014"));
+    }
+}
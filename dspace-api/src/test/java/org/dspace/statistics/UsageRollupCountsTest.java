@@ -0,0 +1,128 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.response.PivotField;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the UsageRollupCounts: the views counted from a pivot
+ * facet must be those a query per object, country and bot flag counts.
+ */
+public class UsageRollupCountsTest
+{
+    /** Fixture views: type, id, countryCode, isBot (null if missing), in the order of the pivot fields */
+    private static final Object[][] VIEWS = {
+        { 2, "a", "BE", false },
+        { 2, "a", "BE", false },
+        { 2, "a", "BE", true },
+        { 2, "a", "NL", null },
+        { 2, "a", null, false },
+        { 2, "a", null, null },
+        { 2, "a", null, true },
+        { 0, "a", "BE", false },
+        { 0, "b", "US", null },
+        { 0, "b", "US", null },
+        { 2, "c", "", false },
+    };
+
+    /**
+     * Every view is counted once, under its object, country and bot flag.
+     */
+    @Test
+    public void testPivots()
+    {
+        UsageRollupCounts counts = new UsageRollupCounts();
+        counts.addPivots(pivot(Arrays.asList(VIEWS), UsageRollupCounts.PIVOT, 0),
+                pivot(Arrays.asList(VIEWS), UsageRollupCounts.BOT_PIVOT, 0));
+
+        Map<UsageRollupCounts.Key, Long> expected = new HashMap<UsageRollupCounts.Key, Long>();
+        for (Object[] view : VIEWS)
+        {
+            String country = (String) view[2];
+            UsageRollupCounts.Key key = new UsageRollupCounts.Key((String) view[1], (Integer) view[0],
+                    country == null || country.isEmpty() ? UsageRollup.UNKNOWN_COUNTRY : country,
+                    Boolean.TRUE.equals(view[3]));
+            Long count = expected.get(key);
+            expected.put(key, count == null ? 1 : count + 1);
+        }
+        assertEquals(expected, counts.getCounts());
+        assertEquals(VIEWS.length, counts.getTotal());
+    }
+
+    @Test
+    public void testAdd()
+    {
+        UsageRollupCounts counts = new UsageRollupCounts();
+        counts.add("a", 2, "BE", false, 2);
+        counts.add("a", 2, "BE", false, 3);
+        counts.add("a", 2, null, false, 1);
+        counts.add("a", 2, "BE", true, 0);
+        assertEquals(2, counts.getCounts().size());
+        assertEquals(Long.valueOf(5), counts.getCounts().get(new UsageRollupCounts.Key("a", 2, "BE", false)));
+        assertEquals(Long.valueOf(1), counts.getCounts().get(
+                new UsageRollupCounts.Key("a", 2, UsageRollup.UNKNOWN_COUNTRY, false)));
+        assertEquals(6, counts.getTotal());
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        UsageRollupCounts counts = new UsageRollupCounts();
+        counts.addPivots(null, null);
+        counts.addPivots(new ArrayList<PivotField>(), new ArrayList<PivotField>());
+        assertEquals(0, counts.getCounts().size());
+        assertEquals(0, counts.getTotal());
+    }
+
+    /**
+     * Build the pivot facet Solr returns for the views, from the given level
+     * down: values which are missing (null) are not returned, as with
+     * facet.missing=false.
+     */
+    private static List<PivotField> pivot(List<Object[]> views, String pivot, int level)
+    {
+        String[] fields = pivot.split(",");
+        if (level == fields.length)
+        {
+            return null;
+        }
+        int column = Arrays.asList(UsageRollupCounts.PIVOT.split(",")).indexOf(fields[level]);
+        Map<Object, List<Object[]>> byValue = new LinkedHashMap<Object, List<Object[]>>();
+        for (Object[] view : views)
+        {
+            if (view[column] == null)
+            {
+                continue;
+            }
+            List<Object[]> valueViews = byValue.get(view[column]);
+            if (valueViews == null)
+            {
+                valueViews = new ArrayList<Object[]>();
+                byValue.put(view[column], valueViews);
+            }
+            valueViews.add(view);
+        }
+        List<PivotField> pivots = new ArrayList<PivotField>();
+        for (Map.Entry<Object, List<Object[]>> value : byValue.entrySet())
+        {
+            pivots.add(new PivotField(fields[level], value.getKey(), value.getValue().size(),
+                    pivot(value.getValue(), pivot, level + 1)));
+        }
+        return pivots;
+    }
+}
@@ -18,6 +18,7 @@ import org.swordapp.server.Deposit;
 import org.swordapp.server.SwordAuthException;
 import org.swordapp.server.SwordError;
 import org.swordapp.server.SwordServerException;
+import org.swordapp.server.UriRegistry;
 
 import java.sql.SQLException;
 import java.util.Date;
@@ -77,6 +78,20 @@ public abstract class AbstractSwordContentIngester
 
     protected BitstreamFormat getFormat(Context context, String fileName)
             throws SQLException
+    {
+        return this.getFormat(bitstreamFormatService.findAll(context), fileName);
+    }
+
+    /**
+     * Find the format of a file by its extension, among formats already
+     * loaded, so that a package of many files loads the formats only once.
+     *
+     * @param formats all bitstream formats
+     * @param fileName the name of the file
+     * @return the format, or null if the extension is not known
+     */
+    protected BitstreamFormat getFormat(List<BitstreamFormat> formats,
+            String fileName)
     {
         String fext = null;
         int lastDot = fileName.lastIndexOf(".");
@@ -90,7 +105,6 @@ public abstract class AbstractSwordContentIngester
             return null;
         }
 
-        List<BitstreamFormat> formats = bitstreamFormatService.findAll(context);
         for (BitstreamFormat format : formats)
         {
             List<String> extensions = format.getExtensions();
@@ -146,6 +160,33 @@ public abstract class AbstractSwordContentIngester
                 .append("Updated date added to response from item metadata where available");
     }
 
+    /**
+     * Check the deposited content against the MD5 given with the deposit, if
+     * any.  The bitstream store computes the checksum of the content while
+     * storing it, so the content does not need to be read again.
+     *
+     * @param deposit
+     * @param bitstream the bitstream the deposited content was stored in
+     * @throws SwordError if the checksums differ
+     */
+    protected void verifyChecksum(Deposit deposit, Bitstream bitstream)
+            throws SwordError
+    {
+        String md5 = deposit.getMd5();
+        if (md5 == null || "".equals(md5) ||
+                !"MD5".equalsIgnoreCase(bitstream.getChecksumAlgorithm()))
+        {
+            return;
+        }
+        if (!md5.trim().equalsIgnoreCase(bitstream.getChecksum()))
+        {
+            log.error("Checksum mismatch: deposit MD5 " + md5 +
+                    ", stored content MD5 " + bitstream.getChecksum());
+            throw new SwordError(UriRegistry.ERROR_CHECKSUM_MISMATCH,
+                    "The MD5 of the deposited content does not match the Content-MD5 supplied");
+        }
+    }
+
     /**
      * Store the given slug value (which is used for suggested identifiers,
      * and which DSpace ignores) in the item metadata.  This looks up the
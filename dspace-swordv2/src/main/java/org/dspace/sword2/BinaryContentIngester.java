@@ -26,6 +26,7 @@ import org.swordapp.server.SwordError;
 import org.swordapp.server.SwordServerException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.List;
 
@@ -66,9 +67,12 @@ public class BinaryContentIngester extends AbstractSwordContentIngester
                 item = wsi.getItem();
             }
 
-            Bitstream bs = itemService
-                    .createSingleBitstream(context, deposit.getInputStream(),
-                            item);
+            Bitstream bs;
+            try (InputStream stream = deposit.getInputStream())
+            {
+                bs = itemService.createSingleBitstream(context, stream, item);
+            }
+            this.verifyChecksum(deposit, bs);
             BitstreamFormat format = this
                     .getFormat(context, deposit.getFilename());
             bs.setName(context, deposit.getFilename());
@@ -150,8 +154,12 @@ public class BinaryContentIngester extends AbstractSwordContentIngester
                         .create(context, item, Constants.CONTENT_BUNDLE_NAME);
             }
 
-            Bitstream bs = bitstreamService
-                    .create(context, original, deposit.getInputStream());
+            Bitstream bs;
+            try (InputStream stream = deposit.getInputStream())
+            {
+                bs = bitstreamService.create(context, original, stream);
+            }
+            this.verifyChecksum(deposit, bs);
             BitstreamFormat format = this
                     .getFormat(context, deposit.getFilename());
             bs.setFormat(context, format);
@@ -29,12 +29,10 @@ import org.swordapp.server.SwordError;
 import org.swordapp.server.SwordServerException;
 import org.swordapp.server.UriRegistry;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
@@ -42,6 +40,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -314,7 +313,7 @@ public class DSpaceSwordAPI
                 {
                     String entry = deposit.getSwordEntry().toString();
                     ByteArrayInputStream bais = new ByteArrayInputStream(
-                            entry.getBytes());
+                            entry.getBytes("UTF-8"));
                     Bitstream entryBitstream = bitstreamService
                             .create(context, swordBundle, bais);
 
@@ -486,13 +485,8 @@ public class DSpaceSwordAPI
         File packageFile = new File(path, filenameBase);
         File headersFile = new File(path, filenameBase + "-headers");
 
-        InputStream is = new BufferedInputStream(
-                new FileInputStream(deposit.getFile()));
-        OutputStream fos = new BufferedOutputStream(
-                new FileOutputStream(packageFile));
-        Utils.copy(is, fos);
-        fos.close();
-        is.close();
+        // copy the spooled deposit file by the file system, without passing it through the heap
+        Files.copy(deposit.getFile().toPath(), packageFile.toPath());
 
         //write companion file with headers
         PrintWriter pw = new PrintWriter(
@@ -532,7 +526,7 @@ public class DSpaceSwordAPI
         File headersFile = new File(path, filenameBase + "-headers");
 
         String entry = deposit.getSwordEntry().toString();
-        ByteArrayInputStream is = new ByteArrayInputStream(entry.getBytes());
+        ByteArrayInputStream is = new ByteArrayInputStream(entry.getBytes("UTF-8"));
         OutputStream fos = new BufferedOutputStream(
                 new FileOutputStream(packageFile));
         Utils.copy(is, fos);
@@ -17,10 +17,12 @@ import org.dspace.core.*;
 import org.swordapp.server.SwordError;
 import org.swordapp.server.SwordServerException;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.SQLException;
 import java.util.Date;
 import java.util.List;
@@ -55,9 +57,20 @@ public class FeedContentDisseminator extends AbstractSimpleDC
                 }
             }
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            feed.writeTo(baos);
-            return new ByteArrayInputStream(baos.toByteArray());
+            // spool the feed to a temp file, which is deleted once it has been sent
+            File feedFile = TempFileInputStream
+                    .createTempFile("SWORD." + item.getID() + ".", ".xml");
+            try (OutputStream out = new BufferedOutputStream(
+                    new FileOutputStream(feedFile)))
+            {
+                feed.writeTo(out);
+            }
+            catch (IOException e)
+            {
+                feedFile.delete();
+                throw e;
+            }
+            return new TempFileInputStream(feedFile);
         }
         catch (IOException e)
         {
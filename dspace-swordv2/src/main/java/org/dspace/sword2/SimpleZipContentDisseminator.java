@@ -13,7 +13,6 @@ import org.dspace.content.Bundle;
 import org.dspace.content.Item;
 import org.dspace.content.factory.ContentServiceFactory;
 import org.dspace.content.service.BitstreamService;
-import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.core.Utils;
@@ -21,14 +20,13 @@ import org.swordapp.server.SwordError;
 import org.swordapp.server.SwordServerException;
 import org.swordapp.server.UriRegistry;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.sql.SQLException;
 import java.util.List;
-import java.util.UUID;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -43,35 +41,38 @@ public class SimpleZipContentDisseminator implements SwordContentDisseminator
         try
         {
             // first write everything to a temp file
-            String tempDir = ConfigurationManager
-                    .getProperty("upload.temp.dir");
-            String fn =
-                    tempDir + File.separator + "SWORD." + item.getID() + "." +
-                            UUID.randomUUID().toString() + ".zip";
-            OutputStream outStream = new FileOutputStream(new File(fn));
-            ZipOutputStream zip = new ZipOutputStream(outStream);
-
-            List<Bundle> bundles = item.getBundles();
-            for (Bundle bundle : bundles)
+            File zipFile = TempFileInputStream
+                    .createTempFile("SWORD." + item.getID() + ".", ".zip");
+            try (ZipOutputStream zip = new ZipOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(zipFile))))
             {
-                if (Constants.CONTENT_BUNDLE_NAME.equals(bundle.getName()))
+                List<Bundle> bundles = item.getBundles();
+                for (Bundle bundle : bundles)
                 {
-                    List<Bitstream> bss = bundle.getBitstreams();
-                    for (Bitstream bitstream : bss)
+                    if (Constants.CONTENT_BUNDLE_NAME.equals(bundle.getName()))
                     {
-                        ZipEntry ze = new ZipEntry(bitstream.getName());
-                        zip.putNextEntry(ze);
-                        InputStream is = bitstreamService
-                                .retrieve(context, bitstream);
-                        Utils.copy(is, zip);
-                        zip.closeEntry();
-                        is.close();
+                        List<Bitstream> bss = bundle.getBitstreams();
+                        for (Bitstream bitstream : bss)
+                        {
+                            ZipEntry ze = new ZipEntry(bitstream.getName());
+                            zip.putNextEntry(ze);
+                            try (InputStream is = bitstreamService
+                                    .retrieve(context, bitstream))
+                            {
+                                Utils.copy(is, zip);
+                            }
+                            zip.closeEntry();
+                        }
                     }
                 }
             }
-            zip.close();
+            catch (SQLException | IOException | AuthorizeException e)
+            {
+                zipFile.delete();
+                throw e;
+            }
 
-            return new TempFileInputStream(new File(fn));
+            return new TempFileInputStream(zipFile);
         }
         catch (SQLException | IOException | AuthorizeException e)
         {
@@ -145,25 +145,37 @@ public class SimpleZipContentIngester extends AbstractSwordContentIngester
     {
         try
         {
-            // get the zip file into a usable form
-            ZipFile zip = new ZipFile(depositFile);
-
-            List<Bitstream> derivedResources = new ArrayList<Bitstream>();
-            Enumeration zenum = zip.entries();
-            while (zenum.hasMoreElements())
+            // read the entries from the central directory of the zip file, and
+            // stream each one into its own bitstream, one at a time
+            try (ZipFile zip = new ZipFile(depositFile))
             {
-                ZipEntry entry = (ZipEntry) zenum.nextElement();
-                InputStream stream = zip.getInputStream(entry);
-                Bitstream bs = bitstreamService.create(context, target, stream);
-                BitstreamFormat format = this
-                        .getFormat(context, entry.getName());
-                bs.setFormat(context, format);
-                bs.setName(context, entry.getName());
-                bitstreamService.update(context, bs);
-                derivedResources.add(bs);
-            }
+                List<Bitstream> derivedResources = new ArrayList<Bitstream>();
+                List<BitstreamFormat> formats = bitstreamFormatService
+                        .findAll(context);
+                Enumeration<? extends ZipEntry> zenum = zip.entries();
+                while (zenum.hasMoreElements())
+                {
+                    ZipEntry entry = zenum.nextElement();
+                    if (entry.isDirectory())
+                    {
+                        // directories have no content of their own
+                        continue;
+                    }
+                    Bitstream bs;
+                    try (InputStream stream = zip.getInputStream(entry))
+                    {
+                        bs = bitstreamService.create(context, target, stream);
+                    }
+                    BitstreamFormat format = this
+                            .getFormat(formats, entry.getName());
+                    bs.setFormat(context, format);
+                    bs.setName(context, entry.getName());
+                    bitstreamService.update(context, bs);
+                    derivedResources.add(bs);
+                }
 
-            return derivedResources;
+                return derivedResources;
+            }
         }
         catch (ZipException e)
         {
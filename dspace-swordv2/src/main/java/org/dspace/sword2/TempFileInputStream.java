@@ -12,6 +12,13 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * Stream of a temporary file, which deletes the file when closed.  Content
+ * is disseminated through a temporary file rather than built in memory,
+ * so that large content does not have to fit in the heap.
+ */
 public class TempFileInputStream extends FileInputStream
 {
     private String path;
@@ -23,6 +30,23 @@ public class TempFileInputStream extends FileInputStream
         this.path = file.getAbsolutePath();
     }
 
+    /**
+     * Create a new empty file in the upload temp directory
+     * (upload.temp.dir), to be read back through a TempFileInputStream.
+     *
+     * @param prefix start of the name of the file
+     * @param suffix end of the name of the file
+     * @return the new file
+     * @throws IOException if the file cannot be created
+     */
+    public static File createTempFile(String prefix, String suffix)
+            throws IOException
+    {
+        String tempDir = ConfigurationManager.getProperty("upload.temp.dir");
+        return File.createTempFile(prefix, suffix,
+                tempDir == null ? null : new File(tempDir));
+    }
+
     public void close()
             throws IOException
     {
@@ -0,0 +1,106 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.xmlui.aspect.administrative.controlpanel;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cocoon.environment.ObjectModelHelper;
+import org.apache.cocoon.environment.Request;
+import org.dspace.app.xmlui.wing.Message;
+import org.dspace.app.xmlui.wing.WingException;
+import org.dspace.app.xmlui.wing.element.Division;
+import org.dspace.app.xmlui.wing.element.Para;
+import org.dspace.app.xmlui.wing.element.Row;
+import org.dspace.app.xmlui.wing.element.Table;
+import org.dspace.core.HibernateCache;
+
+/**
+ * Control panel tab that displays the statistics of the regions of the
+ * Hibernate second level cache, to size them in
+ * <code>[dspace]/config/hibernate-ehcache-config.xml</code>, and lets
+ * administrators clear them.
+ * <P>
+ * The memory used by a region is computed on request, by serializing its
+ * entries, which takes a while for large regions.
+ */
+public class ControlPanelCacheTab extends AbstractControlPanelTab
+{
+
+    private static final Message T_CACHE_HEAD = message("xmlui.administrative.ControlPanel.cache_head");
+
+    private static final Message T_CACHE_NO_STATISTICS = message("xmlui.administrative.ControlPanel.cache_no_statistics");
+
+    private static final Message T_CACHE_CLEAR = message("xmlui.administrative.ControlPanel.cache_clear");
+
+    private static final Message T_CACHE_CLEARED = message("xmlui.administrative.ControlPanel.cache_cleared");
+
+    private static final Message T_CACHE_REGION = message("xmlui.administrative.ControlPanel.cache_region");
+
+    private static final Message T_CACHE_ELEMENTS = message("xmlui.administrative.ControlPanel.cache_elements");
+
+    private static final Message T_CACHE_SIZE = message("xmlui.administrative.ControlPanel.cache_size");
+
+    private static final Message T_CACHE_HITS = message("xmlui.administrative.ControlPanel.cache_hits");
+
+    private static final Message T_CACHE_MISSES = message("xmlui.administrative.ControlPanel.cache_misses");
+
+    private static final Message T_CACHE_PUTS = message("xmlui.administrative.ControlPanel.cache_puts");
+
+    private static final Message T_CACHE_HIT_RATIO = message("xmlui.administrative.ControlPanel.cache_hit_ratio");
+
+    @Override
+    public void addBody(Map objectModel, Division div) throws WingException, SQLException
+    {
+        Request request = ObjectModelHelper.getRequest(objectModel);
+        boolean cleared = "true".equals(request.getParameter("evictcache"));
+        if (cleared)
+        {
+            HibernateCache.evictAll(context);
+        }
+
+        Para para = div.addPara();
+        if (cleared)
+        {
+            para.addContent(T_CACHE_CLEARED);
+            para.addContent(" ");
+        }
+        para.addXref(this.web_link + "&evictcache=true", T_CACHE_CLEAR);
+        if (!HibernateCache.isStatisticsEnabled(context))
+        {
+            div.addPara(T_CACHE_NO_STATISTICS);
+        }
+
+        List<HibernateCache.RegionStatistics> regions = HibernateCache.getStatistics(context);
+        Table table = div.addTable("cacheRegions", regions.size() + 1, 7);
+        table.setHead(T_CACHE_HEAD);
+        Row header = table.addRow(Row.ROLE_HEADER);
+        header.addCellContent(T_CACHE_REGION);
+        header.addCellContent(T_CACHE_ELEMENTS);
+        header.addCellContent(T_CACHE_SIZE);
+        header.addCellContent(T_CACHE_HITS);
+        header.addCellContent(T_CACHE_MISSES);
+        header.addCellContent(T_CACHE_PUTS);
+        header.addCellContent(T_CACHE_HIT_RATIO);
+
+        for (HibernateCache.RegionStatistics region : regions)
+        {
+            Row row = table.addRow(Row.ROLE_DATA);
+            row.addCellContent(region.getName());
+            row.addCellContent(String.valueOf(region.getElements()));
+            row.addCellContent(region.getSize() < 0 ? "-" : String.valueOf(region.getSize() / 1024) + " KiB");
+            row.addCellContent(String.valueOf(region.getHits()));
+            row.addCellContent(String.valueOf(region.getMisses()));
+            row.addCellContent(String.valueOf(region.getPuts()));
+            double ratio = region.getHitRatio();
+            row.addCellContent(ratio < 0 ? "-" : String.format("%.1f %%", ratio * 100));
+        }
+    }
+
+}
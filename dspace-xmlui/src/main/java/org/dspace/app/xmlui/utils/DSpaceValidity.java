@@ -9,18 +9,14 @@ package org.dspace.app.xmlui.utils;
 
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.List;
 
 import org.apache.cocoon.util.HashUtil;
 import org.apache.excalibur.source.SourceValidity;
-import org.dspace.content.*;
-import org.dspace.content.factory.ContentServiceFactory;
-import org.dspace.content.service.CollectionService;
-import org.dspace.content.service.CommunityService;
-import org.dspace.content.service.ItemService;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.DSpaceObjectStamps;
+import org.dspace.content.Item;
+import org.dspace.core.Constants;
 import org.dspace.core.Context;
-import org.dspace.eperson.EPerson;
-import org.dspace.eperson.Group;
 
 /**
  * This is a validity object specifically implemented for the caching 
@@ -36,8 +32,8 @@ import org.dspace.eperson.Group;
  * the processes of determining what is unique about a DSpace object. A class
  * is expected to create a new DSpaceValidity object and add() to it all 
  * DSpaceObjects that are rendered by the component. This validity object will 
- * serialize all those objects to a string, take a hash of the string and compare
- * the hash of the string for any updates.
+ * serialize the version stamps of all those objects to a string, take a hash of
+ * the string and compare the hash of the string for any updates.
  * 
  * @author Scott Phillips
  */
@@ -63,11 +59,6 @@ public class DSpaceValidity implements SourceValidity
     protected long assumedValidityDelay = 0;
 
 
-    transient protected CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
-   	transient protected CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
-    transient protected ItemService itemService = ContentServiceFactory.getInstance().getItemService();
-
-
     /**
      * Create a new DSpace validity object. 
      * 
@@ -214,9 +205,10 @@ public class DSpaceValidity implements SourceValidity
      * objects are added in the *exact* same order each time a 
      * validity object is created.
      * 
-     * Below are the following transitive rules for adding 
-     * objects, i.e. if an item is added then all the item's
-     * bundles and bitstreams will also be added.
+     * <p>The object is added by its version stamp (see
+     * {@link DSpaceObjectStamps}), which changes whenever the object
+     * does, so nothing needs to be loaded to add it. The stamp of an
+     * object also changes with what is rendered along with it, i.e.
      * 
      * <p>
      * {@literal Communities -> logo bitstream}
@@ -226,8 +218,9 @@ public class DSpaceValidity implements SourceValidity
      * {@literal Item -> bundles -> bitstream}
      * <br>
      * {@literal Bundles -> bitstreams}
-     * <br>
-     * {@literal EPeople -> groups}
+     * 
+     * <p>Items changed by other applications are noticed at once by
+     * their last modified date, other objects once their stamp expires.
      * 
      * @param context
      *          session context.
@@ -246,119 +239,17 @@ public class DSpaceValidity implements SourceValidity
         {
           this.validityKey.append("null");  
         }
-        else if (dso instanceof Community)
+        else
         {
-            Community community = (Community) dso;
-
-            validityKey.append("Community:");
-            validityKey.append(community.getHandle());
-            validityKey.append(communityService.getMetadata(community, "introductory_text"));
-            validityKey.append(communityService.getMetadata(community, "short_description"));
-            validityKey.append(communityService.getMetadata(community, "side_bar_text"));
-            validityKey.append(communityService.getMetadata(community, "copyright_text"));
-            validityKey.append(communityService.getMetadata(community, "name"));
-            
-            // Add the communities logo
-            this.add(context, community.getLogo());
+            validityKey.append(Constants.typeText[dso.getType()]).append(":");
+            validityKey.append(dso.getID()).append("@");
+            validityKey.append(DSpaceObjectStamps.get(dso.getID()));
 
-        } 
-        else if (dso instanceof Collection)
-        {
-            Collection collection = (Collection) dso;
-            
-            validityKey.append("Collection:");
-            validityKey.append(collection.getHandle());
-            validityKey.append(collectionService.getMetadata(collection, "introductory_text"));
-            validityKey.append(collectionService.getMetadata(collection, "short_description"));
-            validityKey.append(collectionService.getMetadata(collection, "side_bar_text"));
-            validityKey.append(collectionService.getMetadata(collection, "provenance_description"));
-            validityKey.append(collectionService.getMetadata(collection, "copyright_text"));
-            validityKey.append(collectionService.getMetadata(collection, "license"));
-            validityKey.append(collectionService.getMetadata(collection, "name")); 
-            
-            // Add the logo also;
-            this.add(context, collection.getLogo());
-            
-        }
-        else if (dso instanceof Item)
-        {
-            Item item = (Item) dso;
-            
-            validityKey.append("Item:");
-            validityKey.append(item.getHandle());            
-            validityKey.append(item.getOwningCollection());
-            validityKey.append(item.getLastModified());
-            // Include all metadata values in the validity key.
-            List<MetadataValue> dcvs = itemService.getMetadata(item, Item.ANY, Item.ANY,Item.ANY,Item.ANY);
-            for (MetadataValue dcv : dcvs)
+            if (dso instanceof Item)
             {
-                validityKey.append(dcv.getMetadataField().toString('.'));
-                validityKey.append(dcv.getLanguage()).append("=");
-                validityKey.append(dcv.getValue());
-            }
-            
-            for(Bundle bundle : item.getBundles())
-            {
-                // Add each of the items bundles & bitstreams.
-                this.add(context, bundle);
+                validityKey.append(((Item) dso).getLastModified());
             }
         }
-        else if (dso instanceof Bundle)
-        {
-            Bundle bundle = (Bundle) dso;
-            
-            validityKey.append("Bundle:");
-            validityKey.append(bundle.getID());
-            validityKey.append(bundle.getName());
-            validityKey.append(bundle.getPrimaryBitstream() != null ? bundle.getPrimaryBitstream().getID() : "");
-            
-            for(Bitstream bitstream : bundle.getBitstreams())
-            {
-                this.add(context, bitstream);
-            }
-        }
-        else if (dso instanceof Bitstream)
-        {
-            Bitstream bitstream = (Bitstream) dso;
-            
-            validityKey.append("Bundle:");
-            validityKey.append(bitstream.getID());
-            validityKey.append(bitstream.getSequenceID());
-            validityKey.append(bitstream.getName());
-            validityKey.append(bitstream.getSource());
-            validityKey.append(bitstream.getDescription());
-            validityKey.append(bitstream.getChecksum());
-            validityKey.append(bitstream.getChecksumAlgorithm());
-            validityKey.append(bitstream.getSize());
-            validityKey.append(bitstream.getUserFormatDescription());
-            validityKey.append(bitstream.getFormat(context).getDescription());
-        }
-        else if (dso instanceof EPerson)
-        {
-            EPerson eperson = (EPerson) dso;
-            
-            validityKey.append("Bundle:");
-            validityKey.append(eperson.getID());
-            validityKey.append(eperson.getEmail());
-            validityKey.append(eperson.getNetid());
-            validityKey.append(eperson.getFirstName());
-            validityKey.append(eperson.getLastName());
-            validityKey.append(eperson.canLogIn());
-            validityKey.append(eperson.getRequireCertificate());
-        }
-        else if (dso instanceof Group)
-        {
-            Group group = (Group) dso;
-            
-            validityKey.append("Group:");
-            
-            validityKey.append(group.getID());
-            validityKey.append(group.getName());
-        }
-        else
-        {
-            throw new IllegalArgumentException("DSpaceObject of type '"+dso.getClass().getName()+"' is not supported by the DSpaceValidity object.");
-        }    
     }
     
     /**